@@ -0,0 +1,99 @@
+package com.lumm.cache.benchmark;
+
+import com.lumm.cache.configuration.CacheConfiguration;
+import com.lumm.cache.management.LatencyHistogram;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程读写同一个缓存时，统计关闭、全量记录耗时、采样记录耗时三种模式下的吞吐量，
+ * 以单线程读取为基准衡量统计在多线程下的竞争；另外单独衡量多线程记录直方图同一个桶的吞吐量
+ * <p>
+ * 运行：mvn -P benchmark test-compile exec:java，或打包后通过 org.openjdk.jmh.Main 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CacheStatisticsBenchmark {
+
+    private static final int KEY_COUNT = 1024;
+
+    /**
+     * off: 关闭统计；1: 记录每次操作的耗时；64: 每 64 次操作记录 1 次耗时
+     */
+    @Param({"off", "1", "64"})
+    public String statistics;
+
+    private CacheManager cacheManager;
+
+    private Cache<Integer, Integer> cache;
+
+    @Setup
+    public void setup() {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        Properties properties = new Properties();
+        if (!"off".equals(statistics)) {
+            properties.setProperty(CacheConfiguration.STATISTICS_SAMPLE_RATE_PROPERTY_NAME, statistics);
+        }
+        cacheManager = cachingProvider.getCacheManager(URI.create("in-memory://benchmark-" + statistics + "/"),
+                cachingProvider.getDefaultClassLoader(), properties);
+        MutableConfiguration<Integer, Integer> configuration = new MutableConfiguration<Integer, Integer>()
+                .setTypes(Integer.class, Integer.class)
+                .setStatisticsEnabled(!"off".equals(statistics));
+        cache = cacheManager.createCache("benchmark", configuration);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            cache.put(i, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cacheManager.destroyCache("benchmark");
+        cacheManager.close();
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        blackhole.consume(cache.get(ThreadLocalRandom.current().nextInt(KEY_COUNT)));
+    }
+
+    @Benchmark
+    public void put() {
+        int key = ThreadLocalRandom.current().nextInt(KEY_COUNT);
+        cache.put(key, key);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void getSingleThread(Blackhole blackhole) {
+        blackhole.consume(cache.get(ThreadLocalRandom.current().nextInt(KEY_COUNT)));
+    }
+
+    /**
+     * 所有线程记录到同一个桶，与统计模式无关
+     */
+    @Benchmark
+    public void recordContended(HistogramState state) {
+        state.histogram.record(100L);
+    }
+
+    @State(Scope.Benchmark)
+    public static class HistogramState {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+    }
+}
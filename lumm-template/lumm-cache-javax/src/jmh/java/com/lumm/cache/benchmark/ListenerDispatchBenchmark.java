@@ -0,0 +1,75 @@
+package com.lumm.cache.benchmark;
+
+import com.lumm.cache.event.CacheEntryEventListenerAdapter;
+import com.lumm.cache.event.GenericCacheEntryEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.cache.Cache;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步监听器每个事件的投递开销：{@link Method#invoke} 与 {@link CacheEntryEventListenerAdapter} 的直接调用对比
+ * <p>
+ * 运行：mvn -P benchmark test-compile exec:java -Dexec.args=ListenerDispatchBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerDispatchBenchmark {
+
+    private CountingListener listener;
+
+    private Method onCreated;
+
+    private CacheEntryEventListenerAdapter<String, Integer> adapter;
+
+    private CacheEntryEvent<String, Integer> event;
+
+    @Setup
+    public void setup() throws Exception {
+        listener = new CountingListener();
+        onCreated = CountingListener.class.getMethod("onCreated", Iterable.class);
+        adapter = new CacheEntryEventListenerAdapter<>(
+                new MutableCacheEntryListenerConfiguration<>(() -> listener, null, false, true));
+        Cache<String, Integer> source = (Cache<String, Integer>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Cache.class}, (proxy, method, args) -> null);
+        event = GenericCacheEntryEvent.createdEvent(source, "key", 1);
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws Exception {
+        blackhole.consume(onCreated.invoke(listener, Collections.singleton(event)));
+    }
+
+    @Benchmark
+    public void adapter() {
+        adapter.onEvent(event);
+    }
+
+    @TearDown
+    public void tearDown(Blackhole blackhole) {
+        blackhole.consume(listener.count);
+    }
+
+    public static class CountingListener implements CacheEntryCreatedListener<String, Integer> {
+
+        private long count;
+
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends Integer>> events) {
+            for (CacheEntryEvent<? extends String, ? extends Integer> ignored : events) {
+                count++;
+            }
+        }
+    }
+}
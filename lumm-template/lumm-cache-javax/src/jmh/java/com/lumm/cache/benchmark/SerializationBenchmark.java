@@ -0,0 +1,128 @@
+package com.lumm.cache.benchmark;
+
+import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.serialization.DefaultDeserializer;
+import com.lumm.cache.serialization.DefaultSerializer;
+import com.lumm.cache.serialization.Deserializer;
+import com.lumm.cache.serialization.Deserializers;
+import com.lumm.cache.serialization.Serializer;
+import com.lumm.cache.serialization.Serializers;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 默认的 Java 序列化与二进制编解码器的吞吐量对比，Trial 开始时打印两者编码后的字节数
+ * <p>
+ * 运行：mvn -P benchmark test-compile exec:java -Dexec.args="SerializationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * integer: 整数；string: 短字符串；pojo: 普通对象；entry: JedisCache 保存的 {@link ExpirableEntry}
+     */
+    @Param({"integer", "string", "pojo", "entry"})
+    public String payload;
+
+    private Object value;
+
+    private Serializer<Object> defaultSerializer;
+
+    private Deserializer<Object> defaultDeserializer;
+
+    private Serializer<Object> binarySerializer;
+
+    private Deserializer<Object> binaryDeserializer;
+
+    private byte[] defaultBytes;
+
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        value = createPayload(payload);
+        Serializers serializers = new Serializers();
+        serializers.loadSPI();
+        Deserializers deserializers = new Deserializers();
+        deserializers.loadSPI();
+        defaultSerializer = new DefaultSerializer();
+        defaultDeserializer = new DefaultDeserializer();
+        binarySerializer = (Serializer<Object>) serializers.getMostCompatible(value.getClass());
+        binaryDeserializer = (Deserializer<Object>) deserializers.getMostCompatible(value.getClass());
+        defaultBytes = defaultSerializer.serialize(value);
+        binaryBytes = binarySerializer.serialize(value);
+        System.out.printf("%n[%s] default: %d bytes, binary: %d bytes%n", payload, defaultBytes.length,
+                binaryBytes.length);
+    }
+
+    @Benchmark
+    public byte[] defaultSerialize() throws IOException {
+        return defaultSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() throws IOException {
+        return binarySerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object defaultDeserialize() throws IOException {
+        return defaultDeserializer.deserialize(defaultBytes);
+    }
+
+    @Benchmark
+    public Object binaryDeserialize() throws IOException {
+        return binaryDeserializer.deserialize(binaryBytes);
+    }
+
+    private static Object createPayload(String payload) {
+        switch (payload) {
+            case "integer":
+                return 20240101;
+            case "string":
+                return "user:profile:20240101";
+            case "entry":
+                ExpirableEntry<String, Object> entry = new ExpirableEntry<>("user:20240101", createPayload("pojo"));
+                entry.setTimestamp(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+                return entry;
+            default:
+                Order order = new Order();
+                order.id = 20240101L;
+                order.customer = "zhangj";
+                order.amount = 128.5d;
+                for (int i = 0; i < 5; i++) {
+                    order.items.add("item-" + i);
+                }
+                order.attributes.put("channel", "app");
+                order.attributes.put("priority", 3);
+                return order;
+        }
+    }
+
+    public static class Order implements Serializable {
+
+        private long id;
+
+        private String customer;
+
+        private double amount;
+
+        private boolean paid;
+
+        private List<String> items = new ArrayList<>();
+
+        private Map<String, Object> attributes = new HashMap<>();
+    }
+}
@@ -1,15 +1,20 @@
 package com.lumm.cache;
 
+import com.lumm.cache.configuration.CacheConfiguration;
 import com.lumm.cache.configuration.ConfigurationUtils;
+import com.lumm.cache.configuration.PropertiesCacheConfiguration;
 import com.lumm.cache.event.CacheEntryEventPublisher;
 import com.lumm.cache.event.GenericCacheEntryEvent;
+import com.lumm.cache.expiry.Ticker;
 import com.lumm.cache.integration.CompositeFallbackStorage;
 import com.lumm.cache.integration.FallbackStorage;
+import com.lumm.cache.integration.WriteBehindCacheWriter;
 import com.lumm.cache.management.CacheStatistics;
 import com.lumm.cache.management.DummyCacheStatistics;
 import com.lumm.cache.management.ManagementUtils;
 import com.lumm.cache.management.SimpleCacheStatistics;
 import com.lumm.cache.processor.MutableEntryAdapter;
+import com.lumm.cache.serialization.ValueCompressor;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.cache.Cache;
@@ -20,6 +25,7 @@ import javax.cache.expiry.Duration;
 import javax.cache.expiry.EternalExpiryPolicy;
 import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
 import javax.cache.integration.CacheWriter;
 import javax.cache.integration.CompletionListener;
 import javax.cache.processor.EntryProcessor;
@@ -28,9 +34,18 @@ import javax.cache.processor.EntryProcessorResult;
 import javax.cache.processor.MutableEntry;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static com.lumm.cache.ExpirableEntry.requireKeyNotNull;
+import static com.lumm.cache.ExpirableEntry.requireOldValueNotNull;
+import static com.lumm.cache.ExpirableEntry.requireValueNotNull;
 
 /**
  * {@link Cache}
@@ -38,6 +53,11 @@ import java.util.function.Supplier;
 @Slf4j
 public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
+    /**
+     * 本次操作未被采样，不记录耗时
+     */
+    private static final long UNTIMED = Long.MIN_VALUE;
+
     /**
      * 缓存管理器
      */
@@ -84,12 +104,37 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
     private final CacheStatistics cacheStatistics;
 
     /**
-     * 多线程执行器
+     * 值的压缩器，序列化存储的实现使用
+     */
+    private final ValueCompressor valueCompressor;
+
+    /**
+     * 进行中的穿透读取加载，同一个键同时只有一次 {@link CacheLoader#load(Object)} 调用
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * 提前刷新窗口，单位毫秒，小于等于0表示不提前刷新
+     */
+    private final long refreshAheadMillis;
+
+    /**
+     * 多线程执行器，缓存管理器不是 {@link AbstractCacheManager} 时使用
      */
     private final Executor executor;
 
+    /**
+     * 时钟，用于判断条目是否过期以及计算过期时间戳
+     */
+    private final Ticker ticker;
+
     private volatile boolean closed = false;
 
+    /**
+     * 迭代时默认每批预取的条目数量
+     */
+    protected static final int DEFAULT_ITERATOR_BATCH_SIZE = 100;
+
     /**
      * 构造
      *
@@ -98,23 +143,45 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
      * @param configuration 缓存配置
      */
     protected AbstractCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
+        this(cacheManager, cacheName, configuration, cacheManager instanceof AbstractCacheManager ?
+                ((AbstractCacheManager) cacheManager).getTicker() : Ticker.SYSTEM);
+    }
+
+    /**
+     * 构造
+     *
+     * @param cacheManager  缓存管理器
+     * @param cacheName     缓存名
+     * @param configuration 缓存配置
+     * @param ticker        时钟
+     */
+    protected AbstractCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration,
+                            Ticker ticker) {
         this.cacheManager = cacheManager;
+        this.ticker = ticker;
         this.cacheName = cacheName;
         // 缓存配置转为不可变
         this.configuration = ConfigurationUtils.mutableConfiguration(configuration);
+        // 提前刷新窗口
+        CacheConfiguration cacheConfiguration = resolveCacheConfiguration(configuration);
+        this.refreshAheadMillis = cacheConfiguration.getRefreshAheadMillis();
         // 获取过期策略
         this.expiryPolicy = resolveExpiryPolicy(this.configuration);
+        // 缓存统计
+        this.cacheStatistics = resolveCacheStatistics(cacheConfiguration);
+        // 值的压缩
+        this.valueCompressor = resolveValueCompressor(cacheConfiguration);
         // 缓存加载写入器
         this.defaultFallbackStorage = new CompositeFallbackStorage(getClassLoader());
         // 解析并获取缓存加载器和缓存写入器
         this.cacheLoader = resolveCacheLoader(this.configuration);
-        this.cacheWriter = resolveCacheWriter(this.configuration);
-        // 缓存事件发布器
-        this.cacheEntryEventPublisher = new CacheEntryEventPublisher();
-        // 多线程执行器
+        this.cacheWriter = resolveCacheWriter(this.configuration, cacheConfiguration);
+        // 多线程执行器，缓存管理器未提供执行器时使用
         this.executor = ForkJoinPool.commonPool();
-        // 缓存统计
-        this.cacheStatistics = resolveCacheStatistics();
+        // 缓存事件发布器，异步监听器使用缓存管理器的执行器
+        this.cacheEntryEventPublisher = new CacheEntryEventPublisher(cacheManager instanceof AbstractCacheManager ?
+                ((AbstractCacheManager) cacheManager).getExecutor(AbstractCacheManager.LISTENER_EXECUTOR) : executor,
+                cacheConfiguration.getListenerQueueSize(), cacheConfiguration.getListenerBatchSize());
         // 注册缓存监听器
         this.registerCacheEntryListenersFromConfiguration();
         ManagementUtils.registerMBeansIfRequired(this, cacheStatistics);
@@ -138,13 +205,45 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         return configuration.isStatisticsEnabled();
     }
 
-    private CacheStatistics resolveCacheStatistics() {
-        return isStatisticsEnabled() ? new SimpleCacheStatistics() : DummyCacheStatistics.INSTANCE;
+    private CacheStatistics resolveCacheStatistics(CacheConfiguration cacheConfiguration) {
+        return isStatisticsEnabled() ? new SimpleCacheStatistics(cacheConfiguration.getStatisticsSampleRate()) :
+                DummyCacheStatistics.INSTANCE;
+    }
+
+    private ValueCompressor resolveValueCompressor(CacheConfiguration cacheConfiguration) {
+        int threshold = cacheConfiguration.getCompressionThreshold();
+        return threshold > 0 ? new ValueCompressor(threshold, cacheConfiguration.getCompressionLevel(), cacheStatistics) :
+                ValueCompressor.NONE;
+    }
+
+    /**
+     * 值的压缩器，未配置 {@link CacheConfiguration#COMPRESSION_THRESHOLD_PROPERTY_NAME} 时为 {@link ValueCompressor#NONE}，不写入也不识别头
+     */
+    protected final ValueCompressor getValueCompressor() {
+        return valueCompressor;
     }
 
 
     // Operations of ExpiryPolicy and Duration
 
+    protected final Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * 当前时间戳，来自 {@link #getTicker()}
+     */
+    protected final long currentTimeMillis() {
+        return ticker.currentTimeMillis();
+    }
+
+    /**
+     * 以 {@link #getTicker()} 的当前时间判断条目是否过期
+     */
+    protected final boolean isExpired(ExpirableEntry<K, V> entry) {
+        return entry.isExpired(ticker.currentTimeMillis());
+    }
+
     private Duration getDuration(Supplier<Duration> durationSupplier) {
         Duration duration = null;
         try {
@@ -176,19 +275,10 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         return getDuration(expiryPolicy::getExpiryForAccess);
     }
 
-    private boolean handleExpiryPolicyForCreation(ExpirableEntry<K, V> entry) {
-        return handleExpiryPolicy(entry, getExpiryForCreation(), false);
-    }
-
     private boolean handleExpiryPolicyForAccess(ExpirableEntry<K, V> entry) {
         return handleExpiryPolicy(entry, getExpiryForAccess(), true);
     }
 
-    private boolean handleExpiryPolicyForUpdate(ExpirableEntry<K, V> entry) {
-        return handleExpiryPolicy(entry, getExpiryForUpdate(), true);
-    }
-
-
     /**
      * @param duration Creation : If a {@link Duration#ZERO} is returned the new Cache.Entry is considered
      *                 to be already expired and will not be added to the Cache.
@@ -202,25 +292,30 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             return false;
         }
         boolean expired = false;
-        if (entry.isExpired()) {
+        if (isExpired(entry)) {
             expired = true;
 
         } else if (duration != null) {
             if (duration.isZero()) {
                 expired = true;
             } else {
-                long timeStamp = duration.getAdjustedTime(System.currentTimeMillis());
+                long timeStamp = duration.getAdjustedTime(currentTimeMillis());
                 entry.setTimestamp(timeStamp);
+                touchEntry(entry);
             }
         }
 
         if (removedExpiredEntry && expired) {
-            // Remove Cache.Entry
+            // Remove Cache.Entry only if it has not been changed concurrently
             K key = entry.getKey();
             V value = entry.getValue();
-            removeEntry(key);
-            publishExpiredEvent(key, value);
-            cacheStatistics.cacheEvictions();
+            long timestamp = entry.getTimestamp();
+            ExpirableEntry<K, V> removed = computeEntry(key, current -> current != null &&
+                    (isExpired(current) || current.getTimestamp() == timestamp) ? null : current);
+            if (removed != null) {
+                publishExpiredEvent(key, value);
+                cacheStatistics.cacheEvictions();
+            }
         }
 
         return expired;
@@ -238,41 +333,133 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         return expiryPolicyFactory.create();
     }
 
+    /**
+     * 解析扩展的缓存配置（如提前刷新、异步写回），缓存配置不是 {@link CacheConfiguration} 时使用缓存管理器的配置
+     */
+    private CacheConfiguration resolveCacheConfiguration(Configuration<K, V> configuration) {
+        if (configuration instanceof CacheConfiguration) {
+            return (CacheConfiguration) configuration;
+        }
+        Properties properties = cacheManager.getProperties();
+        return new PropertiesCacheConfiguration(properties == null ? new Properties() : properties);
+    }
+
     // Operations of Cache.Entry and ExpirableEntry
 
-    private ExpirableEntry<K, V> createEntry(K key, V value) {
-        return ExpirableEntry.of(key, value);
+    /**
+     * 根据过期策略创建新条目，用于新增或更新
+     *
+     * @param key      缓存键
+     * @param value    缓存值
+     * @param previous 当前仍有效的旧条目，<code>null</code> 表示新增
+     * @return <code>null</code> if the new entry is already expired and should not be added to the cache
+     */
+    private ExpirableEntry<K, V> newEntry(K key, V value, ExpirableEntry<K, V> previous) {
+        ExpirableEntry<K, V> entry = ExpirableEntry.of(key, value);
+        Duration duration = previous == null ? getExpiryForCreation() : getExpiryForUpdate();
+        if (duration == null) {
+            // null will result in no change to the previously understood expiry
+            entry.setTimestamp(previous == null ? Long.MAX_VALUE : previous.getTimestamp());
+        } else if (duration.isZero()) {
+            if (previous == null) {
+                // The new Cache.Entry is already expired and will not be added to the Cache.
+                return null;
+            }
+            // The updated Cache.Entry will be considered immediately expired.
+            entry.setTimestamp(0L);
+        } else {
+            entry.setTimestamp(duration.getAdjustedTime(currentTimeMillis()));
+        }
+        return entry;
     }
 
-    private Entry<K, V> createAndPutEntry(K key, V value) {
-        ExpirableEntry<K, V> entry = createEntry(key, value);
-        if (handleExpiryPolicyForCreation(entry)) {
-            // The new Cache.Entry is already expired and will not be added to the Cache.
-            return null;
+    /**
+     * 原子地变更条目，并根据变更结果发布事件、处理写穿透
+     *
+     * @param key     缓存键
+     * @param mutator 入参为当前仍有效的条目（不存在或已过期为<code>null</code>），
+     *                返回入参本身表示不变更，返回<code>null</code>表示移除，否则为新条目
+     * @return 变更结果
+     */
+    private Mutation<K, V> mutateEntry(K key, UnaryOperator<ExpirableEntry<K, V>> mutator) {
+        return mutateEntry(key, mutator, false);
+    }
+
+    /**
+     * 原子地变更条目，并根据变更结果发布事件、处理写穿透
+     *
+     * @param key     缓存键
+     * @param mutator 入参为当前仍有效的条目（不存在或已过期为<code>null</code>），
+     *                返回入参本身表示不变更，返回<code>null</code>表示移除，否则为新条目
+     * @param loaded  新值是否来自 {@link CacheLoader}，是则不写穿透，也不计入写入统计
+     * @return 变更结果
+     */
+    private Mutation<K, V> mutateEntry(K key, UnaryOperator<ExpirableEntry<K, V>> mutator, boolean loaded) {
+        Mutation<K, V> mutation = new Mutation<>();
+        ExpirableEntry<K, V> previous = computeEntry(key, current -> {
+            ExpirableEntry<K, V> live = current == null || isExpired(current) ? null : current;
+            ExpirableEntry<K, V> result = mutator.apply(live);
+            // the remapping function may be invoked more than once, only the last invocation takes effect
+            mutation.oldEntry = live;
+            mutation.newEntry = result;
+            if (result == live) {
+                // unchanged, but the expired entry should be removed
+                return live == current ? current : null;
+            }
+            return result;
+        });
+        if (previous != null && previous != mutation.oldEntry) {
+            // the previous entry had been expired
+            publishExpiredEvent(key, previous.getValue());
+            cacheStatistics.cacheEvictions();
         }
-        putEntry(entry);
-        publishCreatedEvent(key, value);
-        return entry;
+        ExpirableEntry<K, V> oldEntry = mutation.oldEntry;
+        ExpirableEntry<K, V> newEntry = mutation.newEntry;
+        if (newEntry == oldEntry) {
+            return mutation;
+        }
+        if (newEntry != null) {
+            if (oldEntry == null) {
+                publishCreatedEvent(key, newEntry.getValue());
+            } else {
+                publishUpdatedEvent(key, oldEntry.getValue(), newEntry.getValue());
+            }
+            if (!loaded) {
+                cacheStatistics.cachePuts();
+                writeEntryIfWriteThrough(newEntry);
+            }
+        } else if (oldEntry != null) {
+            publishRemovedEvent(key, oldEntry.getValue());
+            cacheStatistics.cacheRemovals();
+            if (!loaded) {
+                deleteIfWriteThrough(key);
+            }
+        }
+        return mutation;
     }
 
-    private Entry<K, V> updateEntry(K key, V value) {
-        // get current entry
-        ExpirableEntry<K, V> entry = getEntry(key);
-        // get old value
-        V oldValue = entry.getValue();
-        // replace value
-        entry.setValue(value);
-        // update cache
-        putEntry(entry);
-        // publish update event
-        publishUpdatedEvent(key, oldValue, value);
+    /**
+     * 一次原子变更的结果
+     */
+    private static final class Mutation<K, V> {
 
-        if (handleExpiryPolicyForUpdate(entry)) {
-            // The entry of new value is already expired and will be returned null
-            return null;
+        /**
+         * 变更前仍有效的条目
+         */
+        private ExpirableEntry<K, V> oldEntry;
+
+        /**
+         * 变更后的条目，与 {@link #oldEntry} 相同表示未变更
+         */
+        private ExpirableEntry<K, V> newEntry;
+
+        private boolean isChanged() {
+            return newEntry != oldEntry;
         }
 
-        return entry;
+        private V getOldValue() {
+            return oldEntry == null ? null : oldEntry.getValue();
+        }
     }
 
     /**
@@ -333,6 +520,20 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
      */
     protected abstract Set<K> keySet();
 
+    /**
+     * Iterate all keys of {@link Entry} in the {@link Cache} lazily.
+     * <p>
+     * The default implementation iterates the snapshot of {@link #keySet()}, subclasses backed by large storage
+     * should override it with an incremental cursor, so that the keys are not materialized at once.
+     * The keys may be changed concurrently during the iteration, a key may be returned for the removed
+     * {@link Entry}, but the same key should not be returned more than once as far as possible.
+     *
+     * @return the non-null {@link Iterator} of keys, which does not support {@link Iterator#remove()}
+     */
+    protected Iterator<K> keyIterator() {
+        return keySet().iterator();
+    }
+
     /**
      * Clear all {@link Entry enties} from cache.
      *
@@ -340,6 +541,186 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
      */
     protected abstract void clearEntries() throws CacheException;
 
+    /**
+     * Atomically compute the {@link Entry} associated with the specified key.
+     * <p>
+     * The default implementation is composed of {@link #getEntry(Object)}, {@link #putEntry(ExpirableEntry)} and
+     * {@link #removeEntry(Object)} guarded by the monitor of current cache, it is only atomic inside current JVM,
+     * so subclasses should override it with the native atomic operation of the backend.
+     *
+     * @param key               the key of {@link Entry}
+     * @param remappingFunction the function to compute the new {@link Entry} from the current one (<code>null</code>
+     *                          if absent), returning the current one means no change, returning <code>null</code>
+     *                          means removal. It may be invoked more than once, so it must be free of side effects.
+     * @return the previous {@link Entry} associated with the given key, or <code>null</code> if absent
+     * @throws CacheException     if there is a problem doing the computation
+     * @throws ClassCastException if the implementation is configured to perform
+     *                            runtime-type-checking, and the key or value
+     *                            types are incompatible with those that have been
+     *                            configured for the {@link Cache}
+     */
+    protected ExpirableEntry<K, V> computeEntry(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction)
+            throws CacheException, ClassCastException {
+        synchronized (this) {
+            ExpirableEntry<K, V> current = getEntry(key);
+            ExpirableEntry<K, V> result = remappingFunction.apply(current);
+            if (result == null) {
+                if (current != null) {
+                    removeEntry(key);
+                }
+            } else if (result != current) {
+                putEntry(result);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Atomically put the specified {@link Entry} into cache if there is no unexpired {@link Entry}
+     * associated with its key.
+     * <p>
+     * The default implementation delegates to {@link #computeEntry(Object, UnaryOperator)}, subclasses could
+     * override it with the cheaper native operation of the backend.
+     *
+     * @param entry The new instance of {@link Entry<K,V>} is created by {@link Cache}
+     * @return <code>true</code> if the entry was put
+     * @throws CacheException     if there is a problem doing the put
+     * @throws ClassCastException if the implementation is configured to perform
+     *                            runtime-type-checking, and the key or value
+     *                            types are incompatible with those that have been
+     *                            configured for the {@link Cache}
+     */
+    protected boolean putEntryIfAbsent(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        boolean[] absent = new boolean[1];
+        computeEntry(entry.getKey(), current -> {
+            absent[0] = current == null || isExpired(current);
+            return absent[0] ? entry : current;
+        });
+        return absent[0];
+    }
+
+    /**
+     * Put the specified {@link Entry entries} into cache in bulk, each one only if there is no unexpired
+     * {@link Entry} associated with its key, it is not required to be atomic across keys.
+     * <p>
+     * The default implementation calls {@link #putEntryIfAbsent(ExpirableEntry)} for each entry, subclasses backed
+     * by remote storage should override it with the native batch operation to save the round-trips.
+     *
+     * @param entries The new instances of {@link Entry<K,V>} are created by {@link Cache}
+     * @return the non-null {@link Set} of the keys whose entries were put
+     * @throws CacheException     if there is a problem doing the put
+     * @throws ClassCastException if the implementation is configured to perform
+     *                            runtime-type-checking, and the key or value
+     *                            types are incompatible with those that have been
+     *                            configured for the {@link Cache}
+     */
+    protected Set<K> putEntriesIfAbsent(Collection<ExpirableEntry<K, V>> entries)
+            throws CacheException, ClassCastException {
+        Set<K> putKeys = new LinkedHashSet<>();
+        for (ExpirableEntry<K, V> entry : entries) {
+            if (putEntryIfAbsent(entry)) {
+                putKeys.add(entry.getKey());
+            }
+        }
+        return putKeys;
+    }
+
+    /**
+     * Get the {@link Entry entries} by the specified keys in bulk.
+     * <p>
+     * The default implementation calls {@link #getEntry(Object)} for each key, subclasses backed by remote storage
+     * should override it with the native batch operation to save the round-trips.
+     *
+     * @param keys the keys of {@link Entry entries}
+     * @return the non-null {@link Map} of the existed {@link Entry entries}, absent keys are not contained
+     * @throws CacheException     if there is a problem fetching the values
+     * @throws ClassCastException if the implementation is configured to perform
+     *                            runtime-type-checking, and the key or value
+     *                            types are incompatible with those that have been
+     *                            configured for the {@link Cache}
+     */
+    protected Map<K, ExpirableEntry<K, V>> getEntries(Set<? extends K> keys) throws CacheException, ClassCastException {
+        Map<K, ExpirableEntry<K, V>> entries = new LinkedHashMap<>();
+        for (K key : keys) {
+            ExpirableEntry<K, V> entry = getEntry(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Put the specified {@link Entry entries} into cache in bulk, it is not required to be atomic across keys.
+     * <p>
+     * The default implementation calls {@link #putEntry(ExpirableEntry)} for each entry, subclasses backed by
+     * remote storage should override it with the native batch operation to save the round-trips.
+     *
+     * @param entries The new instances of {@link Entry<K,V>} are created by {@link Cache}
+     * @throws CacheException     if there is a problem doing the put
+     * @throws ClassCastException if the implementation is configured to perform
+     *                            runtime-type-checking, and the key or value
+     *                            types are incompatible with those that have been
+     *                            configured for the {@link Cache}
+     */
+    protected void putEntries(Collection<ExpirableEntry<K, V>> entries) throws CacheException, ClassCastException {
+        for (ExpirableEntry<K, V> entry : entries) {
+            putEntry(entry);
+        }
+    }
+
+    /**
+     * Remove the {@link Entry entries} by the specified keys in bulk.
+     * <p>
+     * The default implementation calls {@link #removeEntry(Object)} for each key, subclasses backed by remote
+     * storage should override it with the native batch operation to save the round-trips.
+     *
+     * @param keys the keys of {@link Entry entries}
+     * @return the non-null {@link Map} of the removed {@link Entry entries}, absent keys are not contained
+     * @throws CacheException     if there is a problem doing the remove
+     * @throws ClassCastException if the implementation is configured to perform
+     *                            runtime-type-checking, and the key or value
+     *                            types are incompatible with those that have been
+     *                            configured for the {@link Cache}
+     */
+    protected Map<K, ExpirableEntry<K, V>> removeEntries(Set<? extends K> keys) throws CacheException, ClassCastException {
+        Map<K, ExpirableEntry<K, V>> entries = new LinkedHashMap<>();
+        for (K key : keys) {
+            ExpirableEntry<K, V> entry = removeEntry(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 子类因容量限制主动淘汰条目后回调，用于统计淘汰次数
+     *
+     * @param entry the evicted {@link Entry}
+     */
+    protected void handleEvictedEntry(ExpirableEntry<K, V> entry) {
+        cacheStatistics.cacheEvictions();
+    }
+
+    /**
+     * 子类主动清理过期条目后回调，用于发布过期事件并统计淘汰次数
+     *
+     * @param entry the expired {@link Entry}
+     */
+    protected void handleExpiredEntry(ExpirableEntry<K, V> entry) {
+        publishExpiredEvent(entry.getKey(), entry.getValue());
+        cacheStatistics.cacheEvictions();
+    }
+
+    /**
+     * 访问延长了条目的有效期后回调，存储层不保留条目对象（读取时生成新对象）的子类需要在此写回过期时间戳
+     *
+     * @param entry 已更新过期时间戳的条目
+     */
+    protected void touchEntry(ExpirableEntry<K, V> entry) {
+    }
+
 
     // Operations of CacheLoader and CacheWriter
 
@@ -351,6 +732,22 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         return this.cacheLoader;
     }
 
+    /**
+     * 缓存统计，未启用统计时为不做任何记录的实现
+     */
+    public CacheStatistics getCacheStatistics() {
+        return this.cacheStatistics;
+    }
+
+    /**
+     * 当前条目数量，包括尚未清理的过期条目
+     *
+     * @return 无法高效获取时返回 -1
+     */
+    public long size() {
+        return -1L;
+    }
+
     /**
      * 解析缓存配置，并返回缓存加载器实现
      */
@@ -369,7 +766,8 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
     /**
      * {@link CompleteConfiguration} -> {@link CacheWriter}
      */
-    private CacheWriter<K, V> resolveCacheWriter(CompleteConfiguration<K, V> configuration) {
+    private CacheWriter<K, V> resolveCacheWriter(CompleteConfiguration<K, V> configuration,
+                                                 CacheConfiguration cacheConfiguration) {
         Factory<CacheWriter<? super K, ? super V>> cacheWriteFactory = configuration.getCacheWriterFactory();
         CacheWriter<K, V> cacheWriter = null;
         if (cacheWriteFactory != null) {
@@ -378,6 +776,18 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         if (cacheWriter == null) {
             cacheWriter = defaultFallbackStorage;
         }
+        if (configuration.isWriteThrough() && cacheConfiguration.isWriteBehind()) {
+            // flush on the executor and the scheduler shared by the cache manager
+            boolean managed = cacheManager instanceof AbstractCacheManager;
+            cacheWriter = new WriteBehindCacheWriter<>(cacheWriter, cacheStatistics,
+                    cacheConfiguration.getWriteBehindBatchSize(), cacheConfiguration.getWriteBehindFlushIntervalMillis(),
+                    cacheConfiguration.getWriteBehindMaxQueueSize(), cacheConfiguration.getWriteBehindMaxRetries(),
+                    cacheConfiguration.isWriteBehindFlushOnClose(),
+                    managed ? ((AbstractCacheManager) cacheManager).getExecutor(AbstractCacheManager.WRITE_BEHIND_EXECUTOR) :
+                            ForkJoinPool.commonPool(),
+                    managed ? ((AbstractCacheManager) cacheManager).getExpirationScheduler() : null,
+                    this::currentTimeMillis);
+        }
         return cacheWriter;
     }
 
@@ -402,11 +812,122 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
     }
 
     private V loadValue(K key, boolean storedEntry) {
-        V value = loadValue(key);
-        if (value != null && storedEntry) {
-            put(key, value);
+        return storedEntry ? loadAndStore(key, false) : loadValue(key);
+    }
+
+    /**
+     * 加载并写入缓存，同一个键同时只有一次加载，加载到的值不写穿透
+     *
+     * @param reload <code>true</code> 时即使条目存在也重新加载并替换，否则返回已存在的值
+     */
+    private V loadAndStore(K key, boolean reload) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightLoads.putIfAbsent(key, loading);
+        if (inFlight != null) {
+            // join the load in flight instead of hitting the CacheLoader again
+            cacheStatistics.cacheLoadsCoalesced();
+            return awaitLoad(inFlight);
+        }
+        try {
+            V value = null;
+            if (!reload) {
+                // the previous load may have been completed and stored between the miss and here
+                ExpirableEntry<K, V> entry = getEntry(key);
+                value = entry == null || isExpired(entry) ? null : entry.getValue();
+            }
+            if (value == null) {
+                cacheStatistics.cacheLoads();
+                value = loadValue(key);
+                if (value != null) {
+                    // store the loaded value without writing it back to the CacheWriter
+                    V loadedValue = value;
+                    mutateEntry(key, live -> newEntry(key, loadedValue, live), true);
+                }
+            }
+            loading.complete(value);
+            return value;
+        } catch (Throwable e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, loading);
+        }
+    }
+
+    /**
+     * 读穿透时，条目距离过期不足提前刷新窗口则异步重新加载，同一个键同时只有一次加载
+     *
+     * @param entry 仍有效的条目
+     */
+    private void refreshAheadIfRequired(ExpirableEntry<K, V> entry) {
+        if (refreshAheadMillis <= 0 || entry == null || !isReadThrough() || !isInRefreshAheadWindow(entry)) {
+            return;
+        }
+        K key = entry.getKey();
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        if (inFlightLoads.putIfAbsent(key, loading) != null) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(() -> refreshValue(key, loading));
+        } catch (RejectedExecutionException e) {
+            // the refresh is best-effort, callers joining it still get the current value
+            inFlightLoads.remove(key, loading);
+            loading.complete(entry.getValue());
+        }
+    }
+
+    private boolean isInRefreshAheadWindow(ExpirableEntry<K, V> entry) {
+        return !entry.isEternal() && entry.getExpiredTime(currentTimeMillis()) <= refreshAheadMillis;
+    }
+
+    /**
+     * 重新加载并替换仍然存在的条目，按新建条目计算过期时间，不写穿透
+     */
+    private void refreshValue(K key, CompletableFuture<V> loading) {
+        try {
+            // the caller may have read the entry before the previous refresh replaced it
+            ExpirableEntry<K, V> current = getEntry(key);
+            if (current == null || isExpired(current) || !isInRefreshAheadWindow(current)) {
+                loading.complete(current == null || isExpired(current) ? null : current.getValue());
+                return;
+            }
+            cacheStatistics.cacheLoads();
+            V value = loadValue(key);
+            if (value != null) {
+                // the entry removed during the reload should not be revived
+                mutateEntry(key, live -> live == null ? null : newEntry(key, value, null), true);
+            }
+            loading.complete(value);
+        } catch (Throwable e) {
+            log.warn("Failed to refresh the entry of key : " + key + " , " + e.getMessage(), e);
+            loading.completeExceptionally(e);
+        } finally {
+            inFlightLoads.remove(key, loading);
+        }
+    }
+
+    private Executor getRefreshExecutor() {
+        return cacheManager instanceof AbstractCacheManager ?
+                ((AbstractCacheManager) cacheManager).getExecutor(AbstractCacheManager.REFRESH_AHEAD_EXECUTOR) : executor;
+    }
+
+    /**
+     * 等待进行中的加载，加载失败时抛出相同的异常
+     */
+    private V awaitLoad(CompletableFuture<V> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CacheLoaderException(cause);
         }
-        return value;
     }
 
     // Operations of CacheEntryEvent and CacheEntryListenerConfiguration
@@ -446,16 +967,18 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         Objects.requireNonNull(key);
         // require cache not closed
         assertNotClosed();
+        long startTime = startTiming();
         ExpirableEntry<K, V> entry = null;
         V value = null;
-        long startTime = System.currentTimeMillis();
         try {
             // get from cache
             entry = getEntry(key);
             // check if expired
             if (handleExpiryPolicyForAccess(entry)) {
+                recordGet(false);
                 return null;
             }
+            recordGet(entry != null);
             // If cache missing and read-through enabled, try to load value by {@link CacheLoader}
             if (entry == null && isReadThrough()) {
                 // if read through is open , load value and store it in cache
@@ -463,12 +986,12 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             } else {
                 // if read through is not open, get from entry
                 value = getValue(entry);
+                refreshAheadIfRequired(entry);
             }
         } catch (Throwable e) {
             log.error(e.getMessage());
         } finally {
-            // do statistics
-            // todo statistics
+            recordGetTime(startTime);
         }
 
         return value;
@@ -476,13 +999,73 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
 
     @Override
     public Map<K, V> getAll(Set<? extends K> keys) {
+        assertNotClosed();
+        keys.forEach(ExpirableEntry::requireKeyNotNull);
+        long startTime = startTiming();
+        // get from cache in bulk
+        Map<K, ExpirableEntry<K, V>> entries = getEntries(keys);
         Map<K, V> result = new LinkedHashMap<>();
-        keys.forEach(key -> {
-            result.put(key, get(key));
-        });
+        for (K key : keys) {
+            ExpirableEntry<K, V> entry = entries.get(key);
+            // check if expired
+            if (handleExpiryPolicyForAccess(entry)) {
+                recordGet(false);
+                continue;
+            }
+            recordGet(entry != null);
+            V value;
+            if (entry == null && isReadThrough()) {
+                value = loadValue(key, true);
+            } else {
+                value = getValue(entry);
+                refreshAheadIfRequired(entry);
+            }
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        // the whole bulk operation counts as one sample, while every key counts as one get
+        recordGetTime(startTime);
         return result;
     }
 
+    /**
+     * 按采样率开始计时
+     *
+     * @return 开始时间，不需要记录本次耗时时返回 {@link #UNTIMED}
+     */
+    private long startTiming() {
+        return cacheStatistics.sampleTiming() ? System.nanoTime() : UNTIMED;
+    }
+
+    private void recordGetTime(long startTime) {
+        if (startTime != UNTIMED) {
+            cacheStatistics.cacheGetsTime(System.nanoTime() - startTime);
+        }
+    }
+
+    private void recordPutTime(long startTime) {
+        if (startTime != UNTIMED) {
+            cacheStatistics.cachePutsTime(System.nanoTime() - startTime);
+        }
+    }
+
+    private void recordRemoveTime(long startTime) {
+        if (startTime != UNTIMED) {
+            cacheStatistics.cacheRemovesTime(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * 记录一次读取及其是否命中
+     */
+    private void recordGet(boolean hit) {
+        cacheStatistics.cacheGets();
+        if (hit) {
+            cacheStatistics.cacheHits();
+        }
+    }
+
     @Override
     public boolean containsKey(K key) {
         assertNotClosed();
@@ -500,20 +1083,27 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
-            // Implementations may choose to load multiple keys from the provided Set in parallel.
-            // Iteration however must not occur in parallel, thus allow for non-thread-safe Sets to be used.
-            keys.forEach(key -> {
-                // If an entry for a key already exists in the Cache, a value will be loaded
-                V value = loadValue(key, false);
-                // if and only if replaceExistingValues is true.
-                if (replaceExistingValues) {
-                    replace(key, value);
-                } else {
-                    put(key, value);
-                }
-            });
-        }, executor).whenComplete((v, e) -> {
+        // Iteration must not occur in parallel, thus allow for non-thread-safe Sets to be used.
+        List<List<K>> batches = new ArrayList<>();
+        int batchSize = getLoadAllBatchSize();
+        List<K> batch = new ArrayList<>(Math.min(batchSize, keys.size()));
+        for (K key : keys) {
+            batch.add(key);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        // Implementations may choose to load multiple keys from the provided Set in parallel.
+        Executor loadAllExecutor = getLoadAllExecutor();
+        CompletableFuture<?>[] futures = batches.stream()
+                .map(keysBatch -> CompletableFuture.runAsync(() -> loadBatch(keysBatch, replaceExistingValues),
+                        loadAllExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).whenComplete((v, e) -> {
             // the CompletionListener may be null
             if (completionListener != null) {
                 // completed exceptionally
@@ -526,111 +1116,285 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         });
     }
 
-    @Override
-    public void put(K key, V value) {
-        assertNotClosed();
-        Entry<K, V> entry = null;
-        long startTime = System.currentTimeMillis();
-        try {
-            if (!containsKey(key)) {
-                createAndPutEntry(key, value);
+    /**
+     * 通过 {@link CacheLoader#loadAll(Iterable)} 加载一批键，并通过 {@link #putEntries} 或 {@link #putEntriesIfAbsent}
+     * 一次写入；加载器不支持批量加载（返回<code>null</code>）时逐个加载，与读穿透合并同一个键同时进行的加载。
+     * 加载到的值与读穿透一样不写穿透，也不计入写入统计
+     *
+     * @param keys                  一批键
+     * @param replaceExistingValues <code>true</code> 时加载所有键并替换已存在的条目，否则只加载不存在的键
+     */
+    private void loadBatch(List<K> keys, boolean replaceExistingValues) {
+        List<K> keysToLoad = keys;
+        if (!replaceExistingValues) {
+            keysToLoad = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                if (!containsEntry(key)) {
+                    keysToLoad.add(key);
+                }
+            }
+            if (keysToLoad.isEmpty()) {
+                return;
+            }
+        }
+        cacheStatistics.cacheLoads();
+        Map<K, V> values = getCacheLoader().loadAll(keysToLoad);
+        if (values == null) {
+            // each load stores its value
+            for (K key : keysToLoad) {
+                loadAndStore(key, replaceExistingValues);
+            }
+            return;
+        }
+        Map<K, V> loadedValues = new LinkedHashMap<>(values.size());
+        values.forEach((key, value) -> {
+            if (key != null && value != null) {
+                loadedValues.put(key, value);
+            }
+        });
+        if (loadedValues.isEmpty()) {
+            return;
+        }
+        if (replaceExistingValues) {
+            putValues(loadedValues, true);
+            return;
+        }
+        List<ExpirableEntry<K, V>> newEntries = new ArrayList<>(loadedValues.size());
+        loadedValues.forEach((key, value) -> {
+            ExpirableEntry<K, V> entry = newEntry(key, value, null);
+            if (entry != null) {
+                newEntries.add(entry);
+            }
+        });
+        // the entry put since the check above is kept
+        Set<K> putKeys = putEntriesIfAbsent(newEntries);
+        for (ExpirableEntry<K, V> entry : newEntries) {
+            if (putKeys.contains(entry.getKey())) {
+                publishCreatedEvent(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 批量写入并发布事件，整个操作在不同键之间不是原子的
+     *
+     * @param values 键值
+     * @param loaded 值是否来自 {@link CacheLoader}，是则不写穿透，也不计入写入统计
+     */
+    private void putValues(Map<? extends K, ? extends V> values, boolean loaded) {
+        // the previous entries decide creation or update
+        Map<K, ExpirableEntry<K, V>> previousEntries = getEntries(values.keySet());
+        List<ExpirableEntry<K, V>> oldEntries = new ArrayList<>(values.size());
+        List<ExpirableEntry<K, V>> newEntries = new ArrayList<>(values.size());
+        values.forEach((key, value) -> {
+            ExpirableEntry<K, V> previous = previousEntries.get(key);
+            ExpirableEntry<K, V> live = previous == null || isExpired(previous) ? null : previous;
+            ExpirableEntry<K, V> entry = newEntry(key, value, live);
+            if (entry != null) {
+                oldEntries.add(live);
+                newEntries.add(entry);
+            }
+        });
+        putEntries(newEntries);
+
+        for (int i = 0; i < newEntries.size(); i++) {
+            ExpirableEntry<K, V> oldEntry = oldEntries.get(i);
+            ExpirableEntry<K, V> newEntry = newEntries.get(i);
+            K key = newEntry.getKey();
+            ExpirableEntry<K, V> previous = previousEntries.get(key);
+            if (previous != null && previous != oldEntry) {
+                // the previous entry had been expired
+                publishExpiredEvent(key, previous.getValue());
+                cacheStatistics.cacheEvictions();
+            }
+            if (oldEntry == null) {
+                publishCreatedEvent(key, newEntry.getValue());
             } else {
-                updateEntry(key, value);
+                publishUpdatedEvent(key, oldEntry.getValue(), newEntry.getValue());
+            }
+            if (!loaded) {
+                cacheStatistics.cachePuts();
             }
-        } finally {
-            // load entry if write through is open
-            writeEntryIfWriteThrough(entry);
-            // do statistics todo...
         }
+        if (!loaded && isWriteThrough() && !newEntries.isEmpty()) {
+            getCacheWriter().writeAll(new ArrayList<>(newEntries));
+        }
+    }
+
+    private Executor getLoadAllExecutor() {
+        return cacheManager instanceof AbstractCacheManager ?
+                ((AbstractCacheManager) cacheManager).getExecutor(AbstractCacheManager.LOAD_ALL_EXECUTOR) : executor;
+    }
+
+    private int getLoadAllBatchSize() {
+        return cacheManager instanceof AbstractCacheManager ?
+                ((AbstractCacheManager) cacheManager).getLoadAllBatchSize() : AbstractCacheManager.DEFAULT_LOAD_ALL_BATCH_SIZE;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireValueNotNull(value);
+        long startTime = startTiming();
+        mutateEntry(key, live -> newEntry(key, value, live));
+        recordPutTime(startTime);
     }
 
     @Override
     public V getAndPut(K key, V value) {
-        V oldValue = get(key);
-        put(key, value);
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireValueNotNull(value);
+        long startTime = startTiming();
+        V oldValue = mutateEntry(key, live -> newEntry(key, value, live)).getOldValue();
+        recordGet(oldValue != null);
+        recordPutTime(startTime);
         return oldValue;
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> map) {
-        map.forEach((k, v) -> put(k, v));
+        assertNotClosed();
+        map.forEach((key, value) -> {
+            requireKeyNotNull(key);
+            requireValueNotNull(value);
+        });
+        long startTime = startTiming();
+        putValues(map, false);
+        recordPutTime(startTime);
     }
 
     @Override
     public boolean putIfAbsent(K key, V value) {
-        if (!containsKey(key)) {
-            put(key, value);
-            return true;
-        } else {
-            return false;
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireValueNotNull(value);
+        long startTime = startTiming();
+        ExpirableEntry<K, V> entry = newEntry(key, value, null);
+        if (entry == null) {
+            // The new Cache.Entry is already expired and will not be added to the Cache.
+            return !containsEntry(key);
         }
+        boolean absent = putEntryIfAbsent(entry);
+        if (absent) {
+            publishCreatedEvent(key, value);
+            cacheStatistics.cachePuts();
+            writeEntryIfWriteThrough(entry);
+        }
+        recordPutTime(startTime);
+        return absent;
     }
 
     @Override
     public boolean remove(K key) {
         assertNotClosed();
-        Objects.requireNonNull(key);
+        requireKeyNotNull(key);
+        long startTime = startTiming();
         boolean removed = false;
-        long startTime = System.currentTimeMillis();
         try {
             ExpirableEntry<K, V> oldEntry = removeEntry(key);
-            removed = oldEntry != null;
-            if (removed) {
-                publishRemovedEvent(key, oldEntry.getValue());
+            if (oldEntry != null) {
+                if (isExpired(oldEntry)) {
+                    publishExpiredEvent(key, oldEntry.getValue());
+                    cacheStatistics.cacheEvictions();
+                } else {
+                    removed = true;
+                    publishRemovedEvent(key, oldEntry.getValue());
+                    cacheStatistics.cacheRemovals();
+                }
             }
         } finally {
             deleteIfWriteThrough(key);
-            cacheStatistics.cacheRemovals();
-            cacheStatistics.cacheRemovesTime(System.currentTimeMillis() - startTime);
+            recordRemoveTime(startTime);
         }
         return removed;
     }
 
     @Override
     public boolean remove(K key, V oldValue) {
-        if (containsKey(key) && Objects.equals(oldValue, get(key))) {
-            return remove(key);
-        }
-        return false;
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireOldValueNotNull(oldValue);
+        long startTime = startTiming();
+        boolean removed = mutateEntry(key, live -> live != null && Objects.equals(oldValue, live.getValue()) ? null : live)
+                .isChanged();
+        recordRemoveTime(startTime);
+        return removed;
     }
 
     @Override
     public V getAndRemove(K key) {
-        V oldValue = get(key);
-        remove(key);
+        assertNotClosed();
+        requireKeyNotNull(key);
+        long startTime = startTiming();
+        V oldValue = mutateEntry(key, live -> null).getOldValue();
+        recordGet(oldValue != null);
+        recordRemoveTime(startTime);
         return oldValue;
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
-        Objects.requireNonNull(oldValue);
-        if (containsKey(key) && Objects.equals(oldValue, get(key))) {
-            return replace(key, newValue);
-        } else {
-            return false;
-        }
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireOldValueNotNull(oldValue);
+        requireValueNotNull(newValue);
+        long startTime = startTiming();
+        boolean replaced = mutateEntry(key, live -> live != null && Objects.equals(oldValue, live.getValue()) ?
+                newEntry(key, newValue, live) : live).isChanged();
+        recordPutTime(startTime);
+        return replaced;
     }
 
     @Override
     public boolean replace(K key, V value) {
-        if (containsKey(key)) {
-            put(key, value);
-            return true;
-        } else {
-            return false;
-        }
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireValueNotNull(value);
+        long startTime = startTiming();
+        boolean replaced = mutateEntry(key, live -> live != null ? newEntry(key, value, live) : live).isChanged();
+        recordPutTime(startTime);
+        return replaced;
     }
 
     @Override
     public V getAndReplace(K key, V value) {
-        V oldValue = get(key);
-        replace(key, value);
+        assertNotClosed();
+        requireKeyNotNull(key);
+        requireValueNotNull(value);
+        long startTime = startTiming();
+        V oldValue = mutateEntry(key, live -> live != null ? newEntry(key, value, live) : live).getOldValue();
+        recordGet(oldValue != null);
+        recordPutTime(startTime);
         return oldValue;
     }
 
     @Override
     public void removeAll(Set<? extends K> keys) {
-        keys.forEach(this::remove);
+        assertNotClosed();
+        keys.forEach(ExpirableEntry::requireKeyNotNull);
+        if (keys.isEmpty()) {
+            return;
+        }
+        long startTime = startTiming();
+        try {
+            Map<K, ExpirableEntry<K, V>> oldEntries = removeEntries(keys);
+            oldEntries.forEach((key, oldEntry) -> {
+                if (isExpired(oldEntry)) {
+                    publishExpiredEvent(key, oldEntry.getValue());
+                    cacheStatistics.cacheEvictions();
+                } else {
+                    publishRemovedEvent(key, oldEntry.getValue());
+                    cacheStatistics.cacheRemovals();
+                }
+            });
+        } finally {
+            if (isWriteThrough()) {
+                getCacheWriter().deleteAll(new ArrayList<>(keys));
+            }
+            recordRemoveTime(startTime);
+        }
     }
 
     @Override
@@ -707,6 +1471,14 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
         if (isClosed()) {
             return;
         }
+        if (cacheWriter instanceof WriteBehindCacheWriter) {
+            // write the pending mutations back before the backend is closed
+            try {
+                ((WriteBehindCacheWriter<K, V>) cacheWriter).close();
+            } catch (Throwable e) {
+                log.error("Failed to flush the write-behind mutations : " + e.getMessage(), e);
+            }
+        }
         doClose();
 
         closed = true;
@@ -741,13 +1513,84 @@ public abstract class AbstractCache<K, V> implements Cache<K, V> {
     @Override
     public Iterator<Entry<K, V>> iterator() {
         assertNotClosed();
-        List<Entry<K, V>> entries = new LinkedList<>();
+        return new EntryIterator(keyIterator(), getIteratorBatchSize());
+    }
 
-        keySet().forEach(key -> {
-            entries.add(ExpirableEntry.of(key, get(key)));
-        });
+    /**
+     * 迭代时每批预取的条目数量，子类可覆盖
+     */
+    protected int getIteratorBatchSize() {
+        return DEFAULT_ITERATOR_BATCH_SIZE;
+    }
 
-        return entries.iterator();
+    /**
+     * 惰性的条目迭代器：按批从 {@link #keyIterator()} 拉取键并通过 {@link #getEntries(Set)} 预取条目，
+     * 已过期的条目就地移除并跳过，内存占用只与批大小有关
+     */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private final Iterator<K> keyIterator;
+
+        private final int batchSize;
+
+        private Iterator<ExpirableEntry<K, V>> batch = Collections.emptyIterator();
+
+        private Entry<K, V> next;
+
+        private K lastKey;
+
+        private EntryIterator(Iterator<K> keyIterator, int batchSize) {
+            this.keyIterator = keyIterator;
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            assertNotClosed();
+            while (next == null) {
+                if (!batch.hasNext()) {
+                    if (!keyIterator.hasNext()) {
+                        return false;
+                    }
+                    batch = fetchBatch();
+                    continue;
+                }
+                ExpirableEntry<K, V> entry = batch.next();
+                // check if expired
+                if (!handleExpiryPolicyForAccess(entry)) {
+                    next = ExpirableEntry.of(entry.getKey(), entry.getValue());
+                }
+            }
+            return true;
+        }
+
+        private Iterator<ExpirableEntry<K, V>> fetchBatch() {
+            Set<K> keys = new LinkedHashSet<>(batchSize);
+            while (keys.size() < batchSize && keyIterator.hasNext()) {
+                keys.add(keyIterator.next());
+            }
+            return getEntries(keys).values().iterator();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = next;
+            next = null;
+            lastKey = entry.getKey();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            AbstractCache.this.remove(lastKey);
+            lastKey = null;
+        }
     }
 
 
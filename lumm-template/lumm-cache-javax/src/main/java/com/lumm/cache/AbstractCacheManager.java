@@ -1,6 +1,12 @@
 package com.lumm.cache;
 
 
+import cn.hutool.core.convert.Convert;
+import com.lumm.cache.executor.NamedExecutor;
+import com.lumm.cache.expiry.CachedTicker;
+import com.lumm.cache.expiry.ExpirationScheduler;
+import com.lumm.cache.expiry.Ticker;
+import com.lumm.cache.expiry.TimingWheelExpirationScheduler;
 import com.lumm.cache.serialization.Deserializers;
 import com.lumm.cache.serialization.Serializers;
 import lombok.extern.slf4j.Slf4j;
@@ -12,11 +18,16 @@ import javax.cache.configuration.Configuration;
 import javax.cache.configuration.MutableConfiguration;
 import javax.cache.spi.CachingProvider;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static java.lang.String.format;
@@ -27,6 +38,104 @@ import static java.lang.String.format;
 @Slf4j
 public abstract class AbstractCacheManager implements CacheManager {
 
+    /**
+     * 配置项：缓存使用的时钟，可选值为 system、cached 或 {@link Ticker} 实现类的全类名
+     */
+    public static final String TICKER_PROPERTY_NAME = "javax.cache.CacheManager.ticker";
+
+    /**
+     * 配置项：cached 时钟的刷新精度，单位毫秒
+     */
+    public static final String TICKER_RESOLUTION_MILLIS_PROPERTY_NAME = "javax.cache.CacheManager.ticker.resolution-millis";
+
+    /**
+     * 配置项：过期调度时间轮的刻度，单位毫秒
+     */
+    public static final String EXPIRATION_TICK_MILLIS_PROPERTY_NAME = "javax.cache.CacheManager.expiration.tick-millis";
+
+    /**
+     * 配置项：过期调度时间轮每层的槽数
+     */
+    public static final String EXPIRATION_WHEEL_SIZE_PROPERTY_NAME = "javax.cache.CacheManager.expiration.wheel-size";
+
+    /**
+     * 配置项前缀：执行器，完整的配置项为前缀 + 执行器名称 + 后缀，如 javax.cache.CacheManager.executor.load-all.threads
+     */
+    public static final String EXECUTOR_PROPERTY_PREFIX = "javax.cache.CacheManager.executor.";
+
+    /**
+     * 配置项后缀：执行器的最大并发数
+     */
+    public static final String EXECUTOR_THREADS_PROPERTY_SUFFIX = ".threads";
+
+    /**
+     * 配置项后缀：执行器的队列长度，小于等于0表示不限制
+     */
+    public static final String EXECUTOR_QUEUE_SIZE_PROPERTY_SUFFIX = ".queue-size";
+
+    /**
+     * 配置项后缀：执行器是否使用虚拟线程（JDK 21+）
+     */
+    public static final String EXECUTOR_VIRTUAL_PROPERTY_SUFFIX = ".virtual";
+
+    /**
+     * 配置项：关闭缓存管理器时等待执行器中已提交任务完成的最长时间，单位毫秒，超时后中断仍在执行的任务
+     */
+    public static final String EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS_PROPERTY_NAME =
+            "javax.cache.CacheManager.executor.shutdown-timeout-millis";
+
+    public static final long DEFAULT_EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS = 10 * 1000L;
+
+    /**
+     * 执行器名称：提前刷新，队列已满时放弃本次刷新
+     */
+    public static final String REFRESH_AHEAD_EXECUTOR = "refresh-ahead";
+
+    /**
+     * 执行器名称：{@link Cache#loadAll} 并行加载
+     */
+    public static final String LOAD_ALL_EXECUTOR = "load-all";
+
+    /**
+     * 执行器名称：异步的缓存事件监听器
+     */
+    public static final String LISTENER_EXECUTOR = "listener";
+
+    /**
+     * 执行器名称：文件缓存的后台整理
+     */
+    public static final String COMPACTION_EXECUTOR = "compaction";
+
+    /**
+     * 执行器名称：异步批量写回
+     */
+    public static final String WRITE_BEHIND_EXECUTOR = "write-behind";
+
+    /**
+     * 配置项：{@link Cache#loadAll} 每批交给 {@link javax.cache.integration.CacheLoader#loadAll} 的键数量
+     */
+    public static final String LOAD_ALL_BATCH_SIZE_PROPERTY_NAME = "javax.cache.CacheManager.load-all.batch-size";
+
+    public static final int DEFAULT_LOAD_ALL_BATCH_SIZE = 1000;
+
+    /**
+     * 各执行器默认的最大并发数与队列长度
+     */
+    private static final Map<String, int[]> EXECUTOR_DEFAULTS = new HashMap<>();
+
+    static {
+        EXECUTOR_DEFAULTS.put(REFRESH_AHEAD_EXECUTOR, new int[]{2, 1024});
+        EXECUTOR_DEFAULTS.put(LOAD_ALL_EXECUTOR, new int[]{4, 0});
+        EXECUTOR_DEFAULTS.put(LISTENER_EXECUTOR, new int[]{4, 10000});
+        EXECUTOR_DEFAULTS.put(COMPACTION_EXECUTOR, new int[]{1, 0});
+        EXECUTOR_DEFAULTS.put(WRITE_BEHIND_EXECUTOR, new int[]{2, 0});
+    }
+
+    /**
+     * 未知名称的执行器默认的最大并发数与队列长度
+     */
+    private static final int[] DEFAULT_EXECUTOR_SETTINGS = {Runtime.getRuntime().availableProcessors(), 1024};
+
     /**
      * 缓存清空方法
      */
@@ -69,6 +178,21 @@ public abstract class AbstractCacheManager implements CacheManager {
 
     private volatile boolean closed;
 
+    /**
+     * 时钟，由当前缓存管理器下的所有缓存共享
+     */
+    private final Ticker ticker;
+
+    /**
+     * 过期调度器，首次使用时创建
+     */
+    private volatile ExpirationScheduler expirationScheduler;
+
+    /**
+     * 按名称创建的执行器，首次使用时创建，由当前缓存管理器下的所有缓存共享
+     */
+    private final ConcurrentMap<String, NamedExecutor> executors = new ConcurrentHashMap<>();
+
     /**
      * 缓存注册中心，基于Map
      */
@@ -89,6 +213,29 @@ public abstract class AbstractCacheManager implements CacheManager {
         this.properties = properties == null ? cachingProvider.getDefaultProperties() : properties;
         this.serializers = initSerializers(this.classLoader);
         this.deserializers = initDeserializers(this.classLoader);
+        this.ticker = initTicker(this.properties.getProperty(TICKER_PROPERTY_NAME));
+    }
+
+    /**
+     * 初始化时钟
+     *
+     * @param name system、cached 或 {@link Ticker} 实现类的全类名，未配置时为 system
+     * @return Ticker
+     */
+    private Ticker initTicker(String name) {
+        if (name == null || name.trim().isEmpty() || "system".equalsIgnoreCase(name.trim())) {
+            return Ticker.SYSTEM;
+        }
+        if ("cached".equalsIgnoreCase(name.trim())) {
+            return new CachedTicker(Convert.toLong(properties.getProperty(TICKER_RESOLUTION_MILLIS_PROPERTY_NAME),
+                    CachedTicker.DEFAULT_RESOLUTION_MILLIS));
+        }
+        try {
+            return (Ticker) classLoader.loadClass(name.trim()).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException(format("配置项[%s]的值[%s]不是有效的%s实现",
+                    TICKER_PROPERTY_NAME, name, Ticker.class.getName()), e);
+        }
     }
 
     /**
@@ -143,6 +290,85 @@ public abstract class AbstractCacheManager implements CacheManager {
         return deserializers;
     }
 
+    /**
+     * 获取当前缓存管理器下所有缓存共享的时钟
+     *
+     * @return non-null
+     */
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * 获取当前缓存管理器下所有缓存共享的过期调度器，首次调用时创建，缓存管理器关闭时关闭
+     *
+     * @return non-null
+     */
+    public ExpirationScheduler getExpirationScheduler() {
+        ExpirationScheduler scheduler = this.expirationScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = this.expirationScheduler;
+                if (scheduler == null) {
+                    assertNotClosed();
+                    scheduler = new TimingWheelExpirationScheduler(ticker,
+                            Convert.toLong(properties.getProperty(EXPIRATION_TICK_MILLIS_PROPERTY_NAME),
+                                    TimingWheelExpirationScheduler.DEFAULT_TICK_MILLIS),
+                            Convert.toInt(properties.getProperty(EXPIRATION_WHEEL_SIZE_PROPERTY_NAME),
+                                    TimingWheelExpirationScheduler.DEFAULT_WHEEL_SIZE),
+                            TimingWheelExpirationScheduler.DEFAULT_LEVELS);
+                    this.expirationScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 获取当前缓存管理器下所有缓存共享的执行器，首次调用时按配置创建，缓存管理器关闭时关闭
+     *
+     * @param name 执行器名称，如 {@link #REFRESH_AHEAD_EXECUTOR}、{@link #LOAD_ALL_EXECUTOR}、{@link #LISTENER_EXECUTOR}、
+     *             {@link #COMPACTION_EXECUTOR}
+     * @return non-null
+     * @see NamedExecutor
+     */
+    public NamedExecutor getExecutor(String name) {
+        NamedExecutor executor = executors.get(name);
+        if (executor == null) {
+            synchronized (this) {
+                assertNotClosed();
+                executor = executors.computeIfAbsent(name, this::newExecutor);
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 已创建的执行器，用于监控队列长度等指标
+     *
+     * @return 执行器名称与执行器的映射，只读
+     */
+    public Map<String, NamedExecutor> getExecutors() {
+        return Collections.unmodifiableMap(executors);
+    }
+
+    private NamedExecutor newExecutor(String name) {
+        int[] defaults = EXECUTOR_DEFAULTS.getOrDefault(name, DEFAULT_EXECUTOR_SETTINGS);
+        String prefix = EXECUTOR_PROPERTY_PREFIX + name;
+        int threads = Convert.toInt(properties.getProperty(prefix + EXECUTOR_THREADS_PROPERTY_SUFFIX), defaults[0]);
+        int queueSize = Convert.toInt(properties.getProperty(prefix + EXECUTOR_QUEUE_SIZE_PROPERTY_SUFFIX), defaults[1]);
+        boolean virtual = Convert.toBool(properties.getProperty(prefix + EXECUTOR_VIRTUAL_PROPERTY_SUFFIX), false);
+        return new NamedExecutor(name, threads, queueSize, virtual);
+    }
+
+    /**
+     * 批量加载时每批的键数量
+     */
+    public int getLoadAllBatchSize() {
+        return Math.max(1, Convert.toInt(properties.getProperty(LOAD_ALL_BATCH_SIZE_PROPERTY_NAME),
+                DEFAULT_LOAD_ALL_BATCH_SIZE));
+    }
+
     @Override
     public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName, C configuration) throws IllegalArgumentException {
         // 如果指定的Cache在cacheRepository已经存在，就抛出异常
@@ -176,6 +402,15 @@ public abstract class AbstractCacheManager implements CacheManager {
         return cacheRepository.keySet();
     }
 
+    /**
+     * 当前管理的所有缓存的快照，包括类型不同的同名缓存
+     */
+    public List<Cache> getCaches() {
+        List<Cache> caches = new ArrayList<>();
+        cacheRepository.values().forEach(cacheMap -> caches.addAll(cacheMap.values()));
+        return caches;
+    }
+
     @Override
     public void destroyCache(String cacheName) {
         Objects.requireNonNull(cacheName);
@@ -204,13 +439,52 @@ public abstract class AbstractCacheManager implements CacheManager {
             log.warn("The CacheManager has been closed, current close operation will be ignored!");
             return;
         }
+        // deliver the queued listener events, refreshes and loadAll batches before the caches are closed
+        shutdownExecutors();
         for (Map<KeyValueTypePair, Cache> valueMap : cacheRepository.values()) {
             iteratorCaches(valueMap.values(), CLOSE_CACHE_OPERATION);
         }
+        synchronized (this) {
+            if (expirationScheduler != null) {
+                expirationScheduler.close();
+            }
+        }
+        if (ticker instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) ticker).close();
+            } catch (Exception e) {
+                log.error(e.getMessage());
+            }
+        }
         doClose();
         this.closed = true;
     }
 
+    /**
+     * 不再接受新任务，等待已提交的任务完成，超过 {@link #EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS_PROPERTY_NAME} 后立即关闭
+     */
+    private void shutdownExecutors() {
+        List<NamedExecutor> namedExecutors;
+        synchronized (this) {
+            namedExecutors = new ArrayList<>(executors.values());
+        }
+        namedExecutors.forEach(NamedExecutor::shutdown);
+        long timeoutMillis = Convert.toLong(properties.getProperty(EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS_PROPERTY_NAME),
+                DEFAULT_EXECUTOR_SHUTDOWN_TIMEOUT_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMillis));
+        for (NamedExecutor executor : namedExecutors) {
+            try {
+                if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log.warn("The executor[{}] did not terminate in {} ms, the remaining tasks are discarded",
+                            executor.getName(), timeoutMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * 子类关闭扩展
      */
@@ -188,6 +188,13 @@ public class ConfigurableCachingProvider implements CachingProvider {
         return cacheManagerRepository.computeIfAbsent(key, k -> newCacheManager(actualUri, actualClassLoader, actualProperties));
     }
 
+    /**
+     * 已创建的所有缓存管理器，包括已关闭的
+     */
+    public Collection<CacheManager> getCacheManagers() {
+        return Collections.unmodifiableCollection(cacheManagerRepository.values());
+    }
+
     @Override
     public CacheManager getCacheManager(URI uri, ClassLoader classLoader) {
         return getCacheManager(uri, classLoader, getDefaultProperties());
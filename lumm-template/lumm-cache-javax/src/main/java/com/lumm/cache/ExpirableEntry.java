@@ -1,10 +1,9 @@
 package com.lumm.cache;
 
-import com.lumm.cache.serialization.Serializer;
 import lombok.Data;
 
 import javax.cache.Cache;
-import java.io.IOException;
+import java.io.Serializable;
 import java.util.Map;
 import java.util.Objects;
 
@@ -18,7 +17,9 @@ import static java.util.Objects.requireNonNull;
  * @see Cache.Entry
  */
 @Data
-public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializer {
+public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * 键
@@ -31,9 +32,9 @@ public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializer {
     private V value;
 
     /**
-     * 过期时间戳
+     * 过期时间戳，访问时可能被其他线程更新
      */
-    private long timestamp;
+    private volatile long timestamp;
 
     public ExpirableEntry(K key, V value) {
         Objects.requireNonNull(key);
@@ -42,18 +43,22 @@ public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializer {
         this.timestamp = Long.MAX_VALUE;
     }
 
-    @Override
-    public byte[] serialize(Object source) throws IOException {
-        return new byte[0];
-    }
-
     public void setValue(V value) {
         Objects.requireNonNull(value);
         this.value = value;
     }
 
     public boolean isExpired() {
-        return getExpiredTime() < 1;
+        return isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * 以指定的当前时间判断是否过期
+     *
+     * @param currentTimeMillis 当前时间戳，单位毫秒
+     */
+    public boolean isExpired(long currentTimeMillis) {
+        return getExpiredTime(currentTimeMillis) < 1;
     }
 
     public boolean isEternal() {
@@ -61,7 +66,16 @@ public class ExpirableEntry<K, V> implements Cache.Entry<K, V>, Serializer {
     }
 
     public long getExpiredTime() {
-        return getTimestamp() - System.currentTimeMillis();
+        return getExpiredTime(System.currentTimeMillis());
+    }
+
+    /**
+     * 以指定的当前时间计算剩余的有效毫秒数
+     *
+     * @param currentTimeMillis 当前时间戳，单位毫秒
+     */
+    public long getExpiredTime(long currentTimeMillis) {
+        return getTimestamp() - currentTimeMillis;
     }
 
     @Override
@@ -4,6 +4,7 @@ package com.lumm.cache.configuration;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.StrUtil;
+import com.lumm.cache.event.CacheEntryEventListenerAdapter;
 
 import javax.cache.Cache;
 import javax.cache.configuration.CacheEntryListenerConfiguration;
@@ -79,6 +80,12 @@ public interface CacheConfiguration extends CompleteConfiguration {
      */
     String STATISTICS_ENABLED_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "statistics-enabled";
 
+    /**
+     * 配置项：操作耗时的采样率 N，仅在启用统计时生效 <br/>
+     * 每 N 次操作随机记录 1 次耗时，命中、读取等计数不受影响；1 表示记录每次操作的耗时
+     */
+    String STATISTICS_SAMPLE_RATE_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "statistics-sample-rate";
+
     /**
      * 配置项：是否启用缓存的管理功能 {@link CompleteConfiguration#isManagementEnabled()} <br/>
      * <ul>
@@ -108,6 +115,68 @@ public interface CacheConfiguration extends CompleteConfiguration {
      */
     String EXPIRY_POLICY_FACTORY_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "expiry-policy.factory";
 
+    /**
+     * 配置项：提前刷新窗口，单位毫秒，仅在读穿透时生效 <br/>
+     * 访问距离过期不足该时长的条目时立即返回当前值，同时异步重新加载并替换条目；小于等于0表示不提前刷新
+     */
+    String REFRESH_AHEAD_MILLIS_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "refresh-ahead-millis";
+
+    /**
+     * 配置项：每个异步监听器的事件队列长度，队列已满时发布事件的线程协助投递或等待
+     */
+    String LISTENER_QUEUE_SIZE_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "listener.queue-size";
+
+    /**
+     * 配置项：异步监听器每次投递的最大事件数，连续的同类型事件合并为一次回调
+     */
+    String LISTENER_BATCH_SIZE_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "listener.batch-size";
+
+    /**
+     * 配置项：是否异步批量写回，仅在写穿透时生效 {@link com.lumm.cache.integration.WriteBehindCacheWriter} <br/>
+     * <ul>
+     *     <li>true: 写入缓存时只将变更放入队列，由后台线程合并后批量写入数据源，写入延迟不再受数据源影响，但数据源的更新会滞后。</li>
+     *     <li>false: 写入缓存时同步写入数据源。</li>
+     * </ul>
+     */
+    String WRITE_BEHIND_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "write-behind";
+
+    /**
+     * 配置项：异步写回的批量大小，队列长度达到该值时触发写回
+     */
+    String WRITE_BEHIND_BATCH_SIZE_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "write-behind.batch-size";
+
+    /**
+     * 配置项：异步写回的时间间隔，单位毫秒
+     */
+    String WRITE_BEHIND_FLUSH_INTERVAL_MILLIS_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "write-behind.flush-interval-millis";
+
+    /**
+     * 配置项：异步写回队列的上限，达到时由写入缓存的线程同步写回
+     */
+    String WRITE_BEHIND_MAX_QUEUE_SIZE_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "write-behind.max-queue-size";
+
+    /**
+     * 配置项：异步写回失败的变更的最大重试次数，超过后丢弃并计入统计，小于0表示不限制
+     */
+    String WRITE_BEHIND_MAX_RETRIES_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "write-behind.max-retries";
+
+    /**
+     * 配置项：关闭缓存时是否写回队列中剩余的变更，否则丢弃
+     */
+    String WRITE_BEHIND_FLUSH_ON_CLOSE_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "write-behind.flush-on-close";
+
+    /**
+     * 配置项：值的压缩阈值，单位字节，序列化后不小于该值的值压缩后存储 {@link com.lumm.cache.serialization.ValueCompressor} <br/>
+     * 小于等于0表示不压缩，也不识别压缩的头，只对序列化存储的缓存生效；
+     * 已存有压缩值的缓存停止压缩时应设置一个大于所有值的阈值
+     */
+    String COMPRESSION_THRESHOLD_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "compression.threshold";
+
+    /**
+     * 配置项：压缩级别，0 ~ 9，默认1，压缩速度优先
+     */
+    String COMPRESSION_LEVEL_PROPERTY_NAME = CACHE_PROPERTY_PREFIX + "compression.level";
+
     /**
      * 获取配置名
      *
@@ -183,6 +252,13 @@ public interface CacheConfiguration extends CompleteConfiguration {
         return getProperty(STATISTICS_ENABLED_PROPERTY_NAME, Boolean.class, Boolean.TRUE);
     }
 
+    /**
+     * @see #STATISTICS_SAMPLE_RATE_PROPERTY_NAME
+     */
+    default int getStatisticsSampleRate() {
+        return getProperty(STATISTICS_SAMPLE_RATE_PROPERTY_NAME, Integer.class, 1);
+    }
+
     @Override
     default boolean isManagementEnabled() {
         return getProperty(MANAGEMENT_ENABLED_PROPERTY_NAME, Boolean.class, Boolean.TRUE);
@@ -229,6 +305,62 @@ public interface CacheConfiguration extends CompleteConfiguration {
         return factoryClass == null ? null : unwrap(factoryClass);
     }
 
+    /**
+     * 提前刷新窗口，单位毫秒
+     *
+     * @return 未配置时为0，表示不提前刷新
+     * @see #REFRESH_AHEAD_MILLIS_PROPERTY_NAME
+     */
+    default long getRefreshAheadMillis() {
+        return getProperty(REFRESH_AHEAD_MILLIS_PROPERTY_NAME, Long.class, 0L);
+    }
+
+    default int getListenerQueueSize() {
+        return getProperty(LISTENER_QUEUE_SIZE_PROPERTY_NAME, Integer.class, CacheEntryEventListenerAdapter.DEFAULT_QUEUE_SIZE);
+    }
+
+    default int getListenerBatchSize() {
+        return getProperty(LISTENER_BATCH_SIZE_PROPERTY_NAME, Integer.class, CacheEntryEventListenerAdapter.DEFAULT_BATCH_SIZE);
+    }
+
+    default boolean isWriteBehind() {
+        return getProperty(WRITE_BEHIND_PROPERTY_NAME, Boolean.class, Boolean.FALSE);
+    }
+
+    default int getWriteBehindBatchSize() {
+        return getProperty(WRITE_BEHIND_BATCH_SIZE_PROPERTY_NAME, Integer.class, 100);
+    }
+
+    default long getWriteBehindFlushIntervalMillis() {
+        return getProperty(WRITE_BEHIND_FLUSH_INTERVAL_MILLIS_PROPERTY_NAME, Long.class, 1000L);
+    }
+
+    default int getWriteBehindMaxQueueSize() {
+        return getProperty(WRITE_BEHIND_MAX_QUEUE_SIZE_PROPERTY_NAME, Integer.class, 10000);
+    }
+
+    default int getWriteBehindMaxRetries() {
+        return getProperty(WRITE_BEHIND_MAX_RETRIES_PROPERTY_NAME, Integer.class, 3);
+    }
+
+    default boolean isWriteBehindFlushOnClose() {
+        return getProperty(WRITE_BEHIND_FLUSH_ON_CLOSE_PROPERTY_NAME, Boolean.class, Boolean.TRUE);
+    }
+
+    /**
+     * 值的压缩阈值，单位字节
+     *
+     * @return 未配置时为0，表示不压缩
+     * @see #COMPRESSION_THRESHOLD_PROPERTY_NAME
+     */
+    default int getCompressionThreshold() {
+        return getProperty(COMPRESSION_THRESHOLD_PROPERTY_NAME, Integer.class, 0);
+    }
+
+    default int getCompressionLevel() {
+        return getProperty(COMPRESSION_LEVEL_PROPERTY_NAME, Integer.class, 1);
+    }
+
     default <T> T unwrap(Class<T> clazz) {
         T value = null;
         try {
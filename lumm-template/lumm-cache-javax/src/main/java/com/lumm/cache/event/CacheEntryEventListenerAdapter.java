@@ -1,21 +1,44 @@
 package com.lumm.cache.event;
 
+import lombok.extern.slf4j.Slf4j;
+
 import javax.cache.configuration.CacheEntryListenerConfiguration;
 import javax.cache.configuration.Factory;
 import javax.cache.event.*;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@link ConditionalCacheEntryEventListener} 实现类，适配Javax Cache框架中的监听器
+ * <p>
+ * 同步监听器在发布事件的线程中直接回调；异步监听器的事件先放入该监听器独占的有界队列，再由执行器批量投递：
+ * <ul>
+ *     <li>同一时刻只有一个投递任务，事件按发布顺序送达，同一个键的事件自然有序</li>
+ *     <li>连续的同类型事件合并为一次回调，监听方法本身接受 {@link Iterable}</li>
+ *     <li>队列已满时由发布线程协助投递或等待，形成背压，避免事件无限堆积；
+ *     监听器在回调中发布的事件不等待自己，排在已入队的事件之后投递</li>
+ * </ul>
  *
  * @see CacheEntryListenerConfiguration
  */
+@Slf4j
 public class CacheEntryEventListenerAdapter<K, V> implements ConditionalCacheEntryEventListener<K, V> {
 
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
     private static List<Object> eventTypesAndHandleMethodNames = Arrays.asList(
             EventType.CREATED, "onCreated",
             EventType.UPDATED, "onUpdated",
@@ -29,21 +52,68 @@ public class CacheEntryEventListenerAdapter<K, V> implements ConditionalCacheEnt
 
     private final CacheEntryListener<? super K, ? super V> cacheEntryListener;
 
-    private final Map<EventType, Method> eventTypeMethods;
+    private final Map<EventType, EventDispatcher<K, V>> eventTypeMethods;
 
     private final Executor executor;
 
     /**
-     * 构造
+     * 异步监听器待投递的事件，同步监听器为 <code>null</code>
+     */
+    private final BlockingQueue<CacheEntryEvent<? extends K, ? extends V>> queue;
+
+    private final int batchSize;
+
+    /**
+     * 队列已满时监听器在回调中发布的事件，在队列中之前的事件投递完后按顺序投递；非空时其他线程发布的事件等待其清空
+     */
+    private final Deque<CacheEntryEvent<? extends K, ? extends V>> overflow = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 是否已有投递任务在执行或等待执行
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * 正在投递的线程，监听器在回调中再次修改缓存时据此避免等待自己
+     */
+    private volatile Thread drainingThread;
+
+    /**
+     * 构造，异步监听器使用 {@link ForkJoinPool#commonPool()}
      *
      * @param configuration
      */
     public CacheEntryEventListenerAdapter(CacheEntryListenerConfiguration<K, V> configuration) {
+        this(configuration, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 构造
+     *
+     * @param configuration
+     * @param asyncExecutor 异步监听器的执行器，通常由缓存管理器提供
+     */
+    public CacheEntryEventListenerAdapter(CacheEntryListenerConfiguration<K, V> configuration, Executor asyncExecutor) {
+        this(configuration, asyncExecutor, DEFAULT_QUEUE_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 构造
+     *
+     * @param configuration
+     * @param asyncExecutor 异步监听器的执行器，通常由缓存管理器提供
+     * @param queueSize     异步监听器的队列长度
+     * @param batchSize     异步监听器每次投递的最大事件数
+     */
+    public CacheEntryEventListenerAdapter(CacheEntryListenerConfiguration<K, V> configuration, Executor asyncExecutor,
+                                          int queueSize, int batchSize) {
         this.configuration = configuration;
         this.cacheEntryEventFilter = getCacheEntryEventFilter(configuration);
         this.cacheEntryListener = configuration.getCacheEntryListenerFactory().create();
         this.eventTypeMethods = determineEventTypeMethods(cacheEntryListener);
-        this.executor = getExecutor(configuration);
+        this.executor = getExecutor(configuration, asyncExecutor);
+        this.queue = configuration.isSynchronous() ? null : new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
     }
 
     @Override
@@ -61,18 +131,22 @@ public class CacheEntryEventListenerAdapter<K, V> implements ConditionalCacheEnt
         if (!supports(event)) {
             return;
         }
+        if (queue == null) {
+            invoke(event.getEventType(), Collections.singletonList(event));
+        } else {
+            enqueue(event);
+        }
+    }
 
-        EventType eventType = event.getEventType();
-        Method handleMethod = eventTypeMethods.get(eventType);
-
-        executor.execute(() -> {
-            try {
-                handleMethod.invoke(cacheEntryListener, Collections.singleton(event));
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new CacheEntryListenerException(e);
-            }
-        });
+    /**
+     * 异步监听器待投递的事件数量
+     */
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size() + overflow.size();
+    }
 
+    public CacheEntryListenerConfiguration<K, V> getConfiguration() {
+        return configuration;
     }
 
     @Override
@@ -99,6 +173,111 @@ public class CacheEntryEventListenerAdapter<K, V> implements ConditionalCacheEnt
         return this.configuration.equals(another.configuration);
     }
 
+    private void enqueue(CacheEntryEvent<? extends K, ? extends V> event) {
+        while (true) {
+            if (drainingThread == Thread.currentThread()) {
+                if (overflow.isEmpty() && queue.offer(event)) {
+                    return;
+                }
+                // published by the listener itself, waiting for the queue would wait for itself,
+                // the drainer delivers it after the events queued before it
+                overflow.addLast(event);
+                return;
+            }
+            // the overflowed events must be delivered before the later ones
+            if (overflow.isEmpty() && queue.offer(event)) {
+                break;
+            }
+            if (draining.compareAndSet(false, true)) {
+                // back pressure, the publisher delivers a batch by itself
+                drainBatch();
+                continue;
+            }
+            try {
+                if (!overflow.isEmpty()) {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } else if (queue.offer(event, 10, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for the listener queue, the event is dropped : {}", event);
+                return;
+            }
+        }
+        scheduleDrain();
+    }
+
+    private boolean hasPendingEvents() {
+        return !queue.isEmpty() || !overflow.isEmpty();
+    }
+
+    private void scheduleDrain() {
+        while (hasPendingEvents() && draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    drainBatch();
+                    // yield the executor thread between the batches
+                    scheduleDrain();
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // the executor is saturated or shut down, deliver in the publisher's thread batch by batch
+                drainBatch();
+            }
+        }
+    }
+
+    /**
+     * 投递一批事件，连续的同类型事件合并为一次回调；队列投递完后再投递监听器回调中发布的溢出事件，
+     * 保证它们排在之前入队的事件之后。调用前需要获取 {@link #draining}，返回时释放
+     */
+    private void drainBatch() {
+        drainingThread = Thread.currentThread();
+        try {
+            List<CacheEntryEvent<? extends K, ? extends V>> batch = new ArrayList<>(Math.min(batchSize, queue.size() + 1));
+            queue.drainTo(batch, batchSize);
+            deliver(batch);
+            // the listener may overflow again while the overflowed events are delivered
+            while (queue.isEmpty() && !overflow.isEmpty()) {
+                batch.clear();
+                for (CacheEntryEvent<? extends K, ? extends V> event; batch.size() < batchSize
+                        && (event = overflow.pollFirst()) != null; ) {
+                    batch.add(event);
+                }
+                deliver(batch);
+            }
+        } finally {
+            drainingThread = null;
+            draining.set(false);
+        }
+    }
+
+    private void deliver(List<CacheEntryEvent<? extends K, ? extends V>> batch) {
+        int start = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).getEventType() != batch.get(start).getEventType()) {
+                try {
+                    invoke(batch.get(start).getEventType(), batch.subList(start, i));
+                } catch (CacheEntryListenerException e) {
+                    log.error("Failed to deliver the cache entry events : " + e.getMessage(), e);
+                }
+                start = i;
+            }
+        }
+    }
+
+    private void invoke(EventType eventType, List<CacheEntryEvent<? extends K, ? extends V>> events) {
+        EventDispatcher<K, V> dispatcher = eventTypeMethods.get(eventType);
+        try {
+            dispatcher.dispatch(Collections.unmodifiableList(events));
+        } catch (CacheEntryListenerException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new CacheEntryListenerException(e);
+        }
+    }
+
     /**
      * 根据配置获取缓存事件过滤器
      *
@@ -122,23 +301,44 @@ public class CacheEntryEventListenerAdapter<K, V> implements ConditionalCacheEnt
     }
 
     /**
-     * 确定缓存事件类型方法
+     * 确定缓存事件类型方法，注册时解析一次：
+     * <ul>
+     *     <li>实现了 {@link CacheEntryCreatedListener} 等接口的监听器直接调用接口方法</li>
+     *     <li>否则查找同名的公共方法，编译为 {@link MethodHandle} 调用</li>
+     * </ul>
      *
      * @param cacheEntryListener
      * @return
      */
-    private Map<EventType, Method> determineEventTypeMethods(CacheEntryListener<? super K, ? super V> cacheEntryListener) {
-        Map<EventType, Method> eventTypeMethods = new HashMap<>(EventType.values().length);
+    private Map<EventType, EventDispatcher<K, V>> determineEventTypeMethods(CacheEntryListener<? super K, ? super V> cacheEntryListener) {
+        Map<EventType, EventDispatcher<K, V>> eventTypeMethods = new EnumMap<>(EventType.class);
+        if (cacheEntryListener instanceof CacheEntryCreatedListener) {
+            CacheEntryCreatedListener<K, V> listener = (CacheEntryCreatedListener<K, V>) cacheEntryListener;
+            eventTypeMethods.put(EventType.CREATED, listener::onCreated);
+        }
+        if (cacheEntryListener instanceof CacheEntryUpdatedListener) {
+            CacheEntryUpdatedListener<K, V> listener = (CacheEntryUpdatedListener<K, V>) cacheEntryListener;
+            eventTypeMethods.put(EventType.UPDATED, listener::onUpdated);
+        }
+        if (cacheEntryListener instanceof CacheEntryExpiredListener) {
+            CacheEntryExpiredListener<K, V> listener = (CacheEntryExpiredListener<K, V>) cacheEntryListener;
+            eventTypeMethods.put(EventType.EXPIRED, listener::onExpired);
+        }
+        if (cacheEntryListener instanceof CacheEntryRemovedListener) {
+            CacheEntryRemovedListener<K, V> listener = (CacheEntryRemovedListener<K, V>) cacheEntryListener;
+            eventTypeMethods.put(EventType.REMOVED, listener::onRemoved);
+        }
         Class<?> cacheEntryListenerClass = cacheEntryListener.getClass();
         for (int i = 0; i < eventTypesAndHandleMethodNames.size(); ) {
             EventType eventType = (EventType) eventTypesAndHandleMethodNames.get(i++);
             String handleMethodName = (String) eventTypesAndHandleMethodNames.get(i++);
+            if (eventTypeMethods.containsKey(eventType)) {
+                continue;
+            }
             try {
                 // 利用反射确定监听回调方法
                 Method handleMethod = cacheEntryListenerClass.getMethod(handleMethodName, Iterable.class);
-                if (handleMethod != null) {
-                    eventTypeMethods.put(eventType, handleMethod);
-                }
+                eventTypeMethods.put(eventType, toEventDispatcher(handleMethod, cacheEntryListener));
             } catch (NoSuchMethodException ignored) {
             }
 
@@ -146,15 +346,40 @@ public class CacheEntryEventListenerAdapter<K, V> implements ConditionalCacheEnt
         return Collections.unmodifiableMap(eventTypeMethods);
     }
 
-    private Executor getExecutor(CacheEntryListenerConfiguration<K, V> configuration) {
+    private EventDispatcher<K, V> toEventDispatcher(Method handleMethod, Object cacheEntryListener) {
+        MethodHandle methodHandle;
+        try {
+            // the declaring class may not be public
+            handleMethod.setAccessible(true);
+            methodHandle = MethodHandles.lookup().unreflect(handleMethod).bindTo(cacheEntryListener)
+                    .asType(MethodType.methodType(void.class, Iterable.class));
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new CacheEntryListenerException(e);
+        }
+        return events -> {
+            // as a statement the call site type is (Iterable)void, an expression body would make it (Iterable)Object
+            methodHandle.invokeExact((Iterable) events);
+        };
+    }
+
+    private Executor getExecutor(CacheEntryListenerConfiguration<K, V> configuration, Executor asyncExecutor) {
         Executor executor;
         if (configuration.isSynchronous()) {
             // 配置是同步，不需要多线程多线程
             executor = Runnable::run;
         } else {
-            // 配置是异步，使用 ForkJoinPool 的线程池
-            executor = ForkJoinPool.commonPool();
+            // 配置是异步，使用指定的执行器
+            executor = asyncExecutor;
         }
         return executor;
     }
+
+    /**
+     * 将一批同类型的事件投递给监听方法
+     */
+    @FunctionalInterface
+    private interface EventDispatcher<K, V> {
+
+        void dispatch(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) throws Throwable;
+    }
 }
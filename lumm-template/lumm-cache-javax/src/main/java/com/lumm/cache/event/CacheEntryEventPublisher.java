@@ -2,28 +2,77 @@ package com.lumm.cache.event;
 
 import javax.cache.configuration.CacheEntryListenerConfiguration;
 import javax.cache.event.CacheEntryEvent;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 缓存事件发布器
+ * <p>
+ * 监听器的注册与注销很少，发布很频繁，注册表使用写时复制的集合，发布时无锁遍历
  */
 public class CacheEntryEventPublisher {
 
-    private Set<ConditionalCacheEntryEventListener> listeners = new HashSet<>();
+    private final Set<ConditionalCacheEntryEventListener> listeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * 异步监听器的执行器
+     */
+    private final Executor asyncExecutor;
+
+    /**
+     * 每个异步监听器的队列长度
+     */
+    private final int queueSize;
+
+    /**
+     * 每个异步监听器每次投递的最大事件数
+     */
+    private final int batchSize;
+
+    public CacheEntryEventPublisher() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 构造
+     *
+     * @param asyncExecutor 异步监听器的执行器
+     */
+    public CacheEntryEventPublisher(Executor asyncExecutor) {
+        this(asyncExecutor, CacheEntryEventListenerAdapter.DEFAULT_QUEUE_SIZE, CacheEntryEventListenerAdapter.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 构造
+     *
+     * @param asyncExecutor 异步监听器的执行器
+     * @param queueSize     每个异步监听器的队列长度
+     * @param batchSize     每个异步监听器每次投递的最大事件数
+     */
+    public CacheEntryEventPublisher(Executor asyncExecutor, int queueSize, int batchSize) {
+        this.asyncExecutor = asyncExecutor;
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+    }
 
     public void registerCacheEntryListener(CacheEntryListenerConfiguration configuration) {
-        CacheEntryEventListenerAdapter listenerAdapter = new CacheEntryEventListenerAdapter(configuration);
+        CacheEntryEventListenerAdapter listenerAdapter = new CacheEntryEventListenerAdapter(configuration, asyncExecutor,
+                queueSize, batchSize);
         listeners.add(listenerAdapter);
     }
 
     public void deregisterCacheEntryListener(CacheEntryListenerConfiguration configuration) {
-        CacheEntryEventListenerAdapter listenerAdapter = new CacheEntryEventListenerAdapter(configuration);
-        listeners.remove(listenerAdapter);
+        // match by the configuration, without creating another listener from its factory
+        listeners.removeIf(listener -> listener instanceof CacheEntryEventListenerAdapter
+                && ((CacheEntryEventListenerAdapter) listener).getConfiguration().equals(configuration));
     }
 
     public <K, V> void publish(CacheEntryEvent<? extends K, ? extends V> event) {
-        listeners.forEach(listener -> listener.onEvent(event));
+        for (ConditionalCacheEntryEventListener listener : listeners) {
+            listener.onEvent(event);
+        }
     }
 
 
@@ -0,0 +1,300 @@
+package com.lumm.cache.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有名称、有界的执行器，由缓存管理器按用途创建并由其下的所有缓存共享：
+ * <ul>
+ *     <li>固定的最大并发数，空闲线程自动回收</li>
+ *     <li>有界队列，队列已满时拒绝提交并抛出 {@link RejectedExecutionException}</li>
+ *     <li>可选使用虚拟线程（JDK 21+），每个任务一个虚拟线程，由信号量限制最大并发数，不支持时退回平台线程</li>
+ * </ul>
+ * 提供队列长度、活跃线程数、完成与拒绝任务数等指标
+ */
+@Slf4j
+public class NamedExecutor implements Executor {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final String name;
+
+    /**
+     * 平台线程的线程池，使用虚拟线程时为 <code>null</code>
+     */
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    /**
+     * 虚拟线程的执行器，使用平台线程时为 <code>null</code>
+     */
+    private final VirtualThreadExecutor virtualThreadExecutor;
+
+    private final boolean virtual;
+
+    private final LongAdder rejectedTasks = new LongAdder();
+
+    /**
+     * 构造
+     *
+     * @param name      名称，也是线程名的前缀
+     * @param threads   最大并发数
+     * @param queueSize 队列长度，小于等于0表示不限制
+     * @param virtual   是否使用虚拟线程
+     */
+    public NamedExecutor(String name, int threads, int queueSize, boolean virtual) {
+        this.name = name;
+        ThreadFactory virtualThreadFactory = virtual ? virtualThreadFactory(name) : null;
+        this.virtual = virtualThreadFactory != null;
+        int maxThreads = Math.max(1, threads);
+        if (virtualThreadFactory != null) {
+            // pooling virtual threads defeats them, start one per task instead
+            this.virtualThreadExecutor = new VirtualThreadExecutor(name, virtualThreadFactory, maxThreads, queueSize,
+                    rejectedTasks);
+            this.threadPoolExecutor = null;
+            return;
+        }
+        this.virtualThreadExecutor = null;
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "lumm-cache-" + name + "-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new LinkedBlockingQueue<>();
+        this.threadPoolExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, queue,
+                threadFactory, (runnable, executor) -> {
+            rejectedTasks.increment();
+            throw new RejectedExecutionException(String.format("The executor[%s] is %s", name,
+                    executor.isShutdown() ? "shutdown" : "saturated"));
+        });
+        this.threadPoolExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) throws RejectedExecutionException {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.execute(command);
+        } else {
+            threadPoolExecutor.execute(command);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 是否实际使用了虚拟线程
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 等待执行的任务数量
+     */
+    public int getQueueSize() {
+        return virtualThreadExecutor != null ? virtualThreadExecutor.pending.get() :
+                threadPoolExecutor.getQueue().size();
+    }
+
+    /**
+     * 正在执行任务的线程数量
+     */
+    public int getActiveCount() {
+        return virtualThreadExecutor != null ? virtualThreadExecutor.active.get() : threadPoolExecutor.getActiveCount();
+    }
+
+    /**
+     * 已完成的任务数量（近似值）
+     */
+    public long getCompletedTaskCount() {
+        return virtualThreadExecutor != null ? virtualThreadExecutor.completedTasks.sum() :
+                threadPoolExecutor.getCompletedTaskCount();
+    }
+
+    /**
+     * 被拒绝的任务数量
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * 不再接受新任务，已提交的任务继续执行
+     */
+    public void shutdown() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        } else {
+            threadPoolExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 等待 {@link #shutdown()} 之后所有已提交的任务执行完成
+     *
+     * @return <code>false</code> if the timeout elapsed before termination
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return virtualThreadExecutor != null ? virtualThreadExecutor.awaitTermination(timeout, unit) :
+                threadPoolExecutor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 立即关闭，丢弃等待中的任务并中断正在执行的任务
+     */
+    public void shutdownNow() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdownNow();
+        } else {
+            threadPoolExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isShutdown() {
+        return virtualThreadExecutor != null ? virtualThreadExecutor.shutdown : threadPoolExecutor.isShutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "NamedExecutor{" +
+                "name='" + name + '\'' +
+                ", virtual=" + virtual +
+                ", queueSize=" + getQueueSize() +
+                ", activeCount=" + getActiveCount() +
+                ", rejectedTaskCount=" + getRejectedTaskCount() +
+                '}';
+    }
+
+    /**
+     * 通过反射获取 <code>Thread.ofVirtual().name(prefix, 0).factory()</code>，兼容 JDK 21 以下的版本
+     *
+     * @return <code>null</code> if virtual threads are not supported
+     */
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "lumm-cache-" + name + "-", 0L);
+            Method factoryMethod = builderClass.getMethod("factory");
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.info("Virtual threads are not supported, the executor[{}] falls back to platform threads", name);
+            return null;
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程，等待信号量的任务计为队列中的任务
+     */
+    private static final class VirtualThreadExecutor {
+
+        private final String name;
+
+        private final ThreadFactory threadFactory;
+
+        private final Semaphore permits;
+
+        /**
+         * 队列长度，小于等于0表示不限制
+         */
+        private final int queueSize;
+
+        private final LongAdder rejectedTasks;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final LongAdder completedTasks = new LongAdder();
+
+        /**
+         * 已启动且未结束的线程
+         */
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean shutdown;
+
+        private VirtualThreadExecutor(String name, ThreadFactory threadFactory, int maxThreads, int queueSize,
+                                      LongAdder rejectedTasks) {
+            this.name = name;
+            this.threadFactory = threadFactory;
+            this.permits = new Semaphore(maxThreads, true);
+            this.queueSize = queueSize;
+            this.rejectedTasks = rejectedTasks;
+        }
+
+        private void execute(Runnable command) throws RejectedExecutionException {
+            if (shutdown) {
+                reject("shutdown");
+            }
+            boolean acquired = permits.tryAcquire();
+            if (!acquired && queueSize > 0 && pending.incrementAndGet() > queueSize) {
+                pending.decrementAndGet();
+                reject("saturated");
+            } else if (!acquired && queueSize <= 0) {
+                pending.incrementAndGet();
+            }
+            Thread thread = threadFactory.newThread(() -> run(command, acquired));
+            threads.add(thread);
+            thread.start();
+        }
+
+        private void run(Runnable command, boolean acquired) {
+            try {
+                if (!acquired) {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        // discarded by shutdownNow
+                        return;
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completedTasks.increment();
+                    permits.release();
+                }
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        }
+
+        private void reject(String state) {
+            rejectedTasks.increment();
+            throw new RejectedExecutionException(String.format("The executor[%s] is %s", name, state));
+        }
+
+        private void shutdown() {
+            shutdown = true;
+        }
+
+        private boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Thread thread : threads) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return threads.isEmpty();
+                }
+                TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+            }
+            return threads.isEmpty();
+        }
+
+        private void shutdownNow() {
+            shutdown = true;
+            threads.forEach(Thread::interrupt);
+        }
+    }
+}
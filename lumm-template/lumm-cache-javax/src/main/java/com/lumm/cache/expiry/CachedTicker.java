@@ -0,0 +1,67 @@
+package com.lumm.cache.expiry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Ticker} 实现，由后台线程按固定精度刷新时间戳，读取时只是一次 volatile 读，
+ * 适合每秒数百万次过期判断的热点路径，代价是时间戳最多落后一个精度
+ */
+public class CachedTicker implements Ticker, AutoCloseable {
+
+    /**
+     * 默认精度，单位毫秒
+     */
+    public static final long DEFAULT_RESOLUTION_MILLIS = 1L;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final long resolutionMillis;
+
+    private final Thread updaterThread;
+
+    private volatile long currentTimeMillis;
+
+    private volatile boolean closed;
+
+    public CachedTicker() {
+        this(DEFAULT_RESOLUTION_MILLIS);
+    }
+
+    /**
+     * 构造
+     *
+     * @param resolutionMillis 刷新精度，单位毫秒
+     */
+    public CachedTicker(long resolutionMillis) {
+        if (resolutionMillis < 1) {
+            throw new IllegalArgumentException("精度必须大于0：" + resolutionMillis);
+        }
+        this.resolutionMillis = resolutionMillis;
+        this.currentTimeMillis = System.currentTimeMillis();
+        this.updaterThread = new Thread(this::update, "lumm-cache-ticker-" + THREAD_COUNTER.incrementAndGet());
+        this.updaterThread.setDaemon(true);
+        this.updaterThread.start();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        updaterThread.interrupt();
+    }
+
+    private void update() {
+        while (!closed) {
+            currentTimeMillis = System.currentTimeMillis();
+            try {
+                Thread.sleep(resolutionMillis);
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }
+    }
+}
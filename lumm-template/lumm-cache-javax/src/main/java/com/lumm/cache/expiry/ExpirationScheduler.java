@@ -0,0 +1,29 @@
+package com.lumm.cache.expiry;
+
+/**
+ * 过期调度器，在条目过期时间到达后执行清理任务，由同一个缓存管理器下的所有缓存共享
+ *
+ * @see TimingWheelExpirationScheduler
+ */
+public interface ExpirationScheduler extends AutoCloseable {
+
+    /**
+     * 调度任务，在指定的时间戳到达之后执行，任务应当快速完成且不阻塞
+     *
+     * @param expireTime 过期时间戳，单位毫秒，已经到达时尽快执行
+     * @param task       清理任务
+     * @throws IllegalStateException 如果调度器已关闭
+     */
+    void schedule(long expireTime, Runnable task) throws IllegalStateException;
+
+    /**
+     * 等待执行的任务数量
+     */
+    long size();
+
+    /**
+     * 关闭调度器，丢弃所有未执行的任务
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,47 @@
+package com.lumm.cache.expiry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Ticker} 实现，时间只在调用 {@link #advance(long, TimeUnit)} 时前进，用于在测试中确定性地验证过期行为
+ */
+public class ManualTicker implements Ticker {
+
+    private final AtomicLong currentTimeMillis;
+
+    /**
+     * 从当前系统时间开始
+     */
+    public ManualTicker() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * 构造
+     *
+     * @param currentTimeMillis 初始时间戳，单位毫秒
+     */
+    public ManualTicker(long currentTimeMillis) {
+        this.currentTimeMillis = new AtomicLong(currentTimeMillis);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis.get();
+    }
+
+    /**
+     * 时间前进
+     *
+     * @param duration 时长，不能为负数
+     * @param timeUnit 时长单位
+     * @return 前进后的时间戳
+     */
+    public long advance(long duration, TimeUnit timeUnit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("时长不能为负数：" + duration);
+        }
+        return currentTimeMillis.addAndGet(timeUnit.toMillis(duration));
+    }
+}
@@ -0,0 +1,23 @@
+package com.lumm.cache.expiry;
+
+/**
+ * 时钟，缓存判断条目是否过期以及计算过期时间戳时使用，便于替换为更廉价或可控的实现
+ *
+ * @see CachedTicker
+ * @see ManualTicker
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    /**
+     * 基于 {@link System#currentTimeMillis()} 的时钟
+     */
+    Ticker SYSTEM = System::currentTimeMillis;
+
+    /**
+     * 当前时间戳
+     *
+     * @return 单位毫秒，与 {@link System#currentTimeMillis()} 同一纪元
+     */
+    long currentTimeMillis();
+}
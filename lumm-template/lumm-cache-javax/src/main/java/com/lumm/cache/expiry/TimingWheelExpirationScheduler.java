@@ -0,0 +1,227 @@
+package com.lumm.cache.expiry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ExpirationScheduler} 实现，基于分层时间轮：
+ * <ul>
+ *     <li>每层时间轮有相同数量的槽，第0层每个槽跨度为一个刻度，第n层每个槽跨度为第n-1层一整圈</li>
+ *     <li>任务按距离到期的刻度数放入对应层的槽中，低层转完一圈时将高层当前槽中的任务降级重新放置</li>
+ *     <li>调度只是放入无锁队列，放置、降级与执行都在单个工作线程中完成，均摊 O(1)</li>
+ * </ul>
+ * 超出最高层跨度的任务先放在最高层最远的槽中，降级时重新计算位置
+ */
+@Slf4j
+public class TimingWheelExpirationScheduler implements ExpirationScheduler {
+
+    /**
+     * 默认刻度，单位毫秒
+     */
+    public static final long DEFAULT_TICK_MILLIS = 100L;
+
+    /**
+     * 默认每层槽数
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+
+    /**
+     * 默认层数
+     */
+    public static final int DEFAULT_LEVELS = 4;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final Ticker ticker;
+
+    private final long tickMillis;
+
+    private final int wheelBits;
+
+    private final int wheelMask;
+
+    private final int levels;
+
+    /**
+     * 各层时间轮，仅工作线程访问
+     */
+    private final ArrayDeque<Timeout>[][] wheels;
+
+    /**
+     * 新调度的任务，由工作线程在每个刻度转移到时间轮
+     */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final long startTime;
+
+    private final Thread workerThread;
+
+    /**
+     * 当前刻度，仅工作线程访问
+     */
+    private long currentTick;
+
+    private volatile boolean closed;
+
+    public TimingWheelExpirationScheduler() {
+        this(Ticker.SYSTEM, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, DEFAULT_LEVELS);
+    }
+
+    /**
+     * 构造
+     *
+     * @param ticker     时钟，与缓存判断条目过期使用的时钟一致
+     * @param tickMillis 刻度，单位毫秒，决定过期清理的精度
+     * @param wheelSize  每层槽数，向上取整为2的幂
+     * @param levels     层数，总跨度为 tickMillis * wheelSize ^ levels
+     */
+    public TimingWheelExpirationScheduler(Ticker ticker, long tickMillis, int wheelSize, int levels) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("刻度必须大于0：" + tickMillis);
+        }
+        this.ticker = ticker;
+        this.tickMillis = tickMillis;
+        this.wheelBits = 32 - Integer.numberOfLeadingZeros(Math.max(2, wheelSize) - 1);
+        this.wheelMask = (1 << wheelBits) - 1;
+        this.levels = Math.max(1, Math.min(levels, 62 / wheelBits));
+        this.wheels = new ArrayDeque[this.levels][1 << wheelBits];
+        for (ArrayDeque<Timeout>[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new ArrayDeque<>();
+            }
+        }
+        this.startTime = ticker.currentTimeMillis();
+        this.workerThread = new Thread(this::work, "lumm-cache-expiration-" + THREAD_COUNTER.incrementAndGet());
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    @Override
+    public void schedule(long expireTime, Runnable task) throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The ExpirationScheduler has been closed!");
+        }
+        long delay = expireTime - startTime;
+        // round up, the task must not be executed before the expire time
+        long deadlineTick = delay <= 0 ? 0 : (delay + tickMillis - 1) / tickMillis;
+        pendingTimeouts.offer(new Timeout(deadlineTick, task));
+        size.incrementAndGet();
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        workerThread.interrupt();
+        pendingTimeouts.clear();
+    }
+
+    private void work() {
+        while (!closed) {
+            long sleepMillis = startTime + (currentTick + 1) * tickMillis - ticker.currentTimeMillis();
+            if (sleepMillis > 0) {
+                try {
+                    // the ticker may not follow the system time, check it again after at most one tick
+                    Thread.sleep(Math.min(sleepMillis, tickMillis));
+                } catch (InterruptedException e) {
+                    // closed
+                }
+                continue;
+            }
+            currentTick++;
+            cascade();
+            transferPendingTimeouts();
+            expireTimeouts(wheels[0][(int) (currentTick & wheelMask)]);
+        }
+        for (ArrayDeque<Timeout>[] wheel : wheels) {
+            for (ArrayDeque<Timeout> bucket : wheel) {
+                bucket.clear();
+            }
+        }
+        size.set(0);
+    }
+
+    /**
+     * 低层转完一圈时，从高到低将各层当前槽中的任务降级重新放置
+     */
+    private void cascade() {
+        for (int level = levels - 1; level > 0; level--) {
+            int shift = wheelBits * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            ArrayDeque<Timeout> bucket = wheels[level][(int) ((currentTick >>> shift) & wheelMask)];
+            Timeout timeout;
+            while ((timeout = bucket.poll()) != null) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            place(timeout);
+        }
+    }
+
+    /**
+     * 按距离到期的刻度数放置任务，已到期的任务放入当前槽
+     */
+    private void place(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            wheels[0][(int) (currentTick & wheelMask)].add(timeout);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            long span = 1L << (wheelBits * (level + 1));
+            if (delta < span || level == levels - 1) {
+                long tick = delta < span ? timeout.deadlineTick : currentTick + span - 1;
+                wheels[level][(int) ((tick >>> (wheelBits * level)) & wheelMask)].add(timeout);
+                return;
+            }
+        }
+    }
+
+    private void expireTimeouts(ArrayDeque<Timeout> bucket) {
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            size.decrementAndGet();
+            try {
+                timeout.task.run();
+            } catch (Throwable e) {
+                log.warn("Failed to execute the expiration task : " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 调度的任务
+     */
+    private static final class Timeout {
+
+        private final long deadlineTick;
+
+        private final Runnable task;
+
+        private Timeout(long deadlineTick, Runnable task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.lumm.cache.integration;
+
+import com.lumm.cache.expiry.ExpirationScheduler;
+import com.lumm.cache.management.CacheStatistics;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link CacheWriter} 装饰器，异步批量写回：
+ * <ul>
+ *     <li>写入与删除只放入队列，同一个键的多次变更合并为最后一次</li>
+ *     <li>队列长度达到批量大小或距上次写回达到时间间隔时，通过被装饰写入器的
+ *     {@link CacheWriter#writeAll(Collection)} 与 {@link CacheWriter#deleteAll(Collection)} 批量写回</li>
+ *     <li>队列达到上限或执行器拒绝任务时由调用线程同步写回，避免无限堆积</li>
+ *     <li>写回失败的条目在没有更新的变更时重新入队，下次写回时重试，超过重试次数后丢弃并计入统计</li>
+ * </ul>
+ * 写回在缓存管理器共享的执行器中执行，定时写回由共享的 {@link ExpirationScheduler} 触发，不单独创建线程；
+ * 写回之间互斥，保证同一个键的变更按顺序到达被装饰的写入器
+ *
+ * @param <K> 缓存键类型泛型
+ * @param <V> 缓存值类型泛型
+ */
+@Slf4j
+public class WriteBehindCacheWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
+
+    /**
+     * 删除标记
+     */
+    private static final Object DELETED = new Object();
+
+    private final CacheWriter<K, V> delegate;
+
+    private final CacheStatistics cacheStatistics;
+
+    private final int batchSize;
+
+    private final int maxQueueSize;
+
+    /**
+     * 最大重试次数，小于0表示不限制
+     */
+    private final int maxRetries;
+
+    private final boolean flushOnClose;
+
+    private final long flushIntervalMillis;
+
+    /**
+     * 待写回的变更，值为 {@link Cache.Entry} 或 {@link #DELETED}
+     */
+    private final LinkedHashMap<Object, Object> pending = new LinkedHashMap<>();
+
+    /**
+     * 待重试的变更已失败的次数，与 {@link #pending} 使用同一个锁
+     */
+    private final Map<Object, Integer> failures = new HashMap<>();
+
+    private final Object flushMonitor = new Object();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final Executor flushExecutor;
+
+    /**
+     * 定时写回的调度器，<code>null</code> 表示只在达到批量大小、队列上限或关闭时写回
+     */
+    private final ExpirationScheduler flushScheduler;
+
+    private final LongSupplier clock;
+
+    private volatile boolean closed;
+
+    /**
+     * 构造
+     *
+     * @param delegate            被装饰的写入器
+     * @param cacheStatistics     缓存统计，记录队列长度与写回耗时
+     * @param batchSize           队列长度达到该值时触发写回
+     * @param flushIntervalMillis 定时写回的间隔，单位毫秒
+     * @param maxQueueSize        队列上限，达到时由调用线程同步写回
+     * @param maxRetries          失败的变更的最大重试次数，小于0表示不限制
+     * @param flushOnClose        关闭时是否写回队列中剩余的变更，否则丢弃
+     * @param flushExecutor       执行写回的执行器，由缓存管理器共享
+     * @param flushScheduler      定时写回的调度器，由缓存管理器共享，<code>null</code> 表示不定时写回
+     * @param clock               当前时间戳，与调度器的时钟一致
+     */
+    public WriteBehindCacheWriter(CacheWriter<K, V> delegate, CacheStatistics cacheStatistics, int batchSize,
+                                  long flushIntervalMillis, int maxQueueSize, int maxRetries, boolean flushOnClose,
+                                  Executor flushExecutor, ExpirationScheduler flushScheduler, LongSupplier clock) {
+        this.delegate = delegate;
+        this.cacheStatistics = cacheStatistics;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxQueueSize = Math.max(this.batchSize, maxQueueSize);
+        this.maxRetries = maxRetries;
+        this.flushOnClose = flushOnClose;
+        this.flushIntervalMillis = Math.max(1L, flushIntervalMillis);
+        this.flushExecutor = flushExecutor;
+        this.flushScheduler = flushScheduler;
+        this.clock = clock;
+        scheduleFlush();
+    }
+
+    @Override
+    public void write(Cache.Entry<? extends K, ? extends V> entry) throws CacheWriterException {
+        enqueue(Collections.singletonMap(entry.getKey(), entry));
+    }
+
+    @Override
+    public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) throws CacheWriterException {
+        Map<Object, Object> mutations = new LinkedHashMap<>();
+        entries.forEach(entry -> mutations.put(entry.getKey(), entry));
+        enqueue(mutations);
+        // every entry is accepted
+        entries.clear();
+    }
+
+    @Override
+    public void delete(Object key) throws CacheWriterException {
+        enqueue(Collections.singletonMap(key, DELETED));
+    }
+
+    @Override
+    public void deleteAll(Collection<?> keys) throws CacheWriterException {
+        Map<Object, Object> mutations = new LinkedHashMap<>();
+        keys.forEach(key -> mutations.put(key, DELETED));
+        enqueue(mutations);
+        keys.clear();
+    }
+
+    /**
+     * 队列中待写回的变更数量
+     */
+    public int getQueueSize() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 立即写回队列中所有的变更
+     *
+     * @throws CacheWriterException 如果有变更写回失败，失败的变更会重新入队
+     */
+    public void flush() throws CacheWriterException {
+        synchronized (flushMonitor) {
+            flushRequested.set(false);
+            Map<Object, Object> mutations;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                mutations = new LinkedHashMap<>(pending);
+                pending.clear();
+                cacheStatistics.writeBehindQueueSize(0);
+            }
+            long startTime = System.currentTimeMillis();
+            List<Cache.Entry<? extends K, ? extends V>> entries = new ArrayList<>();
+            List<Object> deletedKeys = new ArrayList<>();
+            mutations.forEach((key, mutation) -> {
+                if (mutation == DELETED) {
+                    deletedKeys.add(key);
+                } else {
+                    entries.add((Cache.Entry<? extends K, ? extends V>) mutation);
+                }
+            });
+            CacheWriterException failure = null;
+            Map<Object, Object> failed = new LinkedHashMap<>();
+            // each key appears only once, so writes and deletes can be applied in any order
+            if (!entries.isEmpty()) {
+                try {
+                    delegate.writeAll(entries);
+                } catch (CacheWriterException | ClassCastException e) {
+                    failure = e instanceof CacheWriterException ? (CacheWriterException) e : new CacheWriterException(e);
+                    // the entries left in the collection have not been written
+                    entries.forEach(entry -> failed.put(entry.getKey(), entry));
+                }
+            }
+            if (!deletedKeys.isEmpty()) {
+                try {
+                    delegate.deleteAll(deletedKeys);
+                } catch (CacheWriterException | ClassCastException e) {
+                    if (failure == null) {
+                        failure = e instanceof CacheWriterException ? (CacheWriterException) e : new CacheWriterException(e);
+                    }
+                    deletedKeys.forEach(key -> failed.put(key, DELETED));
+                }
+            }
+            requeue(mutations.keySet(), failed);
+            cacheStatistics.writeBehindFlushTime(System.currentTimeMillis() - startTime);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * 停止后台写回，按配置写回或丢弃队列中剩余的变更
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (flushOnClose) {
+            flush();
+        } else {
+            synchronized (pending) {
+                if (!pending.isEmpty()) {
+                    log.warn("Discarded {} pending write-behind mutations on close", pending.size());
+                }
+                pending.clear();
+                failures.clear();
+                cacheStatistics.writeBehindQueueSize(0);
+            }
+        }
+    }
+
+    private void enqueue(Map<?, ?> mutations) {
+        if (closed) {
+            // no background flushing any more, write through directly
+            applyDirectly(mutations);
+            return;
+        }
+        int size;
+        synchronized (pending) {
+            mutations.forEach((key, mutation) -> {
+                // move the key to the tail, the latest mutation wins and starts without failures
+                pending.remove(key);
+                pending.put(key, mutation);
+                failures.remove(key);
+            });
+            size = pending.size();
+            cacheStatistics.writeBehindQueueSize(size);
+        }
+        if (size >= maxQueueSize) {
+            // back pressure, the caller pays for the flush
+            flush();
+        } else if (size >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // the shared executor is saturated or shut down, the caller pays for the flush
+                flush();
+            }
+        }
+    }
+
+    /**
+     * 失败的变更重新入队，键已有更新的变更时丢弃旧变更；超过重试次数的变更丢弃
+     *
+     * @param flushedKeys 本次写回的所有键
+     * @param failed      写回失败的变更
+     */
+    private void requeue(Set<Object> flushedKeys, Map<Object, Object> failed) {
+        int discarded = 0;
+        synchronized (pending) {
+            if (!failures.isEmpty()) {
+                for (Object key : flushedKeys) {
+                    if (!failed.containsKey(key)) {
+                        failures.remove(key);
+                    }
+                }
+            }
+            for (Map.Entry<Object, Object> mutation : failed.entrySet()) {
+                Object key = mutation.getKey();
+                if (pending.containsKey(key)) {
+                    continue;
+                }
+                int attempts = failures.merge(key, 1, Integer::sum);
+                if (maxRetries >= 0 && attempts > maxRetries) {
+                    failures.remove(key);
+                    discarded++;
+                    log.error("Discarded the write-behind mutation of key : {} after {} failed attempts", key, attempts);
+                } else {
+                    pending.put(key, mutation.getValue());
+                }
+            }
+            cacheStatistics.writeBehindQueueSize(pending.size());
+        }
+        if (!failed.isEmpty()) {
+            cacheStatistics.writeBehindFailures(failed.size(), discarded);
+        }
+    }
+
+    /**
+     * 经过写回间隔后在共享的执行器中写回，写回完成后再调度下一次
+     */
+    private void scheduleFlush() {
+        if (flushScheduler == null || closed) {
+            return;
+        }
+        try {
+            flushScheduler.schedule(clock.getAsLong() + flushIntervalMillis, () -> {
+                if (closed) {
+                    return;
+                }
+                try {
+                    flushExecutor.execute(() -> {
+                        flushQuietly();
+                        scheduleFlush();
+                    });
+                } catch (RejectedExecutionException e) {
+                    // try again in the next interval
+                    scheduleFlush();
+                }
+            });
+        } catch (IllegalStateException e) {
+            // the scheduler has been closed together with the cache manager
+        }
+    }
+
+    private void applyDirectly(Map<?, ?> mutations) {
+        mutations.forEach((key, mutation) -> {
+            if (mutation == DELETED) {
+                delegate.delete(key);
+            } else {
+                delegate.write((Cache.Entry<? extends K, ? extends V>) mutation);
+            }
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            log.warn("Failed to flush the write-behind mutations : " + e.getMessage(), e);
+        }
+    }
+}
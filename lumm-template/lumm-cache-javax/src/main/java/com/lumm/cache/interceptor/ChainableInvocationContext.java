@@ -3,17 +3,31 @@ package com.lumm.cache.interceptor;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 包装形成链式 {@link InvocationContext}
+ * <p>
+ * 拦截方法通过 {@link InterceptorInfo#getMethodHandle(Method)} 缓存的 {@link MethodHandle} 调用，拦截方法抛出的异常原样传播
  */
 public class ChainableInvocationContext implements InvocationContext {
 
+    /**
+     * 未注册到 {@link InterceptorManager} 的默认（外部）拦截器的元信息，按类缓存
+     */
+    private static final ClassValue<InterceptorInfo> EXTERNAL_INTERCEPTOR_INFOS = new ClassValue<InterceptorInfo>() {
+        @Override
+        protected InterceptorInfo computeValue(Class<?> type) {
+            return new InterceptorInfo(type);
+        }
+    };
+
     /**
      * 委托实现
      */
@@ -106,10 +120,11 @@ public class ChainableInvocationContext implements InvocationContext {
         if (pos < size) {
             int currentPos = pos++;
             Object interceptor = interceptors.get(currentPos);
-            Collection<Method> interceptionMethods = resolveInterceptionMethods(interceptor);
+            InterceptorInfo interceptorInfo = resolveInterceptorInfo(interceptor);
+            Collection<Method> interceptionMethods = resolveInterceptionMethods(interceptorInfo);
             Object result = null;
             for (Method interceptionMethod : interceptionMethods) {
-                result = interceptionMethod.invoke(interceptor, this);
+                result = invoke(interceptorInfo.getMethodHandle(interceptionMethod), interceptor);
             }
             return result;
         } else {
@@ -117,6 +132,16 @@ public class ChainableInvocationContext implements InvocationContext {
         }
     }
 
+    private Object invoke(MethodHandle interceptionMethod, Object interceptor) throws Exception {
+        try {
+            return (Object) interceptionMethod.invokeExact(interceptor, (InvocationContext) this);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
     private ClassLoader resolveClassLoader(Object[] interceptors) {
         Object target = interceptors.length > 0 ? interceptors[0] : this;
         return target.getClass().getClassLoader();
@@ -137,13 +162,16 @@ public class ChainableInvocationContext implements InvocationContext {
     }
 
 
-    private Collection<Method> resolveInterceptionMethods(Object interceptor) {
+    private InterceptorInfo resolveInterceptorInfo(Object interceptor) {
         InterceptorInfo interceptorInfo = interceptorManager.getInterceptorInfo(interceptor.getClass());
 
         if (interceptorInfo == null) { // interceptor may be a default(external) Interceptor
-            interceptorInfo = new InterceptorInfo(interceptor.getClass());
+            interceptorInfo = EXTERNAL_INTERCEPTOR_INFOS.get(interceptor.getClass());
         }
+        return interceptorInfo;
+    }
 
+    private Collection<Method> resolveInterceptionMethods(InterceptorInfo interceptorInfo) {
         final Collection<Method> interceptionMethods;  // nerver null
 
         if (getTimer() != null) { // If the "Timer" is present
@@ -10,9 +10,15 @@ import javax.annotation.PreDestroy;
 import javax.interceptor.AroundConstruct;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.AroundTimeout;
+import javax.interceptor.InvocationContext;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -23,6 +29,12 @@ import static java.lang.String.format;
  */
 public class InterceptorInfo {
 
+    /**
+     * 拦截方法统一适配后的类型：(拦截器实例, InvocationContext) -> Object
+     */
+    static final MethodType INTERCEPTION_METHOD_TYPE = MethodType.methodType(Object.class, Object.class,
+            InvocationContext.class);
+
     /**
      * 拦截管理器
      */
@@ -48,6 +60,11 @@ public class InterceptorInfo {
 
     private final InterceptorBindings interceptorBindings;
 
+    /**
+     * 拦截方法对应的 {@link MethodHandle}，首次调用时创建
+     */
+    private final ConcurrentMap<Method, MethodHandle> methodHandles = new ConcurrentHashMap<>();
+
     public InterceptorInfo(Class<?> interceptorClass) {
         this.interceptorManager = InterceptorManager.getInstance(interceptorClass.getClassLoader());
         this.interceptorClass = interceptorClass;
@@ -136,6 +153,26 @@ public class InterceptorInfo {
         return preDestroyMethods;
     }
 
+    /**
+     * 获取拦截方法的 {@link MethodHandle}，类型为 {@link #INTERCEPTION_METHOD_TYPE}，无返回值的生命周期方法返回 <code>null</code>
+     *
+     * @param method 拦截方法
+     * @throws IllegalStateException 如果拦截方法无法访问
+     */
+    MethodHandle getMethodHandle(Method method) throws IllegalStateException {
+        return methodHandles.computeIfAbsent(method, InterceptorInfo::toMethodHandle);
+    }
+
+    private static MethodHandle toMethodHandle(Method method) {
+        try {
+            // interception methods may have private, protected or package level access
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(INTERCEPTION_METHOD_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException(format("The interception method[%s] can't be accessed", method), e);
+        }
+    }
+
     public Class<?> getInterceptorClass() {
         return interceptorClass;
     }
@@ -0,0 +1,29 @@
+package com.lumm.cache.management;
+
+import javax.cache.management.CacheStatisticsMXBean;
+
+/**
+ * 在 {@link CacheStatisticsMXBean} 的基础上暴露读取、写入、删除操作的延迟百分位，单位与平均耗时一致，为微秒
+ *
+ * @see LatencyHistogram
+ */
+public interface CacheLatencyStatisticsMXBean extends CacheStatisticsMXBean {
+
+    float getGetTimeP50();
+
+    float getGetTimeP99();
+
+    float getGetTimeP999();
+
+    float getPutTimeP50();
+
+    float getPutTimeP99();
+
+    float getPutTimeP999();
+
+    float getRemoveTimeP50();
+
+    float getRemoveTimeP99();
+
+    float getRemoveTimeP999();
+}
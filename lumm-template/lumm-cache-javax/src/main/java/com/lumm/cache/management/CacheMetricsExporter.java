@@ -0,0 +1,25 @@
+package com.lumm.cache.management;
+
+import java.io.IOException;
+
+/**
+ * 缓存指标导出器，将缓存统计渲染为监控系统可采集的文本
+ *
+ * @see PrometheusCacheMetricsExporter
+ * @see CacheMetricsHttpServer
+ */
+public interface CacheMetricsExporter {
+
+    /**
+     * 输出所有缓存的指标
+     *
+     * @param output 输出目标
+     * @throws IOException 如果写入失败
+     */
+    void export(Appendable output) throws IOException;
+
+    /**
+     * 输出内容的类型，用于 HTTP 响应头
+     */
+    String getContentType();
+}
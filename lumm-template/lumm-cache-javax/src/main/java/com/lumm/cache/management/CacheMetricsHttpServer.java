@@ -0,0 +1,151 @@
+package com.lumm.cache.management;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 内嵌的指标采集端点，基于 JDK 自带的 {@link HttpServer}
+ * <p>
+ * 采集请求在单个后台线程中串行处理，文本缓冲与编码缓冲在请求之间复用
+ *
+ * <pre>
+ * CacheMetricsHttpServer server = new CacheMetricsHttpServer(
+ *         new PrometheusCacheMetricsExporter((ConfigurableCachingProvider) Caching.getCachingProvider()), "0.0.0.0", 9404);
+ * server.start();
+ * </pre>
+ */
+@Slf4j
+public class CacheMetricsHttpServer implements AutoCloseable {
+
+    public static final String DEFAULT_PATH = "/metrics";
+
+    private final CacheMetricsExporter exporter;
+
+    private final HttpServer httpServer;
+
+    private final ExecutorService executor;
+
+    private final StringBuilder text = new StringBuilder(8192);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private ByteBuffer bytes = ByteBuffer.allocate(8192);
+
+    /**
+     * 构造，路径为 {@link #DEFAULT_PATH}
+     *
+     * @param exporter 指标导出器
+     * @param host     监听地址
+     * @param port     监听端口，0 表示随机端口
+     * @throws IOException 如果无法绑定端口
+     */
+    public CacheMetricsHttpServer(CacheMetricsExporter exporter, String host, int port) throws IOException {
+        this(exporter, host, port, DEFAULT_PATH);
+    }
+
+    /**
+     * 构造
+     *
+     * @param exporter 指标导出器
+     * @param host     监听地址
+     * @param port     监听端口，0 表示随机端口
+     * @param path     采集路径
+     * @throws IOException 如果无法绑定端口
+     */
+    public CacheMetricsHttpServer(CacheMetricsExporter exporter, String host, int port, String path) throws IOException {
+        this.exporter = exporter;
+        this.httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.httpServer.createContext(path, this::handle);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lumm-cache-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpServer.setExecutor(executor);
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            ByteBuffer body;
+            try {
+                text.setLength(0);
+                exporter.export(text);
+                body = encode();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to export the cache metrics : " + e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", exporter.getContentType());
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.remaining());
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            }
+        } finally {
+            exchange.close();
+            // release the text buffer grown by an unusually large scrape
+            if (text.capacity() > 1 << 20) {
+                text.setLength(0);
+                text.trimToSize();
+            }
+        }
+    }
+
+    /**
+     * 将文本编码到复用的缓冲中，容量不足时扩容
+     */
+    private ByteBuffer encode() {
+        while (true) {
+            CharBuffer input = CharBuffer.wrap(text);
+            bytes.clear();
+            encoder.reset();
+            CoderResult result = encoder.encode(input, bytes, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(bytes);
+            }
+            if (!result.isOverflow()) {
+                bytes.flip();
+                return bytes;
+            }
+            bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+        }
+    }
+}
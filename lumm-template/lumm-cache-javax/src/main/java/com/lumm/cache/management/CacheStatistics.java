@@ -1,13 +1,11 @@
 package com.lumm.cache.management;
 
-import javax.cache.management.CacheStatisticsMXBean;
-
 /**
  * 缓存统计接口
  *
  * @author <a href="mailto:mercyblitz@gmail.com">Mercy</a>
  */
-public interface CacheStatistics extends CacheStatisticsMXBean {
+public interface CacheStatistics extends CacheLatencyStatisticsMXBean {
 
     CacheStatistics reset();
 
@@ -21,10 +19,136 @@ public interface CacheStatistics extends CacheStatisticsMXBean {
 
     CacheStatistics cacheEvictions();
 
+    /**
+     * 本次操作是否需要记录耗时，不需要时调用方可以省去计时的开销
+     *
+     * @see com.lumm.cache.configuration.CacheConfiguration#STATISTICS_SAMPLE_RATE_PROPERTY_NAME
+     */
+    boolean sampleTiming();
+
+    /**
+     * 记录一次读取操作的耗时
+     *
+     * @param costTime 耗时，单位纳秒
+     */
     CacheStatistics cacheGetsTime(long costTime);
 
+    /**
+     * 记录一次写入操作的耗时
+     *
+     * @param costTime 耗时，单位纳秒
+     */
     CacheStatistics cachePutsTime(long costTime);
 
+    /**
+     * 记录一次删除操作的耗时
+     *
+     * @param costTime 耗时，单位纳秒
+     */
     CacheStatistics cacheRemovesTime(long costTime);
 
+    /**
+     * 穿透读取或 {@link javax.cache.Cache#loadAll} 时调用了一次 {@link javax.cache.integration.CacheLoader}，
+     * {@link javax.cache.integration.CacheLoader#load} 与 {@link javax.cache.integration.CacheLoader#loadAll}
+     * 每次调用都计一次，与加载的键数量无关
+     */
+    CacheStatistics cacheLoads();
+
+    /**
+     * 穿透读取时同一个键已有加载在进行中，等待其结果而没有再次调用 {@link javax.cache.integration.CacheLoader}
+     */
+    CacheStatistics cacheLoadsCoalesced();
+
+    /**
+     * 更新异步写回队列中待写回的变更数量
+     */
+    CacheStatistics writeBehindQueueSize(long size);
+
+    /**
+     * 完成一次异步写回
+     *
+     * @param costTime 写回耗时，单位毫秒
+     */
+    CacheStatistics writeBehindFlushTime(long costTime);
+
+    /**
+     * 异步写回失败的变更
+     *
+     * @param failures  写回失败的变更数量
+     * @param discarded 其中超过重试次数而被丢弃的变更数量
+     */
+    CacheStatistics writeBehindFailures(long failures, long discarded);
+
+    /**
+     * 完成一次值的压缩
+     *
+     * @param originalBytes 压缩前的字节数
+     * @param storedBytes   实际存储的字节数，压缩后没有变小时为原始内容的字节数
+     * @param costTime      耗时，单位纳秒
+     * @see com.lumm.cache.serialization.ValueCompressor
+     */
+    CacheStatistics valueCompressed(long originalBytes, long storedBytes, long costTime);
+
+    /**
+     * 完成一次值的解压
+     *
+     * @param costTime 耗时，单位纳秒
+     */
+    CacheStatistics valueDecompressed(long costTime);
+
+    /**
+     * 穿透读取调用 {@link javax.cache.integration.CacheLoader} 的次数
+     */
+    long getCacheLoads();
+
+    /**
+     * 穿透读取被合并到进行中的加载的次数
+     */
+    long getCacheLoadsCoalesced();
+
+    /**
+     * 异步写回队列中待写回的变更数量
+     */
+    long getWriteBehindQueueSize();
+
+    /**
+     * 异步写回的次数
+     */
+    long getWriteBehindFlushes();
+
+    /**
+     * 异步写回的平均耗时，单位毫秒
+     */
+    float getAverageWriteBehindFlushTime();
+
+    /**
+     * 异步写回失败的变更数量，每次重试失败都计入
+     */
+    long getWriteBehindFailures();
+
+    /**
+     * 异步写回超过重试次数而被丢弃的变更数量
+     */
+    long getWriteBehindDiscards();
+
+    /**
+     * 达到压缩阈值的值的数量
+     */
+    long getCompressions();
+
+    /**
+     * 压缩率，压缩前的字节数与实际存储的字节数之比，没有压缩时为1
+     */
+    float getCompressionRatio();
+
+    /**
+     * 压缩的平均耗时，单位微秒
+     */
+    float getAverageCompressTime();
+
+    /**
+     * 解压的平均耗时，单位微秒
+     */
+    float getAverageDecompressTime();
+
 }
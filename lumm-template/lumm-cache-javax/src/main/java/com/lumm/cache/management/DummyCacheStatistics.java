@@ -43,6 +43,11 @@ public class DummyCacheStatistics implements CacheStatistics {
         return this;
     }
 
+    @Override
+    public boolean sampleTiming() {
+        return false;
+    }
+
     @Override
     public CacheStatistics cacheGetsTime(long costTime) {
         return this;
@@ -58,6 +63,96 @@ public class DummyCacheStatistics implements CacheStatistics {
         return this;
     }
 
+    @Override
+    public CacheStatistics cacheLoads() {
+        return this;
+    }
+
+    @Override
+    public CacheStatistics cacheLoadsCoalesced() {
+        return this;
+    }
+
+    @Override
+    public CacheStatistics writeBehindQueueSize(long size) {
+        return this;
+    }
+
+    @Override
+    public CacheStatistics writeBehindFlushTime(long costTime) {
+        return this;
+    }
+
+    @Override
+    public CacheStatistics writeBehindFailures(long failures, long discarded) {
+        return this;
+    }
+
+    @Override
+    public CacheStatistics valueCompressed(long originalBytes, long storedBytes, long costTime) {
+        return this;
+    }
+
+    @Override
+    public CacheStatistics valueDecompressed(long costTime) {
+        return this;
+    }
+
+    @Override
+    public long getCompressions() {
+        return 0;
+    }
+
+    @Override
+    public float getCompressionRatio() {
+        return 1.0f;
+    }
+
+    @Override
+    public float getAverageCompressTime() {
+        return 0;
+    }
+
+    @Override
+    public float getAverageDecompressTime() {
+        return 0;
+    }
+
+    @Override
+    public long getWriteBehindQueueSize() {
+        return 0;
+    }
+
+    @Override
+    public long getWriteBehindFlushes() {
+        return 0;
+    }
+
+    @Override
+    public float getAverageWriteBehindFlushTime() {
+        return 0;
+    }
+
+    @Override
+    public long getWriteBehindFailures() {
+        return 0;
+    }
+
+    @Override
+    public long getWriteBehindDiscards() {
+        return 0;
+    }
+
+    @Override
+    public long getCacheLoads() {
+        return 0;
+    }
+
+    @Override
+    public long getCacheLoadsCoalesced() {
+        return 0;
+    }
+
     @Override
     public void clear() {
 
@@ -117,4 +212,49 @@ public class DummyCacheStatistics implements CacheStatistics {
     public float getAverageRemoveTime() {
         return 0;
     }
+
+    @Override
+    public float getGetTimeP50() {
+        return 0;
+    }
+
+    @Override
+    public float getGetTimeP99() {
+        return 0;
+    }
+
+    @Override
+    public float getGetTimeP999() {
+        return 0;
+    }
+
+    @Override
+    public float getPutTimeP50() {
+        return 0;
+    }
+
+    @Override
+    public float getPutTimeP99() {
+        return 0;
+    }
+
+    @Override
+    public float getPutTimeP999() {
+        return 0;
+    }
+
+    @Override
+    public float getRemoveTimeP50() {
+        return 0;
+    }
+
+    @Override
+    public float getRemoveTimeP99() {
+        return 0;
+    }
+
+    @Override
+    public float getRemoveTimeP999() {
+        return 0;
+    }
 }
@@ -0,0 +1,202 @@
+package com.lumm.cache.management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图，按 HDR Histogram 的对数-线性方式分桶，线程安全：
+ * <ul>
+ *     <li>每个 2 的幂区间再线性划分为 {@value #SUB_BUCKET_COUNT} 个子桶，记录值的相对误差不超过 1/{@value #SUB_BUCKET_COUNT}</li>
+ *     <li>记录只需一次位运算与一次原子自增，不分配对象</li>
+ *     <li>桶计数出现竞争（CAS 失败）时按 {@link java.util.concurrent.atomic.LongAdder} 的方式增加计数分组，
+ *     线程按 id 分散到不同分组，读取时累加各分组，没有竞争时只有一组</li>
+ *     <li>超过 {@link #MAX_TRACKABLE_VALUE} 的值按最大值记录</li>
+ * </ul>
+ * 数值单位由调用方决定，缓存统计中为纳秒
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 可精确到子桶的最大值的位数，纳秒下约为 18 分钟
+     */
+    private static final int MAX_VALUE_BITS = 40;
+
+    public static final long MAX_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * 2 + (MAX_VALUE_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * 计数分组的最大数量，不小于 CPU 数量的2的幂
+     */
+    private static final int MAX_STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    /**
+     * 桶计数的分组，数量为2的幂，只增不减
+     */
+    private volatile AtomicLongArray[] stripes = {new AtomicLongArray(BUCKET_COUNT)};
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * 记录一个值
+     *
+     * @param value 小于0时按0记录
+     */
+    public void record(long value) {
+        long normalized = Math.min(Math.max(0L, value), MAX_TRACKABLE_VALUE);
+        int index = indexOf(normalized);
+        AtomicLongArray[] stripes = this.stripes;
+        AtomicLongArray counts = stripes[stripeOf(Thread.currentThread()) & (stripes.length - 1)];
+        long current = counts.get(index);
+        if (!counts.compareAndSet(index, current, current + 1)) {
+            counts.incrementAndGet(index);
+            expand(stripes);
+        }
+        count.increment();
+        sum.add(normalized);
+        max.accumulate(normalized);
+    }
+
+    /**
+     * 记录的数量
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 记录的最大值
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 记录的平均值，没有记录时为0
+     */
+    public double getMean() {
+        long n = getCount();
+        return n < 1 ? 0.0d : sum.doubleValue() / n;
+    }
+
+    /**
+     * 记录值的总和
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 百分位对应的值，取所在子桶的上界且不超过记录的最大值
+     *
+     * @param percentile 百分位，0 ~ 100，如 99.9
+     * @return 没有记录时为0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] values = new long[1];
+        getValuesAtPercentiles(new double[]{percentile}, values);
+        return values[0];
+    }
+
+    /**
+     * 一次遍历计算多个百分位对应的值，不分配对象，适合周期性采集
+     *
+     * @param percentiles 百分位，0 ~ 100，须按升序排列
+     * @param values      输出，与百分位一一对应，没有记录时为0
+     */
+    public void getValuesAtPercentiles(double[] percentiles, long[] values) {
+        AtomicLongArray[] stripes = this.stripes;
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += countOf(stripes, i);
+        }
+        long max = getMax();
+        int next = 0;
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT && next < percentiles.length && total > 0; i++) {
+            accumulated += countOf(stripes, i);
+            while (next < percentiles.length && accumulated >= rankOf(percentiles[next], total)) {
+                values[next++] = Math.min(highestValueOf(i), max);
+            }
+        }
+        // no records, or the counts have changed during the iteration
+        for (; next < percentiles.length; next++) {
+            values[next] = total > 0 ? max : 0L;
+        }
+    }
+
+    private static long rankOf(double percentile, long total) {
+        double ratio = Math.min(100.0d, Math.max(0.0d, percentile)) / 100.0d;
+        return Math.max(1L, (long) Math.ceil(ratio * total));
+    }
+
+    /**
+     * 清空所有记录，与并发的记录之间不保证原子性
+     */
+    public void reset() {
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0L);
+            }
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static long countOf(AtomicLongArray[] stripes, int index) {
+        long count = 0;
+        for (AtomicLongArray counts : stripes) {
+            count += counts.get(index);
+        }
+        return count;
+    }
+
+    private static int stripeOf(Thread thread) {
+        int h = (int) thread.getId() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 出现竞争时分组数量翻倍，直到 {@link #MAX_STRIPES}
+     */
+    private synchronized void expand(AtomicLongArray[] contended) {
+        if (stripes != contended || contended.length >= MAX_STRIPES) {
+            return;
+        }
+        AtomicLongArray[] expanded = new AtomicLongArray[contended.length << 1];
+        System.arraycopy(contended, 0, expanded, 0, contended.length);
+        for (int i = contended.length; i < expanded.length; i++) {
+            expanded[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+        stripes = expanded;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT * 2) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // the top bits are within [SUB_BUCKET_COUNT, SUB_BUCKET_COUNT * 2)
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT * 2 + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT * 2) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT * 2) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT * 2) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,190 @@
+package com.lumm.cache.management;
+
+import com.lumm.cache.AbstractCache;
+import com.lumm.cache.AbstractCacheManager;
+import com.lumm.cache.ConfigurableCachingProvider;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link CacheMetricsExporter} 实现，输出 Prometheus 文本格式（0.0.4，兼容 OpenMetrics 采集）
+ * <p>
+ * 遍历 {@link ConfigurableCachingProvider} 下所有未关闭的缓存管理器及其缓存，每个缓存以 <code>cache</code> 与
+ * <code>uri</code> 标签区分，输出：
+ * <ul>
+ *     <li>读取、命中、未命中、写入、删除、淘汰、加载次数（counter）</li>
+ *     <li>条目数量（gauge），缓存无法高效获取时不输出</li>
+ *     <li>读取、写入、删除的延迟（summary），含 p50、p99、p999 分位与总耗时，单位秒</li>
+ *     <li>值压缩的次数（counter）、压缩率与压缩、解压的平均耗时（gauge），单位秒</li>
+ * </ul>
+ * 只输出启用了统计的缓存；分位数通过 {@link LatencyHistogram#getValuesAtPercentiles} 计算，采集时不分配临时数组
+ */
+public class PrometheusCacheMetricsExporter implements CacheMetricsExporter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String METRIC_PREFIX = "lumm_cache_";
+
+    private static final double[] PERCENTILES = {50.0d, 99.0d, 99.9d};
+
+    private static final String[] QUANTILES = {"0.5", "0.99", "0.999"};
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0d;
+
+    private static final double MICROS_PER_SECOND = 1_000_000.0d;
+
+    private final ConfigurableCachingProvider cachingProvider;
+
+    /**
+     * 采集时复用的缓冲，{@link #export} 串行执行
+     */
+    private final List<AbstractCache<?, ?>> caches = new ArrayList<>();
+
+    private final long[] percentileValues = new long[PERCENTILES.length];
+
+    /**
+     * 构造
+     *
+     * @param cachingProvider 缓存提供者
+     */
+    public PrometheusCacheMetricsExporter(ConfigurableCachingProvider cachingProvider) {
+        this.cachingProvider = cachingProvider;
+    }
+
+    @Override
+    public synchronized void export(Appendable output) throws IOException {
+        collectCaches();
+        try {
+            writeCounter(output, "gets_total", "Cache gets", CacheStatistics::getCacheGets);
+            writeCounter(output, "hits_total", "Cache hits", CacheStatistics::getCacheHits);
+            writeCounter(output, "misses_total", "Cache misses", CacheStatistics::getCacheMisses);
+            writeCounter(output, "puts_total", "Cache puts", CacheStatistics::getCachePuts);
+            writeCounter(output, "removals_total", "Cache removals", CacheStatistics::getCacheRemovals);
+            writeCounter(output, "evictions_total", "Cache evictions and expirations", CacheStatistics::getCacheEvictions);
+            writeCounter(output, "loads_total", "Cache loader invocations", CacheStatistics::getCacheLoads);
+            writeSize(output);
+            writeLatency(output);
+            writeCounter(output, "compressions_total", "Cache value compressions", CacheStatistics::getCompressions);
+            writeGauge(output, "compression_ratio", "Cache value original to stored bytes ratio",
+                    CacheStatistics::getCompressionRatio);
+            writeGauge(output, "compress_average_seconds", "Cache value average compression time",
+                    statistics -> statistics.getAverageCompressTime() / MICROS_PER_SECOND);
+            writeGauge(output, "decompress_average_seconds", "Cache value average decompression time",
+                    statistics -> statistics.getAverageDecompressTime() / MICROS_PER_SECOND);
+        } finally {
+            caches.clear();
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    private void collectCaches() {
+        for (CacheManager cacheManager : cachingProvider.getCacheManagers()) {
+            if (!(cacheManager instanceof AbstractCacheManager) || cacheManager.isClosed()) {
+                continue;
+            }
+            for (Cache cache : ((AbstractCacheManager) cacheManager).getCaches()) {
+                if (cache instanceof AbstractCache && !cache.isClosed()
+                        && ((AbstractCache<?, ?>) cache).getCacheStatistics() instanceof SimpleCacheStatistics) {
+                    caches.add((AbstractCache<?, ?>) cache);
+                }
+            }
+        }
+    }
+
+    private void writeCounter(Appendable output, String name, String help, ToLongFunction<CacheStatistics> value)
+            throws IOException {
+        writeHeader(output, name, help, "counter");
+        for (AbstractCache<?, ?> cache : caches) {
+            writeName(output, name, cache);
+            output.append("} ");
+            output.append(Long.toString(value.applyAsLong(cache.getCacheStatistics()))).append('\n');
+        }
+    }
+
+    private void writeGauge(Appendable output, String name, String help, ToDoubleFunction<CacheStatistics> value)
+            throws IOException {
+        writeHeader(output, name, help, "gauge");
+        for (AbstractCache<?, ?> cache : caches) {
+            writeName(output, name, cache);
+            output.append("} ");
+            output.append(Double.toString(value.applyAsDouble(cache.getCacheStatistics()))).append('\n');
+        }
+    }
+
+    private void writeSize(Appendable output) throws IOException {
+        writeHeader(output, "size", "Cache entries", "gauge");
+        for (AbstractCache<?, ?> cache : caches) {
+            long size = cache.size();
+            if (size >= 0) {
+                writeName(output, "size", cache);
+                output.append("} ").append(Long.toString(size)).append('\n');
+            }
+        }
+    }
+
+    private void writeLatency(Appendable output) throws IOException {
+        String name = "operation_duration_seconds";
+        writeHeader(output, name, "Cache operation latency", "summary");
+        for (AbstractCache<?, ?> cache : caches) {
+            SimpleCacheStatistics statistics = (SimpleCacheStatistics) cache.getCacheStatistics();
+            writeHistogram(output, name, cache, "get", statistics.getGetLatency());
+            writeHistogram(output, name, cache, "put", statistics.getPutLatency());
+            writeHistogram(output, name, cache, "remove", statistics.getRemoveLatency());
+        }
+    }
+
+    private void writeHistogram(Appendable output, String name, AbstractCache<?, ?> cache, String operation,
+                                LatencyHistogram histogram) throws IOException {
+        histogram.getValuesAtPercentiles(PERCENTILES, percentileValues);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            writeName(output, name, cache);
+            output.append(",operation=\"").append(operation).append("\",quantile=\"").append(QUANTILES[i])
+                    .append("\"} ").append(Double.toString(percentileValues[i] / NANOS_PER_SECOND)).append('\n');
+        }
+        writeName(output, name + "_sum", cache);
+        output.append(",operation=\"").append(operation).append("\"} ")
+                .append(Double.toString(histogram.getSum() / NANOS_PER_SECOND)).append('\n');
+        writeName(output, name + "_count", cache);
+        output.append(",operation=\"").append(operation).append("\"} ")
+                .append(Long.toString(histogram.getCount())).append('\n');
+    }
+
+    private static void writeHeader(Appendable output, String name, String help, String type) throws IOException {
+        output.append("# HELP ").append(METRIC_PREFIX).append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(METRIC_PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * 输出指标名与公共标签，标签未闭合
+     */
+    private static void writeName(Appendable output, String name, Cache<?, ?> cache) throws IOException {
+        output.append(METRIC_PREFIX).append(name).append("{cache=\"");
+        writeLabelValue(output, cache.getName());
+        output.append("\",uri=\"");
+        writeLabelValue(output, cache.getCacheManager().getURI().toString());
+        output.append('"');
+    }
+
+    private static void writeLabelValue(Appendable output, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                output.append('\\').append(c);
+            } else if (c == '\n') {
+                output.append("\\n");
+            } else {
+                output.append(c);
+            }
+        }
+    }
+}
@@ -1,30 +1,82 @@
 package com.lumm.cache.management;
 
-import javax.cache.management.CacheStatisticsMXBean;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
  * {@link CacheStatistics} 简单实现
- *
+ * <p>
+ * 计数使用分段的 {@link LongAdder}，多线程同时访问一个缓存时不会争用同一条缓存行；
+ * 操作耗时以纳秒记录，可按采样率只记录部分操作，平均耗时与百分位按 JSR-107 的约定以微秒暴露，由 {@link LatencyHistogram} 计算
  */
-public class SimpleCacheStatistics implements CacheStatisticsMXBean, CacheStatistics {
+public class SimpleCacheStatistics implements CacheStatistics {
 
-    private final AtomicLong cacheHits = new AtomicLong();
+    private static final float NANOS_PER_MICRO = 1000.0f;
 
-    private final AtomicLong cacheGets = new AtomicLong();
+    /**
+     * 耗时采样率，每 N 次操作记录 1 次
+     */
+    private final int sampleRate;
 
-    private final AtomicLong cachePuts = new AtomicLong();
 
-    private final AtomicLong cacheRemovals = new AtomicLong();
+    private final LongAdder cacheHits = new LongAdder();
 
-    private final AtomicLong cacheEvictions = new AtomicLong();
+    private final LongAdder cacheGets = new LongAdder();
 
-    private final LongAdder cacheGetTime = new LongAdder();
+    private final LongAdder cachePuts = new LongAdder();
 
-    private final LongAdder cachePutTime = new LongAdder();
+    private final LongAdder cacheRemovals = new LongAdder();
 
-    private final LongAdder cacheRemoveTime = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+
+    private final LongAdder cacheLoads = new LongAdder();
+
+    private final LongAdder cacheLoadsCoalesced = new LongAdder();
+
+    private final AtomicLong writeBehindQueueSize = new AtomicLong();
+
+    private final LongAdder writeBehindFlushes = new LongAdder();
+
+    private final LongAdder writeBehindFlushTime = new LongAdder();
+
+    private final LongAdder writeBehindFailures = new LongAdder();
+
+    private final LongAdder writeBehindDiscards = new LongAdder();
+
+    private final LongAdder compressions = new LongAdder();
+
+    private final LongAdder compressionOriginalBytes = new LongAdder();
+
+    private final LongAdder compressionStoredBytes = new LongAdder();
+
+    private final LongAdder compressTime = new LongAdder();
+
+    private final LongAdder decompressions = new LongAdder();
+
+    private final LongAdder decompressTime = new LongAdder();
+
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+
+    private final LatencyHistogram putLatency = new LatencyHistogram();
+
+    private final LatencyHistogram removeLatency = new LatencyHistogram();
+
+    /**
+     * 构造，记录每次操作的耗时
+     */
+    public SimpleCacheStatistics() {
+        this(1);
+    }
+
+    /**
+     * 构造
+     *
+     * @param sampleRate 耗时采样率，每 N 次操作随机记录 1 次，小于等于1表示记录每次操作
+     */
+    public SimpleCacheStatistics(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
 
     @Override
     public void clear() {
@@ -33,68 +85,192 @@ public class SimpleCacheStatistics implements CacheStatisticsMXBean, CacheStatis
 
     @Override
     public SimpleCacheStatistics reset() {
-        cacheHits.set(0);
-        cacheGets.set(0);
-        cachePuts.set(0);
-        cacheRemovals.set(0);
-        cacheEvictions.set(0);
-        cacheGetTime.reset();
-        cachePutTime.reset();
-        cacheRemoveTime.reset();
+        cacheHits.reset();
+        cacheGets.reset();
+        cachePuts.reset();
+        cacheRemovals.reset();
+        cacheEvictions.reset();
+        cacheLoads.reset();
+        cacheLoadsCoalesced.reset();
+        writeBehindFlushes.reset();
+        writeBehindFlushTime.reset();
+        writeBehindFailures.reset();
+        writeBehindDiscards.reset();
+        compressions.reset();
+        compressionOriginalBytes.reset();
+        compressionStoredBytes.reset();
+        compressTime.reset();
+        decompressions.reset();
+        decompressTime.reset();
+        getLatency.reset();
+        putLatency.reset();
+        removeLatency.reset();
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cacheHits() {
-        cacheHits.incrementAndGet();
+        cacheHits.increment();
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cacheGets() {
-        cacheGets.incrementAndGet();
+        cacheGets.increment();
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cachePuts() {
-        cachePuts.incrementAndGet();
+        cachePuts.increment();
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cacheRemovals() {
-        cacheRemovals.incrementAndGet();
+        cacheRemovals.increment();
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cacheEvictions() {
-        cacheEvictions.incrementAndGet();
+        cacheEvictions.increment();
         return this;
     }
 
+    @Override
+    public boolean sampleTiming() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
     @Override
     public SimpleCacheStatistics cacheGetsTime(long costTime) {
-        cacheGetTime.add(costTime);
+        getLatency.record(costTime);
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cachePutsTime(long costTime) {
-        cachePutTime.add(costTime);
+        putLatency.record(costTime);
         return this;
     }
 
     @Override
     public SimpleCacheStatistics cacheRemovesTime(long costTime) {
-        cacheRemoveTime.add(costTime);
+        removeLatency.record(costTime);
         return this;
     }
 
+    @Override
+    public SimpleCacheStatistics cacheLoads() {
+        cacheLoads.increment();
+        return this;
+    }
+
+    @Override
+    public SimpleCacheStatistics cacheLoadsCoalesced() {
+        cacheLoadsCoalesced.increment();
+        return this;
+    }
+
+    @Override
+    public SimpleCacheStatistics writeBehindQueueSize(long size) {
+        writeBehindQueueSize.set(size);
+        return this;
+    }
+
+    @Override
+    public SimpleCacheStatistics writeBehindFlushTime(long costTime) {
+        writeBehindFlushes.increment();
+        writeBehindFlushTime.add(costTime);
+        return this;
+    }
+
+    @Override
+    public SimpleCacheStatistics writeBehindFailures(long failures, long discarded) {
+        writeBehindFailures.add(failures);
+        writeBehindDiscards.add(discarded);
+        return this;
+    }
+
+    @Override
+    public SimpleCacheStatistics valueCompressed(long originalBytes, long storedBytes, long costTime) {
+        compressions.increment();
+        compressionOriginalBytes.add(originalBytes);
+        compressionStoredBytes.add(storedBytes);
+        compressTime.add(costTime);
+        return this;
+    }
+
+    @Override
+    public SimpleCacheStatistics valueDecompressed(long costTime) {
+        decompressions.increment();
+        decompressTime.add(costTime);
+        return this;
+    }
+
+    @Override
+    public long getCompressions() {
+        return compressions.sum();
+    }
+
+    @Override
+    public float getCompressionRatio() {
+        long storedBytes = compressionStoredBytes.sum();
+        return storedBytes < 1 ? 1.0f : compressionOriginalBytes.floatValue() / storedBytes;
+    }
+
+    @Override
+    public float getAverageCompressTime() {
+        long count = getCompressions();
+        return count < 1 ? 0.0f : compressTime.floatValue() / count / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getAverageDecompressTime() {
+        long count = decompressions.sum();
+        return count < 1 ? 0.0f : decompressTime.floatValue() / count / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public long getWriteBehindQueueSize() {
+        return writeBehindQueueSize.get();
+    }
+
+    @Override
+    public long getWriteBehindFlushes() {
+        return writeBehindFlushes.sum();
+    }
+
+    @Override
+    public float getAverageWriteBehindFlushTime() {
+        long flushes = getWriteBehindFlushes();
+        return flushes < 1 ? 0.0f : writeBehindFlushTime.floatValue() / flushes;
+    }
+
+    @Override
+    public long getWriteBehindFailures() {
+        return writeBehindFailures.sum();
+    }
+
+    @Override
+    public long getWriteBehindDiscards() {
+        return writeBehindDiscards.sum();
+    }
+
+    @Override
+    public long getCacheLoads() {
+        return cacheLoads.sum();
+    }
+
+    @Override
+    public long getCacheLoadsCoalesced() {
+        return cacheLoadsCoalesced.sum();
+    }
+
     @Override
     public long getCacheHits() {
-        return cacheHits.get();
+        return cacheHits.sum();
     }
 
     @Override
@@ -102,7 +278,7 @@ public class SimpleCacheStatistics implements CacheStatisticsMXBean, CacheStatis
         if (getCacheGets() < 1) {
             return 0.0f;
         }
-        return (getCacheHits() / getCacheGets()) / 100.0f;
+        return getCacheHits() * 100.0f / getCacheGets();
     }
 
     @Override
@@ -115,41 +291,107 @@ public class SimpleCacheStatistics implements CacheStatisticsMXBean, CacheStatis
         if (getCacheGets() < 1) {
             return 0.0f;
         }
-        return (getCacheMisses() / getCacheGets()) / 100.0f;
+        return getCacheMisses() * 100.0f / getCacheGets();
     }
 
     @Override
     public long getCacheGets() {
-        return cacheGets.get();
+        return cacheGets.sum();
     }
 
     @Override
     public long getCachePuts() {
-        return cachePuts.get();
+        return cachePuts.sum();
     }
 
     @Override
     public long getCacheRemovals() {
-        return cacheRemovals.get();
+        return cacheRemovals.sum();
     }
 
     @Override
     public long getCacheEvictions() {
-        return cacheEvictions.get();
+        return cacheEvictions.sum();
     }
 
     @Override
     public float getAverageGetTime() {
-        return cacheGetTime.floatValue() / getCacheGets();
+        return (float) (getLatency.getMean() / NANOS_PER_MICRO);
     }
 
     @Override
     public float getAveragePutTime() {
-        return cachePutTime.floatValue() / getCachePuts();
+        return (float) (putLatency.getMean() / NANOS_PER_MICRO);
     }
 
     @Override
     public float getAverageRemoveTime() {
-        return cacheRemoveTime.floatValue() / getCacheRemovals();
+        return (float) (removeLatency.getMean() / NANOS_PER_MICRO);
+    }
+
+    @Override
+    public float getGetTimeP50() {
+        return getLatency.getValueAtPercentile(50.0d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getGetTimeP99() {
+        return getLatency.getValueAtPercentile(99.0d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getGetTimeP999() {
+        return getLatency.getValueAtPercentile(99.9d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getPutTimeP50() {
+        return putLatency.getValueAtPercentile(50.0d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getPutTimeP99() {
+        return putLatency.getValueAtPercentile(99.0d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getPutTimeP999() {
+        return putLatency.getValueAtPercentile(99.9d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getRemoveTimeP50() {
+        return removeLatency.getValueAtPercentile(50.0d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getRemoveTimeP99() {
+        return removeLatency.getValueAtPercentile(99.0d) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public float getRemoveTimeP999() {
+        return removeLatency.getValueAtPercentile(99.9d) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * 读取操作的延迟直方图，单位纳秒
+     */
+    public LatencyHistogram getGetLatency() {
+        return getLatency;
+    }
+
+    /**
+     * 写入操作的延迟直方图，单位纳秒
+     */
+    public LatencyHistogram getPutLatency() {
+        return putLatency;
+    }
+
+    /**
+     * 删除操作的延迟直方图，单位纳秒
+     */
+    public LatencyHistogram getRemoveLatency() {
+        return removeLatency;
     }
 }
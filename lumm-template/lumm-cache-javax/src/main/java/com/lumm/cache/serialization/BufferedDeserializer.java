@@ -0,0 +1,42 @@
+package com.lumm.cache.serialization;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 直接从字节数组的区间读取的反序列化，不需要先把区间复制为独立的数组
+ *
+ * @param <T> 反序列化资源类型泛型
+ * @since 1.0.0
+ */
+public interface BufferedDeserializer<T> extends Deserializer<T> {
+
+    /**
+     * 反序列化
+     *
+     * @param bytes  二进制数据
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    T deserialize(byte[] bytes, int offset, int length) throws IOException;
+
+    @Override
+    default T deserialize(byte[] bytes) throws IOException {
+        return bytes == null ? null : deserialize(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 使用任意的反序列化实现读取区间，不支持 {@link BufferedDeserializer} 的实现退化为复制区间
+     *
+     * @param deserializer 反序列化实现
+     * @param bytes        二进制数据
+     * @param offset       起始位置
+     * @param length       长度
+     */
+    static <T> T deserialize(Deserializer<T> deserializer, byte[] bytes, int offset, int length) throws IOException {
+        if (deserializer instanceof BufferedDeserializer) {
+            return ((BufferedDeserializer<T>) deserializer).deserialize(bytes, offset, length);
+        }
+        return deserializer.deserialize(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+}
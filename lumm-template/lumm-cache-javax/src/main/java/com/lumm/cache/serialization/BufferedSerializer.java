@@ -0,0 +1,39 @@
+package com.lumm.cache.serialization;
+
+import com.lumm.cache.serialization.binary.BinaryOutput;
+
+import java.io.IOException;
+
+/**
+ * 写入调用方提供的缓冲区的序列化，调用方可以复用缓冲区（如 {@link BinaryOutput#local()}），
+ * 并在同一个缓冲区中拼接前缀等内容，只在最终需要时分配一次字节数组
+ *
+ * @param <S> 序列化资源类型泛型
+ * @since 1.0.0
+ */
+public interface BufferedSerializer<S> extends Serializer<S> {
+
+    /**
+     * 序列化并追加到输出中
+     *
+     * @param source 资源
+     * @param output 输出
+     */
+    void serialize(S source, BinaryOutput output) throws IOException;
+
+    /**
+     * 使用任意的序列化实现追加到输出中，不支持 {@link BufferedSerializer} 的实现退化为复制其结果
+     *
+     * @param serializer 序列化实现
+     * @param source     资源
+     * @param output     输出
+     */
+    static <S> void serialize(Serializer<S> serializer, S source, BinaryOutput output) throws IOException {
+        if (serializer instanceof BufferedSerializer) {
+            ((BufferedSerializer<S>) serializer).serialize(source, output);
+        } else {
+            byte[] bytes = serializer.serialize(source);
+            output.writeRaw(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -27,15 +27,12 @@ import java.io.Serializable;
  * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
  * @since 1.0.0
  */
-public class DefaultDeserializer implements Deserializer<Object> {
+public class DefaultDeserializer implements BufferedDeserializer<Object> {
 
     @Override
-    public Object deserialize(byte[] bytes) throws IOException {
-        if (bytes == null) {
-            return null;
-        }
+    public Object deserialize(byte[] bytes, int offset, int length) throws IOException {
         Object value = null;
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes, offset, length);
              ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)
         ) {
             // byte[] -> Value
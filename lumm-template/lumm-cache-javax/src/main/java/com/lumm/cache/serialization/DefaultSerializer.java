@@ -1,5 +1,7 @@
 package com.lumm.cache.serialization;
 
+import com.lumm.cache.serialization.binary.BinaryOutput;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
@@ -11,7 +13,7 @@ import java.io.Serializable;
  * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
  * @since 1.0.0
  */
-public class DefaultSerializer implements Serializer<Object> {
+public class DefaultSerializer implements BufferedSerializer<Object> {
 
     @Override
     public byte[] serialize(Object source) throws IOException {
@@ -24,5 +26,11 @@ public class DefaultSerializer implements Serializer<Object> {
         }
         return bytes;
     }
-}
 
+    @Override
+    public void serialize(Object source, BinaryOutput output) throws IOException {
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(output.asOutputStream())) {
+            objectOutputStream.writeObject(source);
+        }
+    }
+}
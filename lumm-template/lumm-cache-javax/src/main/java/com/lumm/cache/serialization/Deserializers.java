@@ -4,16 +4,17 @@ import cn.hutool.core.util.TypeUtil;
 import com.lumm.cache.priority.PriorityComparator;
 
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.ServiceLoader.load;
 
 /**
  * 反序列化组合器
+ * <p>
+ * {@link #loadSPI()} 之后按类型注册的实现不再变化，{@link #getMostCompatible(Class)} 的结果按类型缓存在
+ * {@link ClassValue} 中，每次查找只是一次无锁读取
  *
  * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
  * @since 1.0.0
@@ -21,9 +22,19 @@ import static java.util.ServiceLoader.load;
 public class Deserializers {
 
     /**
-     * 类型映射反序列化
+     * 没有兼容的实现时缓存的占位符
      */
-    private final Map<Class<?>, List<Deserializer>> typedDeserializers = new HashMap<>();
+    private static final Deserializer<?> ABSENT = bytes -> null;
+
+    /**
+     * 类型映射反序列化，不可变
+     */
+    private volatile Map<Class<?>, List<Deserializer>> typedDeserializers = emptyMap();
+
+    /**
+     * 类型到最接近的反序列化实现的缓存，随 {@link #loadSPI()} 重建
+     */
+    private volatile ClassValue<Deserializer<?>> compatibleDeserializers = newCompatibleDeserializers();
 
     /**
      * 类加载器
@@ -50,27 +61,30 @@ public class Deserializers {
      * SPI加载实现累
      */
     public void loadSPI() {
-        for (Deserializer deserializer : load(Deserializer.class)) {
+        Map<Class<?>, List<Deserializer>> typedDeserializers = new HashMap<>();
+        for (Deserializer deserializer : load(Deserializer.class, classLoader)) {
             Type typeArgument = TypeUtil.getTypeArgument(deserializer.getClass());
             Class<?> targetClass = typeArgument == null ? Object.class : TypeUtil.getClass(typeArgument);
-            List<Deserializer> deserializers = typedDeserializers.computeIfAbsent(targetClass, k -> new LinkedList());
-            deserializers.add(deserializer);
-            deserializers.sort(PriorityComparator.INSTANCE);
+            typedDeserializers.computeIfAbsent(targetClass, k -> new ArrayList<>()).add(deserializer);
         }
+        typedDeserializers.replaceAll((type, deserializers) -> {
+            deserializers.sort(PriorityComparator.INSTANCE);
+            return Collections.unmodifiableList(deserializers);
+        });
+        this.typedDeserializers = Collections.unmodifiableMap(typedDeserializers);
+        this.compatibleDeserializers = newCompatibleDeserializers();
     }
 
     /**
-     * 获取最接近的反序列化
+     * 获取最接近的反序列化，依次查找类型自身、父类、实现的接口上注册的优先级最高的实现，
+     * 都没有时使用 {@link Object} 上注册的优先级最低的实现
      *
      * @param deserializedType 反序列化资源类型
-     * @return Deserializer
+     * @return Deserializer，<code>null</code> 如果没有任何兼容的实现
      */
     public Deserializer<?> getMostCompatible(Class<?> deserializedType) {
-        Deserializer<?> deserializer = getHighestPriority(deserializedType);
-        if (deserializer == null) {
-            deserializer = getLowestPriority(Object.class);
-        }
-        return deserializer;
+        Deserializer<?> deserializer = compatibleDeserializers.get(deserializedType);
+        return deserializer == ABSENT ? null : deserializer;
     }
 
     /**
@@ -81,8 +95,8 @@ public class Deserializers {
      * @return Deserializer
      */
     public <T> Deserializer<T> getHighestPriority(Class<?> deserializedType) {
-        List<Deserializer<T>> serializers = get(deserializedType);
-        return serializers.isEmpty() ? null : serializers.get(0);
+        List<Deserializer<T>> deserializers = get(deserializedType);
+        return deserializers.isEmpty() ? null : deserializers.get(0);
     }
 
     /**
@@ -93,8 +107,8 @@ public class Deserializers {
      * @return Deserializer
      */
     public <T> Deserializer<T> getLowestPriority(Class<?> deserializedType) {
-        List<Deserializer<T>> serializers = get(deserializedType);
-        return serializers.isEmpty() ? null : serializers.get(0);
+        List<Deserializer<T>> deserializers = get(deserializedType);
+        return deserializers.isEmpty() ? null : deserializers.get(deserializers.size() - 1);
     }
 
     /**
@@ -107,4 +121,42 @@ public class Deserializers {
     public <T> List<Deserializer<T>> get(Class<?> deserializedType) {
         return (List) typedDeserializers.getOrDefault(deserializedType, emptyList());
     }
+
+    private ClassValue<Deserializer<?>> newCompatibleDeserializers() {
+        return new ClassValue<Deserializer<?>>() {
+            @Override
+            protected Deserializer<?> computeValue(Class<?> type) {
+                Deserializer<?> deserializer = resolve(type);
+                return deserializer == null ? ABSENT : deserializer;
+            }
+        };
+    }
+
+    private Deserializer<?> resolve(Class<?> type) {
+        // the class itself and its super classes, Object is the last resort
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            Deserializer<?> deserializer = getHighestPriority(current);
+            if (deserializer != null) {
+                return deserializer;
+            }
+        }
+        // interfaces, breadth first so that the closest interface wins
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(current.getInterfaces()));
+        }
+        Set<Class<?>> visited = new HashSet<>();
+        while (!interfaces.isEmpty()) {
+            Class<?> interfaceType = interfaces.poll();
+            if (!visited.add(interfaceType)) {
+                continue;
+            }
+            Deserializer<?> deserializer = getHighestPriority(interfaceType);
+            if (deserializer != null) {
+                return deserializer;
+            }
+            interfaces.addAll(Arrays.asList(interfaceType.getInterfaces()));
+        }
+        return getLowestPriority(Object.class);
+    }
 }
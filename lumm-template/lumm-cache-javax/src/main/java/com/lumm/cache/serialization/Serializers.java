@@ -5,16 +5,17 @@ import cn.hutool.core.util.TypeUtil;
 import com.lumm.cache.priority.PriorityComparator;
 
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.ServiceLoader.load;
 
 /**
  * 序列化组合器
+ * <p>
+ * {@link #loadSPI()} 之后按类型注册的实现不再变化，{@link #getMostCompatible(Class)} 的结果按类型缓存在
+ * {@link ClassValue} 中，每次查找只是一次无锁读取
  *
  * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
  * @since 1.0.0
@@ -22,9 +23,19 @@ import static java.util.ServiceLoader.load;
 public class Serializers {
 
     /**
-     * 类型映射序列化
+     * 没有兼容的实现时缓存的占位符
      */
-    private final Map<Class<?>, List<Serializer>> typedSerializers = new HashMap<>();
+    private static final Serializer<?> ABSENT = source -> null;
+
+    /**
+     * 类型映射序列化，不可变
+     */
+    private volatile Map<Class<?>, List<Serializer>> typedSerializers = emptyMap();
+
+    /**
+     * 类型到最接近的序列化实现的缓存，随 {@link #loadSPI()} 重建
+     */
+    private volatile ClassValue<Serializer<?>> compatibleSerializers = newCompatibleSerializers();
 
     /**
      * 类加载器
@@ -51,27 +62,30 @@ public class Serializers {
      * SPI加载实现累
      */
     public void loadSPI() {
-        for (Serializer serializer : load(Serializer.class)) {
+        Map<Class<?>, List<Serializer>> typedSerializers = new HashMap<>();
+        for (Serializer serializer : load(Serializer.class, classLoader)) {
             Type typeArgument = TypeUtil.getTypeArgument(serializer.getClass());
             Class<?> targetClass = typeArgument == null ? Object.class : TypeUtil.getClass(typeArgument);
-            List<Serializer> serializers = typedSerializers.computeIfAbsent(targetClass, k -> new LinkedList());
-            serializers.add(serializer);
-            serializers.sort(PriorityComparator.INSTANCE);
+            typedSerializers.computeIfAbsent(targetClass, k -> new ArrayList<>()).add(serializer);
         }
+        typedSerializers.replaceAll((type, serializers) -> {
+            serializers.sort(PriorityComparator.INSTANCE);
+            return Collections.unmodifiableList(serializers);
+        });
+        this.typedSerializers = Collections.unmodifiableMap(typedSerializers);
+        this.compatibleSerializers = newCompatibleSerializers();
     }
 
     /**
-     * 获取最接近的序列化
+     * 获取最接近的序列化，依次查找类型自身、父类、实现的接口上注册的优先级最高的实现，
+     * 都没有时使用 {@link Object} 上注册的优先级最低的实现
      *
      * @param serializedType 反序列化资源类型
-     * @return Serializer
+     * @return Serializer，<code>null</code> 如果没有任何兼容的实现
      */
     public Serializer<?> getMostCompatible(Class<?> serializedType) {
-        Serializer<?> serializer = getHighestPriority(serializedType);
-        if (serializer == null) {
-            serializer = getLowestPriority(Object.class);
-        }
-        return serializer;
+        Serializer<?> serializer = compatibleSerializers.get(serializedType);
+        return serializer == ABSENT ? null : serializer;
     }
 
     /**
@@ -108,4 +122,42 @@ public class Serializers {
     public <S> List<Serializer<S>> get(Class<S> serializedType) {
         return (List) typedSerializers.getOrDefault(serializedType, emptyList());
     }
+
+    private ClassValue<Serializer<?>> newCompatibleSerializers() {
+        return new ClassValue<Serializer<?>>() {
+            @Override
+            protected Serializer<?> computeValue(Class<?> type) {
+                Serializer<?> serializer = resolve(type);
+                return serializer == null ? ABSENT : serializer;
+            }
+        };
+    }
+
+    private Serializer<?> resolve(Class<?> type) {
+        // the class itself and its super classes, Object is the last resort
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            Serializer<?> serializer = getHighestPriority(current);
+            if (serializer != null) {
+                return serializer;
+            }
+        }
+        // interfaces, breadth first so that the closest interface wins
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(current.getInterfaces()));
+        }
+        Set<Class<?>> visited = new HashSet<>();
+        while (!interfaces.isEmpty()) {
+            Class<?> interfaceType = interfaces.poll();
+            if (!visited.add(interfaceType)) {
+                continue;
+            }
+            Serializer<?> serializer = getHighestPriority(interfaceType);
+            if (serializer != null) {
+                return serializer;
+            }
+            interfaces.addAll(Arrays.asList(interfaceType.getInterfaces()));
+        }
+        return getLowestPriority(Object.class);
+    }
 }
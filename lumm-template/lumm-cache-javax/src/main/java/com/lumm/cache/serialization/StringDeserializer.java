@@ -8,10 +8,15 @@ import java.nio.charset.StandardCharsets;
  * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
  * @since 1.0.0
  */
-public class StringDeserializer implements Deserializer<String> {
+public class StringDeserializer implements BufferedDeserializer<String> {
 
     @Override
     public String deserialize(byte[] bytes) {
         return new String(bytes, StandardCharsets.UTF_8);
     }
+
+    @Override
+    public String deserialize(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
 }
@@ -1,5 +1,7 @@
 package com.lumm.cache.serialization;
 
+import com.lumm.cache.serialization.binary.BinaryOutput;
+
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -8,10 +10,16 @@ import java.nio.charset.StandardCharsets;
  * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
  * @since 1.0.0
  */
-public class StringSerializer implements Serializer<String> {
+public class StringSerializer implements BufferedSerializer<String> {
 
     @Override
     public byte[] serialize(String source) {
         return source.getBytes(StandardCharsets.UTF_8);
     }
+
+    @Override
+    public void serialize(String source, BinaryOutput output) {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        output.writeRaw(bytes, 0, bytes.length);
+    }
 }
@@ -0,0 +1,210 @@
+package com.lumm.cache.serialization;
+
+import com.lumm.cache.management.CacheStatistics;
+import com.lumm.cache.serialization.binary.BinaryInput;
+import com.lumm.cache.serialization.binary.BinaryOutput;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 缓存值的透明压缩，位于序列化之后、写入存储之前
+ * <p>
+ * 启用后每个值以 1 个字节的头开始：
+ * <ul>
+ *     <li>{@link #RAW}: 之后是未压缩的序列化内容，小于阈值或压缩后没有变小的值</li>
+ *     <li>{@link #DEFLATE}: 之后是变长编码的原始长度与 Deflate 压缩的内容</li>
+ * </ul>
+ * 只有启用压缩（阈值大于0）的实例写入并识别头，{@link #NONE} 原样反序列化所有内容，
+ * 第三方序列化实现的输出（例如以 MessagePack nil 0xC0 开头）不会被误认为头。
+ * 启用后以其他字节开头的内容视为启用之前写入的数据，原样反序列化，因此可以对已有数据开启压缩，
+ * 但启用之前写入的数据不能以两个头字节开头：它们不会出现在 UTF-8 字符串、Java 序列化流或
+ * {@link com.lumm.cache.serialization.binary.BinaryCodec} 输出的开头，
+ * 使用其他序列化实现时应先清空缓存再开启压缩。
+ * 关闭压缩之后不再识别头，已压缩数据的缓存应设置一个大于所有值的阈值来停止压缩，而不是设置为0。
+ * {@link Deflater} 与 {@link Inflater} 按线程复用
+ *
+ * @author <a href="mailto:brucezhang_jjz@163.com">zhangj</a>
+ * @since 1.0.0
+ */
+public final class ValueCompressor {
+
+    /**
+     * 头：未压缩
+     */
+    public static final byte RAW = (byte) 0xC0;
+
+    /**
+     * 头：Deflate 压缩
+     */
+    public static final byte DEFLATE = (byte) 0xC1;
+
+    /**
+     * 超过该大小的临时缓冲区不在线程中保留
+     */
+    private static final int MAX_LOCAL_CAPACITY = 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private static final ThreadLocal<BinaryOutput> COMPRESSED = ThreadLocal.withInitial(() -> new BinaryOutput(256));
+
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    private static final ThreadLocal<byte[]> INFLATED = ThreadLocal.withInitial(() -> new byte[256]);
+
+    /**
+     * 不压缩的实例，不写入也不识别头
+     */
+    public static final ValueCompressor NONE = new ValueCompressor(0, Deflater.BEST_SPEED, null);
+
+    private final int threshold;
+
+    private final int level;
+
+    private final CacheStatistics statistics;
+
+    /**
+     * 构造
+     *
+     * @param threshold  压缩阈值，单位字节，序列化后不小于该值的内容才压缩，小于等于0表示不压缩
+     * @param level      压缩级别，0 ~ 9
+     * @param statistics 缓存统计，记录压缩率与耗时，可以为 <code>null</code>
+     */
+    public ValueCompressor(int threshold, int level, CacheStatistics statistics) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("The compression level must be between 0 and 9 : " + level);
+        }
+        this.threshold = threshold;
+        this.level = level;
+        this.statistics = statistics;
+    }
+
+    /**
+     * 是否压缩写入的值
+     */
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * 在序列化值之前写入头占位，未启用时不写入
+     *
+     * @param output 空的输出
+     */
+    public void writeHeader(BinaryOutput output) {
+        if (isEnabled()) {
+            output.writeByte(RAW);
+        }
+    }
+
+    /**
+     * 压缩 {@link #writeHeader} 之后写入的序列化内容
+     *
+     * @param output 以头占位开始的输出
+     * @return 原输出，或者当前线程复用的压缩后的输出，在下一次调用本方法之前有效
+     */
+    public BinaryOutput compress(BinaryOutput output) {
+        int length = output.size() - 1;
+        if (!isEnabled() || length < threshold) {
+            return output;
+        }
+        long startTime = System.nanoTime();
+        BinaryOutput compressed = COMPRESSED.get();
+        if (compressed.array().length > MAX_LOCAL_CAPACITY) {
+            compressed = new BinaryOutput(256);
+            COMPRESSED.set(compressed);
+        }
+        compressed.reset();
+        compressed.writeByte(DEFLATE);
+        compressed.writeVarInt(length);
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(output.array(), 1, length);
+        deflater.finish();
+        byte[] chunk = CHUNK.get();
+        // give up as soon as the compressed data is not smaller than the original
+        while (!deflater.finished() && compressed.size() < length) {
+            int count = deflater.deflate(chunk);
+            compressed.writeRaw(chunk, 0, count);
+        }
+        boolean smaller = deflater.finished() && compressed.size() < length;
+        if (statistics != null) {
+            statistics.valueCompressed(length, smaller ? compressed.size() : length + 1, System.nanoTime() - startTime);
+        }
+        return smaller ? compressed : output;
+    }
+
+    /**
+     * 解压（如有需要）并反序列化
+     *
+     * @param bytes        字节数组
+     * @param offset       起始位置
+     * @param length       长度
+     * @param deserializer 反序列化实现
+     * @param <T>          反序列化类型
+     * @return 反序列化结果
+     * @throws IOException 数据损坏或反序列化失败
+     */
+    public <T> T decompress(byte[] bytes, int offset, int length, Deserializer<T> deserializer) throws IOException {
+        if (!isEnabled()) {
+            // no header is written, the first byte belongs to the serialized content
+            return BufferedDeserializer.deserialize(deserializer, bytes, offset, length);
+        }
+        if (length > 0 && bytes[offset] == RAW) {
+            return BufferedDeserializer.deserialize(deserializer, bytes, offset + 1, length - 1);
+        }
+        if (length == 0 || bytes[offset] != DEFLATE) {
+            return BufferedDeserializer.deserialize(deserializer, bytes, offset, length);
+        }
+        long startTime = System.nanoTime();
+        BinaryInput input = new BinaryInput(bytes, offset + 1, length - 1);
+        int originalLength = input.readVarInt();
+        if (originalLength < 0) {
+            throw new StreamCorruptedException("Negative length : " + originalLength);
+        }
+        byte[] inflated = inflatedBuffer(originalLength);
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(bytes, offset + length - input.remaining(), input.remaining());
+        try {
+            int count = 0;
+            while (count < originalLength && !inflater.finished()) {
+                int inflatedCount = inflater.inflate(inflated, count, originalLength - count);
+                if (inflatedCount == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflatedCount;
+            }
+            if (count != originalLength) {
+                throw new StreamCorruptedException("Truncated compressed value, expected " + originalLength
+                        + " bytes but " + count + " inflated");
+            }
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("Malformed compressed value : " + e.getMessage());
+        }
+        if (statistics != null) {
+            statistics.valueDecompressed(System.nanoTime() - startTime);
+        }
+        return BufferedDeserializer.deserialize(deserializer, inflated, 0, originalLength);
+    }
+
+    private static byte[] inflatedBuffer(int minCapacity) {
+        byte[] buffer = INFLATED.get();
+        if (buffer.length >= minCapacity) {
+            return buffer;
+        }
+        buffer = new byte[Math.max(minCapacity, buffer.length << 1)];
+        if (buffer.length <= MAX_LOCAL_CAPACITY) {
+            INFLATED.set(buffer);
+        }
+        return buffer;
+    }
+}
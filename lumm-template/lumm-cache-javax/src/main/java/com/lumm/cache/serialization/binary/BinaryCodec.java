@@ -0,0 +1,65 @@
+package com.lumm.cache.serialization.binary;
+
+import com.lumm.cache.serialization.BufferedDeserializer;
+import com.lumm.cache.serialization.BufferedSerializer;
+import com.lumm.cache.serialization.Deserializer;
+import com.lumm.cache.serialization.Serializer;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+
+/**
+ * 二进制编解码器，同时实现 {@link Serializer} 与 {@link Deserializer}，按泛型类型注册到 SPI。
+ * <p>
+ * 所有编解码器共用 {@link BinaryValues} 的带类型标记的格式，特定类型的编解码器只是省去了类型判断与类名，
+ * 因此任意一个编解码器写入的数据都可以被其他编解码器读取；Java 序列化写入的旧数据也可以读取。
+ * 支持写入调用方提供的 {@link BinaryOutput}，以及直接读取字节数组的区间
+ *
+ * @param <T> 编解码的类型泛型
+ */
+public abstract class BinaryCodec<T> implements BufferedSerializer<T>, BufferedDeserializer<T> {
+
+    /**
+     * 使用当前线程复用的 {@link BinaryOutput#local()}，只分配结果数组
+     */
+    @Override
+    public byte[] serialize(T source) throws IOException {
+        BinaryOutput output = BinaryOutput.local();
+        write(output, source);
+        return output.toByteArray();
+    }
+
+    @Override
+    public void serialize(T source, BinaryOutput output) throws IOException {
+        write(output, source);
+    }
+
+    @Override
+    public T deserialize(byte[] bytes, int offset, int length) throws IOException {
+        try {
+            if (BinaryValues.isJavaSerialization(bytes, offset, length)) {
+                return (T) BinaryValues.readJavaObject(bytes, offset, length);
+            }
+            BinaryInput input = new BinaryInput(bytes, offset, length);
+            return read(input, input.readByte());
+        } catch (ClassCastException e) {
+            throw new InvalidClassException("Incompatible binary data : " + e.getMessage());
+        }
+    }
+
+    /**
+     * 写入类型标记与内容
+     *
+     * @param output 输出
+     * @param source 资源，不为 <code>null</code>
+     */
+    public abstract void write(BinaryOutput output, T source) throws IOException;
+
+    /**
+     * 读取类型标记之后的内容，类型标记与期望的不一致时按通用格式读取
+     *
+     * @param input 输入
+     * @param tag   已读取的类型标记
+     */
+    public abstract T read(BinaryInput input, byte tag) throws IOException;
+}
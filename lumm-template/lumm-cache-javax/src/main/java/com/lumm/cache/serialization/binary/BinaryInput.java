@@ -0,0 +1,233 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 二进制编码输入，从字节数组的指定区间读取 {@link BinaryOutput} 写入的数据，不复制原数组
+ */
+public final class BinaryInput {
+
+    /**
+     * 超过该大小的临时缓冲区不在线程中保留
+     */
+    private static final int MAX_LOCAL_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<byte[]> LOCAL_BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private final byte[] buffer;
+
+    private final int limit;
+
+    private int position;
+
+    /**
+     * 已读取的类，下标即引用序号，按需创建
+     */
+    private List<Class<?>> classes;
+
+    /**
+     * 当前值中已读取的对象，下标即引用序号，按需创建
+     */
+    private List<Object> objects;
+
+    /**
+     * 当前对象的嵌套深度
+     */
+    int depth;
+
+    public BinaryInput(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 构造
+     *
+     * @param buffer 字节数组
+     * @param offset 起始位置
+     * @param length 可读取的长度
+     */
+    public BinaryInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer[position++];
+    }
+
+    /**
+     * 读取无符号的变长整数
+     */
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable-length int");
+    }
+
+    public int readZigZagInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 读取无符号的变长长整数
+     */
+    public long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable-length long");
+    }
+
+    public long readZigZagLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int readFixedInt() throws IOException {
+        require(4);
+        int value = (buffer[position] & 0xFF) << 24
+                | (buffer[position + 1] & 0xFF) << 16
+                | (buffer[position + 2] & 0xFF) << 8
+                | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    public long readFixedLong() throws IOException {
+        long high = readFixedInt();
+        return high << 32 | (readFixedInt() & 0xFFFFFFFFL);
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixedLong());
+    }
+
+    public String readString() throws IOException {
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public byte[] readBytes() throws IOException {
+        int length = readLength();
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    /**
+     * 读取长度，并校验剩余的字节足够
+     */
+    public int readLength() throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new StreamCorruptedException("Negative length : " + length);
+        }
+        require(length);
+        return length;
+    }
+
+    /**
+     * 剩余可读取的字节数
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+    /**
+     * 获取当前线程复用的临时缓冲区，用于从堆外内存、文件等位置复制待反序列化的字节，
+     * 使用者必须在下一次调用本方法之前完成反序列化
+     *
+     * @param minCapacity 最小容量
+     */
+    public static byte[] localBuffer(int minCapacity) {
+        byte[] buffer = LOCAL_BUFFER.get();
+        if (buffer.length >= minCapacity) {
+            return buffer;
+        }
+        buffer = new byte[Math.max(minCapacity, buffer.length << 1)];
+        if (buffer.length <= MAX_LOCAL_CAPACITY) {
+            LOCAL_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void skip(int length) throws IOException {
+        require(length);
+        position += length;
+    }
+
+    void registerClass(Class<?> type) {
+        if (classes == null) {
+            classes = new ArrayList<>();
+        }
+        classes.add(type);
+    }
+
+    Class<?> getClass(int index) throws IOException {
+        if (classes == null || index < 0 || index >= classes.size()) {
+            throw new StreamCorruptedException("Invalid class reference : " + index);
+        }
+        return classes.get(index);
+    }
+
+    void registerObject(Object value) {
+        if (objects == null) {
+            objects = new ArrayList<>();
+        }
+        objects.add(value);
+    }
+
+    Object getObject(int index) throws IOException {
+        if (objects == null || index < 0 || index >= objects.size()) {
+            throw new StreamCorruptedException("Invalid object reference : " + index);
+        }
+        return objects.get(index);
+    }
+
+    void clearObjects() {
+        if (objects != null) {
+            objects.clear();
+        }
+    }
+
+    private void require(int length) throws EOFException {
+        if (limit - position < length) {
+            throw new EOFException("Unexpected end of binary data, required " + length + " bytes but "
+                    + (limit - position) + " remaining");
+        }
+    }
+}
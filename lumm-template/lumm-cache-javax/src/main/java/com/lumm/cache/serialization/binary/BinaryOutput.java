@@ -0,0 +1,279 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * 二进制编码输出，基于可增长的字节数组：
+ * <ul>
+ *     <li>整数使用变长编码，有符号整数先做 ZigZag 变换，小数值只占 1 个字节</li>
+ *     <li>浮点数按大端序定长写入</li>
+ *     <li>字符串写入 UTF-8 字节长度与内容，纯 ASCII 字符串不经过编码器直接写入</li>
+ * </ul>
+ * 同一条消息中重复出现的类只写一次类名，之后写入引用序号；同一个值中重复出现的对象也只写一次，之后写入引用序号。
+ * 每个线程有一个可复用的实例 {@link #local()}，序列化时只在最终需要字节数组时分配一次
+ */
+public final class BinaryOutput {
+
+    /**
+     * 线程复用实例的缓冲区超过该大小时不再保留，避免偶尔的大对象长期占用内存
+     */
+    private static final int MAX_LOCAL_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<BinaryOutput> LOCAL = ThreadLocal.withInitial(() -> new BinaryOutput(256));
+
+    private byte[] buffer;
+
+    private int position;
+
+    /**
+     * 已写入的类与其引用序号，按需创建
+     */
+    private IdentityHashMap<Class<?>, Integer> classIndexes;
+
+    /**
+     * 当前值中已写入的对象与其引用序号，按需创建，写完最外层的值后清空
+     */
+    private IdentityHashMap<Object, Integer> objectIndexes;
+
+    /**
+     * 当前对象的嵌套深度
+     */
+    int depth;
+
+    public BinaryOutput() {
+        this(64);
+    }
+
+    /**
+     * 构造
+     *
+     * @param initialCapacity 初始容量
+     */
+    public BinaryOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(8, initialCapacity)];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 写入无符号的变长整数，最多 5 个字节
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 写入 ZigZag 编码的有符号变长整数
+     */
+    public void writeZigZagInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * 写入无符号的变长长整数，最多 10 个字节
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 写入 ZigZag 编码的有符号变长长整数
+     */
+    public void writeZigZagLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeFixedLong(long value) {
+        writeFixedInt((int) (value >>> 32));
+        writeFixedInt((int) value);
+    }
+
+    public void writeFloat(float value) {
+        writeFixedInt(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        writeFixedLong(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * 写入字符串的 UTF-8 字节长度与内容
+     */
+    public void writeString(String value) {
+        int length = value.length();
+        int start = position;
+        // optimistic ascii path, the byte length equals the char length
+        writeVarInt(length);
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                position = start;
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer[position++] = (byte) c;
+        }
+    }
+
+    /**
+     * 写入字节数组的长度与内容
+     */
+    public void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        writeRaw(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 直接写入字节，不带长度
+     */
+    public void writeRaw(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public int size() {
+        return position;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * 内部缓冲区，有效内容为 [0, {@link #size()})，在下一次写入或 {@link #reset()} 之前有效
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * 适配为 {@link OutputStream}，写入的内容追加到当前输出中
+     */
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                writeByte(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                writeRaw(bytes, offset, length);
+            }
+        };
+    }
+
+    /**
+     * 清空已写入的内容与类、对象引用，保留缓冲区以便复用
+     */
+    public void reset() {
+        position = 0;
+        depth = 0;
+        if (classIndexes != null) {
+            classIndexes.clear();
+        }
+        clearObjects();
+    }
+
+    /**
+     * 获取当前线程复用的实例，返回前已清空。
+     * 使用者必须在下一次调用本方法之前用完其中的内容，不能跨越可能再次序列化的调用持有
+     */
+    public static BinaryOutput local() {
+        BinaryOutput output = LOCAL.get();
+        if (output.buffer.length > MAX_LOCAL_CAPACITY) {
+            output.buffer = new byte[256];
+        }
+        output.reset();
+        return output;
+    }
+
+    /**
+     * 登记类，返回已登记的引用序号，首次登记返回 -1
+     */
+    int registerClass(Class<?> type) {
+        if (classIndexes == null) {
+            classIndexes = new IdentityHashMap<>();
+        }
+        Integer index = classIndexes.putIfAbsent(type, classIndexes.size());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 登记对象，返回已登记的引用序号，首次登记返回 -1
+     */
+    int registerObject(Object value) {
+        if (objectIndexes == null) {
+            objectIndexes = new IdentityHashMap<>();
+        }
+        Integer index = objectIndexes.putIfAbsent(value, objectIndexes.size());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 清空已登记的对象，不再持有其引用
+     */
+    void clearObjects() {
+        if (objectIndexes != null && !objectIndexes.isEmpty()) {
+            objectIndexes.clear();
+        }
+    }
+
+    /**
+     * 已登记的类的数量
+     */
+    int classCount() {
+        return classIndexes == null ? 0 : classIndexes.size();
+    }
+
+    /**
+     * 丢弃指定位置之后写入的内容，同时撤销之后登记的类与当前值中登记的所有对象
+     *
+     * @param size       保留的长度
+     * @param classCount 保留的已登记类的数量
+     */
+    void rollback(int size, int classCount) {
+        position = size;
+        depth = 0;
+        if (classIndexes != null && classIndexes.size() > classCount) {
+            classIndexes.values().removeIf(index -> index >= classCount);
+        }
+        clearObjects();
+    }
+
+    private void ensureCapacity(int length) {
+        int required = position + length;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
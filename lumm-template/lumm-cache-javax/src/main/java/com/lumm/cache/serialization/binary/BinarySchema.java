@@ -0,0 +1,296 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 普通对象（POJO）的编码结构，每个类只解析一次并缓存在 {@link ClassValue} 中。
+ * <p>
+ * 只有满足以下条件的类才按字段编码，其余的类退回 Java 序列化：
+ * <ul>
+ *     <li>类及其所有父类（{@link Object} 除外）都实现了 {@link Serializable}，且没有实现 {@link Externalizable}</li>
+ *     <li>没有自定义 writeObject、readObject、writeReplace、readResolve 等序列化方法</li>
+ *     <li>不是 JDK 内部的类</li>
+ * </ul>
+ * 字段为所有非静态、非 transient 的字段，父类的字段在前，同一个类中按字段名排序。
+ * 与 Java 序列化一样，读取时通过序列化构造方法创建实例，不执行类自身的构造方法与字段初始化；
+ * 当前 JVM 不支持序列化构造方法时退回 Java 序列化。
+ * 字段名、类型与每一层类的 serialVersionUID 的指纹随类名一起写入，读取时不一致将抛出 {@link InvalidClassException}
+ */
+final class BinarySchema {
+
+    private static final byte BOOLEAN = 0;
+
+    private static final byte BYTE = 1;
+
+    private static final byte SHORT = 2;
+
+    private static final byte CHAR = 3;
+
+    private static final byte INT = 4;
+
+    private static final byte LONG = 5;
+
+    private static final byte FLOAT = 6;
+
+    private static final byte DOUBLE = 7;
+
+    private static final byte REFERENCE = 8;
+
+    private static final List<String> SERIALIZATION_METHODS = Arrays.asList("writeObject", "readObject",
+            "readObjectNoData", "writeReplace", "readResolve");
+
+    private static final BinarySchema UNSUPPORTED = new BinarySchema(null, new Field[0], new byte[0], 0);
+
+    private static final ClassValue<BinarySchema> SCHEMAS = new ClassValue<BinarySchema>() {
+        @Override
+        protected BinarySchema computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private final Constructor<?> constructor;
+
+    private final Field[] fields;
+
+    private final byte[] kinds;
+
+    private final int fingerprint;
+
+    private BinarySchema(Constructor<?> constructor, Field[] fields, byte[] kinds, int fingerprint) {
+        this.constructor = constructor;
+        this.fields = fields;
+        this.kinds = kinds;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * 获取类的编码结构
+     *
+     * @return <code>null</code> 如果该类不能按字段编码
+     */
+    static BinarySchema of(Class<?> type) {
+        BinarySchema schema = SCHEMAS.get(type);
+        return schema == UNSUPPORTED ? null : schema;
+    }
+
+    int getFingerprint() {
+        return fingerprint;
+    }
+
+    void writeFields(BinaryOutput output, Object source) throws IOException {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                switch (kinds[i]) {
+                    case BOOLEAN:
+                        output.writeByte(field.getBoolean(source) ? 1 : 0);
+                        break;
+                    case BYTE:
+                        output.writeByte(field.getByte(source));
+                        break;
+                    case SHORT:
+                        output.writeZigZagInt(field.getShort(source));
+                        break;
+                    case CHAR:
+                        output.writeVarInt(field.getChar(source));
+                        break;
+                    case INT:
+                        output.writeZigZagInt(field.getInt(source));
+                        break;
+                    case LONG:
+                        output.writeZigZagLong(field.getLong(source));
+                        break;
+                    case FLOAT:
+                        output.writeFloat(field.getFloat(source));
+                        break;
+                    case DOUBLE:
+                        output.writeDouble(field.getDouble(source));
+                        break;
+                    default:
+                        BinaryValues.writeValue(output, field.get(source));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 创建未初始化的实例，只执行 {@link Object} 的构造方法
+     */
+    Object newInstance() throws IOException {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IOException("Failed to instantiate " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    void readFields(BinaryInput input, Object target) throws IOException {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                switch (kinds[i]) {
+                    case BOOLEAN:
+                        field.setBoolean(target, input.readByte() != 0);
+                        break;
+                    case BYTE:
+                        field.setByte(target, input.readByte());
+                        break;
+                    case SHORT:
+                        field.setShort(target, (short) input.readZigZagInt());
+                        break;
+                    case CHAR:
+                        field.setChar(target, (char) input.readVarInt());
+                        break;
+                    case INT:
+                        field.setInt(target, input.readZigZagInt());
+                        break;
+                    case LONG:
+                        field.setLong(target, input.readZigZagLong());
+                        break;
+                    case FLOAT:
+                        field.setFloat(target, input.readFloat());
+                        break;
+                    case DOUBLE:
+                        field.setDouble(target, input.readDouble());
+                        break;
+                    default:
+                        field.set(target, BinaryValues.readValue(input));
+                }
+            }
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("Failed to read the fields of " + target.getClass().getName(), e);
+        }
+    }
+
+    private static BinarySchema create(Class<?> type) {
+        if (!isCandidate(type)) {
+            return UNSUPPORTED;
+        }
+        List<Field> fields = new ArrayList<>();
+        int fingerprint = type.getName().hashCode();
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+            if (!Serializable.class.isAssignableFrom(current) || declaresSerializationMembers(current)) {
+                return UNSUPPORTED;
+            }
+            // declared or computed the same way as java serialization
+            fingerprint = 31 * fingerprint + Long.hashCode(ObjectStreamClass.lookup(current).getSerialVersionUID());
+            List<Field> declaredFields = new ArrayList<>();
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    declaredFields.add(field);
+                }
+            }
+            declaredFields.sort(Comparator.comparing(Field::getName));
+            // super class fields first
+            fields.addAll(0, declaredFields);
+        }
+        Constructor<?> constructor = serializationConstructor(type);
+        if (constructor == null) {
+            return UNSUPPORTED;
+        }
+        try {
+            for (Field field : fields) {
+                field.setAccessible(true);
+            }
+        } catch (RuntimeException e) {
+            // not accessible (e.g. module restrictions)
+            return UNSUPPORTED;
+        }
+        byte[] kinds = new byte[fields.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            Field field = fields.get(i);
+            kinds[i] = kindOf(field.getType());
+            fingerprint = 31 * fingerprint + field.getName().hashCode();
+            fingerprint = 31 * fingerprint + field.getType().getName().hashCode();
+        }
+        return new BinarySchema(constructor, fields.toArray(new Field[0]), kinds, fingerprint);
+    }
+
+    /**
+     * 通过反射获取 <code>sun.reflect.ReflectionFactory</code> 的序列化构造方法，
+     * 即 {@link java.io.ObjectInputStream} 创建实例时使用的、只调用 {@link Object} 构造方法的构造方法
+     *
+     * @return <code>null</code> if the serialization constructor is not available
+     */
+    private static Constructor<?> serializationConstructor(Class<?> type) {
+        try {
+            Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            Object factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+            Method method = factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+            Constructor<?> constructor = (Constructor<?>) method.invoke(factory, type,
+                    Object.class.getDeclaredConstructor());
+            if (constructor != null) {
+                constructor.setAccessible(true);
+            }
+            return constructor;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean isCandidate(Class<?> type) {
+        if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+                || type.isArray() || type.isInterface() || type.isPrimitive() || Proxy.isProxyClass(type)
+                || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        Class<?> superclass = type.getSuperclass();
+        if (superclass != null && "java.lang.Record".equals(superclass.getName())) {
+            return false;
+        }
+        String name = type.getName();
+        return !(name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+                || name.startsWith("jdk.") || name.startsWith("com.sun."));
+    }
+
+    private static boolean declaresSerializationMembers(Class<?> type) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (SERIALIZATION_METHODS.contains(method.getName())) {
+                return true;
+            }
+        }
+        for (Field field : type.getDeclaredFields()) {
+            if ("serialPersistentFields".equals(field.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte kindOf(Class<?> type) {
+        if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == byte.class) {
+            return BYTE;
+        } else if (type == short.class) {
+            return SHORT;
+        } else if (type == char.class) {
+            return CHAR;
+        } else if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else if (type == double.class) {
+            return DOUBLE;
+        }
+        return REFERENCE;
+    }
+}
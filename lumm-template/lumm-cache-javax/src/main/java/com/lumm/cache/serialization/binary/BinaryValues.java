@@ -0,0 +1,542 @@
+package com.lumm.cache.serialization.binary;
+
+import com.lumm.cache.ExpirableEntry;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 带类型标记的二进制编码格式，每个值以 1 个字节的类型标记开头：
+ * <ul>
+ *     <li>基本类型的包装类、字符串、字节数组直接编码，不写类名</li>
+ *     <li>常用集合（{@link ArrayList}、{@link HashMap} 等）写入种类、元素数量与元素</li>
+ *     <li>{@link ExpirableEntry} 写入键、值与过期时间戳</li>
+ *     <li>枚举写入类名与名称，普通对象写入类名与 {@link BinarySchema} 中的字段</li>
+ *     <li>其余的对象退回 Java 序列化，写入长度与 {@link ObjectOutputStream} 的输出</li>
+ *     <li>集合、映射与对象在同一个值中再次出现时只写入引用序号，与 Java 序列化一样保留共享引用与环</li>
+ * </ul>
+ * 对象嵌套超过 {@link #MAX_DEPTH} 层时，整个值改用 Java 序列化写入；
+ * 以 Java 序列化魔数开头的数据（如 {@link com.lumm.cache.serialization.DefaultSerializer} 写入的旧数据）
+ * 仍按 Java 序列化读取
+ */
+final class BinaryValues {
+
+    static final byte NULL = 0;
+
+    static final byte TRUE = 1;
+
+    static final byte FALSE = 2;
+
+    static final byte BYTE = 3;
+
+    static final byte SHORT = 4;
+
+    static final byte CHAR = 5;
+
+    static final byte INT = 6;
+
+    static final byte LONG = 7;
+
+    static final byte FLOAT = 8;
+
+    static final byte DOUBLE = 9;
+
+    static final byte STRING = 10;
+
+    static final byte BYTES = 11;
+
+    static final byte ENUM = 12;
+
+    static final byte COLLECTION = 13;
+
+    static final byte MAP = 14;
+
+    /**
+     * 永不过期的 {@link ExpirableEntry}，不写时间戳
+     */
+    static final byte ETERNAL_ENTRY = 15;
+
+    static final byte ENTRY = 16;
+
+    static final byte OBJECT = 17;
+
+    static final byte JAVA = 18;
+
+    /**
+     * 同一个值中已写入的对象，只写入引用序号
+     */
+    static final byte REFERENCE = 19;
+
+    /**
+     * 对象的最大嵌套深度，超过时整个值改用 Java 序列化
+     */
+    static final int MAX_DEPTH = 128;
+
+    private static final byte ARRAY_LIST = 0;
+
+    private static final byte LINKED_LIST = 1;
+
+    private static final byte HASH_SET = 2;
+
+    private static final byte LINKED_HASH_SET = 3;
+
+    private static final byte HASH_MAP = 0;
+
+    private static final byte LINKED_HASH_MAP = 1;
+
+    private static final byte CONCURRENT_HASH_MAP = 2;
+
+    private static final ConcurrentMap<String, Class<?>> RESOLVED_CLASSES = new ConcurrentHashMap<>();
+
+    private BinaryValues() {
+    }
+
+    static void writeValue(BinaryOutput output, Object value) throws IOException {
+        writeRoot(output, value, BinaryValues::writeTaggedValue);
+    }
+
+    private static void writeTaggedValue(BinaryOutput output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            output.writeByte(STRING);
+            output.writeString((String) value);
+        } else if (type == Integer.class) {
+            output.writeByte(INT);
+            output.writeZigZagInt((Integer) value);
+        } else if (type == Long.class) {
+            output.writeByte(LONG);
+            output.writeZigZagLong((Long) value);
+        } else if (type == Boolean.class) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Double.class) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (type == Float.class) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (type == Short.class) {
+            output.writeByte(SHORT);
+            output.writeZigZagInt((Short) value);
+        } else if (type == Byte.class) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            output.writeByte(CHAR);
+            output.writeVarInt((Character) value);
+        } else if (type == byte[].class) {
+            output.writeByte(BYTES);
+            output.writeBytes((byte[]) value);
+        } else if (type == ExpirableEntry.class) {
+            writeEntryValue(output, (ExpirableEntry<?, ?>) value);
+        } else if (value instanceof Enum) {
+            Enum<?> constant = (Enum<?>) value;
+            output.writeByte(ENUM);
+            writeClass(output, constant.getDeclaringClass());
+            output.writeString(constant.name());
+        } else {
+            writeObject(output, type, value);
+        }
+    }
+
+    static Object readValue(BinaryInput input) throws IOException {
+        return readValue(input, input.readByte());
+    }
+
+    static Object readValue(BinaryInput input, byte tag) throws IOException {
+        enterRoot(input);
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return (short) input.readZigZagInt();
+            case CHAR:
+                return (char) input.readVarInt();
+            case INT:
+                return input.readZigZagInt();
+            case LONG:
+                return input.readZigZagLong();
+            case FLOAT:
+                return input.readFloat();
+            case DOUBLE:
+                return input.readDouble();
+            case STRING:
+                return input.readString();
+            case BYTES:
+                return input.readBytes();
+            case ENUM:
+                return readEnum(input);
+            case COLLECTION:
+                return readCollection(input);
+            case MAP:
+                return readMap(input);
+            case ETERNAL_ENTRY:
+            case ENTRY:
+                return readEntry(input, tag);
+            case OBJECT:
+                return readObject(input);
+            case REFERENCE:
+                return input.getObject(input.readVarInt());
+            case JAVA:
+                int length = input.readLength();
+                Object value = readJavaObject(input.buffer(), input.position(), length);
+                input.skip(length);
+                input.registerObject(value);
+                return value;
+            default:
+                throw new StreamCorruptedException("Unknown binary type tag : " + tag);
+        }
+    }
+
+    static void writeEntry(BinaryOutput output, ExpirableEntry<?, ?> entry) throws IOException {
+        writeRoot(output, entry, BinaryValues::writeEntryValue);
+    }
+
+    /**
+     * 在最外层写入值，嵌套过深时丢弃已写入的部分，改用 Java 序列化写入整个值；
+     * 嵌套的值直接写入，由最外层处理。对象的引用序号只在同一个最外层的值中有效，写完后清空
+     */
+    private static <T> void writeRoot(BinaryOutput output, T value, ValueWriter<T> writer) throws IOException {
+        if (output.depth > 0) {
+            writer.write(output, value);
+            return;
+        }
+        int size = output.size();
+        int classCount = output.classCount();
+        try {
+            writer.write(output, value);
+        } catch (GraphTooDeepException e) {
+            output.rollback(size, classCount);
+            writeJavaObject(output, value);
+        } finally {
+            output.clearObjects();
+        }
+    }
+
+    private static void writeEntryValue(BinaryOutput output, ExpirableEntry<?, ?> entry) throws IOException {
+        long timestamp = entry.getTimestamp();
+        boolean eternal = timestamp == Long.MAX_VALUE;
+        output.writeByte(eternal ? ETERNAL_ENTRY : ENTRY);
+        enter(output);
+        writeValue(output, entry.getKey());
+        writeValue(output, entry.getValue());
+        output.depth--;
+        if (!eternal) {
+            output.writeZigZagLong(timestamp);
+        }
+    }
+
+    static ExpirableEntry<?, ?> readEntry(BinaryInput input, byte tag) throws IOException {
+        enterRoot(input);
+        enter(input);
+        Object key = readValue(input);
+        Object value = readValue(input);
+        input.depth--;
+        if (key == null) {
+            throw new StreamCorruptedException("The key of the entry is null");
+        }
+        ExpirableEntry<Object, Object> entry = new ExpirableEntry<>(key, value);
+        if (tag == ENTRY) {
+            entry.setTimestamp(input.readZigZagLong());
+        }
+        return entry;
+    }
+
+    /**
+     * 是否为 Java 序列化的数据
+     */
+    static boolean isJavaSerialization(byte[] bytes, int offset, int length) {
+        return length > 1 && bytes[offset] == (byte) 0xAC && bytes[offset + 1] == (byte) 0xED;
+    }
+
+    static Object readJavaObject(byte[] bytes, int offset, int length) throws IOException {
+        try (ObjectInputStream objectInputStream =
+                     new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            return objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeObject(BinaryOutput output, Class<?> type, Object value) throws IOException {
+        int reference = output.registerObject(value);
+        if (reference >= 0) {
+            output.writeByte(REFERENCE);
+            output.writeVarInt(reference);
+            return;
+        }
+        byte collectionKind = collectionKind(type);
+        if (collectionKind >= 0) {
+            Collection<?> collection = (Collection<?>) value;
+            output.writeByte(COLLECTION);
+            output.writeByte(collectionKind);
+            output.writeVarInt(collection.size());
+            enter(output);
+            for (Object element : collection) {
+                writeValue(output, element);
+            }
+            output.depth--;
+            return;
+        }
+        byte mapKind = mapKind(type);
+        if (mapKind >= 0) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(MAP);
+            output.writeByte(mapKind);
+            output.writeVarInt(map.size());
+            enter(output);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+            output.depth--;
+            return;
+        }
+        BinarySchema schema = BinarySchema.of(type);
+        if (schema != null) {
+            output.writeByte(OBJECT);
+            if (writeClass(output, type)) {
+                output.writeFixedInt(schema.getFingerprint());
+            }
+            enter(output);
+            schema.writeFields(output, value);
+            output.depth--;
+            return;
+        }
+        writeJavaObject(output, value);
+    }
+
+    private static void writeJavaObject(BinaryOutput output, Object value) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(value);
+        }
+        output.writeByte(JAVA);
+        output.writeVarInt(outputStream.size());
+        output.writeRaw(outputStream.toByteArray(), 0, outputStream.size());
+    }
+
+    private static Object readObject(BinaryInput input) throws IOException {
+        int reference = input.readVarInt();
+        Class<?> type = readClass(input, reference);
+        BinarySchema schema = BinarySchema.of(type);
+        if (schema == null) {
+            throw new InvalidClassException(type.getName(), "Not a binary serializable class");
+        }
+        if (reference == 0 && input.readFixedInt() != schema.getFingerprint()) {
+            throw new InvalidClassException(type.getName(), "The fields have changed since serialization");
+        }
+        Object value = schema.newInstance();
+        // registered before the fields, which may refer back to it
+        input.registerObject(value);
+        enter(input);
+        schema.readFields(input, value);
+        input.depth--;
+        return value;
+    }
+
+    private static Object readEnum(BinaryInput input) throws IOException {
+        Class type = readClass(input, input.readVarInt());
+        String name = input.readString();
+        if (!type.isEnum()) {
+            throw new InvalidClassException(type.getName(), "Not an enum class");
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidObjectException("No enum constant " + type.getName() + "." + name);
+        }
+    }
+
+    private static Collection<Object> readCollection(BinaryInput input) throws IOException {
+        byte kind = input.readByte();
+        int size = readSize(input);
+        Collection<Object> collection;
+        switch (kind) {
+            case ARRAY_LIST:
+                collection = new ArrayList<>(size);
+                break;
+            case LINKED_LIST:
+                collection = new LinkedList<>();
+                break;
+            case HASH_SET:
+                collection = new HashSet<>(capacity(size));
+                break;
+            case LINKED_HASH_SET:
+                collection = new LinkedHashSet<>(capacity(size));
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown collection kind : " + kind);
+        }
+        input.registerObject(collection);
+        enter(input);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(input));
+        }
+        input.depth--;
+        return collection;
+    }
+
+    private static Map<Object, Object> readMap(BinaryInput input) throws IOException {
+        byte kind = input.readByte();
+        int size = readSize(input);
+        Map<Object, Object> map;
+        switch (kind) {
+            case HASH_MAP:
+                map = new HashMap<>(capacity(size));
+                break;
+            case LINKED_HASH_MAP:
+                map = new LinkedHashMap<>(capacity(size));
+                break;
+            case CONCURRENT_HASH_MAP:
+                map = new ConcurrentHashMap<>(capacity(size));
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown map kind : " + kind);
+        }
+        input.registerObject(map);
+        enter(input);
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(input);
+            map.put(key, readValue(input));
+        }
+        input.depth--;
+        return map;
+    }
+
+    /**
+     * 写入类，首次出现时写入 0 与类名，之后写入引用序号加 1
+     *
+     * @return 是否首次出现
+     */
+    private static boolean writeClass(BinaryOutput output, Class<?> type) {
+        int index = output.registerClass(type);
+        if (index < 0) {
+            output.writeVarInt(0);
+            output.writeString(type.getName());
+            return true;
+        }
+        output.writeVarInt(index + 1);
+        return false;
+    }
+
+    private static Class<?> readClass(BinaryInput input, int reference) throws IOException {
+        if (reference > 0) {
+            return input.getClass(reference - 1);
+        }
+        String className = input.readString();
+        Class<?> type = RESOLVED_CLASSES.get(className);
+        if (type == null) {
+            try {
+                type = Class.forName(className, false, getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new InvalidClassException(className, "Class not found");
+            }
+            RESOLVED_CLASSES.putIfAbsent(className, type);
+        }
+        input.registerClass(type);
+        return type;
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader == null ? BinaryValues.class.getClassLoader() : classLoader;
+    }
+
+    private static byte collectionKind(Class<?> type) {
+        if (type == ArrayList.class) {
+            return ARRAY_LIST;
+        } else if (type == LinkedList.class) {
+            return LINKED_LIST;
+        } else if (type == HashSet.class) {
+            return HASH_SET;
+        } else if (type == LinkedHashSet.class) {
+            return LINKED_HASH_SET;
+        }
+        return -1;
+    }
+
+    /**
+     * {@link LinkedHashMap} 按插入顺序读取，访问顺序模式不会保留
+     */
+    private static byte mapKind(Class<?> type) {
+        if (type == HashMap.class) {
+            return HASH_MAP;
+        } else if (type == LinkedHashMap.class) {
+            return LINKED_HASH_MAP;
+        } else if (type == ConcurrentHashMap.class) {
+            return CONCURRENT_HASH_MAP;
+        }
+        return -1;
+    }
+
+    /**
+     * 读取元素数量，每个元素至少占 1 个字节，避免损坏的数据导致分配过大的集合
+     */
+    private static int readSize(BinaryInput input) throws IOException {
+        int size = input.readVarInt();
+        if (size < 0 || size > input.remaining()) {
+            throw new StreamCorruptedException("Invalid element count : " + size);
+        }
+        return size;
+    }
+
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+    }
+
+    private static void enter(BinaryOutput output) throws IOException {
+        if (++output.depth > MAX_DEPTH) {
+            throw new GraphTooDeepException();
+        }
+    }
+
+    /**
+     * 开始读取最外层的值时清空上一个值中的对象引用
+     */
+    private static void enterRoot(BinaryInput input) {
+        if (input.depth == 0) {
+            input.clearObjects();
+        }
+    }
+
+    private static void enter(BinaryInput input) throws IOException {
+        if (++input.depth > MAX_DEPTH) {
+            throw new StreamCorruptedException("The object graph is deeper than " + MAX_DEPTH + " levels");
+        }
+    }
+
+    @FunctionalInterface
+    private interface ValueWriter<T> {
+
+        void write(BinaryOutput output, T value) throws IOException;
+    }
+
+    /**
+     * 对象嵌套超过 {@link #MAX_DEPTH} 层，由最外层改用 Java 序列化
+     */
+    private static final class GraphTooDeepException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private GraphTooDeepException() {
+            super("The object graph is deeper than " + MAX_DEPTH + " levels");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
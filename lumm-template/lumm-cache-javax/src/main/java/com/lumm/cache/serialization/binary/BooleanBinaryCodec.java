@@ -0,0 +1,22 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Boolean} 的二进制编解码器，只占 1 个字节的类型标记
+ */
+public class BooleanBinaryCodec extends BinaryCodec<Boolean> {
+
+    @Override
+    public void write(BinaryOutput output, Boolean source) {
+        output.writeByte(source ? BinaryValues.TRUE : BinaryValues.FALSE);
+    }
+
+    @Override
+    public Boolean read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.TRUE) {
+            return Boolean.TRUE;
+        }
+        return (Boolean) BinaryValues.readValue(input, tag);
+    }
+}
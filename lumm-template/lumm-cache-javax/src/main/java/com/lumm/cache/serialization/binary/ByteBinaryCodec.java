@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Byte} 的二进制编解码器，定长 1 个字节
+ */
+public class ByteBinaryCodec extends BinaryCodec<Byte> {
+
+    @Override
+    public void write(BinaryOutput output, Byte source) {
+        output.writeByte(BinaryValues.BYTE);
+        output.writeByte(source);
+    }
+
+    @Override
+    public Byte read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.BYTE) {
+            return input.readByte();
+        }
+        return (Byte) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link byte[]} 的二进制编解码器，写入长度与内容
+ */
+public class BytesBinaryCodec extends BinaryCodec<byte[]> {
+
+    @Override
+    public void write(BinaryOutput output, byte[] source) {
+        output.writeByte(BinaryValues.BYTES);
+        output.writeBytes(source);
+    }
+
+    @Override
+    public byte[] read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.BYTES) {
+            return input.readBytes();
+        }
+        return (byte[]) BinaryValues.readValue(input, tag);
+    }
+}
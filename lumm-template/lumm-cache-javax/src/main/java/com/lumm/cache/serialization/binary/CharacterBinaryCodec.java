@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Character} 的二进制编解码器，变长编码，ASCII 字符只占 1 个字节
+ */
+public class CharacterBinaryCodec extends BinaryCodec<Character> {
+
+    @Override
+    public void write(BinaryOutput output, Character source) {
+        output.writeByte(BinaryValues.CHAR);
+        output.writeVarInt(source);
+    }
+
+    @Override
+    public Character read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.CHAR) {
+            return (char) input.readVarInt();
+        }
+        return (Character) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Double} 的二进制编解码器，按 IEEE 754 定长 8 个字节
+ */
+public class DoubleBinaryCodec extends BinaryCodec<Double> {
+
+    @Override
+    public void write(BinaryOutput output, Double source) {
+        output.writeByte(BinaryValues.DOUBLE);
+        output.writeDouble(source);
+    }
+
+    @Override
+    public Double read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.DOUBLE) {
+            return input.readDouble();
+        }
+        return (Double) BinaryValues.readValue(input, tag);
+    }
+}
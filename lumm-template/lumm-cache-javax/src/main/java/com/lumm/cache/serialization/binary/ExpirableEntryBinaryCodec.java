@@ -0,0 +1,24 @@
+package com.lumm.cache.serialization.binary;
+
+import com.lumm.cache.ExpirableEntry;
+
+import java.io.IOException;
+
+/**
+ * {@link ExpirableEntry} 的二进制编解码器，写入键、值与过期时间戳，永不过期的条目不写时间戳
+ */
+public class ExpirableEntryBinaryCodec extends BinaryCodec<ExpirableEntry> {
+
+    @Override
+    public void write(BinaryOutput output, ExpirableEntry source) throws IOException {
+        BinaryValues.writeEntry(output, source);
+    }
+
+    @Override
+    public ExpirableEntry read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.ETERNAL_ENTRY || tag == BinaryValues.ENTRY) {
+            return BinaryValues.readEntry(input, tag);
+        }
+        return (ExpirableEntry) BinaryValues.readValue(input, tag);
+    }
+}
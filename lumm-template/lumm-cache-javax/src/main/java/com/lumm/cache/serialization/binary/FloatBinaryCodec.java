@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Float} 的二进制编解码器，按 IEEE 754 定长 4 个字节
+ */
+public class FloatBinaryCodec extends BinaryCodec<Float> {
+
+    @Override
+    public void write(BinaryOutput output, Float source) {
+        output.writeByte(BinaryValues.FLOAT);
+        output.writeFloat(source);
+    }
+
+    @Override
+    public Float read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.FLOAT) {
+            return input.readFloat();
+        }
+        return (Float) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Integer} 的二进制编解码器，ZigZag 变长编码，绝对值小于 64 的数只占 1 个字节
+ */
+public class IntegerBinaryCodec extends BinaryCodec<Integer> {
+
+    @Override
+    public void write(BinaryOutput output, Integer source) {
+        output.writeByte(BinaryValues.INT);
+        output.writeZigZagInt(source);
+    }
+
+    @Override
+    public Integer read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.INT) {
+            return input.readZigZagInt();
+        }
+        return (Integer) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Long} 的二进制编解码器，ZigZag 变长编码，绝对值小于 64 的数只占 1 个字节
+ */
+public class LongBinaryCodec extends BinaryCodec<Long> {
+
+    @Override
+    public void write(BinaryOutput output, Long source) {
+        output.writeByte(BinaryValues.LONG);
+        output.writeZigZagLong(source);
+    }
+
+    @Override
+    public Long read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.LONG) {
+            return input.readZigZagLong();
+        }
+        return (Long) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,21 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * 任意对象的二进制编解码器，作为没有特定类型编解码器时的默认实现，替代 Java 序列化
+ *
+ * @see BinaryValues
+ */
+public class ObjectBinaryCodec extends BinaryCodec<Object> {
+
+    @Override
+    public void write(BinaryOutput output, Object source) throws IOException {
+        BinaryValues.writeValue(output, source);
+    }
+
+    @Override
+    public Object read(BinaryInput input, byte tag) throws IOException {
+        return BinaryValues.readValue(input, tag);
+    }
+}
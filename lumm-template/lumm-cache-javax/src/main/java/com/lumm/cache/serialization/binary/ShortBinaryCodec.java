@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link Short} 的二进制编解码器，ZigZag 变长编码
+ */
+public class ShortBinaryCodec extends BinaryCodec<Short> {
+
+    @Override
+    public void write(BinaryOutput output, Short source) {
+        output.writeByte(BinaryValues.SHORT);
+        output.writeZigZagInt(source);
+    }
+
+    @Override
+    public Short read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.SHORT) {
+            return (short) input.readZigZagInt();
+        }
+        return (Short) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lumm.cache.serialization.binary;
+
+import java.io.IOException;
+
+/**
+ * {@link String} 的二进制编解码器，写入 UTF-8 字节长度与内容
+ */
+public class StringBinaryCodec extends BinaryCodec<String> {
+
+    @Override
+    public void write(BinaryOutput output, String source) {
+        output.writeByte(BinaryValues.STRING);
+        output.writeString(source);
+    }
+
+    @Override
+    public String read(BinaryInput input, byte tag) throws IOException {
+        if (tag == BinaryValues.STRING) {
+            return input.readString();
+        }
+        return (String) BinaryValues.readValue(input, tag);
+    }
+}
@@ -0,0 +1,169 @@
+package com.lumm.cache.support;
+
+import com.lumm.cache.AbstractCache;
+import com.lumm.cache.AbstractCacheManager;
+import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.serialization.BufferedDeserializer;
+import com.lumm.cache.serialization.BufferedSerializer;
+import com.lumm.cache.serialization.DefaultDeserializer;
+import com.lumm.cache.serialization.DefaultSerializer;
+import com.lumm.cache.serialization.Deserializer;
+import com.lumm.cache.serialization.Deserializers;
+import com.lumm.cache.serialization.Serializer;
+import com.lumm.cache.serialization.Serializers;
+import com.lumm.cache.serialization.binary.BinaryOutput;
+
+import javax.cache.CacheException;
+import javax.cache.configuration.Configuration;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 缓存实现的基类，存储层只保存序列化后的字节，堆内保留键和 {@link ValuePointer}
+ * <p>
+ * 键和值经缓存管理器的 {@link Serializers} 序列化，未通过 SPI 注册序列化实现时使用 {@link DefaultSerializer}，
+ * 值按 {@link #getValueCompressor()} 压缩
+ *
+ * @see com.lumm.cache.support.offheap.OffHeapCache
+ * @see com.lumm.cache.support.file.FileSystemCache
+ */
+public abstract class AbstractSerializedCache<K, V> extends AbstractCache<K, V> {
+
+    private final Serializers serializers;
+
+    private final Deserializers deserializers;
+
+    /**
+     * 构造
+     *
+     * @param cacheManager  缓存管理器
+     * @param cacheName     缓存名
+     * @param configuration 缓存配置
+     */
+    protected AbstractSerializedCache(AbstractCacheManager cacheManager, String cacheName,
+                                      Configuration<K, V> configuration) {
+        super(cacheManager, cacheName, configuration);
+        this.serializers = cacheManager.getSerializers();
+        this.deserializers = cacheManager.getDeserializers();
+    }
+
+    /**
+     * 访问延长的有效期写回堆内的指针
+     */
+    @Override
+    protected void touchEntry(ExpirableEntry<K, V> entry) {
+        if (entry instanceof StoredEntry) {
+            ((StoredEntry<K, V>) entry).pointer.setTimestamp(entry.getTimestamp());
+        }
+    }
+
+    /**
+     * 序列化键
+     *
+     * @return 新数组
+     */
+    protected byte[] serializeKey(K key) throws CacheException {
+        BinaryOutput output = BinaryOutput.local();
+        serialize(key, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * 序列化并压缩值
+     *
+     * @return 复用的线程本地缓冲区，有效长度为 {@link BinaryOutput#size()}
+     */
+    protected BinaryOutput serializeValue(V value) throws CacheException {
+        BinaryOutput output = BinaryOutput.local();
+        getValueCompressor().writeHeader(output);
+        serialize(value, output);
+        return getValueCompressor().compress(output);
+    }
+
+    /**
+     * 反序列化键
+     *
+     * @param bytes  键的字节
+     * @param offset 起始位置
+     * @param length 有效长度
+     */
+    protected K deserializeKey(byte[] bytes, int offset, int length) throws IOException {
+        return (K) BufferedDeserializer.deserialize(deserializer(getConfiguration().getKeyType()), bytes, offset,
+                length);
+    }
+
+    /**
+     * 解压并反序列化值
+     *
+     * @param bytes  值的字节，可能是复用的缓冲区
+     * @param length 有效长度
+     */
+    protected V deserializeValue(byte[] bytes, int length) throws CacheException {
+        try {
+            return (V) getValueCompressor().decompress(bytes, 0, length,
+                    deserializer(getConfiguration().getValueType()));
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    /**
+     * 从存储读取的指针与值的字节生成条目，持有指针以便写回过期时间戳
+     *
+     * @param stored 指针与值的字节，<code>null</code> 表示不存在
+     * @return <code>null</code> if absent
+     */
+    protected ExpirableEntry<K, V> toEntry(K key, Map.Entry<? extends ValuePointer, byte[]> stored)
+            throws CacheException {
+        if (stored == null) {
+            return null;
+        }
+        ValuePointer pointer = stored.getKey();
+        StoredEntry<K, V> entry = new StoredEntry<>(key, deserializeValue(stored.getValue(), pointer.getLength()),
+                pointer);
+        entry.setTimestamp(pointer.getTimestamp());
+        return entry;
+    }
+
+    private void serialize(Object value, BinaryOutput output) throws CacheException {
+        Serializer serializer = serializers.getMostCompatible(value.getClass());
+        if (serializer == null) {
+            serializer = DefaultSerializerHolder.SERIALIZER;
+        }
+        try {
+            BufferedSerializer.serialize(serializer, value, output);
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    private Deserializer deserializer(Class<?> type) {
+        Deserializer deserializer = deserializers.getMostCompatible(type);
+        return deserializer == null ? DefaultSerializerHolder.DESERIALIZER : deserializer;
+    }
+
+    /**
+     * 未通过 SPI 注册序列化实现时使用的默认实现
+     */
+    private static class DefaultSerializerHolder {
+
+        private static final Serializer<Object> SERIALIZER = new DefaultSerializer();
+
+        private static final Deserializer<Object> DESERIALIZER = new DefaultDeserializer();
+    }
+
+    /**
+     * 从存储读取生成的条目，持有指针以便写回过期时间戳
+     */
+    private static class StoredEntry<K, V> extends ExpirableEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ValuePointer pointer;
+
+        private StoredEntry(K key, V value, ValuePointer pointer) {
+            super(key, value);
+            this.pointer = pointer;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.lumm.cache.support;
+
+/**
+ * 序列化后的值在存储中的位置，过期时间戳保存在堆内，访问时延长有效期不需要重写存储中的数据
+ *
+ * @see AbstractSerializedCache
+ */
+public interface ValuePointer {
+
+    /**
+     * 值的字节长度
+     */
+    int getLength();
+
+    /**
+     * 过期时间戳，单位毫秒
+     */
+    long getTimestamp();
+
+    /**
+     * 写回访问延长后的过期时间戳
+     */
+    void setTimestamp(long timestamp);
+}
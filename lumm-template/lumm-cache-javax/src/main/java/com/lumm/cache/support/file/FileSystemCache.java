@@ -1,60 +1,194 @@
 package com.lumm.cache.support.file;
 
 
-import com.lumm.cache.AbstractCache;
+import com.lumm.cache.AbstractCacheManager;
 import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.expiry.ExpirationScheduler;
+import com.lumm.cache.serialization.Serializers;
+import com.lumm.cache.serialization.binary.BinaryInput;
+import com.lumm.cache.serialization.binary.BinaryOutput;
+import com.lumm.cache.support.AbstractSerializedCache;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.cache.CacheException;
-import javax.cache.CacheManager;
 import javax.cache.configuration.Configuration;
 import java.io.File;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * 缓存实现，基于文件系统，线程不安全
- * todo 未完全实现
+ * 缓存实现，基于文件系统，线程安全
+ * <p>
+ * 键和值经 {@link Serializers} 序列化后追加写入 {@link LogStructuredStore} 的段文件，堆内只保留键和位置索引，
+ * 关闭后条目保留在磁盘上，重新打开同名缓存时恢复；封存的段内存映射读取。
+ * 缓存管理器的过期调度器定期把整理任务交给执行器 {@link AbstractCacheManager#COMPACTION_EXECUTOR}，
+ * 整理垃圾比例达到阈值的段，同时清理过期的条目
+ * <p>
+ * 访问延长的有效期保存在堆内，在条目被整理时写入文件，重启前未整理的条目恢复为写入时的有效期
+ *
+ * @see FileSystemCacheManager
  */
-public class FileSystemCache<K, V> extends AbstractCache<K, V> {
+@Slf4j
+public class FileSystemCache<K, V> extends AbstractSerializedCache<K, V> {
 
-    private final File cacheDirectory;
+    private final LogStructuredStore<K> store;
 
-    protected FileSystemCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
-        super(cacheManager, cacheName, configuration);
-        cacheDirectory = new File(cacheManager.getURI().getPath());
-    }
+    /**
+     * 垃圾比例达到该值的段被整理
+     */
+    private final float compactionThreshold;
+
+    /**
+     * 后台整理的间隔，单位毫秒，小于等于0表示不在后台整理
+     */
+    private final long compactionIntervalMillis;
+
+    /**
+     * 定时提交整理任务，由缓存管理器下的所有缓存共享，整理间隔小于等于0时为 <code>null</code>
+     */
+    private final ExpirationScheduler expirationScheduler;
 
-    private File entryFile(K key) {
-        return new File(cacheDirectory, String.valueOf(key));
+    /**
+     * 执行整理任务，由缓存管理器下的所有缓存共享，整理间隔小于等于0时为 <code>null</code>
+     */
+    private final Executor compactionExecutor;
+
+    /**
+     * 构造
+     *
+     * @param cacheManager             缓存管理器
+     * @param cacheName                缓存名
+     * @param configuration            缓存配置
+     * @param directory                段文件的目录
+     * @param segmentSize              段大小，单位字节
+     * @param sync                     每次写入后是否刷盘
+     * @param compactionIntervalMillis 后台整理的间隔，单位毫秒，小于等于0表示不在后台整理
+     * @param compactionThreshold      垃圾比例阈值，0 ~ 1
+     */
+    public FileSystemCache(FileSystemCacheManager cacheManager, String cacheName, Configuration<K, V> configuration,
+                           File directory, long segmentSize, boolean sync, long compactionIntervalMillis,
+                           float compactionThreshold) {
+        super(cacheManager, cacheName, configuration);
+        this.compactionThreshold = compactionThreshold;
+        this.compactionIntervalMillis = compactionIntervalMillis;
+        this.expirationScheduler = compactionIntervalMillis > 0 ? cacheManager.getExpirationScheduler() : null;
+        this.compactionExecutor = compactionIntervalMillis > 0 ?
+                cacheManager.getExecutor(AbstractCacheManager.COMPACTION_EXECUTOR) : null;
+        this.store = new LogStructuredStore<>(cacheName, directory, segmentSize, sync, this::deserializeKey,
+                this::currentTimeMillis, (key, stored) -> handleExpiredEntry(toEntry(key, stored)));
+        if (compactionIntervalMillis > 0) {
+            scheduleCompaction();
+        }
     }
 
     @Override
     protected boolean containsEntry(K key) throws CacheException, ClassCastException {
-        File entryFile = entryFile(key);
-        return entryFile.exists();
+        return store.containsKey(key);
     }
 
     @Override
     protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
-        return null;
+        // decode straight from the reusable thread local buffer
+        return toEntry(key, store.get(key, BinaryInput::localBuffer));
     }
 
     @Override
-    protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+    protected Set<K> keySet() {
+        return store.keySet();
+    }
 
+    @Override
+    protected Iterator<K> keyIterator() {
+        return store.keySet().iterator();
     }
 
+    /**
+     * 与 {@link #computeEntry} 使用同一个监视器，保证写入不会穿插在计算之间
+     */
     @Override
-    protected ExpirableEntry<K, V> removeEntry(K key) throws CacheException, ClassCastException {
-        return null;
+    protected synchronized void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        byte[] keyBytes = serializeKey(entry.getKey());
+        BinaryOutput output = serializeValue(entry.getValue());
+        store.put(entry.getKey(), keyBytes, output.array(), 0, output.size(), entry.getTimestamp());
     }
 
     @Override
-    protected void clearEntries() throws CacheException {
+    protected synchronized ExpirableEntry<K, V> removeEntry(K key) throws CacheException, ClassCastException {
+        return toEntry(key, store.remove(key));
+    }
 
+    @Override
+    protected synchronized void clearEntries() throws CacheException {
+        store.clear();
     }
 
     @Override
-    protected Set<K> keySet() {
-        return null;
+    protected void doClose() {
+        store.close();
+    }
+
+    /**
+     * 当前条目数量
+     */
+    @Override
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * 有效记录占用的字节数
+     */
+    public long getUsedBytes() {
+        return store.getUsedBytes();
+    }
+
+    /**
+     * 段文件占用的字节数
+     */
+    public long getFileBytes() {
+        return store.getFileBytes();
+    }
+
+    /**
+     * 立即整理垃圾比例达到阈值的段
+     *
+     * @return 删除的段数量
+     */
+    public int compact() throws CacheException {
+        return store.compact(compactionThreshold);
+    }
+
+    /**
+     * 调度器的任务应当快速完成，整理在执行器中进行，完成后调度下一次整理
+     */
+    private void scheduleCompaction() {
+        try {
+            expirationScheduler.schedule(currentTimeMillis() + compactionIntervalMillis, () -> {
+                if (isClosed()) {
+                    return;
+                }
+                try {
+                    compactionExecutor.execute(this::compactQuietly);
+                } catch (RejectedExecutionException e) {
+                    // the executor has been shut down together with the cache manager
+                }
+            });
+        } catch (IllegalStateException e) {
+            // the scheduler has been closed together with the cache manager
+        }
+    }
+
+    private void compactQuietly() {
+        if (isClosed()) {
+            return;
+        }
+        try {
+            compact();
+        } catch (Throwable e) {
+            log.error("Failed to compact the cache[{}]", getName(), e);
+        }
+        scheduleCompaction();
     }
 }
@@ -1,27 +1,101 @@
 package com.lumm.cache.support.file;
 
 
+import cn.hutool.core.convert.Convert;
 import com.lumm.cache.AbstractCacheManager;
 
 import javax.cache.Cache;
-import javax.cache.CacheManager;
 import javax.cache.configuration.Configuration;
 import javax.cache.spi.CachingProvider;
+import java.io.File;
 import java.net.URI;
 import java.util.Properties;
 
 /**
  * 缓存管理器实现，基于文件系统
+ * <p>
+ * 每个缓存独占一个 {@link LogStructuredStore}，段文件以缓存名为前缀保存在同一个目录中。
+ * 目录取自配置 {@link #DIRECTORY_PROPERTY_NAME}，未配置时取自 URI 的路径，如 <code>file:///var/cache/lumm/</code>
  */
 public class FileSystemCacheManager extends AbstractCacheManager {
 
+    /**
+     * 配置项前缀：文件缓存
+     */
+    public static final String FILE_PROPERTY_PREFIX = "javax.cache.CacheManager.file.";
+
+    /**
+     * 配置项：段文件的目录，优先于 URI 的路径
+     */
+    public static final String DIRECTORY_PROPERTY_NAME = FILE_PROPERTY_PREFIX + "directory";
+
+    /**
+     * 配置项：段大小，单位字节，写满后封存并内存映射，最大 1GB
+     */
+    public static final String SEGMENT_SIZE_PROPERTY_NAME = FILE_PROPERTY_PREFIX + "segment-size";
+
+    /**
+     * 配置项：每次写入后是否刷盘，否则只在封存段与关闭时刷盘，进程崩溃不丢数据，操作系统崩溃可能丢失最近的写入
+     */
+    public static final String SYNC_PROPERTY_NAME = FILE_PROPERTY_PREFIX + "sync";
+
+    /**
+     * 配置项：后台整理的间隔，单位毫秒，小于等于0表示不在后台整理
+     */
+    public static final String COMPACTION_INTERVAL_MILLIS_PROPERTY_NAME = FILE_PROPERTY_PREFIX + "compaction.interval-millis";
+
+    /**
+     * 配置项：垃圾（被覆盖、删除或过期的记录）比例达到该值的段被整理，0 ~ 1
+     */
+    public static final String COMPACTION_THRESHOLD_PROPERTY_NAME = FILE_PROPERTY_PREFIX + "compaction.threshold";
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    public static final long DEFAULT_COMPACTION_INTERVAL_MILLIS = 60 * 1000L;
+
+    public static final float DEFAULT_COMPACTION_THRESHOLD = 0.5f;
+
+    private final File directory;
+
+    private final long segmentSize;
+
+    private final boolean sync;
+
+    private final long compactionIntervalMillis;
+
+    private final float compactionThreshold;
+
+    /**
+     * 构造
+     *
+     * @param cachingProvider 缓存提供者
+     * @param uri             uri
+     * @param classLoader     类加载器
+     * @param properties      配置
+     */
     public FileSystemCacheManager(CachingProvider cachingProvider, URI uri, ClassLoader classLoader,
                                   Properties properties) {
         super(cachingProvider, uri, classLoader, properties);
+        Properties config = getProperties();
+        String directory = config.getProperty(DIRECTORY_PROPERTY_NAME);
+        if (directory == null || directory.trim().isEmpty()) {
+            directory = uri.getPath();
+        }
+        if (directory == null || directory.isEmpty() || "/".equals(directory)) {
+            directory = new File(System.getProperty("java.io.tmpdir"), "lumm-cache").getPath();
+        }
+        this.directory = new File(directory.trim());
+        this.segmentSize = Convert.toLong(config.getProperty(SEGMENT_SIZE_PROPERTY_NAME), DEFAULT_SEGMENT_SIZE);
+        this.sync = Convert.toBool(config.getProperty(SYNC_PROPERTY_NAME), false);
+        this.compactionIntervalMillis = Convert.toLong(config.getProperty(COMPACTION_INTERVAL_MILLIS_PROPERTY_NAME),
+                DEFAULT_COMPACTION_INTERVAL_MILLIS);
+        this.compactionThreshold = Convert.toFloat(config.getProperty(COMPACTION_THRESHOLD_PROPERTY_NAME),
+                DEFAULT_COMPACTION_THRESHOLD);
     }
 
     @Override
     protected <K, V, C extends Configuration<K, V>> Cache doCreateCache(String cacheName, C configuration) {
-        return new FileSystemCache(this, cacheName, configuration);
+        return new FileSystemCache<K, V>(this, cacheName, configuration, directory, segmentSize, sync,
+                compactionIntervalMillis, compactionThreshold);
     }
 }
@@ -0,0 +1,891 @@
+package com.lumm.cache.support.file;
+
+import com.lumm.cache.support.ValuePointer;
+import com.lumm.cache.util.FileNameUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.cache.CacheException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 日志结构的文件存储，所有变更按追加方式写入目录中的段文件（segment），堆内只保留键到 {@link Pointer} 的索引：
+ * <ul>
+ *     <li>写入通过 {@link FileChannel} 追加到当前段，写满后封存，封存的段以只读方式内存映射，读取直接从映射中复制</li>
+ *     <li>覆盖只追加新记录，删除追加墓碑记录，旧记录成为垃圾，由 {@link #compact(float)} 回收</li>
+ *     <li>打开时按段的顺序重放所有记录重建索引，校验失败的记录（写入中途崩溃）及其之后的内容被截断</li>
+ * </ul>
+ * 记录格式：CRC32(4) | 类型(1) | 过期时间戳(8) | 键长度(4) | 值长度(4) | 键 | 值，CRC32 覆盖类型之后的所有字节。
+ * 墓碑记录没有值，时间戳的位置保存首次写入时的当前段编号，被删除的键的写入记录只可能位于编号不大于它的段中，
+ * 这些段都已删除后墓碑不再需要。
+ * 读写共用一把读写锁，读取只复制字节，反序列化在锁外完成；同一目录下的同名存储只能被一个进程打开
+ *
+ * @param <K> 缓存键类型泛型
+ */
+@Slf4j
+public class LogStructuredStore<K> implements AutoCloseable {
+
+    /**
+     * 记录头的字节数
+     */
+    static final int HEADER_SIZE = 21;
+
+    static final byte PUT = 1;
+
+    static final byte REMOVE = 2;
+
+    /**
+     * 段的最大字节数，封存的段整体映射为一个 {@link MappedByteBuffer}
+     */
+    public static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * 每次持有写锁整理的记录数，避免整理大的段时长时间阻塞读写
+     */
+    private static final int COMPACTION_BATCH_SIZE = 256;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<K, Pointer> index = new HashMap<>();
+
+    /**
+     * 段编号到段，编号越大越新
+     */
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private final File directory;
+
+    /**
+     * 段文件与锁文件名的前缀，即编码后的名称
+     *
+     * @see FileNameUtils#encode(String)
+     */
+    private final String fileName;
+
+    private final long segmentSize;
+
+    /**
+     * 每次写入后是否将数据刷到磁盘
+     */
+    private final boolean sync;
+
+    private final KeyReader<K> keyReader;
+
+    /**
+     * 当前时间戳，用于判断记录是否过期
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 整理时清理过期条目的监听器，在锁之外回调
+     */
+    private final BiConsumer<K, Map.Entry<Pointer, byte[]>> expirationListener;
+
+    private final CRC32 crc = new CRC32();
+
+    private final FileChannel lockChannel;
+
+    private final FileLock fileLock;
+
+    /**
+     * 写入时复用的缓冲区，只在写锁内使用
+     */
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(4096);
+
+    /**
+     * 当前写入的段
+     */
+    private Segment active;
+
+    /**
+     * 有效记录占用的字节数
+     */
+    private long usedBytes;
+
+    private boolean closed;
+
+    /**
+     * 构造，打开目录中已有的段并重建索引
+     *
+     * @param name               名称，编码后用于段文件名
+     * @param directory          目录，不存在时创建
+     * @param segmentSize        段大小，单位字节，超过单条记录的大小时该记录独占一个段
+     * @param sync               每次写入后是否将数据刷到磁盘，否则只在封存段与关闭时刷盘
+     * @param keyReader          反序列化键，用于重建索引
+     * @param clock              当前时间戳
+     * @param expirationListener 整理时清理过期条目的监听器，参数为键和过期条目的指针与值的字节
+     * @throws CacheException 如果无法打开目录或存储已被其他进程打开
+     */
+    public LogStructuredStore(String name, File directory, long segmentSize, boolean sync, KeyReader<K> keyReader,
+                              LongSupplier clock, BiConsumer<K, Map.Entry<Pointer, byte[]>> expirationListener)
+            throws CacheException {
+        if (segmentSize < HEADER_SIZE || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("段大小必须在" + HEADER_SIZE + "与" + MAX_SEGMENT_SIZE + "之间：" + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new CacheException("无法创建目录：" + directory);
+        }
+        this.fileName = FileNameUtils.encode(name);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        this.keyReader = keyReader;
+        this.clock = clock;
+        this.expirationListener = expirationListener;
+        File lockFile = new File(directory, fileName + LOCK_SUFFIX);
+        FileChannel lockChannel = null;
+        try {
+            lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.fileLock = lockChannel.tryLock();
+            if (fileLock == null) {
+                throw new CacheException("存储已被其他进程打开：" + lockFile);
+            }
+            this.lockChannel = lockChannel;
+            recover();
+        } catch (IOException | OverlappingFileLockException | CacheException e) {
+            closeQuietly(lockChannel);
+            segments.values().forEach(Segment::closeQuietly);
+            throw e instanceof CacheException ? (CacheException) e : new CacheException("无法打开存储：" + lockFile, e);
+        }
+    }
+
+    /**
+     * 读取键对应的指针，并把值的字节复制到 bufferFactory 提供的数组的开头，
+     * 调用方可以提供复用的数组，避免每次读取分配新的数组
+     *
+     * @param key           键
+     * @param bufferFactory 按值的字节数提供目标数组，数组长度不能小于该字节数
+     * @return 指针与目标数组，有效长度为 {@link Pointer#getLength()}，<code>null</code> if absent
+     */
+    public Map.Entry<Pointer, byte[]> get(K key, IntFunction<byte[]> bufferFactory) throws CacheException {
+        lock.readLock().lock();
+        try {
+            Pointer pointer = index.get(key);
+            if (pointer == null) {
+                return null;
+            }
+            byte[] bytes = bufferFactory.apply(pointer.valueLength);
+            read(pointer.segment, pointer.valueOffset(), bytes, pointer.valueLength);
+            return new AbstractMap.SimpleImmutableEntry<>(pointer, bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(K key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追加写入键值
+     *
+     * @param key       键
+     * @param keyBytes  序列化的键，重建索引时通过 {@link KeyReader} 还原
+     * @param bytes     字节数组，如 {@link com.lumm.cache.serialization.binary.BinaryOutput#array()}
+     * @param offset    值的起始位置
+     * @param length    值的字节数
+     * @param timestamp 过期时间戳
+     * @return 被覆盖的条目的指针，<code>null</code> 表示之前不存在
+     * @throws CacheException 如果写入文件失败
+     */
+    public Pointer put(K key, byte[] keyBytes, byte[] bytes, int offset, int length, long timestamp)
+            throws CacheException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Pointer pointer = append(PUT, timestamp, keyBytes, 0, keyBytes.length, bytes, offset, length);
+            return replace(key, pointer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除键，追加墓碑记录
+     *
+     * @return 被删除的条目的指针与值的字节，<code>null</code> 表示不存在
+     * @throws CacheException 如果写入文件失败
+     */
+    public Map.Entry<Pointer, byte[]> remove(K key) throws CacheException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Pointer pointer = index.get(key);
+            if (pointer == null) {
+                return null;
+            }
+            byte[] bytes = new byte[pointer.valueLength];
+            read(pointer.segment, pointer.valueOffset(), bytes, bytes.length);
+            appendTombstone(pointer);
+            release(key);
+            return new AbstractMap.SimpleImmutableEntry<>(pointer, bytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 键的快照
+     */
+    public Set<K> keySet() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashSet<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 清空所有条目，删除所有的段文件
+     *
+     * @throws CacheException 如果无法创建新的段
+     */
+    public void clear() throws CacheException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            long nextId = segments.lastKey() + 1;
+            for (Segment segment : segments.values()) {
+                segment.closeQuietly();
+                if (!segment.file.delete()) {
+                    log.warn("无法删除段文件：{}", segment.file);
+                }
+            }
+            segments.clear();
+            index.clear();
+            usedBytes = 0;
+            active = openSegment(nextId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 整理垃圾比例达到阈值的封存段：有效且未过期的记录复制到当前段，过期的条目从索引中删除，之后删除该段。
+     * 只在仍有可能保存被删除的键的写入记录的更早的段时保留墓碑记录，避免被删除的记录在重启后复活
+     *
+     * @param garbageRatio 垃圾比例阈值，0 ~ 1，过期记录也计为垃圾，仍需保留的墓碑记录不计为垃圾
+     * @return 删除的段数量
+     * @throws CacheException 如果读写文件失败
+     */
+    public int compact(float garbageRatio) throws CacheException {
+        List<Segment> candidates = new ArrayList<>();
+        Map<Segment, List<Map.Entry<K, Pointer>>> liveEntries = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return 0;
+            }
+            long now = clock.getAsLong();
+            Map<Segment, long[]> liveBytes = new HashMap<>();
+            for (Map.Entry<K, Pointer> entry : index.entrySet()) {
+                Pointer pointer = entry.getValue();
+                if (pointer.segment != active && pointer.timestamp > now) {
+                    liveBytes.computeIfAbsent(pointer.segment, s -> new long[1])[0] += pointer.recordLength();
+                }
+            }
+            for (Segment segment : segments.values()) {
+                long live = liveBytes.getOrDefault(segment, new long[1])[0];
+                long reclaimable = segment.size - live - requiredTombstoneBytes(segment);
+                if (segment != active && reclaimable > 0 && reclaimable >= segment.size * garbageRatio) {
+                    candidates.add(segment);
+                    liveEntries.put(segment, new ArrayList<>());
+                }
+            }
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+            for (Map.Entry<K, Pointer> entry : index.entrySet()) {
+                List<Map.Entry<K, Pointer>> entries = liveEntries.get(entry.getValue().segment);
+                if (entries != null) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        int compacted = 0;
+        for (Segment segment : candidates) {
+            if (compact(segment, liveEntries.get(segment))) {
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * 有效记录占用的字节数
+     */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有段文件的字节数
+     */
+    public long getFileBytes() {
+        lock.readLock().lock();
+        try {
+            long fileBytes = 0;
+            for (Segment segment : segments.values()) {
+                fileBytes += segment.size;
+            }
+            return fileBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 段的数量
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 刷盘并关闭所有段文件，段文件保留，下次打开时恢复
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (active != null) {
+                try {
+                    active.channel.force(false);
+                } catch (IOException e) {
+                    log.warn("段文件刷盘失败：{}", active.file, e);
+                }
+            }
+            segments.values().forEach(Segment::closeQuietly);
+            segments.clear();
+            index.clear();
+            usedBytes = 0;
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                log.warn("无法释放文件锁：{}", directory, e);
+            }
+            closeQuietly(lockChannel);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean compact(Segment segment, List<Map.Entry<K, Pointer>> entries) throws CacheException {
+        Map<K, Map.Entry<Pointer, byte[]>> expired = new LinkedHashMap<>();
+        int position = 0;
+        try {
+            while (position < entries.size()) {
+                lock.writeLock().lock();
+                try {
+                    if (closed || !segments.containsKey(segment.id)) {
+                        return false;
+                    }
+                    long now = clock.getAsLong();
+                    int end = Math.min(entries.size(), position + COMPACTION_BATCH_SIZE);
+                    for (; position < end; position++) {
+                        K key = entries.get(position).getKey();
+                        Pointer pointer = entries.get(position).getValue();
+                        if (index.get(key) != pointer) {
+                            // changed concurrently, the record is garbage now
+                            continue;
+                        }
+                        if (pointer.timestamp <= now) {
+                            if (expirationListener != null) {
+                                byte[] bytes = new byte[pointer.valueLength];
+                                read(pointer.segment, pointer.valueOffset(), bytes, bytes.length);
+                                expired.put(key, new AbstractMap.SimpleImmutableEntry<>(pointer, bytes));
+                            }
+                            appendTombstone(pointer);
+                            release(key);
+                        } else {
+                            copy(key, pointer);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (closed || !segments.containsKey(segment.id)) {
+                    return false;
+                }
+                if (segments.firstKey() != segment.id) {
+                    copyTombstones(segment);
+                }
+                // the copies must be durable before the only other copy of the records is deleted
+                try {
+                    active.channel.force(false);
+                } catch (IOException e) {
+                    throw new CacheException("段文件刷盘失败：" + active.file, e);
+                }
+                segments.remove(segment.id);
+                segment.closeQuietly();
+                if (!segment.file.delete()) {
+                    log.warn("无法删除段文件：{}", segment.file);
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            expired.forEach(expirationListener);
+        }
+    }
+
+    /**
+     * 复制有效记录到当前段，过期时间戳使用访问延长后的值
+     */
+    private void copy(K key, Pointer pointer) throws CacheException {
+        byte[] record = new byte[pointer.recordLength() - HEADER_SIZE];
+        read(pointer.segment, pointer.offset + HEADER_SIZE, record, record.length);
+        replace(key, append(PUT, pointer.timestamp, record, 0, pointer.keyLength, record, pointer.keyLength,
+                pointer.valueLength));
+    }
+
+    /**
+     * 复制段中仍需保留的墓碑记录到当前段，保留首次写入时的段编号；
+     * 键存在时更新的记录已经覆盖了更早的记录，不再有更早的段可能保存该键的写入记录时墓碑也不再需要
+     */
+    private void copyTombstones(Segment segment) throws CacheException {
+        ByteBuffer buffer = segment.mapped.duplicate();
+        int position = 0;
+        while (position < segment.size) {
+            buffer.position(position);
+            buffer.getInt();
+            byte type = buffer.get();
+            long horizon = buffer.getLong();
+            int keyLength = buffer.getInt();
+            int valueLength = buffer.getInt();
+            if (type == REMOVE && isTombstoneRequired(segment, horizon)) {
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(keyBytes);
+                K key = readKey(keyBytes, segment, position);
+                if (key != null && !index.containsKey(key)) {
+                    append(REMOVE, horizon, keyBytes, 0, keyLength, keyBytes, 0, 0);
+                }
+            }
+            position += HEADER_SIZE + keyLength + valueLength;
+        }
+    }
+
+    /**
+     * 除该段之外，是否还有编号不大于墓碑首次写入时的段编号的段，即可能保存被删除的键的写入记录的段
+     */
+    private boolean isTombstoneRequired(Segment segment, long horizon) {
+        Long oldest = oldestOtherSegment(segment);
+        return oldest != null && oldest <= horizon;
+    }
+
+    /**
+     * 段中仍需保留的墓碑记录的字节数，整理时会被复制，不计为垃圾
+     */
+    private long requiredTombstoneBytes(Segment segment) {
+        if (segment.tombstoneBytes.isEmpty()) {
+            return 0L;
+        }
+        Long oldest = oldestOtherSegment(segment);
+        if (oldest == null) {
+            return 0L;
+        }
+        long bytes = 0L;
+        for (long tombstoneBytes : segment.tombstoneBytes.tailMap(oldest, true).values()) {
+            bytes += tombstoneBytes;
+        }
+        return bytes;
+    }
+
+    private Long oldestOtherSegment(Segment segment) {
+        Long first = segments.firstKey();
+        return first == segment.id ? segments.higherKey(first) : first;
+    }
+
+    private void appendTombstone(Pointer pointer) throws CacheException {
+        byte[] keyBytes = new byte[pointer.keyLength];
+        read(pointer.segment, pointer.offset + HEADER_SIZE, keyBytes, keyBytes.length);
+        // the records of the key are in this segment or the older ones, even if the tombstone rolls to a new one
+        append(REMOVE, active.id, keyBytes, 0, keyBytes.length, keyBytes, 0, 0);
+    }
+
+    private Pointer replace(K key, Pointer pointer) {
+        usedBytes += pointer.recordLength();
+        Pointer oldPointer = index.put(key, pointer);
+        if (oldPointer != null) {
+            usedBytes -= oldPointer.recordLength();
+        }
+        return oldPointer;
+    }
+
+    private void release(K key) {
+        Pointer pointer = index.remove(key);
+        if (pointer != null) {
+            usedBytes -= pointer.recordLength();
+        }
+    }
+
+    /**
+     * 追加一条记录到当前段，当前段放不下时封存并切换到新的段
+     */
+    private Pointer append(byte type, long timestamp, byte[] keyBytes, int keyOffset, int keyLength,
+                           byte[] valueBytes, int valueOffset, int valueLength) throws CacheException {
+        int recordLength = HEADER_SIZE + keyLength + valueLength;
+        if (active.size > 0 && active.size + recordLength > segmentSize) {
+            roll();
+        }
+        if (writeBuffer.capacity() < recordLength) {
+            writeBuffer = ByteBuffer.allocate(Math.max(recordLength, writeBuffer.capacity() << 1));
+        }
+        ByteBuffer buffer = writeBuffer;
+        buffer.clear();
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.putLong(timestamp);
+        buffer.putInt(keyLength);
+        buffer.putInt(valueLength);
+        buffer.put(keyBytes, keyOffset, keyLength);
+        buffer.put(valueBytes, valueOffset, valueLength);
+        crc.reset();
+        crc.update(buffer.array(), 4, recordLength - 4);
+        buffer.putInt(0, (int) crc.getValue());
+        buffer.flip();
+        long offset = active.size;
+        try {
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += active.channel.write(buffer, position);
+            }
+            if (sync) {
+                active.channel.force(false);
+            }
+        } catch (IOException e) {
+            // drop the partial record, the next write overwrites it
+            throw new CacheException("写入段文件失败：" + active.file, e);
+        }
+        active.size += recordLength;
+        if (type == REMOVE) {
+            active.addTombstone(timestamp, recordLength);
+        }
+        return new Pointer(active, offset, keyLength, valueLength, timestamp);
+    }
+
+    /**
+     * 封存当前段并以只读方式映射，之后的写入进入新的段
+     */
+    private void roll() throws CacheException {
+        Segment segment = active;
+        try {
+            segment.channel.force(false);
+            segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        } catch (IOException e) {
+            throw new CacheException("无法封存段文件：" + segment.file, e);
+        }
+        active = openSegment(segment.id + 1);
+    }
+
+    private Segment openSegment(long id) throws CacheException {
+        File file = segmentFile(id);
+        try {
+            Segment segment = new Segment(id, file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new CacheException("无法创建段文件：" + file, e);
+        }
+    }
+
+    private void read(Segment segment, long position, byte[] bytes, int length) throws CacheException {
+        if (segment.mapped != null) {
+            ByteBuffer buffer = segment.mapped.duplicate();
+            buffer.position((int) position);
+            buffer.get(bytes, 0, length);
+            return;
+        }
+        // the active segment is still growing, read it through the channel
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        try {
+            while (buffer.hasRemaining()) {
+                int count = segment.channel.read(buffer, position + buffer.position());
+                if (count < 0) {
+                    throw new CacheException("段文件已损坏：" + segment.file);
+                }
+            }
+        } catch (IOException e) {
+            throw new CacheException("读取段文件失败：" + segment.file, e);
+        }
+    }
+
+    /**
+     * 按编号顺序打开所有段，重放记录重建索引，截断每个段中第一条无效记录之后的内容
+     */
+    private void recover() throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(fileName) + "-(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+        File[] files = directory.listFiles();
+        TreeMap<Long, File> segmentFiles = new TreeMap<>();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = pattern.matcher(file.getName());
+                if (matcher.matches()) {
+                    segmentFiles.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        for (Map.Entry<Long, File> segmentFile : segmentFiles.entrySet()) {
+            File file = segmentFile.getValue();
+            Segment segment = new Segment(segmentFile.getKey(), file, FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+            segments.put(segment.id, segment);
+            long fileSize = segment.channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("段文件过大：" + file);
+            }
+            segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            segment.size = replay(segment, (int) fileSize);
+            if (segment.size < fileSize) {
+                log.warn("段文件[{}]在位置[{}]之后的{}个字节无效，已截断", file, segment.size, fileSize - segment.size);
+                segment.mapped = null;
+                segment.channel.truncate(segment.size);
+                segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            }
+        }
+        // expired entries stay in the index, compaction or the next access removes them with a tombstone
+        if (segments.isEmpty()) {
+            active = openSegment(0);
+        } else {
+            Segment last = segments.lastEntry().getValue();
+            if (last.size < segmentSize) {
+                // keep appending to the last segment, read it through the channel from now on
+                last.mapped = null;
+                active = last;
+            } else {
+                active = openSegment(last.id + 1);
+            }
+        }
+    }
+
+    /**
+     * 重放段中的记录
+     *
+     * @return 有效内容的字节数
+     */
+    private long replay(Segment segment, int fileSize) {
+        ByteBuffer buffer = segment.mapped.duplicate();
+        CRC32 checksum = new CRC32();
+        int position = 0;
+        while (fileSize - position >= HEADER_SIZE) {
+            buffer.position(position);
+            int expectedCrc = buffer.getInt();
+            byte type = buffer.get();
+            long timestamp = buffer.getLong();
+            int keyLength = buffer.getInt();
+            int valueLength = buffer.getInt();
+            if ((type != PUT && type != REMOVE) || keyLength < 0 || valueLength < 0
+                    || (long) keyLength + valueLength > fileSize - position - HEADER_SIZE) {
+                break;
+            }
+            int recordLength = HEADER_SIZE + keyLength + valueLength;
+            checksum.reset();
+            buffer.position(position + 4).limit(position + recordLength);
+            checksum.update(buffer);
+            buffer.limit(fileSize);
+            if ((int) checksum.getValue() != expectedCrc) {
+                break;
+            }
+            if (type == REMOVE) {
+                segment.addTombstone(timestamp, recordLength);
+            }
+            byte[] keyBytes = new byte[keyLength];
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(keyBytes);
+            K key = readKey(keyBytes, segment, position);
+            if (key != null) {
+                if (type == PUT) {
+                    replace(key, new Pointer(segment, position, keyLength, valueLength, timestamp));
+                } else {
+                    release(key);
+                }
+            }
+            position += recordLength;
+        }
+        return position;
+    }
+
+    private K readKey(byte[] keyBytes, Segment segment, long position) {
+        try {
+            return keyReader.read(keyBytes, 0, keyBytes.length);
+        } catch (Exception e) {
+            log.warn("无法反序列化段文件[{}]位置[{}]的键，已忽略该记录", segment.file, position, e);
+            return null;
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, fileName + "-" + id + SEGMENT_SUFFIX);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The LogStructuredStore has been closed!");
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 反序列化键
+     *
+     * @param <K> 缓存键类型泛型
+     */
+    @FunctionalInterface
+    public interface KeyReader<K> {
+
+        K read(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    /**
+     * 段文件，当前段通过 {@link FileChannel} 追加与读取，封存的段通过 {@link #mapped} 读取
+     */
+    private static final class Segment {
+
+        private final long id;
+
+        private final File file;
+
+        private final FileChannel channel;
+
+        /**
+         * 已写入的字节数
+         */
+        private long size;
+
+        /**
+         * 封存后的只读映射，当前段为 <code>null</code>
+         */
+        private MappedByteBuffer mapped;
+
+        /**
+         * 墓碑记录首次写入时的段编号到墓碑记录的字节数
+         */
+        private final TreeMap<Long, Long> tombstoneBytes = new TreeMap<>();
+
+        private Segment(long id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        private void addTombstone(long horizon, int recordLength) {
+            tombstoneBytes.merge(horizon, (long) recordLength, Long::sum);
+        }
+
+        private void closeQuietly() {
+            // the mapping is released when it becomes unreachable
+            mapped = null;
+            LogStructuredStore.closeQuietly(channel);
+        }
+    }
+
+    /**
+     * 记录在段文件中的位置，过期时间戳保存在堆内，访问时延长有效期不需要重写文件，整理时随记录一起写入
+     */
+    public static final class Pointer implements ValuePointer {
+
+        private final Segment segment;
+
+        private final long offset;
+
+        private final int keyLength;
+
+        private final int valueLength;
+
+        private volatile long timestamp;
+
+        private Pointer(Segment segment, long offset, int keyLength, int valueLength, long timestamp) {
+            this.segment = segment;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int getLength() {
+            return valueLength;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public void setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        private long valueOffset() {
+            return offset + HEADER_SIZE + keyLength;
+        }
+
+        private int recordLength() {
+            return HEADER_SIZE + keyLength + valueLength;
+        }
+    }
+}
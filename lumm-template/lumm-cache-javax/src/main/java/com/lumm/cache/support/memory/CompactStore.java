@@ -0,0 +1,552 @@
+package com.lumm.cache.support.memory;
+
+import com.lumm.cache.ExpirableEntry;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link InMemoryStore} 实现，紧凑布局：
+ * <ul>
+ *     <li>每个分段是一张开放寻址（线性探测）的哈希表，键、值、过期时间戳分别保存在平行数组中，
+ *     不为条目创建任何包装对象，{@link ExpirableEntry} 只在读取时按需生成</li>
+ *     <li>删除时回移后续条目，不留墓碑</li>
+ *     <li>按 {@link EvictionPolicy#CLOCK} 淘汰：访问时设置引用位，时钟指针扫过时清除引用位，淘汰引用位已清除的条目</li>
+ * </ul>
+ * 以压缩指针、负载因子0.75估算，每个条目约占 (4 + 4 + 8) / 0.75 ≈ 22 字节（不含键和值本身），
+ * 而 {@link SegmentedStore} 每个条目需要 {@link LinkedHashMap} 节点、存储节点和 {@link ExpirableEntry} 三个对象，约 90 字节
+ *
+ * @param <K> 缓存键类型泛型
+ * @param <V> 缓存值类型泛型
+ */
+public class CompactStore<K, V> implements InMemoryStore<K, V> {
+
+    /**
+     * 每个分段哈希表的初始槽数
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Table[] tables;
+
+    private final int segmentShift;
+
+    private final Weigher<? super K, ? super V> weigher;
+
+    /**
+     * 淘汰监听器，在分段锁之外回调
+     */
+    private final Consumer<ExpirableEntry<K, V>> evictionListener;
+
+    /**
+     * 下次清理过期条目的分段
+     */
+    private volatile int sweepIndex;
+
+    /**
+     * 构造
+     *
+     * @param maximumWeight    最大权重，小于等于0表示不限制容量
+     * @param weigher          权重计算，{@link Weigher#SINGLETON} 时不保存权重数组
+     * @param concurrencyLevel 并发级别，决定分段数量
+     * @param evictionListener 淘汰监听器
+     */
+    public CompactStore(long maximumWeight, Weigher<? super K, ? super V> weigher, int concurrencyLevel,
+                        Consumer<ExpirableEntry<K, V>> evictionListener) {
+        int segmentCount = SegmentedStore.segmentCount(concurrencyLevel, maximumWeight);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.tables = new CompactStore.Table[segmentCount];
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        for (int i = 0; i < segmentCount; i++) {
+            tables[i] = new Table(SegmentedStore.segmentCapacity(maximumWeight, segmentCount, i),
+                    weigher != Weigher.SINGLETON);
+        }
+    }
+
+    private Table tableFor(int hash) {
+        return tables.length == 1 ? tables[0] : tables[hash >>> segmentShift];
+    }
+
+    @Override
+    public ExpirableEntry<K, V> get(K key) {
+        int hash = SegmentedStore.spread(key);
+        return tableFor(hash).get(key, hash);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        int hash = SegmentedStore.spread(key);
+        return tableFor(hash).containsKey(key, hash);
+    }
+
+    @Override
+    public ExpirableEntry<K, V> put(ExpirableEntry<K, V> entry) {
+        List<ExpirableEntry<K, V>> evicted = new LinkedList<>();
+        int hash = SegmentedStore.spread(entry.getKey());
+        ExpirableEntry<K, V> oldEntry = tableFor(hash).put(entry, hash, weigh(entry), evicted);
+        notifyEvicted(evicted);
+        return oldEntry;
+    }
+
+    @Override
+    public ExpirableEntry<K, V> compute(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction) {
+        List<ExpirableEntry<K, V>> evicted = new LinkedList<>();
+        int hash = SegmentedStore.spread(key);
+        ExpirableEntry<K, V> oldEntry = tableFor(hash).compute(key, hash, remappingFunction, evicted);
+        notifyEvicted(evicted);
+        return oldEntry;
+    }
+
+    @Override
+    public ExpirableEntry<K, V> remove(K key) {
+        int hash = SegmentedStore.spread(key);
+        return tableFor(hash).remove(key, hash);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new LinkedHashSet<>();
+        for (Table table : tables) {
+            table.collectKeys(keys);
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 逐个分段获取键的快照，同一时刻只持有一个分段的键
+     */
+    @Override
+    public Iterator<K> keyIterator() {
+        return new Iterator<K>() {
+
+            private int tableIndex;
+
+            private Iterator<K> keys = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!keys.hasNext() && tableIndex < tables.length) {
+                    List<K> tableKeys = new ArrayList<>();
+                    tables[tableIndex++].collectKeys(tableKeys);
+                    keys = tableKeys.iterator();
+                }
+                return keys.hasNext();
+            }
+
+            @Override
+            public K next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keys.next();
+            }
+        };
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Table table : tables) {
+            size += table.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Table table : tables) {
+            table.clear();
+        }
+    }
+
+    @Override
+    public boolean isEntryRetained() {
+        return false;
+    }
+
+    @Override
+    public void touch(ExpirableEntry<K, V> entry) {
+        int hash = SegmentedStore.spread(entry.getKey());
+        tableFor(hash).touch(entry, hash);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 逐个分段检查，每个分段从上次结束的槽继续
+     */
+    @Override
+    public int sweepExpired(long currentTimeMillis, int maxEntries, Consumer<ExpirableEntry<K, V>> expiredListener) {
+        List<ExpirableEntry<K, V>> expired = new LinkedList<>();
+        int budget = maxEntries;
+        for (int i = 0; i < tables.length && budget > 0; i++) {
+            Table table = tables[sweepIndex];
+            sweepIndex = (sweepIndex + 1) % tables.length;
+            budget -= table.sweepExpired(currentTimeMillis, budget, expired);
+        }
+        expired.forEach(expiredListener);
+        return expired.size();
+    }
+
+    private int weigh(ExpirableEntry<K, V> entry) {
+        int weight = weigher.weigh(entry.getKey(), entry.getValue());
+        if (weight < 0) {
+            throw new IllegalArgumentException("条目权重不能为负数：" + weight);
+        }
+        return weight;
+    }
+
+    private void notifyEvicted(List<ExpirableEntry<K, V>> evicted) {
+        if (evictionListener != null) {
+            evicted.forEach(evictionListener);
+        }
+    }
+
+    /**
+     * 分段哈希表，所有操作在分段锁内完成，空槽的键为<code>null</code>
+     */
+    private final class Table {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final long capacity;
+
+        private final boolean weighted;
+
+        private Object[] keys;
+
+        private Object[] values;
+
+        private long[] timestamps;
+
+        /**
+         * 条目权重，不计算权重时为<code>null</code>，每个条目权重为1
+         */
+        private int[] weights;
+
+        /**
+         * CLOCK 引用位
+         */
+        private long[] referenced;
+
+        private int size;
+
+        private long weight;
+
+        /**
+         * CLOCK 时钟指针
+         */
+        private int hand;
+
+        /**
+         * 清理过期条目的游标
+         */
+        private int sweepCursor;
+
+        private Table(long capacity, boolean weighted) {
+            this.capacity = capacity;
+            this.weighted = weighted;
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int length) {
+            keys = new Object[length];
+            values = new Object[length];
+            timestamps = new long[length];
+            weights = weighted ? new int[length] : null;
+            referenced = new long[(length + 63) >>> 6];
+        }
+
+        private ExpirableEntry<K, V> get(Object key, int hash) {
+            lock.lock();
+            try {
+                int index = indexOf(key, hash);
+                if (index < 0) {
+                    return null;
+                }
+                setReferenced(index, true);
+                return entryAt(index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean containsKey(Object key, int hash) {
+            lock.lock();
+            try {
+                return indexOf(key, hash) >= 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpirableEntry<K, V> put(ExpirableEntry<K, V> entry, int hash, int entryWeight,
+                                         List<ExpirableEntry<K, V>> evicted) {
+            lock.lock();
+            try {
+                ExpirableEntry<K, V> oldEntry = null;
+                int index = indexOf(entry.getKey(), hash);
+                if (index >= 0) {
+                    oldEntry = entryAt(index);
+                    weight += entryWeight - weightAt(index);
+                    setReferenced(index, true);
+                } else {
+                    if ((size + 1) * 4L > keys.length * 3L) {
+                        resize(keys.length << 1);
+                    }
+                    index = hash & (keys.length - 1);
+                    while (keys[index] != null) {
+                        index = (index + 1) & (keys.length - 1);
+                    }
+                    keys[index] = entry.getKey();
+                    size++;
+                    weight += entryWeight;
+                }
+                values[index] = entry.getValue();
+                timestamps[index] = entry.getTimestamp();
+                if (weighted) {
+                    weights[index] = entryWeight;
+                }
+                evict(entry.getKey(), evicted);
+                return oldEntry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpirableEntry<K, V> compute(K key, int hash, UnaryOperator<ExpirableEntry<K, V>> remappingFunction,
+                                             List<ExpirableEntry<K, V>> evicted) {
+            lock.lock();
+            try {
+                int index = indexOf(key, hash);
+                ExpirableEntry<K, V> current = index < 0 ? null : entryAt(index);
+                ExpirableEntry<K, V> result = remappingFunction.apply(current);
+                if (result == current) {
+                    return current;
+                }
+                if (result == null) {
+                    delete(index);
+                } else {
+                    put(result, hash, weigh(result), evicted);
+                }
+                return current;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpirableEntry<K, V> remove(Object key, int hash) {
+            lock.lock();
+            try {
+                int index = indexOf(key, hash);
+                if (index < 0) {
+                    return null;
+                }
+                ExpirableEntry<K, V> oldEntry = entryAt(index);
+                delete(index);
+                return oldEntry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void touch(ExpirableEntry<K, V> entry, int hash) {
+            lock.lock();
+            try {
+                int index = indexOf(entry.getKey(), hash);
+                if (index >= 0 && values[index] == entry.getValue()) {
+                    timestamps[index] = entry.getTimestamp();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void collectKeys(Collection<K> collection) {
+            lock.lock();
+            try {
+                for (Object key : keys) {
+                    if (key != null) {
+                        collection.add((K) key);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                allocate(INITIAL_CAPACITY);
+                size = 0;
+                weight = 0;
+                hand = 0;
+                sweepCursor = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 移除过期条目
+         *
+         * @return 检查的槽数量
+         */
+        private int sweepExpired(long currentTimeMillis, int maxSlots, List<ExpirableEntry<K, V>> expired) {
+            lock.lock();
+            try {
+                int checked = 0;
+                while (checked < maxSlots && checked < keys.length && size > 0) {
+                    int index = sweepCursor & (keys.length - 1);
+                    checked++;
+                    if (keys[index] != null && timestamps[index] <= currentTimeMillis) {
+                        expired.add(entryAt(index));
+                        // the following entry may be shifted into current slot, check it again
+                        delete(index);
+                    } else {
+                        sweepCursor = index + 1;
+                    }
+                }
+                return checked;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int indexOf(Object key, int hash) {
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            Object k;
+            while ((k = keys[index]) != null) {
+                if (k == key || k.equals(key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private ExpirableEntry<K, V> entryAt(int index) {
+            ExpirableEntry<K, V> entry = ExpirableEntry.of((K) keys[index], (V) values[index]);
+            entry.setTimestamp(timestamps[index]);
+            return entry;
+        }
+
+        private int weightAt(int index) {
+            return weighted ? weights[index] : 1;
+        }
+
+        private boolean isReferenced(int index) {
+            return (referenced[index >>> 6] & (1L << index)) != 0;
+        }
+
+        private void setReferenced(int index, boolean value) {
+            if (value) {
+                referenced[index >>> 6] |= 1L << index;
+            } else {
+                referenced[index >>> 6] &= ~(1L << index);
+            }
+        }
+
+        /**
+         * 删除槽中的条目，并将后续探测链上的条目回移，保证查找不会提前遇到空槽
+         */
+        private void delete(int index) {
+            size--;
+            weight -= weightAt(index);
+            int mask = keys.length - 1;
+            int hole = index;
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                Object key = keys[next];
+                if (key == null) {
+                    break;
+                }
+                int home = SegmentedStore.spread(key) & mask;
+                // the entry could be moved to the hole only if its home slot is not cyclically in (hole, next]
+                boolean inRange = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+                if (!inRange) {
+                    move(next, hole);
+                    hole = next;
+                }
+            }
+            keys[hole] = null;
+            values[hole] = null;
+            setReferenced(hole, false);
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+            timestamps[to] = timestamps[from];
+            if (weighted) {
+                weights[to] = weights[from];
+            }
+            setReferenced(to, isReferenced(from));
+        }
+
+        private void resize(int length) {
+            Object[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] oldTimestamps = timestamps;
+            int[] oldWeights = weights;
+            long[] oldReferenced = referenced;
+            allocate(length);
+            int mask = length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) {
+                    continue;
+                }
+                int index = SegmentedStore.spread(oldKeys[i]) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                timestamps[index] = oldTimestamps[i];
+                if (weighted) {
+                    weights[index] = oldWeights[i];
+                }
+                setReferenced(index, (oldReferenced[i >>> 6] & (1L << i)) != 0);
+            }
+            hand = 0;
+            sweepCursor = 0;
+        }
+
+        /**
+         * 超出容量时按 CLOCK 淘汰，刚写入的条目只在它是唯一条目时才会被淘汰
+         */
+        private void evict(Object writtenKey, List<ExpirableEntry<K, V>> evicted) {
+            while (weight > capacity && size > 0) {
+                int index = hand & (keys.length - 1);
+                Object key = keys[index];
+                if (key == null || (key == writtenKey && size > 1)) {
+                    hand = index + 1;
+                } else if (isReferenced(index)) {
+                    // second chance
+                    setReferenced(index, false);
+                    hand = index + 1;
+                } else {
+                    evicted.add(entryAt(index));
+                    // the following entry may be shifted into current slot, check it again
+                    delete(index);
+                }
+            }
+        }
+    }
+}
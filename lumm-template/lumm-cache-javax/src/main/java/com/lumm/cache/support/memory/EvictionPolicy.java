@@ -0,0 +1,40 @@
+package com.lumm.cache.support.memory;
+
+/**
+ * 内存缓存容量超限时的淘汰策略
+ *
+ * @see InMemoryStore
+ */
+public enum EvictionPolicy {
+
+    /**
+     * 最近最少使用：淘汰最久未被访问的条目
+     */
+    LRU,
+
+    /**
+     * 分段LRU：新条目进入试用区，再次被访问后晋升到保护区，优先淘汰试用区中最久未被访问的条目，
+     * 可以避免一次性扫描冲刷掉热点数据
+     */
+    SLRU,
+
+    /**
+     * CLOCK：近似LRU，访问时只设置引用位，淘汰时时钟指针跳过并清除有引用位的条目（第二次机会），
+     * 由 {@link CompactStore} 实现，不为条目创建包装对象，适合条目数量大、更关注内存占用的场景
+     */
+    CLOCK;
+
+    /**
+     * 根据名称解析淘汰策略，忽略大小写
+     *
+     * @param name         策略名称
+     * @param defaultValue 默认策略
+     * @return <code>defaultValue</code> if name is blank
+     */
+    public static EvictionPolicy of(String name, EvictionPolicy defaultValue) {
+        if (name == null || name.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -1,57 +1,221 @@
 package com.lumm.cache.support.memory;
 
 import com.lumm.cache.AbstractCache;
+import com.lumm.cache.AbstractCacheManager;
 import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.expiry.ExpirationScheduler;
 
 import javax.cache.CacheException;
 import javax.cache.CacheManager;
 import javax.cache.configuration.Configuration;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 /**
- * 缓存实现，基于内存，线程不安全
+ * 缓存实现，基于内存，线程安全
+ * <p>
+ * 条目存储在锁分段的 {@link InMemoryStore} 中，可以限制最大条目数或最大权重，超出容量时按 {@link EvictionPolicy} 淘汰；
+ * 有过期时间的条目交由缓存管理器共享的 {@link ExpirationScheduler} 在过期后主动清理，即使再也不被访问也不会一直占用内存；
+ * 不保留条目对象的紧凑存储（{@link EvictionPolicy#CLOCK}）则由调度器周期性地增量扫描过期条目
  *
+ * @see InMemoryCacheManager
  */
 public class InMemoryCache<K, V> extends AbstractCache<K, V> {
 
-    private final Map<K, ExpirableEntry<K, V>> cache;
+    /**
+     * 紧凑存储扫描过期条目的间隔，单位毫秒
+     */
+    static final long SWEEP_INTERVAL_MILLIS = 100L;
 
+    /**
+     * 紧凑存储每次扫描过期条目时至少检查的槽数量
+     */
+    static final int SWEEP_BATCH_SIZE = 4096;
+
+    /**
+     * 紧凑存储每次扫描过期条目时检查的槽数量不少于条目数量的 1/8，
+     * 按负载因子约 1 ~ 2 秒扫描一遍，不随容量增大而变慢
+     */
+    static final int SWEEP_FRACTION = 8;
+
+    private final InMemoryStore<K, V> store;
+
+    /**
+     * 过期调度器，<code>null</code> 表示只在访问时清理过期条目
+     */
+    private final ExpirationScheduler expirationScheduler;
+
+    /**
+     * 构造，不限制容量
+     *
+     * @param cacheManager  缓存管理器
+     * @param cacheName     缓存名
+     * @param configuration 缓存配置
+     */
     public InMemoryCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration) {
+        this(cacheManager, cacheName, configuration, EvictionPolicy.SLRU, 0, Weigher.SINGLETON,
+                InMemoryCacheManager.DEFAULT_CONCURRENCY_LEVEL, cacheManager instanceof AbstractCacheManager ?
+                        ((AbstractCacheManager) cacheManager).getExpirationScheduler() : null);
+    }
+
+    /**
+     * 构造
+     *
+     * @param cacheManager        缓存管理器
+     * @param cacheName           缓存名
+     * @param configuration       缓存配置
+     * @param evictionPolicy      淘汰策略
+     * @param maximumWeight       最大权重，小于等于0表示不限制容量
+     * @param weigher             权重计算
+     * @param concurrencyLevel    并发级别
+     * @param expirationScheduler 过期调度器，<code>null</code> 表示只在访问时清理过期条目
+     */
+    public InMemoryCache(CacheManager cacheManager, String cacheName, Configuration<K, V> configuration,
+                         EvictionPolicy evictionPolicy, long maximumWeight, Weigher<? super K, ? super V> weigher,
+                         int concurrencyLevel, ExpirationScheduler expirationScheduler) {
         super(cacheManager, cacheName, configuration);
-        this.cache = new HashMap<>();
+        this.store = evictionPolicy == EvictionPolicy.CLOCK ?
+                new CompactStore<>(maximumWeight, weigher, concurrencyLevel, this::handleEvictedEntry) :
+                new SegmentedStore<>(evictionPolicy, maximumWeight, weigher, concurrencyLevel, this::handleEvictedEntry);
+        this.expirationScheduler = expirationScheduler;
+        if (expirationScheduler != null && !store.isEntryRetained()) {
+            scheduleSweep();
+        }
     }
 
     @Override
     protected boolean containsEntry(K key) throws CacheException, ClassCastException {
-        return cache.containsKey(key);
+        return store.containsKey(key);
     }
 
     @Override
     protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
-        return cache.get(key);
+        return store.get(key);
     }
 
     @Override
     protected Set<K> keySet() {
-        return cache.keySet();
+        return store.keySet();
+    }
+
+    @Override
+    protected Iterator<K> keyIterator() {
+        return store.keyIterator();
     }
 
     @Override
     protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
-        K key = entry.getKey();
-        cache.put(key, entry);
+        store.put(entry);
+        scheduleExpiration(entry);
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> computeEntry(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction)
+            throws CacheException, ClassCastException {
+        List<ExpirableEntry<K, V>> computed = new ArrayList<>(1);
+        ExpirableEntry<K, V> previous = store.compute(key, current -> {
+            ExpirableEntry<K, V> result = remappingFunction.apply(current);
+            computed.clear();
+            computed.add(result);
+            return result;
+        });
+        ExpirableEntry<K, V> result = computed.get(0);
+        if (result != null && result != previous) {
+            scheduleExpiration(result);
+        }
+        return previous;
     }
 
     @Override
     protected ExpirableEntry<K, V> removeEntry(K key) throws CacheException, ClassCastException {
-        return cache.remove(key);
+        return store.remove(key);
     }
 
     @Override
     protected void clearEntries() throws CacheException {
-        cache.clear();
+        store.clear();
+    }
+
+    @Override
+    protected void touchEntry(ExpirableEntry<K, V> entry) {
+        if (!store.isEntryRetained()) {
+            store.touch(entry);
+        }
+    }
+
+    /**
+     * 条目有过期时间时调度过期清理任务，存储不保留条目对象时由周期扫描清理。
+     * 任务只持有键与条目的弱引用，条目被替换或移除后不会因等待中的任务而滞留在内存中
+     */
+    private void scheduleExpiration(ExpirableEntry<K, V> entry) {
+        if (expirationScheduler != null && store.isEntryRetained() && !entry.isEternal()) {
+            scheduleExpiration(entry.getKey(), new WeakReference<>(entry), entry.getTimestamp());
+        }
+    }
+
+    private void scheduleExpiration(K key, Reference<ExpirableEntry<K, V>> reference, long expireTime) {
+        expirationScheduler.schedule(expireTime, () -> expire(key, reference));
+    }
+
+    /**
+     * 过期清理任务：条目已被替换或移除时忽略（新条目有自己的任务），
+     * 已过期时移除并发布过期事件，访问时延长了有效期则重新调度
+     */
+    private void expire(K key, Reference<ExpirableEntry<K, V>> reference) {
+        ExpirableEntry<K, V> entry = reference.get();
+        if (entry == null || isClosed()) {
+            // replaced or removed, and already collected
+            return;
+        }
+        boolean[] expired = new boolean[1];
+        ExpirableEntry<K, V> current = store.compute(key, e -> {
+            expired[0] = e == entry && isExpired(e);
+            return expired[0] ? null : e;
+        });
+        if (expired[0]) {
+            handleExpiredEntry(entry);
+        } else if (current == entry) {
+            scheduleExpiration(key, reference, entry.getTimestamp());
+        }
+    }
+
+    /**
+     * 周期扫描任务：增量清理紧凑存储中的过期条目，缓存关闭后不再调度
+     */
+    private void scheduleSweep() {
+        try {
+            expirationScheduler.schedule(currentTimeMillis() + SWEEP_INTERVAL_MILLIS, () -> {
+                if (isClosed()) {
+                    return;
+                }
+                store.sweepExpired(currentTimeMillis(), sweepBatchSize(store.size()), this::handleExpiredEntry);
+                scheduleSweep();
+            });
+        } catch (IllegalStateException e) {
+            // the scheduler has been closed together with the cache manager
+        }
+    }
+
+    /**
+     * 每次扫描检查的槽数量，随条目数量增长
+     *
+     * @param size 当前条目数量
+     */
+    static int sweepBatchSize(long size) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(SWEEP_BATCH_SIZE, size / SWEEP_FRACTION));
+    }
+
+    /**
+     * 当前条目数量
+     */
+    @Override
+    public long size() {
+        return store.size();
     }
 
 }
@@ -1,5 +1,6 @@
 package com.lumm.cache.support.memory;
 
+import cn.hutool.core.convert.Convert;
 import com.lumm.cache.AbstractCacheManager;
 
 import javax.cache.Cache;
@@ -13,6 +14,49 @@ import java.util.Properties;
  */
 public class InMemoryCacheManager extends AbstractCacheManager {
 
+    /**
+     * 配置项前缀：内存缓存
+     */
+    public static final String IN_MEMORY_PROPERTY_PREFIX = "javax.cache.CacheManager.in-memory.";
+
+    /**
+     * 配置项：每个缓存的最大条目数，小于等于0表示不限制
+     */
+    public static final String MAX_ENTRIES_PROPERTY_NAME = IN_MEMORY_PROPERTY_PREFIX + "max-entries";
+
+    /**
+     * 配置项：每个缓存的最大权重，配置后优先于最大条目数，需配合 {@link #WEIGHER_PROPERTY_NAME} 使用
+     */
+    public static final String MAX_WEIGHT_PROPERTY_NAME = IN_MEMORY_PROPERTY_PREFIX + "max-weight";
+
+    /**
+     * 配置项：{@link Weigher} 实现类的全类名
+     */
+    public static final String WEIGHER_PROPERTY_NAME = IN_MEMORY_PROPERTY_PREFIX + "weigher";
+
+    /**
+     * 配置项：淘汰策略 {@link EvictionPolicy}
+     */
+    public static final String EVICTION_POLICY_PROPERTY_NAME = IN_MEMORY_PROPERTY_PREFIX + "eviction-policy";
+
+    /**
+     * 配置项：并发级别，决定锁分段的数量
+     */
+    public static final String CONCURRENCY_LEVEL_PROPERTY_NAME = IN_MEMORY_PROPERTY_PREFIX + "concurrency-level";
+
+    /**
+     * 默认并发级别
+     */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final EvictionPolicy evictionPolicy;
+
+    private final long maximumWeight;
+
+    private final Weigher<Object, Object> weigher;
+
+    private final int concurrencyLevel;
+
     /**
      * 构造
      *
@@ -23,10 +67,38 @@ public class InMemoryCacheManager extends AbstractCacheManager {
      */
     public InMemoryCacheManager(CachingProvider cachingProvider, URI uri, ClassLoader classLoader, Properties properties) {
         super(cachingProvider, uri, classLoader, properties);
+        Properties config = getProperties();
+        this.evictionPolicy = EvictionPolicy.of(config.getProperty(EVICTION_POLICY_PROPERTY_NAME), EvictionPolicy.SLRU);
+        this.concurrencyLevel = Convert.toInt(config.getProperty(CONCURRENCY_LEVEL_PROPERTY_NAME), DEFAULT_CONCURRENCY_LEVEL);
+        String maxWeight = config.getProperty(MAX_WEIGHT_PROPERTY_NAME);
+        if (maxWeight != null) {
+            this.maximumWeight = Convert.toLong(maxWeight, 0L);
+            this.weigher = resolveWeigher(config.getProperty(WEIGHER_PROPERTY_NAME));
+        } else {
+            this.maximumWeight = Convert.toLong(config.getProperty(MAX_ENTRIES_PROPERTY_NAME), 0L);
+            this.weigher = Weigher.SINGLETON;
+        }
+    }
+
+    /**
+     * 根据类名创建 {@link Weigher}，未配置时每个条目权重为1
+     */
+    private Weigher<Object, Object> resolveWeigher(String className) {
+        if (className == null || className.trim().isEmpty()) {
+            return Weigher.SINGLETON;
+        }
+        try {
+            Class<?> weigherClass = getClassLoader().loadClass(className.trim());
+            return (Weigher<Object, Object>) weigherClass.newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException(String.format("配置项[%s]的值[%s]不是有效的%s实现",
+                    WEIGHER_PROPERTY_NAME, className, Weigher.class.getName()), e);
+        }
     }
 
     @Override
     protected <K, V, C extends Configuration<K, V>> Cache doCreateCache(String cacheName, C configuration) {
-        return new InMemoryCache<K, V>(this, cacheName, configuration);
+        return new InMemoryCache<K, V>(this, cacheName, configuration, evictionPolicy, maximumWeight, weigher,
+                concurrencyLevel, getExpirationScheduler());
     }
 }
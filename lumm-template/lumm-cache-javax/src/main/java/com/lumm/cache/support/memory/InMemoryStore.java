@@ -0,0 +1,107 @@
+package com.lumm.cache.support.memory;
+
+import com.lumm.cache.ExpirableEntry;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * 内存缓存的底层存储，实现类必须是线程安全的
+ *
+ * @param <K> 缓存键类型泛型
+ * @param <V> 缓存值类型泛型
+ * @see InMemoryCache
+ */
+public interface InMemoryStore<K, V> {
+
+    /**
+     * 获取条目，同时记录一次访问
+     *
+     * @param key 缓存键
+     * @return <code>null</code> if absent
+     */
+    ExpirableEntry<K, V> get(K key);
+
+    /**
+     * 是否包含条目，不记录访问
+     *
+     * @param key 缓存键
+     * @return <code>true</code> if present
+     */
+    boolean containsKey(K key);
+
+    /**
+     * 放入条目，如果超出容量将按淘汰策略淘汰其他条目
+     *
+     * @param entry 缓存条目
+     * @return 被替换的旧条目，<code>null</code> if absent
+     */
+    ExpirableEntry<K, V> put(ExpirableEntry<K, V> entry);
+
+    /**
+     * 在键所在的锁内原子地计算条目
+     *
+     * @param key               缓存键
+     * @param remappingFunction 入参为当前条目（不存在为<code>null</code>），返回入参本身表示不变更，
+     *                          返回<code>null</code>表示移除，否则为新条目
+     * @return 计算前的条目，<code>null</code> if absent
+     */
+    ExpirableEntry<K, V> compute(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction);
+
+    /**
+     * 移除条目
+     *
+     * @param key 缓存键
+     * @return 被移除的条目，<code>null</code> if absent
+     */
+    ExpirableEntry<K, V> remove(K key);
+
+    /**
+     * 所有缓存键的快照
+     *
+     * @return non-null read-only {@link Set}
+     */
+    Set<K> keySet();
+
+    /**
+     * 惰性遍历所有缓存键，遍历期间的并发修改可能不可见
+     *
+     * @return non-null {@link Iterator}, which does not support {@link Iterator#remove()}
+     */
+    Iterator<K> keyIterator();
+
+    /**
+     * 条目数量
+     */
+    long size();
+
+    /**
+     * {@link #get(Object)} 返回的是否为存储中的同一个条目实例，如果是，对条目的修改（如访问时延长有效期）直接生效，
+     * 否则条目是按需生成的，需要通过 {@link #touch(ExpirableEntry)} 写回
+     */
+    boolean isEntryRetained();
+
+    /**
+     * 写回条目的过期时间戳，仅当键当前对应的值仍是该条目的值时生效
+     *
+     * @param entry 修改了过期时间戳的条目
+     */
+    void touch(ExpirableEntry<K, V> entry);
+
+    /**
+     * 增量清理过期条目，从上次结束的位置继续检查
+     *
+     * @param currentTimeMillis 当前时间戳
+     * @param maxEntries        本次最多检查的条目数量
+     * @param expiredListener   被清理的过期条目回调，在锁之外调用
+     * @return 本次清理的条目数量
+     */
+    int sweepExpired(long currentTimeMillis, int maxEntries, Consumer<ExpirableEntry<K, V>> expiredListener);
+
+    /**
+     * 清空所有条目，不触发淘汰回调
+     */
+    void clear();
+}
@@ -0,0 +1,491 @@
+package com.lumm.cache.support.memory;
+
+import com.lumm.cache.ExpirableEntry;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link InMemoryStore} 实现，基于锁分段：
+ * <ul>
+ *     <li>按键的哈希值将条目分散到多个分段，每个分段持有独立的锁，不同分段的操作互不阻塞</li>
+ *     <li>每个分段按 {@link EvictionPolicy} 维护访问顺序，超出分段容量时淘汰条目并回调淘汰监听器</li>
+ * </ul>
+ *
+ * @param <K> 缓存键类型泛型
+ * @param <V> 缓存值类型泛型
+ */
+public class SegmentedStore<K, V> implements InMemoryStore<K, V> {
+
+    /**
+     * 最大分段数
+     */
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * SLRU 保护区占分段容量的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8d;
+
+    private final Segment<K, V>[] segments;
+
+    private final int segmentShift;
+
+    private final Weigher<? super K, ? super V> weigher;
+
+    /**
+     * 淘汰监听器，在分段锁之外回调
+     */
+    private final Consumer<ExpirableEntry<K, V>> evictionListener;
+
+    /**
+     * 下次清理过期条目的分段
+     */
+    private volatile int sweepIndex;
+
+    /**
+     * 构造
+     *
+     * @param evictionPolicy   淘汰策略
+     * @param maximumWeight    最大权重，小于等于0表示不限制容量
+     * @param weigher          权重计算
+     * @param concurrencyLevel 并发级别，决定分段数量
+     * @param evictionListener 淘汰监听器
+     */
+    public SegmentedStore(EvictionPolicy evictionPolicy, long maximumWeight, Weigher<? super K, ? super V> weigher,
+                          int concurrencyLevel, Consumer<ExpirableEntry<K, V>> evictionListener) {
+        int segmentCount = segmentCount(concurrencyLevel, maximumWeight);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(evictionPolicy, segmentCapacity(maximumWeight, segmentCount, i));
+        }
+    }
+
+    /**
+     * 分段数量为不大于并发级别的2的幂，有容量限制时不超过最大权重，避免分段容量为0
+     */
+    static int segmentCount(int concurrencyLevel, long maximumWeight) {
+        int level = Math.max(1, Math.min(concurrencyLevel, MAX_SEGMENTS));
+        if (maximumWeight > 0) {
+            level = (int) Math.max(1, Math.min(level, maximumWeight));
+        }
+        return Integer.highestOneBit(level);
+    }
+
+    /**
+     * 最大权重平均分给各分段，余数分给前面的分段，各分段容量之和恰好等于最大权重
+     *
+     * @param maximumWeight 最大权重，小于等于0表示不限制容量
+     * @param segmentCount  分段数量，不超过最大权重
+     * @param index         分段下标
+     * @return 分段容量
+     */
+    static long segmentCapacity(long maximumWeight, int segmentCount, int index) {
+        if (maximumWeight <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long capacity = maximumWeight / segmentCount;
+        return index < maximumWeight % segmentCount ? capacity + 1 : capacity;
+    }
+
+    /**
+     * 扰动哈希，避免低质量的 hashCode 集中在少数分段
+     */
+    static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        return segments[spread(key) >>> segmentShift];
+    }
+
+    @Override
+    public ExpirableEntry<K, V> get(K key) {
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return segmentFor(key).containsKey(key);
+    }
+
+    @Override
+    public ExpirableEntry<K, V> put(ExpirableEntry<K, V> entry) {
+        List<ExpirableEntry<K, V>> evicted = new LinkedList<>();
+        ExpirableEntry<K, V> oldEntry = segmentFor(entry.getKey()).put(entry, weigh(entry), evicted);
+        notifyEvicted(evicted);
+        return oldEntry;
+    }
+
+    @Override
+    public ExpirableEntry<K, V> compute(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction) {
+        List<ExpirableEntry<K, V>> evicted = new LinkedList<>();
+        ExpirableEntry<K, V> oldEntry = segmentFor(key).compute(key, remappingFunction, this::weigh, evicted);
+        notifyEvicted(evicted);
+        return oldEntry;
+    }
+
+    @Override
+    public ExpirableEntry<K, V> remove(K key) {
+        return segmentFor(key).remove(key);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new LinkedHashSet<>();
+        for (Segment<K, V> segment : segments) {
+            segment.collectKeys(keys);
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 逐个分段获取键的快照，同一时刻只持有一个分段的键
+     */
+    @Override
+    public Iterator<K> keyIterator() {
+        return new Iterator<K>() {
+
+            private int segmentIndex;
+
+            private Iterator<K> keys = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!keys.hasNext() && segmentIndex < segments.length) {
+                    List<K> segmentKeys = new ArrayList<>();
+                    segments[segmentIndex++].collectKeys(segmentKeys);
+                    keys = segmentKeys.iterator();
+                }
+                return keys.hasNext();
+            }
+
+            @Override
+            public K next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keys.next();
+            }
+        };
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public boolean isEntryRetained() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 条目实例就保存在存储中，时间戳已经直接生效，无需写回
+     */
+    @Override
+    public void touch(ExpirableEntry<K, V> entry) {
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 逐个分段检查，每个分段从试用区和保护区的头部开始
+     */
+    @Override
+    public int sweepExpired(long currentTimeMillis, int maxEntries, Consumer<ExpirableEntry<K, V>> expiredListener) {
+        List<ExpirableEntry<K, V>> expired = new LinkedList<>();
+        int budget = maxEntries;
+        for (int i = 0; i < segments.length && budget > 0; i++) {
+            Segment<K, V> segment = segments[sweepIndex];
+            sweepIndex = (sweepIndex + 1) % segments.length;
+            budget -= segment.sweepExpired(currentTimeMillis, budget, expired);
+        }
+        expired.forEach(expiredListener);
+        return expired.size();
+    }
+
+    private int weigh(ExpirableEntry<K, V> entry) {
+        int weight = weigher.weigh(entry.getKey(), entry.getValue());
+        if (weight < 0) {
+            throw new IllegalArgumentException("条目权重不能为负数：" + weight);
+        }
+        return weight;
+    }
+
+    private void notifyEvicted(List<ExpirableEntry<K, V>> evicted) {
+        if (evictionListener != null) {
+            evicted.forEach(evictionListener);
+        }
+    }
+
+    /**
+     * 存储节点，记录条目及其权重
+     */
+    private static final class Node<K, V> {
+
+        private ExpirableEntry<K, V> entry;
+
+        private int weight;
+
+        private Node(ExpirableEntry<K, V> entry, int weight) {
+            this.entry = entry;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 分段，所有操作在分段锁内完成：
+     * <ul>
+     *     <li>{@link EvictionPolicy#LRU}：只使用试用区，按访问顺序淘汰</li>
+     *     <li>{@link EvictionPolicy#SLRU}：试用区中的条目被再次访问时晋升到保护区，保护区超出容量时降级回试用区</li>
+     * </ul>
+     */
+    private static final class Segment<K, V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final EvictionPolicy evictionPolicy;
+
+        private final long capacity;
+
+        private final long protectedCapacity;
+
+        /**
+         * 试用区，按访问顺序排列，头部为最久未访问的条目
+         */
+        private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * 保护区，按访问顺序排列，仅 {@link EvictionPolicy#SLRU} 使用
+         */
+        private final LinkedHashMap<K, Node<K, V>> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long weight;
+
+        private long protectedWeight;
+
+        private Segment(EvictionPolicy evictionPolicy, long capacity) {
+            this.evictionPolicy = evictionPolicy;
+            this.capacity = capacity;
+            this.protectedCapacity = capacity == Long.MAX_VALUE ? Long.MAX_VALUE : (long) (capacity * PROTECTED_RATIO);
+        }
+
+        private ExpirableEntry<K, V> get(K key) {
+            lock.lock();
+            try {
+                Node<K, V> node = protectedArea.get(key);
+                if (node == null) {
+                    node = probation.get(key);
+                    if (node != null && evictionPolicy == EvictionPolicy.SLRU) {
+                        promote(key, node);
+                    }
+                }
+                return node == null ? null : node.entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean containsKey(K key) {
+            lock.lock();
+            try {
+                return probation.containsKey(key) || protectedArea.containsKey(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpirableEntry<K, V> put(ExpirableEntry<K, V> entry, int entryWeight, List<ExpirableEntry<K, V>> evicted) {
+            K key = entry.getKey();
+            lock.lock();
+            try {
+                ExpirableEntry<K, V> oldEntry = null;
+                Node<K, V> node = protectedArea.get(key);
+                if (node != null) {
+                    protectedWeight += entryWeight - node.weight;
+                } else {
+                    node = probation.get(key);
+                }
+                if (node != null) {
+                    oldEntry = node.entry;
+                    weight += entryWeight - node.weight;
+                    node.entry = entry;
+                    node.weight = entryWeight;
+                } else {
+                    probation.put(key, new Node<>(entry, entryWeight));
+                    weight += entryWeight;
+                }
+                evict(evicted);
+                return oldEntry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpirableEntry<K, V> compute(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction,
+                                             ToIntFunction<ExpirableEntry<K, V>> weigher,
+                                             List<ExpirableEntry<K, V>> evicted) {
+            lock.lock();
+            try {
+                Node<K, V> node = protectedArea.get(key);
+                if (node == null) {
+                    node = probation.get(key);
+                }
+                ExpirableEntry<K, V> current = node == null ? null : node.entry;
+                ExpirableEntry<K, V> result = remappingFunction.apply(current);
+                if (result == current) {
+                    return current;
+                }
+                if (result == null) {
+                    remove(key);
+                } else {
+                    put(result, weigher.applyAsInt(result), evicted);
+                }
+                return current;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExpirableEntry<K, V> remove(K key) {
+            lock.lock();
+            try {
+                Node<K, V> node = protectedArea.remove(key);
+                if (node != null) {
+                    protectedWeight -= node.weight;
+                } else {
+                    node = probation.remove(key);
+                }
+                if (node == null) {
+                    return null;
+                }
+                weight -= node.weight;
+                return node.entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void collectKeys(Collection<K> keys) {
+            lock.lock();
+            try {
+                keys.addAll(protectedArea.keySet());
+                keys.addAll(probation.keySet());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return probation.size() + protectedArea.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                probation.clear();
+                protectedArea.clear();
+                weight = 0;
+                protectedWeight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 移除过期条目
+         *
+         * @return 检查的条目数量
+         */
+        private int sweepExpired(long currentTimeMillis, int maxEntries, List<ExpirableEntry<K, V>> expired) {
+            lock.lock();
+            try {
+                int checked = 0;
+                for (LinkedHashMap<K, Node<K, V>> area : Arrays.asList(probation, protectedArea)) {
+                    Iterator<Node<K, V>> iterator = area.values().iterator();
+                    while (checked < maxEntries && iterator.hasNext()) {
+                        Node<K, V> node = iterator.next();
+                        checked++;
+                        if (node.entry.isExpired(currentTimeMillis)) {
+                            iterator.remove();
+                            weight -= node.weight;
+                            if (area == protectedArea) {
+                                protectedWeight -= node.weight;
+                            }
+                            expired.add(node.entry);
+                        }
+                    }
+                }
+                return checked;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 试用区条目晋升到保护区，保护区超出容量时将其最久未访问的条目降级回试用区
+         */
+        private void promote(K key, Node<K, V> node) {
+            probation.remove(key);
+            protectedArea.put(key, node);
+            protectedWeight += node.weight;
+            while (protectedWeight > protectedCapacity && !protectedArea.isEmpty()) {
+                Map.Entry<K, Node<K, V>> eldest = protectedArea.entrySet().iterator().next();
+                protectedArea.remove(eldest.getKey());
+                protectedWeight -= eldest.getValue().weight;
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+        }
+
+        /**
+         * 超出容量时先淘汰试用区，再淘汰保护区
+         */
+        private void evict(List<ExpirableEntry<K, V>> evicted) {
+            while (weight > capacity) {
+                LinkedHashMap<K, Node<K, V>> victims = probation.isEmpty() ? protectedArea : probation;
+                if (victims.isEmpty()) {
+                    break;
+                }
+                Iterator<Node<K, V>> iterator = victims.values().iterator();
+                Node<K, V> victim = iterator.next();
+                iterator.remove();
+                weight -= victim.weight;
+                if (victims == protectedArea) {
+                    protectedWeight -= victim.weight;
+                }
+                evicted.add(victim.entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.lumm.cache.support.memory;
+
+/**
+ * 缓存条目权重计算，用于按权重限制内存缓存容量
+ *
+ * @param <K> 缓存键类型泛型
+ * @param <V> 缓存值类型泛型
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * 每个条目权重为 1，此时最大权重即为最大条目数
+     */
+    Weigher<Object, Object> SINGLETON = (key, value) -> 1;
+
+    /**
+     * 计算条目权重
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     * @return 非负的权重
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,120 @@
+package com.lumm.cache.support.offheap;
+
+import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.serialization.Serializers;
+import com.lumm.cache.serialization.binary.BinaryInput;
+import com.lumm.cache.serialization.binary.BinaryOutput;
+import com.lumm.cache.support.AbstractSerializedCache;
+
+import javax.cache.CacheException;
+import javax.cache.configuration.Configuration;
+import java.io.File;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * 缓存实现，基于堆外内存，线程安全
+ * <p>
+ * 值经 {@link Serializers} 序列化后保存在 {@link OffHeapStore} 的堆外内存块中，堆内只保留键和位置索引，
+ * 适合大量、长期驻留的数据，避免增加 GC 停顿；容量写满时按内存块 FIFO 淘汰，淘汰与命中等统计通过
+ * {@link com.lumm.cache.management.CacheStatistics} 暴露，堆外内存的使用量通过 {@link #getUsedBytes()} 等方法获取
+ * <p>
+ * 过期条目在访问时清理，或随所在内存块被回收
+ *
+ * @see OffHeapCacheManager
+ */
+public class OffHeapCache<K, V> extends AbstractSerializedCache<K, V> {
+
+    private final OffHeapStore<K> store;
+
+    /**
+     * 构造
+     *
+     * @param cacheManager  缓存管理器
+     * @param cacheName     缓存名
+     * @param configuration 缓存配置
+     * @param capacity      容量，单位字节
+     * @param slabSize      内存块大小，单位字节
+     * @param directory     内存映射文件的目录，<code>null</code> 表示使用直接内存
+     */
+    public OffHeapCache(OffHeapCacheManager cacheManager, String cacheName, Configuration<K, V> configuration,
+                        long capacity, int slabSize, File directory) {
+        super(cacheManager, cacheName, configuration);
+        this.store = new OffHeapStore<>(cacheName, capacity, slabSize, directory,
+                (key, pointer) -> handleEvictedEntry(ExpirableEntry.of(key, null)));
+    }
+
+    @Override
+    protected boolean containsEntry(K key) throws CacheException, ClassCastException {
+        return store.containsKey(key);
+    }
+
+    @Override
+    protected ExpirableEntry<K, V> getEntry(K key) throws CacheException, ClassCastException {
+        // decode straight from the reusable thread local buffer
+        return toEntry(key, store.get(key, BinaryInput::localBuffer));
+    }
+
+    @Override
+    protected Set<K> keySet() {
+        return store.keySet();
+    }
+
+    @Override
+    protected Iterator<K> keyIterator() {
+        return store.keySet().iterator();
+    }
+
+    /**
+     * 与 {@link #computeEntry} 使用同一个监视器，保证写入不会穿插在计算之间
+     */
+    @Override
+    protected synchronized void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        BinaryOutput output = serializeValue(entry.getValue());
+        store.put(entry.getKey(), output.array(), 0, output.size(), entry.getTimestamp());
+    }
+
+    @Override
+    protected synchronized ExpirableEntry<K, V> removeEntry(K key) throws CacheException, ClassCastException {
+        return toEntry(key, store.remove(key));
+    }
+
+    @Override
+    protected synchronized void clearEntries() throws CacheException {
+        store.clear();
+    }
+
+    @Override
+    protected void doClose() {
+        store.close();
+    }
+
+    /**
+     * 当前条目数量
+     */
+    @Override
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * 有效条目占用的堆外字节数
+     */
+    public long getUsedBytes() {
+        return store.getUsedBytes();
+    }
+
+    /**
+     * 已分配的堆外字节数
+     */
+    public long getAllocatedBytes() {
+        return store.getAllocatedBytes();
+    }
+
+    /**
+     * 容量，单位字节
+     */
+    public long getCapacity() {
+        return store.getCapacity();
+    }
+}
@@ -0,0 +1,71 @@
+package com.lumm.cache.support.offheap;
+
+import cn.hutool.core.convert.Convert;
+import com.lumm.cache.AbstractCacheManager;
+
+import javax.cache.Cache;
+import javax.cache.configuration.Configuration;
+import javax.cache.spi.CachingProvider;
+import java.io.File;
+import java.net.URI;
+import java.util.Properties;
+
+/**
+ * 缓存管理器实现 - 基于堆外内存
+ * <p>
+ * 每个缓存独占一个 {@link OffHeapStore}，容量按缓存计算
+ */
+public class OffHeapCacheManager extends AbstractCacheManager {
+
+    /**
+     * 配置项前缀：堆外缓存
+     */
+    public static final String OFF_HEAP_PROPERTY_PREFIX = "javax.cache.CacheManager.offheap.";
+
+    /**
+     * 配置项：每个缓存的容量，单位字节
+     */
+    public static final String CAPACITY_PROPERTY_NAME = OFF_HEAP_PROPERTY_PREFIX + "capacity";
+
+    /**
+     * 配置项：内存块大小，单位字节，也是单个条目的最大字节数
+     */
+    public static final String SLAB_SIZE_PROPERTY_NAME = OFF_HEAP_PROPERTY_PREFIX + "slab-size";
+
+    /**
+     * 配置项：内存映射文件的目录，未配置时使用直接内存
+     */
+    public static final String DIRECTORY_PROPERTY_NAME = OFF_HEAP_PROPERTY_PREFIX + "directory";
+
+    public static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+    public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    private final long capacity;
+
+    private final int slabSize;
+
+    private final File directory;
+
+    /**
+     * 构造
+     *
+     * @param cachingProvider 缓存提供者
+     * @param uri             uri
+     * @param classLoader     类加载器
+     * @param properties      配置
+     */
+    public OffHeapCacheManager(CachingProvider cachingProvider, URI uri, ClassLoader classLoader, Properties properties) {
+        super(cachingProvider, uri, classLoader, properties);
+        Properties config = getProperties();
+        this.capacity = Convert.toLong(config.getProperty(CAPACITY_PROPERTY_NAME), DEFAULT_CAPACITY);
+        this.slabSize = Convert.toInt(config.getProperty(SLAB_SIZE_PROPERTY_NAME), DEFAULT_SLAB_SIZE);
+        String directory = config.getProperty(DIRECTORY_PROPERTY_NAME);
+        this.directory = directory == null || directory.trim().isEmpty() ? null : new File(directory.trim());
+    }
+
+    @Override
+    protected <K, V, C extends Configuration<K, V>> Cache doCreateCache(String cacheName, C configuration) {
+        return new OffHeapCache<K, V>(this, cacheName, configuration, capacity, slabSize, directory);
+    }
+}
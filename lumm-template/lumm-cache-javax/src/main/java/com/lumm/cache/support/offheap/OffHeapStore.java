@@ -0,0 +1,450 @@
+package com.lumm.cache.support.offheap;
+
+import com.lumm.cache.support.ValuePointer;
+import com.lumm.cache.util.FileNameUtils;
+
+import javax.cache.CacheException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * 堆外存储，序列化后的值按追加方式写入固定大小的堆外内存块（slab），堆内只保留键到 {@link Pointer} 的索引：
+ * <ul>
+ *     <li>内存块为直接内存，或指定目录时为内存映射文件，不受 GC 扫描</li>
+ *     <li>覆盖或删除只更新索引，旧数据留在原内存块中，直到该内存块被回收</li>
+ *     <li>所有内存块写满后按 FIFO 回收最早写入的内存块，其中仍然有效的条目被淘汰</li>
+ * </ul>
+ * 读写共用一把读写锁，读取只复制字节，反序列化在锁外完成
+ *
+ * @param <K> 缓存键类型泛型
+ */
+public class OffHeapStore<K> implements AutoCloseable {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<K, Pointer> index = new HashMap<>();
+
+    private final int slabSize;
+
+    private final ByteBuffer[] slabs;
+
+    /**
+     * 每个内存块中写入过的键，回收内存块时据此清理索引
+     */
+    private final List<K>[] slabKeys;
+
+    /**
+     * 内存映射文件的目录，<code>null</code> 表示使用直接内存
+     */
+    private final File directory;
+
+    /**
+     * 内存映射文件名的前缀，即编码后的名称
+     *
+     * @see FileNameUtils#encode(String)
+     */
+    private final String fileName;
+
+    /**
+     * 淘汰监听器，在锁之外回调，参数为键和被淘汰条目的指针
+     */
+    private final BiConsumer<K, Pointer> evictionListener;
+
+    /**
+     * 当前写入的内存块
+     */
+    private int currentSlab = -1;
+
+    /**
+     * 当前内存块的写入位置
+     */
+    private int writeOffset;
+
+    /**
+     * 已分配的内存块数量
+     */
+    private int allocatedSlabs;
+
+    /**
+     * 有效条目占用的字节数
+     */
+    private long usedBytes;
+
+    private boolean closed;
+
+    /**
+     * 构造
+     *
+     * @param name             名称，编码后用于内存映射文件名
+     * @param capacity         容量，单位字节，向上取整为内存块大小的整数倍，至少两个内存块
+     * @param slabSize         内存块大小，单位字节，也是单个条目的最大字节数
+     * @param directory        内存映射文件的目录，<code>null</code> 表示使用直接内存
+     * @param evictionListener 淘汰监听器
+     */
+    public OffHeapStore(String name, long capacity, int slabSize, File directory, BiConsumer<K, Pointer> evictionListener) {
+        if (slabSize < 1) {
+            throw new IllegalArgumentException("内存块大小必须大于0：" + slabSize);
+        }
+        long slabCount = Math.max(2, (capacity + slabSize - 1) / slabSize);
+        if (slabCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("内存块数量过多：" + slabCount);
+        }
+        this.fileName = FileNameUtils.encode(name);
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[(int) slabCount];
+        this.slabKeys = new List[(int) slabCount];
+        this.directory = directory;
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * 读取键对应的指针与值的字节
+     *
+     * @param key 键
+     * @return <code>null</code> if absent
+     */
+    public Map.Entry<Pointer, byte[]> get(K key) {
+        return get(key, byte[]::new);
+    }
+
+    /**
+     * 读取键对应的指针，并把值的字节复制到 bufferFactory 提供的数组的开头，
+     * 调用方可以提供复用的数组，避免每次读取分配新的数组
+     *
+     * @param key           键
+     * @param bufferFactory 按值的字节数提供目标数组，数组长度不能小于该字节数
+     * @return 指针与目标数组，有效长度为 {@link Pointer#getLength()}，<code>null</code> if absent
+     */
+    public Map.Entry<Pointer, byte[]> get(K key, IntFunction<byte[]> bufferFactory) {
+        lock.readLock().lock();
+        try {
+            Pointer pointer = index.get(key);
+            if (pointer == null) {
+                return null;
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(pointer, read(pointer, bufferFactory.apply(pointer.length)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(K key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入值的字节
+     *
+     * @param key       键
+     * @param bytes     值的字节
+     * @param timestamp 过期时间戳
+     * @return 被覆盖的条目的指针与值的字节，<code>null</code> 表示之前不存在
+     * @throws CacheException 如果值的字节数超过内存块大小
+     */
+    public Map.Entry<Pointer, byte[]> put(K key, byte[] bytes, long timestamp) throws CacheException {
+        Map.Entry<Pointer, byte[]>[] previous = new Map.Entry[1];
+        put(key, bytes, 0, bytes.length, timestamp, pointer -> previous[0] =
+                new AbstractMap.SimpleImmutableEntry<>(pointer, read(pointer, new byte[pointer.length])));
+        return previous[0];
+    }
+
+    /**
+     * 写入字节数组区间中的值，不读取被覆盖的值
+     *
+     * @param key       键
+     * @param bytes     字节数组，如 {@link com.lumm.cache.serialization.binary.BinaryOutput#array()}
+     * @param offset    值的起始位置
+     * @param length    值的字节数
+     * @param timestamp 过期时间戳
+     * @return 被覆盖的条目的指针，<code>null</code> 表示之前不存在
+     * @throws CacheException 如果值的字节数超过内存块大小
+     */
+    public Pointer put(K key, byte[] bytes, int offset, int length, long timestamp) throws CacheException {
+        Pointer[] previous = new Pointer[1];
+        put(key, bytes, offset, length, timestamp, pointer -> previous[0] = pointer);
+        return previous[0];
+    }
+
+    /**
+     * @param replacedConsumer 在写锁内接收被覆盖的条目的指针，此时其字节仍然可以读取
+     */
+    private void put(K key, byte[] bytes, int offset, int length, long timestamp,
+                     Consumer<Pointer> replacedConsumer) throws CacheException {
+        if (length > slabSize) {
+            throw new CacheException(String.format("条目大小[%d]超过了内存块大小[%d]", length, slabSize));
+        }
+        Map<K, Pointer> evicted = new LinkedHashMap<>();
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (currentSlab < 0 || writeOffset + length > slabSize) {
+                nextSlab(evicted);
+            }
+            Pointer pointer = new Pointer(currentSlab, writeOffset, length, timestamp);
+            ByteBuffer buffer = slabs[currentSlab].duplicate();
+            buffer.position(writeOffset);
+            buffer.put(bytes, offset, length);
+            writeOffset += length;
+            slabKeys[currentSlab].add(key);
+            usedBytes += length;
+            Pointer oldPointer = index.put(key, pointer);
+            if (oldPointer != null) {
+                usedBytes -= oldPointer.length;
+                replacedConsumer.accept(oldPointer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * 删除键
+     *
+     * @return 被删除的条目的指针与值的字节，<code>null</code> 表示不存在
+     */
+    public Map.Entry<Pointer, byte[]> remove(K key) {
+        lock.writeLock().lock();
+        try {
+            Pointer pointer = index.remove(key);
+            return pointer == null ? null : release(pointer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 仅当键当前对应的仍是该指针时删除
+     */
+    public boolean remove(K key, Pointer pointer) {
+        lock.writeLock().lock();
+        try {
+            if (index.get(key) != pointer) {
+                return false;
+            }
+            index.remove(key);
+            usedBytes -= pointer.length;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 键的快照
+     */
+    public Set<K> keySet() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashSet<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 清空所有条目，已分配的内存块保留复用
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (List<K> keys : slabKeys) {
+                if (keys != null) {
+                    keys.clear();
+                }
+            }
+            currentSlab = -1;
+            writeOffset = 0;
+            usedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 有效条目占用的堆外字节数
+     */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已分配的堆外字节数
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) allocatedSlabs * slabSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 容量，单位字节
+     */
+    public long getCapacity() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * 释放所有内存块的引用，直接内存在缓冲区对象被回收后释放，内存映射文件被删除
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            index.clear();
+            Arrays.fill(slabs, null);
+            Arrays.fill(slabKeys, null);
+            if (directory != null) {
+                for (int i = 0; i < allocatedSlabs; i++) {
+                    slabFile(i).delete();
+                }
+            }
+            usedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The OffHeapStore has been closed!");
+        }
+    }
+
+    private byte[] read(Pointer pointer, byte[] bytes) {
+        ByteBuffer buffer = slabs[pointer.slab].duplicate();
+        buffer.position(pointer.offset);
+        buffer.get(bytes, 0, pointer.length);
+        return bytes;
+    }
+
+    /**
+     * 读取被覆盖或删除的条目，并扣减有效字节数
+     */
+    private Map.Entry<Pointer, byte[]> release(Pointer pointer) {
+        usedBytes -= pointer.length;
+        return new AbstractMap.SimpleImmutableEntry<>(pointer, read(pointer, new byte[pointer.length]));
+    }
+
+    /**
+     * 切换到下一个内存块，尚未分配时分配，否则回收其中仍然有效的条目
+     */
+    private void nextSlab(Map<K, Pointer> evicted) {
+        int slab = (currentSlab + 1) % slabs.length;
+        if (slabs[slab] == null) {
+            slabs[slab] = allocate(slab);
+            slabKeys[slab] = new ArrayList<>();
+            allocatedSlabs++;
+        } else {
+            for (K key : slabKeys[slab]) {
+                Pointer pointer = index.get(key);
+                if (pointer != null && pointer.slab == slab) {
+                    index.remove(key);
+                    usedBytes -= pointer.length;
+                    evicted.put(key, pointer);
+                }
+            }
+            slabKeys[slab].clear();
+        }
+        currentSlab = slab;
+        writeOffset = 0;
+    }
+
+    private ByteBuffer allocate(int slab) {
+        if (directory == null) {
+            return ByteBuffer.allocateDirect(slabSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new CacheException("无法创建目录：" + directory);
+        }
+        File file = slabFile(slab);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, slabSize);
+        } catch (IOException e) {
+            throw new CacheException("无法映射文件：" + file, e);
+        }
+    }
+
+    private File slabFile(int slab) {
+        return new File(directory, fileName + "-" + slab + ".slab");
+    }
+
+    private void notifyEvicted(Map<K, Pointer> evicted) {
+        if (evictionListener != null) {
+            evicted.forEach(evictionListener);
+        }
+    }
+
+    /**
+     * 条目在堆外内存中的位置，过期时间戳保存在堆内，访问时延长有效期不需要重写堆外数据
+     */
+    public static final class Pointer implements ValuePointer {
+
+        private final int slab;
+
+        private final int offset;
+
+        private final int length;
+
+        private volatile long timestamp;
+
+        private Pointer(int slab, int offset, int length, long timestamp) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public void setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+        }
+    }
+}
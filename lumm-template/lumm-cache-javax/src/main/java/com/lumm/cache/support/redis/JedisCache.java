@@ -1,33 +1,78 @@
 package com.lumm.cache.support.redis;
 
+import cn.hutool.crypto.digest.DigestUtil;
 import com.lumm.cache.AbstractCache;
 import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.serialization.BufferedDeserializer;
+import com.lumm.cache.serialization.BufferedSerializer;
 import com.lumm.cache.serialization.Deserializer;
 import com.lumm.cache.serialization.Deserializers;
 import com.lumm.cache.serialization.Serializer;
 import com.lumm.cache.serialization.Serializers;
+import com.lumm.cache.serialization.binary.BinaryOutput;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.params.SetParams;
 
 import javax.cache.CacheException;
 import javax.cache.configuration.Configuration;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import static redis.clients.jedis.params.SetParams.setParams;
 
 /**
  * 缓存实现，依赖redis，基于Jedis
+ * <p>
+ * {@link Jedis} 不是线程安全的，每次操作（批量操作、乐观锁重试视为一次操作）从 {@link JedisPool} 借用连接，用完即归还
  *
  * @param <K>
  * @param <V>
  */
 public class JedisCache<K extends Serializable, V extends Serializable> extends AbstractCache<K, V> {
 
-    private final Jedis jedis;
+    /**
+     * 比较并交换脚本：仅当键的当前值与期望值相同（ARGV[1]为空表示期望键不存在）时，
+     * 写入新值（ARGV[2]为空表示删除，ARGV[3]为过期毫秒数，ARGV[4]为'1'表示永不过期，此时忽略ARGV[3]）
+     */
+    private static final byte[] COMPARE_AND_SET_SCRIPT = ("local current = redis.call('GET', KEYS[1]) " +
+            "if ARGV[1] == '' then if current then return 0 end " +
+            "elseif current ~= ARGV[1] then return 0 end " +
+            "if ARGV[2] == '' then redis.call('DEL', KEYS[1]) " +
+            "elseif ARGV[4] == '1' then redis.call('SET', KEYS[1], ARGV[2]) " +
+            "else redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) end " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 比较并交换脚本的 SHA1，通过 EVALSHA 执行，服务端没有缓存该脚本时改用 EVAL 并由服务端缓存
+     */
+    private static final byte[] COMPARE_AND_SET_SCRIPT_SHA1 =
+            DigestUtil.sha1Hex(COMPARE_AND_SET_SCRIPT).getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 比较并交换的最大尝试次数，键被持续并发修改时放弃
+     */
+    private static final int MAX_COMPARE_AND_SET_ATTEMPTS = 16;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final byte[] ETERNAL_FLAG = {'1'};
+
+    private static final byte[] EXPIRABLE_FLAG = {'0'};
+
+    private final JedisPool jedisPool;
 
     private final Serializers serializers;
 
@@ -37,20 +82,46 @@ public class JedisCache<K extends Serializable, V extends Serializable> extends
 
     private final int keyPrefixBytesLength;
 
+    /**
+     * SCAN 匹配当前缓存所有键的模式
+     */
+    private final byte[] keyPatternBytes;
+
+    /**
+     * 每次 SCAN 的 COUNT 提示值
+     */
+    private final int scanCount;
+
+    /**
+     * 服务端是否支持 GETDEL，首次收到未知命令的错误后不再尝试
+     */
+    private volatile boolean getDelSupported = true;
+
+    /**
+     * 构造
+     *
+     * @param jedisCacheManager 缓存管理器
+     * @param cacheName         缓存名
+     * @param configuration     缓存配置
+     * @param jedisPool         连接池
+     * @param scanCount         每次 SCAN 的 COUNT 提示值
+     */
     public JedisCache(JedisCacheManager jedisCacheManager, String cacheName,
-                      Configuration<K, V> configuration, Jedis jedis) {
+                      Configuration<K, V> configuration, JedisPool jedisPool, int scanCount) {
         super(jedisCacheManager, cacheName, configuration);
-        this.jedis = jedis;
+        this.jedisPool = jedisPool;
         this.serializers = jedisCacheManager.getSerializers();
         this.deserializers = jedisCacheManager.getDeserializers();
         this.keyPrefixBytes = buildKeyPrefixBytes(cacheName);
         this.keyPrefixBytesLength = keyPrefixBytes.length;
+        this.keyPatternBytes = buildKeyPatternBytes(cacheName);
+        this.scanCount = scanCount;
     }
 
     @Override
     protected boolean containsEntry(K key) throws CacheException, ClassCastException {
         byte[] keyBytes = getKeyBytes(key);
-        return jedis.exists(keyBytes);
+        return execute(jedis -> jedis.exists(keyBytes));
     }
 
     @Override
@@ -60,52 +131,336 @@ public class JedisCache<K extends Serializable, V extends Serializable> extends
     }
 
     protected ExpirableEntry<K, V> getEntry(byte[] keyBytes) throws CacheException, ClassCastException {
-        byte[] valueBytes = jedis.get(keyBytes);
+        byte[] valueBytes = execute(jedis -> jedis.get(keyBytes));
         return deserialize(valueBytes, ExpirableEntry.class);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于 MGET，一次往返完成
+     */
+    @Override
+    protected Map<K, ExpirableEntry<K, V>> getEntries(Set<? extends K> keys) throws CacheException, ClassCastException {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        byte[][] keysBytes = getKeysBytes(keyList);
+        List<byte[]> valuesBytes = execute(jedis -> jedis.mget(keysBytes));
+        Map<K, ExpirableEntry<K, V>> entries = new LinkedHashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            ExpirableEntry<K, V> entry = deserialize(valuesBytes.get(i), ExpirableEntry.class);
+            if (entry != null) {
+                entries.put(keyList.get(i), entry);
+            }
+        }
+        return entries;
+    }
+
     @Override
     protected void putEntry(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
         byte[] keyBytes = getKeyBytes(entry.getKey());
-        byte[] valueBytes = serialize(entry);
         if (entry.isEternal()) {
-            jedis.set(keyBytes, valueBytes);
-        } else {
-            jedis.set(keyBytes, valueBytes, setParams().px(entry.getExpiredTime()));
+            byte[] valueBytes = serialize(entry);
+            execute(jedis -> jedis.set(keyBytes, valueBytes));
+            return;
+        }
+        // read the clock once, so the checked and the sent expiration agree
+        long remaining = entry.getExpiredTime(currentTimeMillis());
+        if (remaining < 1) {
+            execute(jedis -> jedis.del(keyBytes));
+            return;
+        }
+        byte[] valueBytes = serialize(entry);
+        execute(jedis -> jedis.set(keyBytes, valueBytes, setParams().px(remaining)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于管道批量 SET [PX]，一次往返完成
+     */
+    @Override
+    protected void putEntries(Collection<ExpirableEntry<K, V>> entries) throws CacheException, ClassCastException {
+        if (entries.isEmpty()) {
+            return;
         }
+        long now = currentTimeMillis();
+        execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            for (ExpirableEntry<K, V> entry : entries) {
+                byte[] keyBytes = getKeyBytes(entry.getKey());
+                long remaining = entry.getExpiredTime(now);
+                if (entry.isEternal()) {
+                    pipeline.set(keyBytes, serialize(entry));
+                } else if (remaining < 1) {
+                    pipeline.unlink(keyBytes);
+                } else {
+                    pipeline.set(keyBytes, serialize(entry), setParams().px(remaining));
+                }
+            }
+            pipeline.sync();
+            return null;
+        });
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于 SET NX [PX]，一次命令完成
+     */
+    @Override
+    protected boolean putEntryIfAbsent(ExpirableEntry<K, V> entry) throws CacheException, ClassCastException {
+        byte[] keyBytes = getKeyBytes(entry.getKey());
+        SetParams params = setParams().nx();
+        if (!entry.isEternal()) {
+            params.px(Math.max(1L, entry.getExpiredTime(currentTimeMillis())));
+        }
+        byte[] valueBytes = serialize(entry);
+        return execute(jedis -> jedis.set(keyBytes, valueBytes, params)) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于管道批量 SET NX [PX]，一次往返完成
+     */
+    @Override
+    protected Set<K> putEntriesIfAbsent(Collection<ExpirableEntry<K, V>> entries)
+            throws CacheException, ClassCastException {
+        if (entries.isEmpty()) {
+            return Collections.emptySet();
+        }
+        long now = currentTimeMillis();
+        Map<K, Response<String>> responses = execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Map<K, Response<String>> pipelined = new LinkedHashMap<>();
+            for (ExpirableEntry<K, V> entry : entries) {
+                SetParams params = setParams().nx();
+                if (!entry.isEternal()) {
+                    long remaining = entry.getExpiredTime(now);
+                    if (remaining < 1) {
+                        continue;
+                    }
+                    params.px(remaining);
+                }
+                pipelined.put(entry.getKey(), pipeline.set(getKeyBytes(entry.getKey()), serialize(entry), params));
+            }
+            pipeline.sync();
+            return pipelined;
+        });
+        Set<K> putKeys = new LinkedHashSet<>();
+        responses.forEach((key, response) -> {
+            if (response.get() != null) {
+                putKeys.add(key);
+            }
+        });
+        return putKeys;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于乐观锁：读取当前值后，通过比较并交换脚本写入，当前值被并发修改时重试，
+     * 超过 {@value #MAX_COMPARE_AND_SET_ATTEMPTS} 次仍未成功时抛出 {@link CacheException}
+     */
+    @Override
+    protected ExpirableEntry<K, V> computeEntry(K key, UnaryOperator<ExpirableEntry<K, V>> remappingFunction)
+            throws CacheException, ClassCastException {
+        byte[] keyBytes = getKeyBytes(key);
+        return execute(jedis -> {
+            for (int attempt = 0; attempt < MAX_COMPARE_AND_SET_ATTEMPTS; attempt++) {
+                byte[] currentBytes = jedis.get(keyBytes);
+                ExpirableEntry<K, V> current = deserialize(currentBytes, ExpirableEntry.class);
+                ExpirableEntry<K, V> result = remappingFunction.apply(current);
+                if (result == current) {
+                    return current;
+                }
+                byte[] expected = currentBytes == null ? EMPTY_BYTES : currentBytes;
+                byte[] update = EMPTY_BYTES;
+                long remaining = 0L;
+                if (result != null) {
+                    // read the clock once, an entry expiring in between is removed rather than stored as eternal
+                    remaining = result.isEternal() ? Long.MAX_VALUE : result.getExpiredTime(currentTimeMillis());
+                    if (remaining >= 1) {
+                        update = serialize(result);
+                    }
+                }
+                Object swapped = compareAndSet(jedis, keyBytes, expected, update,
+                        result != null && result.isEternal(), remaining);
+                if (Long.valueOf(1L).equals(swapped)) {
+                    return current;
+                }
+            }
+            throw new CacheException("The entry of key : " + key + " is modified concurrently, gave up after "
+                    + MAX_COMPARE_AND_SET_ATTEMPTS + " attempts");
+        });
+    }
+
+    private Object compareAndSet(Jedis jedis, byte[] keyBytes, byte[] expected, byte[] update, boolean eternal,
+                                 long remaining) {
+        List<byte[]> keys = Collections.singletonList(keyBytes);
+        List<byte[]> args = Arrays.asList(expected, update,
+                String.valueOf(eternal ? 0L : Math.max(1L, remaining)).getBytes(StandardCharsets.UTF_8),
+                eternal ? ETERNAL_FLAG : EXPIRABLE_FLAG);
+        try {
+            return jedis.evalsha(COMPARE_AND_SET_SCRIPT_SHA1, keys, args);
+        } catch (JedisNoScriptException e) {
+            // the script cache of the server is empty after a restart or SCRIPT FLUSH
+            return jedis.eval(COMPARE_AND_SET_SCRIPT, keys, args);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于 GETDEL，一次命令完成；GETDEL 需要 redis 6.2 及以上版本，更早的版本改用事务内的 GET 和 DEL
+     */
     @Override
     protected ExpirableEntry<K, V> removeEntry(K key) throws CacheException, ClassCastException {
         byte[] keyBytes = getKeyBytes(key);
-        ExpirableEntry<K, V> oldEntry = getEntry(keyBytes);
-        jedis.del(keyBytes);
-        return oldEntry;
+        return deserialize(execute(jedis -> getDel(jedis, keyBytes)), ExpirableEntry.class);
+    }
+
+    private byte[] getDel(Jedis jedis, byte[] keyBytes) {
+        if (getDelSupported) {
+            try {
+                return jedis.getDel(keyBytes);
+            } catch (JedisDataException e) {
+                String message = e.getMessage();
+                if (message == null || !message.toLowerCase(Locale.ROOT).contains("unknown command")) {
+                    throw e;
+                }
+                // the server is older than redis 6.2
+                getDelSupported = false;
+            }
+        }
+        Transaction transaction = jedis.multi();
+        Response<byte[]> response = transaction.get(keyBytes);
+        transaction.del(keyBytes);
+        transaction.exec();
+        return response.get();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于事务内的 MGET 和 UNLINK，一次往返完成，旧值的读取与删除之间不会被其他客户端插入
+     */
     @Override
-    protected void clearEntries() throws CacheException {
-        Set<byte[]> keysBytes = jedis.keys(keyPrefixBytes);
-        for (byte[] keyBytes : keysBytes) {
-            jedis.del(keyBytes);
+    protected Map<K, ExpirableEntry<K, V>> removeEntries(Set<? extends K> keys) throws CacheException, ClassCastException {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        byte[][] keysBytes = getKeysBytes(keyList);
+        List<byte[]> valuesBytes = execute(jedis -> {
+            Transaction transaction = jedis.multi();
+            Response<List<byte[]>> response = transaction.mget(keysBytes);
+            transaction.unlink(keysBytes);
+            transaction.exec();
+            return response.get();
+        });
+        Map<K, ExpirableEntry<K, V>> entries = new LinkedHashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            ExpirableEntry<K, V> entry = deserialize(valuesBytes.get(i), ExpirableEntry.class);
+            if (entry != null) {
+                entries.put(keyList.get(i), entry);
+            }
         }
+        return entries;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于 SCAN 游标逐批遍历，每批的键通过 UNLINK 异步释放，不阻塞 redis 服务端
+     */
+    @Override
+    protected void clearEntries() throws CacheException {
+        execute(jedis -> {
+            byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+            do {
+                ScanResult<byte[]> scanResult = jedis.scan(cursor, scanParams());
+                List<byte[]> keysBytes = scanResult.getResult();
+                if (!keysBytes.isEmpty()) {
+                    jedis.unlink(keysBytes.toArray(new byte[0][]));
+                }
+                cursor = scanResult.getCursorAsBytes();
+            } while (!isScanCompleted(cursor));
+            return null;
+        });
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于 SCAN 游标遍历全部键后返回，大缓存应使用 {@link #keyIterator()}
+     */
     @Override
     protected Set<K> keySet() {
-        Set<byte[]> keysBytes = jedis.keys(keyPrefixBytes);
-        Set<K> keys = new LinkedHashSet<>(keysBytes.size());
-        for (byte[] keyBytes : keysBytes) {
-            keys.add(deserialize(keyBytes, getConfiguration().getKeyType()));
-        }
+        Set<K> keys = new LinkedHashSet<>();
+        keyIterator().forEachRemaining(keys::add);
         return Collections.unmodifiableSet(keys);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 基于 SCAN 游标逐批拉取键，每批借用一次连接，遍历期间被修改的键可能重复返回
+     */
     @Override
-    protected void doClose() {
-        this.jedis.close();
+    protected Iterator<K> keyIterator() {
+        return new ScanKeyIterator();
     }
 
+    /**
+     * 基于 SCAN 游标的键迭代器
+     */
+    private class ScanKeyIterator implements Iterator<K> {
+
+        private byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+
+        private boolean completed;
+
+        private Iterator<byte[]> batch = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && !completed) {
+                ScanResult<byte[]> scanResult = execute(jedis -> jedis.scan(cursor, scanParams()));
+                batch = scanResult.getResult().iterator();
+                cursor = scanResult.getCursorAsBytes();
+                completed = isScanCompleted(cursor);
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return getKey(batch.next());
+        }
+    }
+
+    /**
+     * 从连接池借用连接执行操作，执行完毕后归还
+     *
+     * @param callback 使用连接的操作
+     * @param <T>      操作结果类型
+     * @return 操作结果
+     * @throws CacheException 如果借用连接失败或执行操作失败
+     */
+    protected <T> T execute(Function<Jedis, T> callback) throws CacheException {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return callback.apply(jedis);
+        } catch (JedisException e) {
+            throw new CacheException(e);
+        }
+    }
 
     private byte[] buildKeyPrefixBytes(String cacheName) {
         StringBuilder keyPrefixBuilder = new StringBuilder("JedisCache-")
@@ -113,28 +468,93 @@ public class JedisCache<K extends Serializable, V extends Serializable> extends
         return keyPrefixBuilder.toString().getBytes(StandardCharsets.UTF_8);
     }
 
+    /**
+     * 键前缀转为 glob 模式，转义缓存名中的通配符
+     */
+    private byte[] buildKeyPatternBytes(String cacheName) {
+        StringBuilder keyPatternBuilder = new StringBuilder("JedisCache-");
+        for (char c : cacheName.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                keyPatternBuilder.append('\\');
+            }
+            keyPatternBuilder.append(c);
+        }
+        keyPatternBuilder.append(":*");
+        return keyPatternBuilder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ScanParams scanParams() {
+        return new ScanParams().match(keyPatternBytes).count(scanCount);
+    }
+
+    private static boolean isScanCompleted(byte[] cursor) {
+        return Arrays.equals(ScanParams.SCAN_POINTER_START_BINARY, cursor);
+    }
+
+    /**
+     * 去掉键前缀后反序列化为缓存键，直接读取前缀之后的区间
+     */
+    private K getKey(byte[] keyBytes) {
+        return (K) deserialize(keyBytes, keyPrefixBytesLength, keyBytes.length - keyPrefixBytesLength,
+                getConfiguration().getKeyType());
+    }
+
+    /**
+     * 在线程复用的缓冲区中拼接键前缀与序列化的键，只分配最终的字节数组
+     */
     private byte[] getKeyBytes(Object key) {
-        byte[] suffixBytes = serialize(key);
-        int suffixBytesLength = suffixBytes.length;
-        byte[] bytes = new byte[keyPrefixBytesLength + suffixBytesLength];
-        System.arraycopy(keyPrefixBytes, 0, bytes, 0, keyPrefixBytesLength);
-        System.arraycopy(suffixBytes, 0, bytes, keyPrefixBytesLength, suffixBytesLength);
-        return bytes;
+        BinaryOutput output = BinaryOutput.local();
+        output.writeRaw(keyPrefixBytes, 0, keyPrefixBytesLength);
+        serialize(key, output);
+        return output.toByteArray();
+    }
+
+    private byte[][] getKeysBytes(List<K> keys) {
+        byte[][] keysBytes = new byte[keys.size()][];
+        for (int i = 0; i < keysBytes.length; i++) {
+            keysBytes[i] = getKeyBytes(keys.get(i));
+        }
+        return keysBytes;
     }
 
+    /**
+     * 序列化条目，达到阈值时压缩 {@link #getValueCompressor()}
+     */
     private byte[] serialize(Object value) throws CacheException {
+        BinaryOutput output = BinaryOutput.local();
+        getValueCompressor().writeHeader(output);
+        serialize(value, output);
+        return getValueCompressor().compress(output).toByteArray();
+    }
+
+    private void serialize(Object value, BinaryOutput output) throws CacheException {
         Serializer serializer = serializers.getMostCompatible(value.getClass());
         try {
-            return serializer.serialize(value);
+            BufferedSerializer.serialize(serializer, value, output);
         } catch (IOException e) {
             throw new CacheException(e);
         }
     }
 
+    /**
+     * 反序列化条目，与 {@link #serialize(Object)} 对应
+     */
     private <T> T deserialize(byte[] bytes, Class<T> deserializedType) throws CacheException {
+        if (bytes == null) {
+            return null;
+        }
+        Deserializer deserializer = deserializers.getMostCompatible(deserializedType);
+        try {
+            return (T) getValueCompressor().decompress(bytes, 0, bytes.length, deserializer);
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    private <T> T deserialize(byte[] bytes, int offset, int length, Class<T> deserializedType) throws CacheException {
         Deserializer deserializer = deserializers.getMostCompatible(deserializedType);
         try {
-            return (T) deserializer.deserialize(bytes);
+            return (T) BufferedDeserializer.deserialize(deserializer, bytes, offset, length);
         } catch (IOException e) {
             throw new CacheException(e);
         }
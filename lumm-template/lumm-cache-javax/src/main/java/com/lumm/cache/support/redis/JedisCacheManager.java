@@ -1,31 +1,106 @@
 package com.lumm.cache.support.redis;
 
+import cn.hutool.core.convert.Convert;
 import com.lumm.cache.AbstractCacheManager;
-import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
 
 import javax.cache.Cache;
 import javax.cache.configuration.Configuration;
 import javax.cache.spi.CachingProvider;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Properties;
 
 /**
  * 缓存管理器实现，基于Jedis
+ * <p>
+ * 所有缓存共享同一个连接池，每次操作（或每批操作）从连接池借用连接，用完即归还
  */
 public class JedisCacheManager extends AbstractCacheManager {
 
+    /**
+     * 配置项前缀：redis缓存
+     */
+    public static final String REDIS_PROPERTY_PREFIX = "javax.cache.CacheManager.redis.";
+
+    /**
+     * 配置项：连接池最大连接数
+     */
+    public static final String MAX_TOTAL_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "max-total";
+
+    /**
+     * 配置项：连接池最大空闲连接数
+     */
+    public static final String MAX_IDLE_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "max-idle";
+
+    /**
+     * 配置项：连接池最小空闲连接数
+     */
+    public static final String MIN_IDLE_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "min-idle";
+
+    /**
+     * 配置项：连接池耗尽时借用连接的最大等待毫秒数，负数表示一直等待
+     */
+    public static final String MAX_WAIT_MILLIS_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "max-wait-millis";
+
+    /**
+     * 配置项：建立连接的超时毫秒数
+     */
+    public static final String CONNECTION_TIMEOUT_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "connection-timeout";
+
+    /**
+     * 配置项：读写的超时毫秒数
+     */
+    public static final String SOCKET_TIMEOUT_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "socket-timeout";
+
+    /**
+     * 配置项：遍历键时每次 SCAN 的 COUNT 提示值
+     */
+    public static final String SCAN_COUNT_PROPERTY_NAME = REDIS_PROPERTY_PREFIX + "scan-count";
+
+    public static final int DEFAULT_MAX_TOTAL = 64;
+
+    public static final int DEFAULT_MAX_IDLE = 64;
+
+    public static final int DEFAULT_MIN_IDLE = 0;
+
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 2000L;
+
+    public static final int DEFAULT_TIMEOUT = 2000;
+
+    public static final int DEFAULT_SCAN_COUNT = 1000;
+
     private final JedisPool jedisPool;
 
+    private final int scanCount;
+
+    /**
+     * 构造
+     *
+     * @param cachingProvider 缓存提供者
+     * @param uri             uri
+     * @param classLoader     类加载器
+     * @param properties      配置
+     */
     public JedisCacheManager(CachingProvider cachingProvider, URI uri, ClassLoader classLoader, Properties properties) {
         super(cachingProvider, uri, classLoader, properties);
-        this.jedisPool = new JedisPool(uri);
+        Properties config = getProperties();
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(Convert.toInt(config.getProperty(MAX_TOTAL_PROPERTY_NAME), DEFAULT_MAX_TOTAL));
+        poolConfig.setMaxIdle(Convert.toInt(config.getProperty(MAX_IDLE_PROPERTY_NAME), DEFAULT_MAX_IDLE));
+        poolConfig.setMinIdle(Convert.toInt(config.getProperty(MIN_IDLE_PROPERTY_NAME), DEFAULT_MIN_IDLE));
+        poolConfig.setMaxWait(Duration.ofMillis(Convert.toLong(config.getProperty(MAX_WAIT_MILLIS_PROPERTY_NAME),
+                DEFAULT_MAX_WAIT_MILLIS)));
+        int connectionTimeout = Convert.toInt(config.getProperty(CONNECTION_TIMEOUT_PROPERTY_NAME), DEFAULT_TIMEOUT);
+        int socketTimeout = Convert.toInt(config.getProperty(SOCKET_TIMEOUT_PROPERTY_NAME), DEFAULT_TIMEOUT);
+        this.jedisPool = new JedisPool(poolConfig, uri, connectionTimeout, socketTimeout);
+        this.scanCount = Math.max(1, Convert.toInt(config.getProperty(SCAN_COUNT_PROPERTY_NAME), DEFAULT_SCAN_COUNT));
     }
 
     @Override
     protected <K, V, C extends Configuration<K, V>> Cache doCreateCache(String cacheName, C configuration) {
-        Jedis jedis = jedisPool.getResource();
-        return new JedisCache(this, cacheName, configuration, jedis);
+        return new JedisCache(this, cacheName, configuration, jedisPool, scanCount);
     }
 
     @Override
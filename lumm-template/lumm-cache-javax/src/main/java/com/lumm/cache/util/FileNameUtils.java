@@ -0,0 +1,68 @@
+package com.lumm.cache.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 文件名工具
+ *
+ * @since 1.0.0
+ */
+public abstract class FileNameUtils {
+
+    /**
+     * 编码后的最大长度，超过时改用摘要，留出前后缀的空间，避免超过文件系统 255 字节的限制
+     */
+    private static final int MAX_LENGTH = 128;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * 将缓存名称等任意字符串编码为安全的文件名：
+     * 字母、数字、下划线与连字符保持不变，其余字符按 UTF-8 字节编码为 <code>%XX</code>，
+     * 因此不会出现路径分隔符、<code>..</code> 以及 Windows 保留字符，不同的名称编码后也不相同。
+     * 编码后超过 {@link #MAX_LENGTH} 时改用 <code>~</code> 加 SHA-256 摘要
+     *
+     * @param name 名称
+     * @return 安全的文件名
+     */
+    public static String encode(String name) {
+        StringBuilder builder = null;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            if (isSafe(b)) {
+                if (builder != null) {
+                    builder.append((char) b);
+                }
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(bytes.length + 16).append(name, 0, i);
+            }
+            builder.append('%').append(HEX_DIGITS[b >>> 4]).append(HEX_DIGITS[b & 0x0F]);
+        }
+        String encoded = builder == null ? name : builder.toString();
+        return encoded.length() > MAX_LENGTH ? "~" + sha256(name) : encoded;
+    }
+
+    private static boolean isSafe(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '-';
+    }
+
+    private static String sha256(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX_DIGITS[(digest[i] >>> 4) & 0x0F];
+                chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.lumm.cache;
 
+import com.lumm.cache.configuration.CacheConfiguration;
 import com.lumm.cache.configuration.PropertiesCacheConfiguration;
 import com.lumm.cache.event.CacheEntryListenerTest;
+import com.lumm.cache.expiry.ManualTicker;
+import com.lumm.cache.management.CacheStatistics;
+import com.lumm.cache.support.memory.InMemoryCache;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,16 +21,37 @@ import javax.cache.event.EventType;
 import javax.cache.expiry.Duration;
 import javax.cache.integration.CacheLoader;
 import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
 import javax.cache.integration.CompletionListener;
 import javax.cache.processor.EntryProcessorResult;
 import javax.cache.spi.CachingProvider;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonMap;
 import static javax.cache.expiry.CreatedExpiryPolicy.factoryOf;
@@ -64,6 +89,7 @@ public class AbstractCacheTest {
         // 通过文件配置加载
         PropertiesCacheConfiguration configuration = new PropertiesCacheConfiguration(cachingProvider.getDefaultProperties());
         config = new MutableConfiguration<>(configuration);
+        cacheEntryListener = (CacheEntryListenerTest) config.getCacheEntryListenerConfigurations().iterator().next();
 
         // 通过代码方式配置
        /* config = new MutableConfiguration<String, Integer>()
@@ -157,6 +183,18 @@ public class AbstractCacheTest {
         assertTrue(cache.containsKey(key));
         assertCacheEntryEvent(EventType.CREATED, key, value, null);
         assertNull(getCacheEntryEvent());
+
+        // test putAll and getAll in bulk
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("other-key", 1);
+        map.put(key, 1);
+        cache.putAll(map);
+        assertCacheEntryEvent(EventType.UPDATED, key, 1, value);
+        assertEquals(map, cache.getAll(new LinkedHashSet<>(asList("other-key", key, "absent-key"))));
+
+        cache.removeAll(map.keySet());
+        assertFalse(cache.containsKey("other-key"));
+        assertFalse(cache.containsKey(key));
     }
 
     @Test
@@ -253,6 +291,15 @@ public class AbstractCacheTest {
             assertEquals(key, entry.getKey());
             assertEquals(value, entry.getValue());
         }
+
+        // test iterator remove
+        iterator = cache.iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        assertEquals(key, iterator.next().getKey());
+        iterator.remove();
+        assertCacheEntryEvent(EventType.REMOVED, key, value, value);
+        assertFalse(cache.containsKey(key));
+        assertFalse(iterator.hasNext());
     }
 
     @Test
@@ -260,6 +307,294 @@ public class AbstractCacheTest {
         assertEquals("", cache.unwrap(String.class));
     }
 
+    @Test
+    public void testLoadAllInBatches() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        MutableConfiguration<String, Integer> config = new MutableConfiguration<>(this.config)
+                .setWriteThrough(false)
+                .setCacheLoaderFactory(() -> new CacheLoader<String, Integer>() {
+                    @Override
+                    public Integer load(String key) throws CacheLoaderException {
+                        throw new CacheLoaderException("The bulk loading is expected");
+                    }
+
+                    @Override
+                    public Map<String, Integer> loadAll(Iterable<? extends String> keys) throws CacheLoaderException {
+                        Map<String, Integer> values = new LinkedHashMap<>();
+                        keys.forEach(key -> values.put(key, Integer.valueOf(key)));
+                        batchSizes.add(values.size());
+                        return values;
+                    }
+                });
+        Cache<String, Integer> cache = cacheManager.createCache("testCache-load-all", config);
+        try {
+            Set<String> keys = new LinkedHashSet<>();
+            for (int i = 0; i < 2500; i++) {
+                keys.add(String.valueOf(i));
+            }
+            CountDownLatch completed = new CountDownLatch(1);
+            AtomicReference<Exception> exceptionReference = new AtomicReference<>();
+            cache.loadAll(keys, false, new CompletionListener() {
+                @Override
+                public void onCompletion() {
+                    completed.countDown();
+                }
+
+                @Override
+                public void onException(Exception e) {
+                    exceptionReference.set(e);
+                    completed.countDown();
+                }
+            });
+            assertTrue(completed.await(5, TimeUnit.SECONDS));
+            assertNull(exceptionReference.get());
+            // batched by javax.cache.CacheManager.load-all.batch-size
+            assertEquals(asList(500, 1000, 1000), batchSizes.stream().sorted().collect(Collectors.toList()));
+            assertEquals(Integer.valueOf(2499), cache.get("2499"));
+
+            // only the absent keys are loaded
+            cache.remove("0");
+            CountDownLatch reloaded = new CountDownLatch(1);
+            cache.loadAll(keys, false, new CompletionListener() {
+                @Override
+                public void onCompletion() {
+                    reloaded.countDown();
+                }
+
+                @Override
+                public void onException(Exception e) {
+                    exceptionReference.set(e);
+                    reloaded.countDown();
+                }
+            });
+            assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+            assertNull(exceptionReference.get());
+            assertEquals(asList(1, 500, 1000, 1000), batchSizes.stream().sorted().collect(Collectors.toList()));
+            assertEquals(Integer.valueOf(0), cache.get("0"));
+        } finally {
+            cacheManager.destroyCache("testCache-load-all");
+        }
+    }
+
+    @Test
+    public void testLoadAllStoresInBulk() throws Exception {
+        AtomicInteger bulkPuts = new AtomicInteger();
+        AtomicInteger bulkPutsIfAbsent = new AtomicInteger();
+        AtomicInteger loads = new AtomicInteger();
+        MutableConfiguration<String, Integer> config = new MutableConfiguration<>(this.config)
+                .setWriteThrough(false)
+                .setStatisticsEnabled(true)
+                .setCacheLoaderFactory(() -> new CacheLoader<String, Integer>() {
+                    @Override
+                    public Integer load(String key) throws CacheLoaderException {
+                        loads.incrementAndGet();
+                        return -Integer.parseInt(key);
+                    }
+
+                    @Override
+                    public Map<String, Integer> loadAll(Iterable<? extends String> keys) throws CacheLoaderException {
+                        Map<String, Integer> values = new LinkedHashMap<>();
+                        keys.forEach(key -> values.put(key, Integer.valueOf(key)));
+                        // the keys of the second batch are loaded one by one
+                        return values.containsKey("100") ? null : values;
+                    }
+                });
+        InMemoryCache<String, Integer> cache = new InMemoryCache<String, Integer>(cacheManager, "testCache-bulk", config) {
+            @Override
+            protected void putEntries(Collection<ExpirableEntry<String, Integer>> entries) {
+                bulkPuts.incrementAndGet();
+                super.putEntries(entries);
+            }
+
+            @Override
+            protected Set<String> putEntriesIfAbsent(Collection<ExpirableEntry<String, Integer>> entries) {
+                bulkPutsIfAbsent.incrementAndGet();
+                return super.putEntriesIfAbsent(entries);
+            }
+        };
+        try {
+            cache.put("1", 10);
+            awaitLoadAll(cache, new LinkedHashSet<>(asList("1", "2", "3")), false);
+            // one bulk put for the absent keys, the existing entry is kept
+            assertEquals(1, bulkPutsIfAbsent.get());
+            assertEquals(Integer.valueOf(10), cache.get("1"));
+            assertEquals(Integer.valueOf(3), cache.get("3"));
+
+            awaitLoadAll(cache, new LinkedHashSet<>(asList("1", "2", "3")), true);
+            assertEquals(1, bulkPuts.get());
+            assertEquals(Integer.valueOf(1), cache.get("1"));
+            // the loaded values are not counted as puts
+            assertEquals(1, cache.getCacheStatistics().getCachePuts());
+
+            // the existing entry is reloaded by the single key loader as well
+            cache.put("100", 10);
+            awaitLoadAll(cache, singleton("100"), true);
+            assertEquals(1, loads.get());
+            assertEquals(Integer.valueOf(-100), cache.get("100"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static void awaitLoadAll(Cache<String, Integer> cache, Set<String> keys, boolean replaceExistingValues)
+            throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicReference<Exception> exceptionReference = new AtomicReference<>();
+        cache.loadAll(keys, replaceExistingValues, new CompletionListener() {
+            @Override
+            public void onCompletion() {
+                completed.countDown();
+            }
+
+            @Override
+            public void onException(Exception e) {
+                exceptionReference.set(e);
+                completed.countDown();
+            }
+        });
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertNull(exceptionReference.get());
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        MutableConfiguration<String, Integer> config = new MutableConfiguration<>(this.config)
+                .setReadThrough(false)
+                .setWriteThrough(false);
+        AbstractCache<String, Integer> cache = (AbstractCache) cacheManager.createCache("testCache-statistics", config);
+        try {
+            cache.put(key, value);
+            assertEquals(value, cache.get(key));
+            assertNull(cache.get("absent-key"));
+            assertEquals(value, cache.getAndRemove(key));
+
+            CacheStatistics statistics = cache.getCacheStatistics();
+            assertEquals(3, statistics.getCacheGets());
+            assertEquals(2, statistics.getCacheHits());
+            assertEquals(200.0f / 3, statistics.getCacheHitPercentage(), 0.01f);
+            assertEquals(100.0f / 3, statistics.getCacheMissPercentage(), 0.01f);
+            assertTrue(statistics.getAverageGetTime() > 0);
+            assertTrue(statistics.getAveragePutTime() > 0);
+            assertTrue(statistics.getGetTimeP999() >= statistics.getGetTimeP50());
+
+            // exposed through the registered CacheStatisticsMXBean
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = mBeanServer.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,name=testCache-statistics,*"), null);
+            assertEquals(1, names.size());
+            ObjectName name = names.iterator().next();
+            assertEquals(2L, mBeanServer.getAttribute(name, "CacheHits"));
+            assertEquals(statistics.getPutTimeP99(), (Float) mBeanServer.getAttribute(name, "PutTimeP99"), 0.0f);
+        } finally {
+            cacheManager.destroyCache("testCache-statistics");
+        }
+    }
+
+    @Test
+    public void testSingleFlightLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MutableConfiguration<String, Integer> config = new MutableConfiguration<>(this.config)
+                .setWriteThrough(false)
+                .setCacheLoaderFactory(() -> new CacheLoader<String, Integer>() {
+                    @Override
+                    public Integer load(String key) throws CacheLoaderException {
+                        loads.incrementAndGet();
+                        loading.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new CacheLoaderException(e);
+                        }
+                        return value;
+                    }
+
+                    @Override
+                    public Map<String, Integer> loadAll(Iterable<? extends String> keys) throws CacheLoaderException {
+                        return null;
+                    }
+                });
+        AbstractCache<String, Integer> cache = (AbstractCache) cacheManager.createCache("testCache-single-flight", config);
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executorService.submit(() -> cache.get(key)));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                results.add(executorService.submit(() -> cache.get(key)));
+            }
+            // wait until the followers join the load in flight
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getCacheStatistics().getCacheLoadsCoalesced() < threads - 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(value, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.getCacheStatistics().getCacheLoads());
+            assertEquals(threads - 1, cache.getCacheStatistics().getCacheLoadsCoalesced());
+        } finally {
+            release.countDown();
+            executorService.shutdownNow();
+            cacheManager.destroyCache("testCache-single-flight");
+        }
+    }
+
+    @Test
+    public void testReadThroughDoesNotWriteThrough() {
+        AtomicInteger writes = new AtomicInteger();
+        MutableConfiguration<String, Integer> config = new MutableConfiguration<>(this.config)
+                .setWriteThrough(true)
+                .setCacheLoaderFactory(() -> new CacheLoader<String, Integer>() {
+                    @Override
+                    public Integer load(String key) throws CacheLoaderException {
+                        return value;
+                    }
+
+                    @Override
+                    public Map<String, Integer> loadAll(Iterable<? extends String> keys) throws CacheLoaderException {
+                        return null;
+                    }
+                })
+                .setCacheWriterFactory(() -> new CacheWriter<String, Integer>() {
+                    @Override
+                    public void write(Cache.Entry<? extends String, ? extends Integer> entry) throws CacheWriterException {
+                        writes.incrementAndGet();
+                    }
+
+                    @Override
+                    public void writeAll(Collection<Cache.Entry<? extends String, ? extends Integer>> entries) throws CacheWriterException {
+                        writes.addAndGet(entries.size());
+                    }
+
+                    @Override
+                    public void delete(Object key) throws CacheWriterException {
+                    }
+
+                    @Override
+                    public void deleteAll(Collection<?> keys) throws CacheWriterException {
+                    }
+                });
+        AbstractCache<String, Integer> cache = (AbstractCache) cacheManager.createCache("testCache-read-through", config);
+        try {
+            // the loaded value is stored without being written back
+            assertEquals(value, cache.get(key));
+            assertTrue(cache.containsKey(key));
+            assertEquals(0, writes.get());
+            assertEquals(0, cache.getCacheStatistics().getCachePuts());
+
+            cache.put(key, value + 1);
+            assertEquals(1, writes.get());
+        } finally {
+            cacheManager.destroyCache("testCache-read-through");
+        }
+    }
+
     @Test
     public void testLoadAll() {
         MutableConfiguration<String, Integer> config = new MutableConfiguration<>(this.config)
@@ -301,18 +636,27 @@ public class AbstractCacheTest {
         cache.loadAll(singleton(key), replaceExistingValues, listener);
         while (!completed.get()) {
         }
-        assertFalse(cache.containsKey(key));
+        assertTrue(cache.containsKey(key));
         assertEquals(Integer.valueOf(1), cache.get(key)); // the value comes from CacheLoader
         assertNull(exceptionReference.get());
 
         // replaceExistingValues == false
         completed.set(false);
         replaceExistingValues = false;
+        cache.put(key, 2);
         cache.loadAll(singleton(key), replaceExistingValues, listener);
         while (!completed.get()) {
         }
         assertTrue(cache.containsKey(key));
-        assertEquals(Integer.valueOf(1), cache.get(key)); // the value comes from Cache
+        assertEquals(Integer.valueOf(2), cache.get(key)); // the value comes from Cache
+        assertNull(exceptionReference.get());
+
+        // replaceExistingValues == true
+        completed.set(false);
+        cache.loadAll(singleton(key), true, listener);
+        while (!completed.get()) {
+        }
+        assertEquals(Integer.valueOf(1), cache.get(key)); // the value comes from CacheLoader
         assertNull(exceptionReference.get());
 
         // test isReadThrough == false
@@ -436,9 +780,101 @@ public class AbstractCacheTest {
 
         Thread.sleep(TimeUnit.SECONDS.toMillis(2));
 
-        assertTrue(cache.containsKey(key));
-        assertNull(cache.get(key));
+        // the expired entry is removed proactively without being accessed
+        assertFalse(cache.containsKey(key));
         assertCacheEntryEvent(EventType.EXPIRED, key, value, value);
+        // cache missing, the value written through is loaded again by read-through
+        assertEquals(value, cache.get(key));
+        assertCacheEntryEvent(EventType.CREATED, key, value, null);
+    }
+
+    @Test
+    public void testExpiryPolicyWithManualTicker() {
+        Properties properties = new Properties();
+        properties.setProperty(AbstractCacheManager.TICKER_PROPERTY_NAME, ManualTicker.class.getName());
+        AbstractCacheManager cacheManager = (AbstractCacheManager) cachingProvider.getCacheManager(
+                URI.create("in-memory://manual-ticker/"), null, properties);
+        ManualTicker ticker = (ManualTicker) cacheManager.getTicker();
+        try {
+            Cache<String, Integer> cache = cacheManager.createCache(cacheName, new MutableConfiguration<String, Integer>()
+                    .setTypes(String.class, Integer.class)
+                    .setExpiryPolicyFactory(factoryOf(new Duration(TimeUnit.HOURS, 1L))));
+            cache.put(key, value);
+            ticker.advance(59, TimeUnit.MINUTES);
+            assertEquals(value, cache.get(key));
+            ticker.advance(1, TimeUnit.MINUTES);
+            assertNull(cache.get(key));
+        } finally {
+            cacheManager.close();
+        }
+    }
+
+    @Test
+    public void testCloseCompletesQueuedTasks() {
+        AbstractCacheManager cacheManager = (AbstractCacheManager) cachingProvider.getCacheManager(
+                URI.create("in-memory://close/"), null, new Properties());
+        AtomicInteger completed = new AtomicInteger();
+        Executor executor = cacheManager.getExecutor(AbstractCacheManager.LISTENER_EXECUTOR);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                completed.incrementAndGet();
+            });
+        }
+        cacheManager.close();
+        assertEquals(10, completed.get());
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(AbstractCacheManager.TICKER_PROPERTY_NAME, ManualTicker.class.getName());
+        properties.setProperty(CacheConfiguration.REFRESH_AHEAD_MILLIS_PROPERTY_NAME,
+                String.valueOf(TimeUnit.MINUTES.toMillis(10)));
+        AbstractCacheManager cacheManager = (AbstractCacheManager) cachingProvider.getCacheManager(
+                URI.create("in-memory://refresh-ahead/"), null, properties);
+        ManualTicker ticker = (ManualTicker) cacheManager.getTicker();
+        AtomicInteger loads = new AtomicInteger();
+        try {
+            Cache<String, Integer> cache = cacheManager.createCache(cacheName, new MutableConfiguration<String, Integer>()
+                    .setTypes(String.class, Integer.class)
+                    .setReadThrough(true)
+                    .setCacheLoaderFactory(() -> new CacheLoader<String, Integer>() {
+                        @Override
+                        public Integer load(String key) throws CacheLoaderException {
+                            return 100 + loads.incrementAndGet();
+                        }
+
+                        @Override
+                        public Map<String, Integer> loadAll(Iterable<? extends String> keys) throws CacheLoaderException {
+                            return null;
+                        }
+                    })
+                    .setExpiryPolicyFactory(factoryOf(new Duration(TimeUnit.HOURS, 1L))));
+            cache.put(key, value);
+            ticker.advance(30, TimeUnit.MINUTES);
+            assertEquals(value, cache.get(key));
+            assertEquals(0, loads.get());
+
+            // within the refresh-ahead window, the current value is returned and reloaded asynchronously
+            ticker.advance(25, TimeUnit.MINUTES);
+            assertEquals(value, cache.get(key));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!Integer.valueOf(101).equals(cache.get(key)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, loads.get());
+            // the reloaded entry gets a new lifetime, so it survives the original expiry
+            ticker.advance(10, TimeUnit.MINUTES);
+            assertEquals(Integer.valueOf(101), cache.get(key));
+            assertEquals(1, loads.get());
+        } finally {
+            cacheManager.close();
+        }
     }
 
     private CacheEntryEvent<String, Integer> getCacheEntryEvent() {
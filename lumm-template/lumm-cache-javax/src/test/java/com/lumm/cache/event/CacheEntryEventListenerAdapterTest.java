@@ -0,0 +1,191 @@
+package com.lumm.cache.event;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.*;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CacheEntryEventListenerAdapter} Test cases
+ */
+public class CacheEntryEventListenerAdapterTest {
+
+    private final Cache<String, Integer> source = (Cache<String, Integer>) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{Cache.class}, (proxy, method, args) -> null);
+
+    @Test
+    public void testBatchedDelivery() {
+        RecordingListener listener = new RecordingListener();
+        List<Runnable> tasks = new ArrayList<>();
+        CacheEntryEventListenerAdapter<String, Integer> adapter = new CacheEntryEventListenerAdapter<>(
+                configurationOf(listener), tasks::add, 100, 4);
+        for (int i = 0; i < 5; i++) {
+            adapter.onEvent(GenericCacheEntryEvent.createdEvent(source, "k" + i, i));
+        }
+        adapter.onEvent(GenericCacheEntryEvent.updatedEvent(source, "k0", 0, 10));
+        // one drain task is scheduled, no matter how many events are queued
+        assertEquals(1, tasks.size());
+        assertEquals(6, adapter.getQueueSize());
+
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+        // batches of at most 4 events, split when the event type changes
+        assertEquals(3, listener.batches.size());
+        assertEquals(4, listener.batches.get(0).size());
+        assertEquals(1, listener.batches.get(1).size());
+        assertEquals(EventType.UPDATED, listener.batches.get(2).get(0).getEventType());
+        assertEquals(0, adapter.getQueueSize());
+    }
+
+    @Test
+    public void testOrderingWithBackPressure() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CacheEntryEventListenerAdapter<String, Integer> adapter = new CacheEntryEventListenerAdapter<>(
+                    configurationOf(listener), executor, 4, 2);
+            int events = 1000;
+            for (int i = 0; i < events; i++) {
+                adapter.onEvent(GenericCacheEntryEvent.updatedEvent(source, "key", i, i + 1));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (listener.values.size() < events && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(events, listener.values.size());
+            for (int i = 0; i < events; i++) {
+                assertEquals(Integer.valueOf(i + 1), listener.values.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReentrantEventsKeepOrder() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<String> delivered = new ArrayList<>();
+        CacheEntryEventListenerAdapter<String, Integer>[] adapter = new CacheEntryEventListenerAdapter[1];
+        CacheEntryUpdatedListener<String, Integer> listener = events -> events.forEach(event -> {
+            delivered.add(event.getKey() + "=" + event.getValue());
+            if (event.getValue() == 1) {
+                // the listener writes back twice, the second event finds the queue full
+                adapter[0].onEvent(GenericCacheEntryEvent.updatedEvent(source, "k", 1, 100));
+                adapter[0].onEvent(GenericCacheEntryEvent.updatedEvent(source, "k", 100, 101));
+            }
+        });
+        adapter[0] = new CacheEntryEventListenerAdapter<>(
+                new MutableCacheEntryListenerConfiguration<>(() -> listener, null, true, false), tasks::add, 2, 1);
+        adapter[0].onEvent(GenericCacheEntryEvent.updatedEvent(source, "k", 0, 1));
+        adapter[0].onEvent(GenericCacheEntryEvent.updatedEvent(source, "k", 1, 2));
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+        // the events published by the listener itself are delivered after the ones queued before them
+        assertEquals(Arrays.asList("k=1", "k=2", "k=100", "k=101"), delivered);
+        assertEquals(0, adapter[0].getQueueSize());
+    }
+
+    @Test
+    public void testRejectedDrainDoesNotRecurse() {
+        RecordingListener listener = new RecordingListener();
+        List<Runnable> tasks = new ArrayList<>();
+        boolean[] shutdown = new boolean[1];
+        CacheEntryEventListenerAdapter<String, Integer> adapter = new CacheEntryEventListenerAdapter<>(
+                configurationOf(listener), command -> {
+            if (shutdown[0]) {
+                throw new RejectedExecutionException("shutdown");
+            }
+            tasks.add(command);
+        }, 20000, 1);
+        int events = 20000;
+        for (int i = 0; i < events; i++) {
+            adapter.onEvent(GenericCacheEntryEvent.updatedEvent(source, "key", i, i + 1));
+        }
+        shutdown[0] = true;
+        tasks.remove(0).run();
+        // the rest is delivered batch by batch in a loop, without a stack overflow
+        assertEquals(events, listener.values.size());
+        assertEquals(Integer.valueOf(events), listener.values.get(events - 1));
+    }
+
+    @Test
+    public void testDispatchByMethodName() {
+        MethodNameListener listener = new MethodNameListener();
+        CacheEntryEventListenerAdapter<String, Integer> adapter = new CacheEntryEventListenerAdapter<>(
+                new MutableCacheEntryListenerConfiguration<>(() -> listener, null, true, true));
+        // only the events with a public method of the same name are supported
+        assertEquals(EnumSet.of(EventType.CREATED, EventType.REMOVED), adapter.getSupportedEventTypes());
+
+        adapter.onEvent(GenericCacheEntryEvent.createdEvent(source, "k", 1));
+        adapter.onEvent(GenericCacheEntryEvent.updatedEvent(source, "k", 1, 2));
+        assertEquals(Collections.singletonList("created:k"), listener.events);
+
+        // the checked exception thrown through the method handle is wrapped once, not as an undeclared throwable
+        try {
+            adapter.onEvent(GenericCacheEntryEvent.removedEvent(source, "k", 2));
+            fail("The listener throws");
+        } catch (CacheEntryListenerException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private MutableCacheEntryListenerConfiguration<String, Integer> configurationOf(RecordingListener listener) {
+        return new MutableCacheEntryListenerConfiguration<>(() -> listener, null, true, false);
+    }
+
+    /**
+     * 只实现标记接口，按方法名分派；类不是公共的，方法是公共的
+     */
+    static class MethodNameListener implements CacheEntryListener<String, Integer> {
+
+        private final List<String> events = new ArrayList<>();
+
+        public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends Integer>> events) {
+            events.forEach(event -> this.events.add("created:" + event.getKey()));
+        }
+
+        public void onRemoved(Iterable<CacheEntryEvent<? extends String, ? extends Integer>> events) throws IOException {
+            throw new IOException("Testing...");
+        }
+    }
+
+    public static class RecordingListener implements CacheEntryCreatedListener<String, Integer>,
+            CacheEntryUpdatedListener<String, Integer> {
+
+        private final List<List<CacheEntryEvent<? extends String, ? extends Integer>>> batches = new CopyOnWriteArrayList<>();
+
+        private final List<Integer> values = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends Integer>> events) {
+            record(events);
+        }
+
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends String, ? extends Integer>> events) {
+            record(events);
+        }
+
+        private void record(Iterable<CacheEntryEvent<? extends String, ? extends Integer>> events) {
+            List<CacheEntryEvent<? extends String, ? extends Integer>> batch = new ArrayList<>();
+            events.forEach(event -> {
+                batch.add(event);
+                values.add(event.getValue());
+            });
+            batches.add(batch);
+        }
+    }
+}
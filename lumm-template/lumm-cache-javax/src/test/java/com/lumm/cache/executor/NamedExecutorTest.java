@@ -0,0 +1,88 @@
+package com.lumm.cache.executor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link NamedExecutor} Test cases
+ */
+public class NamedExecutorTest {
+
+    private final NamedExecutor executor = new NamedExecutor("test", 1, 1, false);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBoundedQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+        assertEquals(1, executor.getQueueSize());
+        assertEquals(1, executor.getActiveCount());
+        try {
+            executor.execute(() -> {
+            });
+            fail("The executor is saturated");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, executor.getRejectedTaskCount());
+        release.countDown();
+    }
+
+    @Test
+    public void testThreadName() throws Exception {
+        String[] threadName = new String[1];
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            threadName[0] = Thread.currentThread().getName();
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(threadName[0].startsWith("lumm-cache-test-"));
+        assertFalse(executor.isVirtual());
+    }
+
+    @Test
+    public void testShutdownCompletesQueuedTasks() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        executor.execute(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completed.incrementAndGet();
+        });
+        executor.execute(completed::incrementAndGet);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(() -> {
+            });
+            fail("The executor is shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, completed.get());
+    }
+}
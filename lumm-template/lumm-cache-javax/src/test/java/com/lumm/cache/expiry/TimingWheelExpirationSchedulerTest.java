@@ -0,0 +1,62 @@
+package com.lumm.cache.expiry;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TimingWheelExpirationScheduler} Test cases
+ */
+public class TimingWheelExpirationSchedulerTest {
+
+    /**
+     * 10ms per tick, 4 slots per level, the level 0 spans 40ms and the level 1 spans 160ms
+     */
+    private final TimingWheelExpirationScheduler scheduler = new TimingWheelExpirationScheduler(Ticker.SYSTEM, 10L, 4, 2);
+
+    @After
+    public void close() {
+        scheduler.close();
+    }
+
+    @Test
+    public void testNotExecutedBeforeExpireTime() throws Exception {
+        List<Long> executedTimes = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        long now = System.currentTimeMillis();
+        // level 0, level 1 and beyond the whole span
+        long[] expireTimes = {now + 25, now + 100, now + 500};
+        for (long expireTime : expireTimes) {
+            scheduler.schedule(expireTime, () -> {
+                executedTimes.add(System.currentTimeMillis());
+                latch.countDown();
+            });
+        }
+        assertEquals(3, scheduler.size());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < expireTimes.length; i++) {
+            assertTrue(executedTimes.get(i) >= expireTimes[i]);
+        }
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testExpiredTask() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        scheduler.schedule(System.currentTimeMillis() - 1000, latch::countDown);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testClose() {
+        scheduler.close();
+        assertThrows(IllegalStateException.class, () -> scheduler.schedule(System.currentTimeMillis(), () -> {
+        }));
+    }
+}
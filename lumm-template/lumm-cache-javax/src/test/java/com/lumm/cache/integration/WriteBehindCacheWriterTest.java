@@ -0,0 +1,203 @@
+package com.lumm.cache.integration;
+
+import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.executor.NamedExecutor;
+import com.lumm.cache.expiry.TimingWheelExpirationScheduler;
+import com.lumm.cache.management.SimpleCacheStatistics;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WriteBehindCacheWriter} Test cases
+ */
+public class WriteBehindCacheWriterTest {
+
+    private final Map<Object, Object> database = new ConcurrentHashMap<>();
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    private final SimpleCacheStatistics cacheStatistics = new SimpleCacheStatistics();
+
+    private final NamedExecutor executor = new NamedExecutor("write-behind", 2, 0, false);
+
+    private final TimingWheelExpirationScheduler scheduler = new TimingWheelExpirationScheduler();
+
+    private final CacheWriter<String, Integer> delegate = new CacheWriter<String, Integer>() {
+
+        @Override
+        public void write(Cache.Entry<? extends String, ? extends Integer> entry) throws CacheWriterException {
+            fail("The batch writing is expected");
+        }
+
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends String, ? extends Integer>> entries) {
+            batchSizes.add(entries.size());
+            entries.forEach(entry -> database.put(entry.getKey(), entry.getValue()));
+            entries.clear();
+        }
+
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            fail("The batch deleting is expected");
+        }
+
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            keys.forEach(database::remove);
+            keys.clear();
+        }
+    };
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        scheduler.close();
+    }
+
+    @Test
+    public void testCoalesceAndFlushOnClose() {
+        WriteBehindCacheWriter<String, Integer> writer = newWriter(delegate, 100, 60_000L, 3, true);
+        writer.write(ExpirableEntry.of("a", 1));
+        writer.write(ExpirableEntry.of("a", 2));
+        writer.write(ExpirableEntry.of("b", 1));
+        writer.delete("b");
+        writer.write(ExpirableEntry.of("c", 1));
+        assertEquals(3, writer.getQueueSize());
+        assertEquals(3, cacheStatistics.getWriteBehindQueueSize());
+        assertTrue(database.isEmpty());
+
+        writer.close();
+        assertEquals(Collections.singletonList(2), batchSizes);
+        assertEquals(2, database.get("a"));
+        assertFalse(database.containsKey("b"));
+        assertEquals(1, database.get("c"));
+        assertEquals(0, cacheStatistics.getWriteBehindQueueSize());
+        assertEquals(1, cacheStatistics.getWriteBehindFlushes());
+    }
+
+    @Test
+    public void testFlushOnBatchSize() throws Exception {
+        WriteBehindCacheWriter<String, Integer> writer = newWriter(delegate, 10, 60_000L, 3, false);
+        try {
+            for (int i = 0; i < 10; i++) {
+                writer.write(ExpirableEntry.of("key-" + i, i));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (database.size() < 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(10, database.size());
+            assertEquals(Collections.singletonList(10), batchSizes);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testRequeueOnFailure() {
+        List<String> failedOnce = new ArrayList<>();
+        WriteBehindCacheWriter<String, Integer> writer = newWriter(new CacheWriter<String, Integer>() {
+            @Override
+            public void write(Cache.Entry<? extends String, ? extends Integer> entry) {
+            }
+
+            @Override
+            public void writeAll(Collection<Cache.Entry<? extends String, ? extends Integer>> entries) {
+                if (failedOnce.isEmpty()) {
+                    failedOnce.add("failed");
+                    throw new CacheWriterException("Testing...");
+                }
+                delegate.writeAll(entries);
+            }
+
+            @Override
+            public void delete(Object key) {
+            }
+
+            @Override
+            public void deleteAll(Collection<?> keys) {
+            }
+        }, 100, 60_000L, 3, true);
+        writer.write(ExpirableEntry.of("a", 1));
+        assertThrows(CacheWriterException.class, writer::flush);
+        assertEquals(1, writer.getQueueSize());
+        assertEquals(1, cacheStatistics.getWriteBehindFailures());
+        writer.close();
+        assertEquals(1, database.get("a"));
+        assertEquals(0, cacheStatistics.getWriteBehindDiscards());
+    }
+
+    @Test
+    public void testDiscardAfterMaxRetries() {
+        WriteBehindCacheWriter<String, Integer> writer = newWriter(new CacheWriter<String, Integer>() {
+            @Override
+            public void write(Cache.Entry<? extends String, ? extends Integer> entry) {
+            }
+
+            @Override
+            public void writeAll(Collection<Cache.Entry<? extends String, ? extends Integer>> entries) {
+                throw new CacheWriterException("Testing...");
+            }
+
+            @Override
+            public void delete(Object key) {
+            }
+
+            @Override
+            public void deleteAll(Collection<?> keys) {
+            }
+        }, 100, 60_000L, 2, false);
+        writer.write(ExpirableEntry.of("a", 1));
+        // the first attempt and two retries
+        for (int i = 0; i < 3; i++) {
+            assertThrows(CacheWriterException.class, writer::flush);
+        }
+        assertEquals(0, writer.getQueueSize());
+        assertEquals(3, cacheStatistics.getWriteBehindFailures());
+        assertEquals(1, cacheStatistics.getWriteBehindDiscards());
+
+        // a new mutation of the key starts over
+        writer.write(ExpirableEntry.of("a", 2));
+        assertThrows(CacheWriterException.class, writer::flush);
+        assertEquals(1, writer.getQueueSize());
+        writer.close();
+    }
+
+    @Test
+    public void testPeriodicFlush() throws Exception {
+        WriteBehindCacheWriter<String, Integer> writer = newWriter(delegate, 100, 50L, 3, false);
+        try {
+            writer.write(ExpirableEntry.of("a", 1));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (database.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            // flushed by the shared scheduler, on the shared executor
+            assertEquals(1, database.get("a"));
+            writer.write(ExpirableEntry.of("b", 2));
+            while (database.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, database.get("b"));
+            assertTrue(executor.getCompletedTaskCount() >= 2);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private WriteBehindCacheWriter<String, Integer> newWriter(CacheWriter<String, Integer> writer, int batchSize,
+                                                              long flushIntervalMillis, int maxRetries,
+                                                              boolean flushOnClose) {
+        return new WriteBehindCacheWriter<>(writer, cacheStatistics, batchSize, flushIntervalMillis, 1000, maxRetries,
+                flushOnClose, executor, scheduler, System::currentTimeMillis);
+    }
+}
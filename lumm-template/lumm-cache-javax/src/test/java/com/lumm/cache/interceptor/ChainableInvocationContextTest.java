@@ -2,8 +2,13 @@ package com.lumm.cache.interceptor;
 
 import org.junit.Test;
 
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+import java.io.IOException;
 import java.lang.reflect.Method;
 
+import static org.junit.Assert.*;
+
 /**
  * 测试链式调用
  *
@@ -25,6 +30,40 @@ public class ChainableInvocationContextTest {
         System.out.println(result);
 
     }
-    
+
+    @Test
+    public void testCheckedExceptionPropagatesUnwrapped() throws Exception {
+        Method method = String.class.getMethod("length");
+        ReflectiveMethodInvocationContext delegateContext = new ReflectiveMethodInvocationContext("Hello", method);
+
+        // the interception method is invoked through a method handle, its exception is not wrapped
+        ChainableInvocationContext context = new ChainableInvocationContext(delegateContext, new FailingInterceptor());
+        try {
+            context.proceed();
+            fail("The interceptor throws");
+        } catch (IOException e) {
+            assertEquals("Testing...", e.getMessage());
+        }
+
+        // without the failing interceptor the target method is invoked
+        assertEquals(5, new ChainableInvocationContext(new ReflectiveMethodInvocationContext("Hello", method),
+                new PassingInterceptor()).proceed());
+    }
+
+    public static class FailingInterceptor {
+
+        @AroundInvoke
+        public Object intercept(InvocationContext context) throws Exception {
+            throw new IOException("Testing...");
+        }
+    }
+
+    public static class PassingInterceptor {
+
+        @AroundInvoke
+        public Object intercept(InvocationContext context) throws Exception {
+            return context.proceed();
+        }
+    }
 
 }
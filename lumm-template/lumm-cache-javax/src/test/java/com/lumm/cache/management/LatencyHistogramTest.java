@@ -0,0 +1,69 @@
+package com.lumm.cache.management;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LatencyHistogram} Test cases
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000L, histogram.getMax());
+        assertEquals(50000500.0d, histogram.getMean(), 1.0d);
+        assertEquals(50000000.0d, histogram.getValueAtPercentile(50.0d), 50000000.0d / 32);
+        assertEquals(99000000.0d, histogram.getValueAtPercentile(99.0d), 99000000.0d / 32);
+        assertEquals(99900000.0d, histogram.getValueAtPercentile(99.9d), 99900000.0d / 32);
+        assertEquals(100000000L, histogram.getValueAtPercentile(100.0d));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99.0d));
+    }
+
+    @Test
+    public void testConcurrentRecords() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executorService.execute(() -> {
+                try {
+                    for (int i = 0; i < 100000; i++) {
+                        // the same hot bucket for every thread
+                        histogram.record(100);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executorService.shutdown();
+        assertEquals(threads * 100000L, histogram.getCount());
+        assertEquals(100, histogram.getValueAtPercentile(1.0d));
+        assertEquals(100, histogram.getValueAtPercentile(100.0d));
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123456789, LatencyHistogram.MAX_TRACKABLE_VALUE}) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= Math.max(1, value / 32));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.lumm.cache.management;
+
+import com.lumm.cache.ConfigurableCachingProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PrometheusCacheMetricsExporter} Test cases
+ */
+public class PrometheusCacheMetricsExporterTest {
+
+    private static final String CACHE_NAME = "testCache-metrics";
+
+    private ConfigurableCachingProvider cachingProvider;
+
+    private CacheManager cacheManager;
+
+    @Before
+    public void init() {
+        cachingProvider = (ConfigurableCachingProvider) Caching.getCachingProvider();
+        cacheManager = cachingProvider.getCacheManager(URI.create("in-memory://metrics/"), null, null);
+        Cache<String, Integer> cache = cacheManager.createCache(CACHE_NAME, new MutableConfiguration<String, Integer>()
+                .setTypes(String.class, Integer.class)
+                .setStatisticsEnabled(true));
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+    }
+
+    @After
+    public void destroy() {
+        cacheManager.destroyCache(CACHE_NAME);
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        StringBuilder output = new StringBuilder();
+        new PrometheusCacheMetricsExporter(cachingProvider).export(output);
+        String text = output.toString();
+        String labels = "{cache=\"" + CACHE_NAME + "\",uri=\"in-memory://metrics/\"";
+        assertTrue(text.contains("# TYPE lumm_cache_hits_total counter\n"));
+        assertTrue(text.contains("lumm_cache_gets_total" + labels + "} 2\n"));
+        assertTrue(text.contains("lumm_cache_hits_total" + labels + "} 1\n"));
+        assertTrue(text.contains("lumm_cache_misses_total" + labels + "} 1\n"));
+        assertTrue(text.contains("lumm_cache_size" + labels + "} 1\n"));
+        assertTrue(text.contains("lumm_cache_operation_duration_seconds" + labels + ",operation=\"get\",quantile=\"0.99\"}"));
+        assertTrue(text.contains("lumm_cache_operation_duration_seconds_count" + labels + ",operation=\"put\"} 1\n"));
+    }
+
+    @Test
+    public void testHttpServer() throws Exception {
+        try (CacheMetricsHttpServer server = new CacheMetricsHttpServer(
+                new PrometheusCacheMetricsExporter(cachingProvider), "127.0.0.1", 0)) {
+            server.start();
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort()
+                    + CacheMetricsHttpServer.DEFAULT_PATH).openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(PrometheusCacheMetricsExporter.CONTENT_TYPE, connection.getContentType());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream inputStream = connection.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                for (int n; (n = inputStream.read(buffer)) > 0; ) {
+                    body.write(buffer, 0, n);
+                }
+            }
+            assertTrue(new String(body.toByteArray(), StandardCharsets.UTF_8).contains("lumm_cache_hits_total{cache=\"" + CACHE_NAME));
+        }
+    }
+}
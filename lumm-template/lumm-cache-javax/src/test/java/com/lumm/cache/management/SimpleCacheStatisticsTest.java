@@ -0,0 +1,30 @@
+package com.lumm.cache.management;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SimpleCacheStatistics} Test cases
+ */
+public class SimpleCacheStatisticsTest {
+
+    @Test
+    public void testSampleTiming() {
+        assertTrue(new SimpleCacheStatistics().sampleTiming());
+
+        SimpleCacheStatistics statistics = new SimpleCacheStatistics(100);
+        int sampled = 0;
+        for (int i = 0; i < 100000; i++) {
+            statistics.cacheGets();
+            if (statistics.sampleTiming()) {
+                sampled++;
+                statistics.cacheGetsTime(2000);
+            }
+        }
+        // counters are exact, timings are sampled
+        assertEquals(100000, statistics.getCacheGets());
+        assertTrue(sampled > 500 && sampled < 1500);
+        assertEquals(2.0f, statistics.getAverageGetTime(), 0.1f);
+    }
+}
@@ -0,0 +1,254 @@
+package com.lumm.cache.serialization.binary;
+
+import com.lumm.cache.ExpirableEntry;
+import com.lumm.cache.serialization.BufferedDeserializer;
+import com.lumm.cache.serialization.BufferedSerializer;
+import com.lumm.cache.serialization.DefaultDeserializer;
+import com.lumm.cache.serialization.DefaultSerializer;
+import com.lumm.cache.serialization.Deserializer;
+import com.lumm.cache.serialization.Deserializers;
+import com.lumm.cache.serialization.Serializer;
+import com.lumm.cache.serialization.Serializers;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+/**
+ * {@link BinaryCodec} Test cases
+ */
+public class BinaryCodecTest {
+
+    private final ObjectBinaryCodec codec = new ObjectBinaryCodec();
+
+    @Test
+    public void testSimpleValues() throws IOException {
+        Object[] values = {null, true, false, (byte) -7, (short) -300, 'x', '中', 0, -1, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, 1L, Long.MIN_VALUE, 1.5f, Double.NaN, "", "hello", "你好, 😀", Status.ACTIVE};
+        for (Object value : values) {
+            assertEquals(value, codec.deserialize(codec.serialize(value)));
+        }
+        byte[] bytes = {1, 2, 3};
+        assertArrayEquals(bytes, (byte[]) codec.deserialize(codec.serialize(bytes)));
+        // small numbers take the tag and one byte
+        assertEquals(2, codec.serialize(42).length);
+        assertEquals(2, new IntegerBinaryCodec().serialize(-42).length);
+        assertEquals(7, new StringBinaryCodec().serialize("hello").length);
+    }
+
+    @Test
+    public void testObjects() throws IOException {
+        User user = new User("zhangj", 30, Status.ACTIVE);
+        user.tags.add("admin");
+        user.attributes.put("level", 3L);
+        user.friend = new User("bruce", 31, Status.LOCKED);
+
+        ExpirableEntry<String, User> entry = new ExpirableEntry<>("user:1", user);
+        entry.setTimestamp(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+        ExpirableEntryBinaryCodec entryCodec = new ExpirableEntryBinaryCodec();
+        byte[] bytes = entryCodec.serialize(entry);
+        ExpirableEntry<String, User> copy = entryCodec.deserialize(bytes);
+        assertEquals(entry.getKey(), copy.getKey());
+        assertEquals(entry.getTimestamp(), copy.getTimestamp());
+        assertEquals(user, copy.getValue());
+        // any codec of the family reads the same format
+        assertEquals(user, ((ExpirableEntry<?, ?>) codec.deserialize(bytes)).getValue());
+        assertTrue(bytes.length * 3 < new DefaultSerializer().serialize(entry).length);
+
+        // classes without a default constructor are written by fields as well
+        Point point = new Point(1, 2);
+        byte[] pointBytes = codec.serialize(point);
+        assertEquals(BinaryValues.OBJECT, pointBytes[0]);
+        assertEquals(point, codec.deserialize(pointBytes));
+        // data written by the default serializer is still readable
+        assertEquals(user, codec.deserialize(new DefaultSerializer().serialize(user)));
+
+        // shared references are kept
+        List<User> users = new ArrayList<>(asList(user.friend, user.friend));
+        List<User> usersCopy = (List<User>) codec.deserialize(codec.serialize(users));
+        assertEquals(users, usersCopy);
+        assertSame(usersCopy.get(0), usersCopy.get(1));
+
+        // cycles are kept as well
+        user.friend = user;
+        User userCopy = ((List<User>) codec.deserialize(codec.serialize(new ArrayList<>(singletonList(user))))).get(0);
+        assertSame(userCopy, userCopy.friend);
+        assertEquals(user.name, userCopy.name);
+        ExpirableEntry<String, User> entryCopy = entryCodec.deserialize(entryCodec.serialize(entry));
+        assertSame(entryCopy.getValue(), entryCopy.getValue().friend);
+        assertEquals(entry.getTimestamp(), entryCopy.getTimestamp());
+    }
+
+    @Test
+    public void testSharedReferences() throws IOException {
+        // each level refers to the next one twice, written as copies it would take 2^40 nodes
+        List<Object> root = new ArrayList<>();
+        List<Object> current = root;
+        for (int i = 0; i < 40; i++) {
+            List<Object> next = new ArrayList<>();
+            current.add(next);
+            current.add(next);
+            current = next;
+        }
+        current.add("leaf");
+        byte[] bytes = codec.serialize(root);
+        assertTrue(bytes.length < 1024);
+        List<Object> copy = (List<Object>) codec.deserialize(bytes);
+        for (int i = 0; i < 40; i++) {
+            assertSame(copy.get(0), copy.get(1));
+            copy = (List<Object>) copy.get(0);
+        }
+        assertEquals(singletonList("leaf"), copy);
+
+        // the references of one value do not leak into the next one written to the same output
+        BinaryOutput output = BinaryOutput.local();
+        codec.serialize(root, output);
+        int size = output.size();
+        codec.serialize(root, output);
+        assertEquals(size * 2, output.size());
+    }
+
+    @Test
+    public void testConstructorNotInvoked() throws IOException {
+        Counter counter = new Counter();
+        counter.value = 42;
+        int instances = Counter.INSTANCES.get();
+        Counter copy = (Counter) codec.deserialize(codec.serialize(counter));
+        // like java serialization, neither the constructor nor the field initializers run
+        assertEquals(instances, Counter.INSTANCES.get());
+        assertEquals(42, copy.value);
+        assertNull(copy.label);
+    }
+
+    @Test
+    public void testBuffered() throws IOException {
+        byte[] prefix = "prefix:".getBytes(StandardCharsets.UTF_8);
+        Object[] values = {"key", 42, new User("zhangj", 30, Status.LOCKED)};
+        Serializer<Object>[] serializers = new Serializer[]{codec, new DefaultSerializer()};
+        Deserializer<Object>[] deserializers = new Deserializer[]{codec, new DefaultDeserializer()};
+        for (int i = 0; i < serializers.length; i++) {
+            for (Object value : values) {
+                BinaryOutput output = BinaryOutput.local();
+                output.writeRaw(prefix, 0, prefix.length);
+                BufferedSerializer.serialize(serializers[i], value, output);
+                byte[] bytes = output.toByteArray();
+                assertEquals(value, BufferedDeserializer.deserialize(deserializers[i], bytes, prefix.length,
+                        bytes.length - prefix.length));
+            }
+        }
+        // the thread local output is reset and reused
+        assertSame(BinaryOutput.local(), BinaryOutput.local());
+        assertEquals(0, BinaryOutput.local().size());
+        assertSame(BinaryInput.localBuffer(16), BinaryInput.localBuffer(32));
+    }
+
+    @Test
+    public void testSPI() {
+        Serializers serializers = new Serializers();
+        serializers.loadSPI();
+        Deserializers deserializers = new Deserializers();
+        deserializers.loadSPI();
+        assertTrue(serializers.getMostCompatible(String.class) instanceof StringBinaryCodec);
+        assertTrue(serializers.getMostCompatible(byte[].class) instanceof BytesBinaryCodec);
+        assertTrue(serializers.getMostCompatible(ExpirableEntry.class) instanceof ExpirableEntryBinaryCodec);
+        assertTrue(serializers.getMostCompatible(User.class) instanceof ObjectBinaryCodec);
+        assertTrue(deserializers.getMostCompatible(Integer.class) instanceof IntegerBinaryCodec);
+        assertTrue(deserializers.getMostCompatible(User.class) instanceof ObjectBinaryCodec);
+        // sub classes resolve to the codec registered for the super class, and the result is cached
+        Class<?> subEntryClass = new ExpirableEntry<String, String>("key", "value") {
+        }.getClass();
+        assertTrue(serializers.getMostCompatible(subEntryClass) instanceof ExpirableEntryBinaryCodec);
+        assertTrue(deserializers.getMostCompatible(subEntryClass) instanceof ExpirableEntryBinaryCodec);
+        assertSame(serializers.getMostCompatible(subEntryClass), serializers.getMostCompatible(subEntryClass));
+        assertSame(deserializers.getHighestPriority(Object.class), deserializers.getLowestPriority(Object.class));
+    }
+
+    enum Status {
+        ACTIVE, LOCKED
+    }
+
+    static class User implements Serializable {
+
+        private String name;
+
+        private int age;
+
+        private Status status;
+
+        private final List<String> tags = new ArrayList<>();
+
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+        private User friend;
+
+        private transient String password = "secret";
+
+        User() {
+        }
+
+        User(String name, int age, Status status) {
+            this.name = name;
+            this.age = age;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof User)) {
+                return false;
+            }
+            User user = (User) o;
+            return age == user.age && Objects.equals(name, user.name) && status == user.status
+                    && tags.equals(user.tags) && attributes.equals(user.attributes)
+                    && Objects.equals(friend, user.friend);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, age);
+        }
+    }
+
+    static class Counter implements Serializable {
+
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        private int value;
+
+        private transient String label = "initialized";
+
+        Counter() {
+            INSTANCES.incrementAndGet();
+        }
+    }
+
+    static class Point implements Serializable {
+
+        private final int x;
+
+        private final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Point && ((Point) o).x == x && ((Point) o).y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * x + y;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.lumm.cache.support.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.spi.CachingProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link FileSystemCache} Test cases
+ */
+public class FileSystemCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FileSystemCacheManager cacheManager;
+
+    private FileSystemCache<String, String> cache;
+
+    @Before
+    public void init() {
+        open();
+    }
+
+    @After
+    public void destroy() {
+        if (!cacheManager.isClosed()) {
+            cacheManager.close();
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        URI uri = URI.create("file://" + temporaryFolder.getRoot().getPath() + "/");
+        assertTrue(cachingProvider.getCacheManager(uri, null) instanceof FileSystemCacheManager);
+        cachingProvider.close(uri, cachingProvider.getDefaultClassLoader());
+
+        cache.put("a", "1");
+        cache.put("a", "2");
+        assertEquals("2", cache.get("a"));
+        assertTrue(cache.containsKey("a"));
+        assertEquals(1, cache.size());
+        assertTrue(cache.getFileBytes() > cache.getUsedBytes());
+
+        assertEquals("2", cache.getAndRemove("a"));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            cache.put("key-" + i, "value-" + i);
+        }
+        cache.remove("key-0");
+        cacheManager.close();
+        // a torn write at the tail of the last segment
+        File last = lastSegment();
+        long length = last.length();
+        try (FileOutputStream outputStream = new FileOutputStream(last, true)) {
+            outputStream.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22});
+        }
+
+        open();
+        assertEquals(99, cache.size());
+        assertNull(cache.get("key-0"));
+        assertEquals("value-99", cache.get("key-99"));
+        assertEquals(length, last.length());
+        // appends continue after the truncated tail
+        cache.put("key-100", "value-100");
+        cacheManager.close();
+        open();
+        assertEquals("value-100", cache.get("key-100"));
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testUnsafeCacheName() {
+        String cacheName = "../escape:1";
+        cacheManager.createCache(cacheName, new MutableConfiguration<String, String>()
+                .setTypes(String.class, String.class)).put("a", "1");
+        // the name is encoded, the files stay in the directory
+        assertTrue(new File(temporaryFolder.getRoot(), "%2E%2E%2Fescape%3A1.lock").isFile());
+        assertTrue(new File(temporaryFolder.getRoot(), "%2E%2E%2Fescape%3A1-0.log").isFile());
+        cacheManager.close();
+
+        open();
+        assertEquals("1", cacheManager.createCache(cacheName, new MutableConfiguration<String, String>()
+                .setTypes(String.class, String.class)).get("a"));
+    }
+
+    @Test
+    public void testCompaction() {
+        String value = String.format("%0100d", 0);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 20; i++) {
+                cache.put("key-" + i, value);
+            }
+        }
+        cache.put("expired", value);
+        long fileBytes = cache.getFileBytes();
+        assertTrue(cache.compact() > 0);
+        assertTrue(cache.getFileBytes() < fileBytes);
+        assertEquals(21, cache.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(value, cache.get("key-" + i));
+        }
+        // the copied records survive a reopen
+        cacheManager.close();
+        open();
+        assertEquals(21, cache.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(value, cache.get("key-" + i));
+        }
+        assertEquals(value, cache.get("expired"));
+
+        // expired entries are dropped by compaction and stay dropped after recovery
+        FileSystemCache<String, String> expiring = createExpiringCache();
+        for (int i = 0; i < 40; i++) {
+            expiring.put("key-" + i, value);
+        }
+        sleep(5);
+        assertTrue(expiring.compact() > 0);
+        assertTrue(expiring.size() < 40);
+        cacheManager.close();
+        open();
+        assertEquals(21, cache.size());
+        expiring = createExpiringCache();
+        for (int i = 0; i < 40; i++) {
+            assertNull(expiring.get("key-" + i));
+        }
+    }
+
+    @Test
+    public void testBackgroundCompaction() {
+        cacheManager.close();
+        Properties properties = new Properties(Caching.getCachingProvider().getDefaultProperties());
+        properties.setProperty(FileSystemCacheManager.SEGMENT_SIZE_PROPERTY_NAME, "1024");
+        properties.setProperty(FileSystemCacheManager.COMPACTION_INTERVAL_MILLIS_PROPERTY_NAME, "20");
+        properties.setProperty(FileSystemCacheManager.DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        cacheManager = new FileSystemCacheManager(Caching.getCachingProvider(), URI.create("file://localhost/"),
+                getClass().getClassLoader(), properties);
+        cache = (FileSystemCache<String, String>) cacheManager.createCache("fileCache",
+                new MutableConfiguration<String, String>().setTypes(String.class, String.class));
+        String value = String.format("%0100d", 0);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 20; i++) {
+                cache.put("key-" + i, value);
+            }
+        }
+        long fileBytes = cache.getFileBytes();
+        // compaction runs on the executor owned by the cache manager
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getFileBytes() >= fileBytes && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        assertTrue(cache.getFileBytes() < fileBytes);
+        assertTrue(cacheManager.getExecutors().containsKey(FileSystemCacheManager.COMPACTION_EXECUTOR));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(value, cache.get("key-" + i));
+        }
+        cacheManager.close();
+        assertTrue(cacheManager.getExecutors().get(FileSystemCacheManager.COMPACTION_EXECUTOR).isShutdown());
+    }
+
+    @Test
+    public void testTombstoneCompaction() {
+        String anchor = String.format("%0100d", 0);
+        String value = String.format("%050d", 0);
+        // the anchors keep the oldest segment alive, so the tombstones are still required
+        for (int i = 0; i < 7; i++) {
+            cache.put("anchor-" + i, anchor);
+        }
+        for (int i = 0; i < 20; i++) {
+            cache.put("key-" + i, value);
+            cache.remove("key-" + i);
+        }
+        for (int i = 0; i < 40; i++) {
+            cache.put("filler-" + i, "v");
+        }
+        assertTrue(cache.compact() > 0);
+        // the carried tombstones are not garbage, so the segments holding them are not copied again
+        for (int i = 40; i < 80; i++) {
+            cache.put("filler-" + i, "v");
+        }
+        assertEquals(0, cache.compact());
+
+        cacheManager.close();
+        open();
+        assertEquals(87, cache.size());
+        for (int i = 0; i < 20; i++) {
+            assertNull(cache.get("key-" + i));
+        }
+        assertEquals(anchor, cache.get("anchor-0"));
+    }
+
+    private void open() {
+        Properties properties = new Properties(Caching.getCachingProvider().getDefaultProperties());
+        properties.setProperty(FileSystemCacheManager.SEGMENT_SIZE_PROPERTY_NAME, "1024");
+        properties.setProperty(FileSystemCacheManager.COMPACTION_INTERVAL_MILLIS_PROPERTY_NAME, "0");
+        properties.setProperty(FileSystemCacheManager.DIRECTORY_PROPERTY_NAME, temporaryFolder.getRoot().getPath());
+        cacheManager = new FileSystemCacheManager(Caching.getCachingProvider(), URI.create("file://localhost/"),
+                getClass().getClassLoader(), properties);
+        cache = (FileSystemCache<String, String>) cacheManager.createCache("fileCache",
+                new MutableConfiguration<String, String>().setTypes(String.class, String.class));
+    }
+
+    private FileSystemCache<String, String> createExpiringCache() {
+        return (FileSystemCache<String, String>) cacheManager.createCache("expiring",
+                new MutableConfiguration<String, String>().setTypes(String.class, String.class)
+                        .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MILLISECONDS, 1))));
+    }
+
+    private File lastSegment() {
+        File last = null;
+        long lastId = -1;
+        for (File segment : temporaryFolder.getRoot().listFiles((dir, name) -> name.startsWith("fileCache-"))) {
+            String name = segment.getName();
+            long id = Long.parseLong(name.substring("fileCache-".length(), name.length() - ".log".length()));
+            if (id > lastId) {
+                last = segment;
+                lastId = id;
+            }
+        }
+        return last;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
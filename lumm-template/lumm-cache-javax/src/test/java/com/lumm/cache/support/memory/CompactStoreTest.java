@@ -0,0 +1,127 @@
+package com.lumm.cache.support.memory;
+
+import com.lumm.cache.ExpirableEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CompactStore} Test cases
+ */
+public class CompactStoreTest {
+
+    private final List<ExpirableEntry<String, Integer>> evicted = new ArrayList<>();
+
+    private CompactStore<String, Integer> store(long maximumWeight) {
+        return new CompactStore<>(maximumWeight, Weigher.SINGLETON, 1, evicted::add);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        CompactStore<String, Integer> store = store(0);
+        // grows several times and shifts probe chains back on removal
+        for (int i = 0; i < 1000; i++) {
+            assertNull(store.put(ExpirableEntry.of("k" + i, i)));
+        }
+        assertEquals(Integer.valueOf(1), store.put(ExpirableEntry.of("k1", -1)).getValue());
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(Integer.valueOf(i), store.remove("k" + i).getValue());
+        }
+        assertEquals(500, store.size());
+        for (int i = 0; i < 1000; i++) {
+            ExpirableEntry<String, Integer> entry = store.get("k" + i);
+            if (i % 2 == 0) {
+                assertNull(entry);
+            } else {
+                assertEquals(Integer.valueOf(i == 1 ? -1 : i), entry.getValue());
+            }
+        }
+        Set<String> keys = new HashSet<>();
+        store.keyIterator().forEachRemaining(keys::add);
+        assertEquals(store.keySet(), keys);
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void testCapacityNotExceeded() {
+        CompactStore<String, Integer> store = new CompactStore<>(10, Weigher.SINGLETON, 16, evicted::add);
+        for (int i = 0; i < 1000; i++) {
+            store.put(ExpirableEntry.of("k" + i, i));
+            assertTrue(store.size() <= 10);
+        }
+    }
+
+    @Test
+    public void testClockEviction() {
+        CompactStore<String, Integer> store = store(2);
+        store.put(ExpirableEntry.of("a", 1));
+        store.put(ExpirableEntry.of("b", 2));
+        // "a" gets the second chance
+        store.get("a");
+        store.put(ExpirableEntry.of("c", 3));
+
+        assertEquals(2, store.size());
+        assertTrue(store.containsKey("a"));
+        assertFalse(store.containsKey("b"));
+        assertTrue(store.containsKey("c"));
+        assertEquals(1, evicted.size());
+        assertEquals("b", evicted.get(0).getKey());
+    }
+
+    @Test
+    public void testTouchAndSweepExpired() {
+        CompactStore<String, Integer> store = store(0);
+        for (int i = 0; i < 100; i++) {
+            ExpirableEntry<String, Integer> entry = ExpirableEntry.of("k" + i, i);
+            entry.setTimestamp(i < 50 ? 1000L : 3000L);
+            store.put(entry);
+        }
+        // entries are materialized on read, the new timestamp takes effect only after touch
+        ExpirableEntry<String, Integer> entry = store.get("k0");
+        entry.setTimestamp(3000L);
+        assertEquals(1000L, store.get("k0").getTimestamp());
+        store.touch(entry);
+        assertEquals(3000L, store.get("k0").getTimestamp());
+
+        List<ExpirableEntry<String, Integer>> expired = new ArrayList<>();
+        assertEquals(0, store.sweepExpired(500L, Integer.MAX_VALUE, expired::add));
+        int swept = 0;
+        // incremental, continues from where the last sweep stopped
+        for (int i = 0; i < 100 && store.size() > 51; i++) {
+            swept += store.sweepExpired(2000L, 16, expired::add);
+        }
+        assertEquals(49, swept);
+        assertEquals(51, store.size());
+        assertTrue(store.containsKey("k0"));
+        for (ExpirableEntry<String, Integer> e : expired) {
+            assertEquals(1000L, e.getTimestamp());
+        }
+    }
+
+    @Test
+    public void testSweepBudgetScalesWithSize() {
+        CompactStore<String, Integer> store = new CompactStore<>(0, Weigher.SINGLETON, 16, evicted::add);
+        int size = 200_000;
+        for (int i = 0; i < size; i++) {
+            ExpirableEntry<String, Integer> entry = ExpirableEntry.of("k" + i, i);
+            // one in ten has expired
+            entry.setTimestamp(i % 10 == 0 ? 1000L : 3000L);
+            store.put(entry);
+        }
+        int sweeps = 0;
+        while (store.size() > size - size / 10) {
+            store.sweepExpired(2000L, InMemoryCache.sweepBatchSize(store.size()), entry -> {
+            });
+            sweeps++;
+        }
+        // a whole pass takes about the same number of ticks at any size, a fixed budget takes more than size / 4096
+        assertTrue("sweeps : " + sweeps, sweeps <= 4 * InMemoryCache.SWEEP_FRACTION);
+        assertTrue(size / InMemoryCache.SWEEP_BATCH_SIZE > 4 * InMemoryCache.SWEEP_FRACTION);
+        assertEquals(InMemoryCache.SWEEP_BATCH_SIZE, InMemoryCache.sweepBatchSize(0));
+    }
+}
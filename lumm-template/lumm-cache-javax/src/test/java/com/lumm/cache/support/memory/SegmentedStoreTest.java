@@ -0,0 +1,117 @@
+package com.lumm.cache.support.memory;
+
+import com.lumm.cache.ExpirableEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SegmentedStore} Test cases
+ */
+public class SegmentedStoreTest {
+
+    private final List<ExpirableEntry<String, Integer>> evicted = new ArrayList<>();
+
+    private SegmentedStore<String, Integer> store(EvictionPolicy evictionPolicy, long maximumWeight) {
+        return new SegmentedStore<>(evictionPolicy, maximumWeight, Weigher.SINGLETON, 1, evicted::add);
+    }
+
+    @Test
+    public void testLruEviction() {
+        SegmentedStore<String, Integer> store = store(EvictionPolicy.LRU, 2);
+        store.put(ExpirableEntry.of("a", 1));
+        store.put(ExpirableEntry.of("b", 2));
+        // touch "a", "b" becomes the least recently used
+        assertEquals(Integer.valueOf(1), store.get("a").getValue());
+        store.put(ExpirableEntry.of("c", 3));
+
+        assertEquals(2, store.size());
+        assertFalse(store.containsKey("b"));
+        assertEquals(1, evicted.size());
+        assertEquals("b", evicted.get(0).getKey());
+    }
+
+    @Test
+    public void testSlruKeepsHotEntriesOnScan() {
+        SegmentedStore<String, Integer> store = store(EvictionPolicy.SLRU, 10);
+        store.put(ExpirableEntry.of("hot", 0));
+        store.get("hot");
+        // one-off scan larger than the capacity
+        for (int i = 0; i < 20; i++) {
+            store.put(ExpirableEntry.of("scan-" + i, i));
+        }
+        assertEquals(10, store.size());
+        assertTrue(store.containsKey("hot"));
+        assertEquals(11, evicted.size());
+    }
+
+    @Test
+    public void testWeightedCapacity() {
+        SegmentedStore<String, Integer> store = new SegmentedStore<>(EvictionPolicy.LRU, 10,
+                (key, value) -> value, 1, evicted::add);
+        store.put(ExpirableEntry.of("a", 4));
+        store.put(ExpirableEntry.of("b", 4));
+        store.put(ExpirableEntry.of("c", 4));
+        assertFalse(store.containsKey("a"));
+        assertEquals(2, store.size());
+        // replacing with a heavier value evicts the other entries
+        store.put(ExpirableEntry.of("c", 10));
+        assertEquals(1, store.size());
+        assertTrue(store.containsKey("c"));
+    }
+
+    @Test
+    public void testCapacityNotExceeded() {
+        // fewer entries than the concurrency level
+        SegmentedStore<String, Integer> store = new SegmentedStore<>(EvictionPolicy.LRU, 10, Weigher.SINGLETON, 16,
+                evicted::add);
+        for (int i = 0; i < 1000; i++) {
+            store.put(ExpirableEntry.of("key-" + i, i));
+            assertTrue(store.size() <= 10);
+        }
+        long total = 0;
+        for (int i = 0; i < SegmentedStore.segmentCount(16, 1000); i++) {
+            total += SegmentedStore.segmentCapacity(1000, SegmentedStore.segmentCount(16, 1000), i);
+        }
+        assertEquals(1000, total);
+        assertEquals(8, SegmentedStore.segmentCount(12, 1000));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        SegmentedStore<String, Integer> store = new SegmentedStore<>(EvictionPolicy.SLRU, 1000,
+                Weigher.SINGLETON, 16, e -> {
+        });
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            executorService.execute(() -> {
+                try {
+                    for (int i = 0; i < 10000; i++) {
+                        String key = String.valueOf((i * 31 + offset) % 5000);
+                        store.put(ExpirableEntry.of(key, i));
+                        store.get(key);
+                        if (i % 7 == 0) {
+                            store.remove(key);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executorService.shutdown();
+        assertTrue(store.size() <= 1000);
+        assertEquals(store.size(), store.keySet().size());
+    }
+}
@@ -0,0 +1,128 @@
+package com.lumm.cache.support.offheap;
+
+import com.lumm.cache.configuration.CacheConfiguration;
+import com.lumm.cache.management.CacheStatistics;
+import com.lumm.cache.serialization.StringDeserializer;
+import com.lumm.cache.serialization.ValueCompressor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link OffHeapCache} Test cases
+ */
+public class OffHeapCacheTest {
+
+    private CacheManager cacheManager;
+
+    private OffHeapCache<String, String> cache;
+
+    @Before
+    public void init() {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        Properties properties = new Properties();
+        // 4 slabs of 1KB
+        properties.setProperty(OffHeapCacheManager.CAPACITY_PROPERTY_NAME, "4096");
+        properties.setProperty(OffHeapCacheManager.SLAB_SIZE_PROPERTY_NAME, "1024");
+        cacheManager = cachingProvider.getCacheManager(URI.create("offheap://localhost/"), null, properties);
+        cache = (OffHeapCache<String, String>) cacheManager.createCache("offHeapCache",
+                new MutableConfiguration<String, String>().setTypes(String.class, String.class));
+    }
+
+    @After
+    public void destroy() {
+        cacheManager.destroyCache("offHeapCache");
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        assertTrue(cacheManager instanceof OffHeapCacheManager);
+        cache.put("a", "1");
+        cache.put("a", "2");
+        assertEquals("2", cache.get("a"));
+        assertTrue(cache.containsKey("a"));
+        assertEquals(1, cache.size());
+        assertTrue(cache.getUsedBytes() > 0);
+
+        assertEquals("2", cache.getAndRemove("a"));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testSlabEviction() {
+        // about 70 bytes per serialized value
+        for (int i = 0; i < 200; i++) {
+            cache.put("key-" + i, String.format("%064d", i));
+        }
+        assertEquals(cache.getCapacity(), cache.getAllocatedBytes());
+        assertTrue(cache.size() < 200);
+        // the oldest slab is evicted first
+        assertNull(cache.get("key-0"));
+        assertEquals(String.format("%064d", 199), cache.get("key-199"));
+    }
+
+    @Test
+    public void testSlabFileName() throws IOException {
+        File directory = Files.createTempDirectory("offheap").toFile();
+        OffHeapStore<String> store = new OffHeapStore<>("../cache/a:b", 2048, 1024, directory, null);
+        try {
+            store.put("a", new byte[16], Long.MAX_VALUE);
+            // the name is encoded, the file stays in the directory
+            assertArrayEquals(new String[]{"%2E%2E%2Fcache%2Fa%3Ab-0.slab"}, directory.list());
+        } finally {
+            store.close();
+        }
+        assertEquals(0, directory.list().length);
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(OffHeapCacheManager.CAPACITY_PROPERTY_NAME, "4096");
+        properties.setProperty(OffHeapCacheManager.SLAB_SIZE_PROPERTY_NAME, "1024");
+        properties.setProperty(CacheConfiguration.COMPRESSION_THRESHOLD_PROPERTY_NAME, "64");
+        CacheManager compressedCacheManager = Caching.getCachingProvider().getCacheManager(
+                URI.create("offheap://compression/"), null, properties);
+        OffHeapCache<String, String> compressedCache = (OffHeapCache<String, String>) compressedCacheManager.createCache(
+                "compressedCache", new MutableConfiguration<String, String>().setTypes(String.class, String.class)
+                        .setStatisticsEnabled(true));
+        try {
+            String value = String.format("%0512d", 42);
+            compressedCache.put("large", value);
+            compressedCache.put("small", "1");
+            assertEquals(value, compressedCache.get("large"));
+            assertEquals("1", compressedCache.get("small"));
+            // values below the threshold are stored with the one byte header only
+            assertTrue(compressedCache.getUsedBytes() < 128);
+
+            CacheStatistics statistics = compressedCache.getCacheStatistics();
+            assertEquals(1, statistics.getCompressions());
+            assertTrue(statistics.getCompressionRatio() > 5.0f);
+
+            // values written without the header stay readable
+            ValueCompressor compressor = new ValueCompressor(64, 1, null);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            assertEquals(value, compressor.decompress(bytes, 0, bytes.length, new StringDeserializer()));
+            // without compression the first byte is never taken as a header, e.g. MessagePack nil
+            byte[] nil = {ValueCompressor.RAW};
+            assertArrayEquals(nil, ValueCompressor.NONE.decompress(nil, 0, nil.length, data -> data));
+        } finally {
+            compressedCacheManager.destroyCache("compressedCache");
+        }
+    }
+}